@@ -0,0 +1,132 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+
+package org.apache.james.mime4j;
+
+import java.io.StringReader;
+
+import org.apache.james.mime4j.codec.DecodeMonitor;
+import org.apache.james.mime4j.field.address.AddressListParser;
+import org.apache.james.mime4j.field.address.DefaultAddressParser;
+import org.apache.james.mime4j.field.address.LenientAddressParser;
+
+public class AddressListParserBench {
+
+    // typical To / Cc header values
+    private static final String[] CORPUS = {
+        "john.doe@example.com",
+        "John Doe <john.doe@example.com>",
+        "\"Doe, John\" <john.doe@example.com>, \"Roe, Jane\" <jane.roe@example.org>",
+        "=?UTF-8?Q?J=C3=BCrgen_M=C3=BCller?= <juergen.mueller@example.de>",
+        "dev@lists.example.org, Release Team <release@example.org>, security@example.org",
+        "undisclosed-recipients:;",
+        "\"Support (EU)\" <support+eu@example.com> (ticket 1234), ops@example.com",
+        "Team: alice@example.com, Bob Smith <bob@example.com>, carol@example.com;",
+        "alice@example.com, bob@example.com, carol@example.com, dave@example.com, "
+            + "eve@example.com, frank@example.com, grace@example.com, heidi@example.com",
+        "\"Mailer Daemon\" <MAILER-DAEMON@mx1.example.net>"
+    };
+
+    public static void main(String[] args) throws Exception {
+        int testNumber = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+
+        Test test = createTest(testNumber);
+        if (test == null) {
+            System.err.println("No such test: " + testNumber);
+            return;
+        }
+
+        int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+
+        System.out.println("Address list parsing.");
+        System.out.println("No of repetitions: " + repetitions);
+        System.out.println("Header values: " + CORPUS.length);
+        System.out.println("Test: " + test.getClass().getSimpleName());
+
+        System.out.print("Warmup... ");
+        long t0 = System.currentTimeMillis();
+        while (System.currentTimeMillis() - t0 < 1500) {
+            test.run(CORPUS, 100);
+        }
+        System.out.println("done");
+
+        System.out.println("--------------------------------");
+
+        long start = System.currentTimeMillis();
+        test.run(CORPUS, repetitions);
+        long finish = System.currentTimeMillis();
+
+        double seconds = (finish - start) / 1000.0;
+        System.out.printf("Execution time: %f sec\n", seconds);
+        System.out.printf("%.2f headers/sec\n", repetitions * CORPUS.length / seconds);
+    }
+
+    private static Test createTest(int testNumber) {
+        switch (testNumber) {
+        case 0:
+            return new DefaultAddressParserTest();
+        case 1:
+            return new GeneratedParserTest();
+        case 2:
+            return new LenientAddressParserTest();
+        default:
+            return null;
+        }
+    }
+
+    private interface Test {
+        void run(String[] corpus, int repetitions) throws Exception;
+    }
+
+    private static final class DefaultAddressParserTest implements Test {
+        public void run(String[] corpus, int repetitions) throws Exception {
+            for (int i = 0; i < repetitions; i++) {
+                for (String value : corpus) {
+                    DefaultAddressParser.DEFAULT.parseAddressList(value, DecodeMonitor.STRICT);
+                }
+            }
+        }
+    }
+
+    /**
+     * The generated grammar on its own (syntax tree only, without building
+     * the address objects), i.e. a lower bound for the previous strict path.
+     */
+    private static final class GeneratedParserTest implements Test {
+        public void run(String[] corpus, int repetitions) throws Exception {
+            for (int i = 0; i < repetitions; i++) {
+                for (String value : corpus) {
+                    new AddressListParser(new StringReader(value)).parseAddressList();
+                }
+            }
+        }
+    }
+
+    private static final class LenientAddressParserTest implements Test {
+        public void run(String[] corpus, int repetitions) throws Exception {
+            for (int i = 0; i < repetitions; i++) {
+                for (String value : corpus) {
+                    LenientAddressParser.DEFAULT.parseAddressList(value);
+                }
+            }
+        }
+    }
+
+}
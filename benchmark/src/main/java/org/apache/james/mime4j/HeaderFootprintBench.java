@@ -0,0 +1,98 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+
+package org.apache.james.mime4j;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.james.mime4j.dom.Message;
+import org.apache.james.mime4j.message.DefaultMessageBuilder;
+
+/**
+ * Estimates the heap retained by parsed messages with and without compact
+ * headers. Pass <code>true</code> as first argument to compact headers.
+ */
+public class HeaderFootprintBench {
+
+    // header section of a typical mailing list message
+    private static final String HEADER =
+        "Return-Path: <dev-return-1234-archive=example.org@lists.example.org>\r\n"
+        + "Delivered-To: archive@example.org\r\n"
+        + "Received: from mx1.example.org (mx1.example.org [192.0.2.10])\r\n"
+        + "\tby mail.example.org (Postfix) with ESMTPS id 4F2A81C0042\r\n"
+        + "\tfor <archive@example.org>; Tue, 14 Mar 2023 09:12:45 +0100 (CET)\r\n"
+        + "Received: from lists.example.org (lists.example.org [198.51.100.7])\r\n"
+        + "\tby mx1.example.org (Postfix) with ESMTP id 8B3E2201A1\r\n"
+        + "\tfor <archive@example.org>; Tue, 14 Mar 2023 09:12:44 +0100 (CET)\r\n"
+        + "DKIM-Signature: v=1; a=rsa-sha256; c=relaxed/relaxed; d=example.com; s=2023;\r\n"
+        + "\th=from:to:subject:date:message-id; bh=47DEQpj8HBSa+/TImW+5JCeuQeRkm5NMpJWZG3hSuFU=;\r\n"
+        + "\tb=dGhpcyBpcyBub3QgYSByZWFsIHNpZ25hdHVyZSwgaXQganVzdCBwYWRzIHRoZSBoZWFkZXI=\r\n"
+        + "Message-ID: <20230314081243.GA1234@example.com>\r\n"
+        + "Date: Tue, 14 Mar 2023 09:12:43 +0100\r\n"
+        + "From: John Doe <john.doe@example.com>\r\n"
+        + "To: dev@lists.example.org\r\n"
+        + "Cc: Jane Roe <jane.roe@example.org>\r\n"
+        + "Subject: Re: [VOTE] Release 1.2.3 (second attempt)\r\n"
+        + "In-Reply-To: <20230313170102.GB5678@example.org>\r\n"
+        + "References: <20230313170102.GB5678@example.org>\r\n"
+        + "MIME-Version: 1.0\r\n"
+        + "Content-Type: text/plain; charset=us-ascii\r\n"
+        + "Content-Disposition: inline\r\n"
+        + "List-Id: <dev.lists.example.org>\r\n"
+        + "List-Post: <mailto:dev@lists.example.org>\r\n"
+        + "Precedence: list\r\n"
+        + "\r\n"
+        + "+1\r\n";
+
+    public static void main(String[] args) throws Exception {
+        boolean compact = args.length > 0 && Boolean.parseBoolean(args[0]);
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+
+        byte[] bytes = HEADER.getBytes(StandardCharsets.US_ASCII);
+
+        DefaultMessageBuilder builder = new DefaultMessageBuilder();
+        builder.setLazyFieldParsing(true);
+        builder.setCompactHeaders(compact);
+
+        System.out.println("Retained size of parsed messages.");
+        System.out.println("No of messages: " + count);
+        System.out.println("Compact headers: " + compact);
+
+        long before = usedMemory();
+        Message[] messages = new Message[count];
+        for (int i = 0; i < count; i++) {
+            messages[i] = builder.parseMessage(new ByteArrayInputStream(bytes));
+        }
+        long after = usedMemory();
+
+        System.out.printf("%d bytes/message\n", (after - before) / count);
+        System.out.println(messages[count - 1].getSubject());
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
@@ -41,6 +41,7 @@ public class BufferedLineReaderInputStream extends LineReaderInputStream {
     private byte[] buffer;
     private int bufpos;
     private int buflen;
+    private long discarded;
 
     private final int maxLineLen;
 
@@ -102,6 +103,7 @@ public class BufferedLineReaderInputStream extends LineReaderInputStream {
             if (len > 0) {
                 System.arraycopy(this.buffer, this.bufpos, this.buffer, 0, len);
             }
+            this.discarded += this.bufpos;
             this.bufpos = 0;
             this.buflen = len;
         }
@@ -121,6 +123,15 @@ public class BufferedLineReaderInputStream extends LineReaderInputStream {
         return this.buflen - this.bufpos;
     }
 
+    /**
+     * Returns the offset in the underlying stream of the next byte to be read,
+     * or <code>-1</code> while data pushed back with {@link #unread(ByteArrayBuffer)}
+     * is pending.
+     */
+    public long getPosition() {
+        return tempBuffer ? -1 : this.discarded + this.bufpos;
+    }
+
     public boolean hasBufferedData() {
         return bufferLen() > 0;
     }
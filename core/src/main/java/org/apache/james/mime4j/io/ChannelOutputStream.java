@@ -0,0 +1,147 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+
+package org.apache.james.mime4j.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * {@link OutputStream} writing to a {@link WritableByteChannel}.
+ * <p>
+ * Small writes are coalesced in a buffer. Writes that do not fit in the
+ * buffer are handed to the channel together with the buffered bytes, in a
+ * single gathering write if the channel supports it. Closing the stream
+ * flushes it but leaves the channel open.
+ * <p>
+ * The channel must be in blocking mode. A write that makes no progress is
+ * reported with an <code>IOException</code> rather than retried.
+ */
+public class ChannelOutputStream extends OutputStream {
+
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+
+    /**
+     * @param buffer buffer used to coalesce small writes. It is cleared and
+     *  then owned by this stream until it is closed.
+     * @throws IllegalBlockingModeException if the channel is in non-blocking mode.
+     */
+    public ChannelOutputStream(final WritableByteChannel channel, final ByteBuffer buffer) {
+        if (channel == null) {
+            throw new IllegalArgumentException("Channel may not be null");
+        }
+        if (buffer == null || buffer.capacity() == 0) {
+            throw new IllegalArgumentException("Buffer may not be null or empty");
+        }
+        if (channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking()) {
+            throw new IllegalBlockingModeException();
+        }
+        this.channel = channel;
+        this.buffer = buffer;
+        this.buffer.clear();
+    }
+
+    public ChannelOutputStream(final WritableByteChannel channel) {
+        this(channel, ByteBuffer.allocate(DEFAULT_BUFFER_SIZE));
+    }
+
+    /**
+     * Flushes the buffered bytes and returns the underlying channel, for
+     * callers that write their content to it directly.
+     */
+    public WritableByteChannel getChannel() throws IOException {
+        flush();
+        return channel;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (!buffer.hasRemaining()) {
+            flush();
+        }
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (len <= buffer.remaining()) {
+            buffer.put(b, off, len);
+            return;
+        }
+        if (len < buffer.capacity()) {
+            int n = buffer.remaining();
+            buffer.put(b, off, n);
+            flush();
+            buffer.put(b, off + n, len - n);
+            return;
+        }
+        ByteBuffer src = ByteBuffer.wrap(b, off, len);
+        buffer.flip();
+        if (buffer.hasRemaining() && channel instanceof GatheringByteChannel) {
+            ByteBuffer[] srcs = new ByteBuffer[] { buffer, src };
+            while (src.hasRemaining()) {
+                checkProgress(((GatheringByteChannel) channel).write(srcs));
+            }
+        } else {
+            writeFully(buffer);
+            writeFully(src);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    private void writeFully(final ByteBuffer src) throws IOException {
+        while (src.hasRemaining()) {
+            checkProgress(channel.write(src));
+        }
+    }
+
+    /**
+     * Fails instead of spinning on a channel that accepts no bytes, which a
+     * blocking channel never does.
+     *
+     * @throws IOException if no byte has been written.
+     */
+    public static void checkProgress(long written) throws IOException {
+        if (written <= 0) {
+            throw new IOException("Channel did not accept any bytes; it may be in non-blocking mode");
+        }
+    }
+
+}
@@ -122,7 +122,11 @@ public interface ContentHandler {
     void startHeader() throws MimeException;
 
     /**
-     * Called for each field of a header.
+     * Called for each field of a header. If the parser was configured with
+     * {@link org.apache.james.mime4j.stream.MimeConfig#isFlyweightFields()} the
+     * field instance may be reused and is only valid until the next event;
+     * handlers that retain it must retain a copy obtained from
+     * {@link org.apache.james.mime4j.stream.RawField#copyOf(Field)}.
      *
      * @param rawField the MIME field.
      * @throws MimeException on processing errors
@@ -97,6 +97,19 @@ public class MimeStreamParser {
         this.contentDecoding = b;
     }
 
+    /**
+     * Returns the offset of the current content in the parsed stream. Only
+     * meaningful while {@link ContentHandler#body(BodyDescriptor, InputStream)},
+     * {@link ContentHandler#preamble(InputStream)},
+     * {@link ContentHandler#epilogue(InputStream)} or
+     * {@link ContentHandler#raw(InputStream)} is being called.
+     *
+     * @see MimeTokenStream#getContentOffset()
+     */
+    public long getContentOffset() {
+        return mimeTokenStream.getContentOffset();
+    }
+
     /**
      * Parses a stream of bytes containing a MIME message. Please note that if the
      * {@link MimeConfig} associated with the mime stream returns a not null Content-Type
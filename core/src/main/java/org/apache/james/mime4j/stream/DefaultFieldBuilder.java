@@ -24,6 +24,7 @@ import java.util.BitSet;
 import org.apache.james.mime4j.MimeException;
 import org.apache.james.mime4j.io.MaxHeaderLengthLimitException;
 import org.apache.james.mime4j.util.ByteArrayBuffer;
+import org.apache.james.mime4j.util.ByteSequence;
 
 /**
  * Default implementation of {@link FieldBuilder}.
@@ -44,10 +45,23 @@ public class DefaultFieldBuilder implements FieldBuilder {
 
     private final ByteArrayBuffer buf;
     private final int maxlen;
+    private final MutableRawField flyweight;
+    private final View view;
 
     public DefaultFieldBuilder(int maxlen) {
+        this(maxlen, false);
+    }
+
+    /**
+     * @param flyweight if <code>true</code> the stream parser obtains a single
+     *  reused field backed by the buffer of this builder instead of calling
+     *  {@link #build()}, which always returns a new field.
+     */
+    public DefaultFieldBuilder(int maxlen, boolean flyweight) {
         this.buf = new ByteArrayBuffer(1024);
         this.maxlen = maxlen;
+        this.flyweight = flyweight ? new MutableRawField() : null;
+        this.view = flyweight ? new View() : null;
     }
 
     public void reset() {
@@ -66,6 +80,28 @@ public class DefaultFieldBuilder implements FieldBuilder {
     }
 
     public RawField build() throws MimeException {
+        ByteArrayBuffer copy = new ByteArrayBuffer(this.buf.buffer(), length(), false);
+        RawField field = RawFieldParser.DEFAULT.parseField(copy);
+        checkName(field.getName());
+        return field;
+    }
+
+    boolean isFlyweight() {
+        return this.flyweight != null;
+    }
+
+    /**
+     * Parses the current field into the flyweight of this builder, which is
+     * only valid until the builder is reset.
+     */
+    MutableRawField buildFlyweight() throws MimeException {
+        this.view.len = length();
+        RawFieldParser.DEFAULT.parseField(this.view, this.flyweight);
+        checkName(this.flyweight.getName());
+        return this.flyweight;
+    }
+
+    private int length() {
         int len = this.buf.length();
         if (len > 0) {
             if (this.buf.byteAt(len - 1) == '\n') {
@@ -75,21 +111,47 @@ public class DefaultFieldBuilder implements FieldBuilder {
                 len --;
             }
         }
-        ByteArrayBuffer copy = new ByteArrayBuffer(this.buf.buffer(), len, false);
-        RawField field = RawFieldParser.DEFAULT.parseField(copy);
-        String name = field.getName();
+        return len;
+    }
+
+    private static void checkName(String name) throws MimeException {
         for (int i = 0; i < name.length(); i++) {
             char ch = name.charAt(i);
             if (!FIELD_CHARS.get(ch)) {
                 throw new MimeException("MIME field name contains illegal characters: "
-                        + field.getName());
+                        + name);
             }
         }
-        return field;
     }
 
     public ByteArrayBuffer getRaw() {
         return this.buf;
     }
 
+    /**
+     * View of the current field without the trailing line break.
+     */
+    private final class View implements ByteSequence {
+
+        private int len;
+
+        public int length() {
+            return len;
+        }
+
+        public byte byteAt(int index) {
+            if (index < 0 || index >= len) {
+                throw new IndexOutOfBoundsException();
+            }
+            return buf.byteAt(index);
+        }
+
+        public byte[] toByteArray() {
+            byte[] bytes = new byte[len];
+            System.arraycopy(buf.buffer(), 0, bytes, 0, len);
+            return bytes;
+        }
+
+    }
+
 }
@@ -46,6 +46,7 @@ public final class MimeConfig {
     private final boolean countLineNumbers;
     private final String headlessParsing;
     private final boolean malformedHeaderStartsBody;
+    private final boolean flyweightFields;
 
     MimeConfig(
             boolean strictParsing,
@@ -55,7 +56,8 @@ public final class MimeConfig {
             long maxContentLen,
             boolean countLineNumbers,
             String headlessParsing,
-            boolean malformedHeaderStartsBody) {
+            boolean malformedHeaderStartsBody,
+            boolean flyweightFields) {
         this.strictParsing = strictParsing;
         this.countLineNumbers = countLineNumbers;
         this.malformedHeaderStartsBody = malformedHeaderStartsBody;
@@ -64,6 +66,7 @@ public final class MimeConfig {
         this.maxHeaderLen = maxHeaderLen;
         this.maxContentLen = maxContentLen;
         this.headlessParsing = headlessParsing;
+        this.flyweightFields = flyweightFields;
     }
 
     /**
@@ -151,6 +154,17 @@ public final class MimeConfig {
         return headlessParsing;
     }
 
+    /**
+     * Returns the value of the flyweight field mode.
+     *
+     * @see Builder#setFlyweightFields(boolean)
+     *
+     * @return value of the flyweight field mode.
+     */
+    public boolean isFlyweightFields() {
+        return flyweightFields;
+    }
+
     @Override
     public String toString() {
         StringBuilder b = new StringBuilder();
@@ -162,6 +176,7 @@ public final class MimeConfig {
                 .append(", countLineNumbers=").append(countLineNumbers)
                 .append(", headlessParsing=").append(headlessParsing)
                 .append(", malformedHeaderStartsBody=").append(malformedHeaderStartsBody)
+                .append(", flyweightFields=").append(flyweightFields)
                 .append("]");
         return b.toString();
     }
@@ -182,7 +197,8 @@ public final class MimeConfig {
             .setMaxContentLen(config.getMaxContentLen())
             .setCountLineNumbers(config.isCountLineNumbers())
             .setHeadlessParsing(config.getHeadlessParsing())
-            .setMalformedHeaderStartsBody(config.isMalformedHeaderStartsBody());
+            .setMalformedHeaderStartsBody(config.isMalformedHeaderStartsBody())
+            .setFlyweightFields(config.isFlyweightFields());
     }
 
     public static class Builder {
@@ -195,6 +211,7 @@ public final class MimeConfig {
         private boolean countLineNumbers;
         private String headlessParsing;
         private boolean malformedHeaderStartsBody;
+        private boolean flyweightFields;
 
         public Builder() {
             this.strictParsing = false;
@@ -205,6 +222,7 @@ public final class MimeConfig {
             this.maxHeaderLen = 10000;
             this.maxContentLen = -1;
             this.headlessParsing = null;
+            this.flyweightFields = false;
         }
 
         /**
@@ -339,6 +357,26 @@ public final class MimeConfig {
             return this;
         }
 
+        /**
+         * Defines whether raw fields are handed out as flyweights. In this mode
+         * the parser reuses a single mutable field over its own buffer for the
+         * header fields, so that scanning headers does not allocate per field.
+         * Fields are still copied when passed to a body descriptor builder
+         * other than the default one. A field obtained from
+         * {@link org.apache.james.mime4j.parser.ContentHandler#field(Field)} or
+         * {@link MimeTokenStream#getField()} is then only valid until the next
+         * event; use {@link RawField#copyOf(Field)} to retain it.
+         * <p>
+         * Default value: <code>false</code>
+         *
+         * @param flyweightFields
+         *            value of the flyweight field mode.
+         */
+        public Builder setFlyweightFields(boolean flyweightFields) {
+            this.flyweightFields = flyweightFields;
+            return this;
+        }
+
         public MimeConfig build() {
             return new MimeConfig(
                     strictParsing,
@@ -348,7 +386,8 @@ public final class MimeConfig {
                     maxContentLen,
                     countLineNumbers,
                     headlessParsing,
-                    malformedHeaderStartsBody);
+                    malformedHeaderStartsBody,
+                    flyweightFields);
         }
 
     }
@@ -44,6 +44,7 @@ class MimeEntity implements EntityStateMachine {
     private final MimeConfig config;
     private final DecodeMonitor monitor;
     private final FieldBuilder fieldBuilder;
+    private final DefaultFieldBuilder flyweightBuilder;
     private final BodyDescriptorBuilder bodyDescBuilder;
 
     private final ByteArrayBuffer linebuf;
@@ -63,6 +64,9 @@ class MimeEntity implements EntityStateMachine {
 
     private byte[] tmpbuf;
 
+    /** Offset of this entity in the root input stream, -1 if unknown. */
+    private long origin;
+
     MimeEntity(
             LineNumberSource lineSource,
             InputStream instream,
@@ -78,6 +82,8 @@ class MimeEntity implements EntityStateMachine {
         this.endState = endState;
         this.monitor = monitor;
         this.fieldBuilder = fieldBuilder;
+        this.flyweightBuilder = config.isFlyweightFields() && fieldBuilder instanceof DefaultFieldBuilder
+                && ((DefaultFieldBuilder) fieldBuilder).isFlyweight() ? (DefaultFieldBuilder) fieldBuilder : null;
         this.bodyDescBuilder = bodyDescBuilder;
         this.linebuf = new ByteArrayBuffer(64);
         this.lineCount = 0;
@@ -102,7 +108,7 @@ class MimeEntity implements EntityStateMachine {
             BodyDescriptorBuilder bodyDescBuilder) {
         this(lineSource, instream, config, startState, endState,
                 config.isStrictParsing() ? DecodeMonitor.STRICT : DecodeMonitor.SILENT,
-                new DefaultFieldBuilder(config.getMaxHeaderLen()),
+                new DefaultFieldBuilder(config.getMaxHeaderLen(), config.isFlyweightFields()),
                 bodyDescBuilder);
     }
 
@@ -114,7 +120,7 @@ class MimeEntity implements EntityStateMachine {
         this(lineSource, instream, config,
                 EntityState.T_START_MESSAGE, EntityState.T_END_MESSAGE,
                 config.isStrictParsing() ? DecodeMonitor.STRICT : DecodeMonitor.SILENT,
-                new DefaultFieldBuilder(config.getMaxHeaderLen()),
+                new DefaultFieldBuilder(config.getMaxHeaderLen(), config.isFlyweightFields()),
                 bodyDescBuilder);
     }
 
@@ -257,7 +263,15 @@ class MimeEntity implements EntityStateMachine {
             fieldBuilder.reset();
             readRawField();
             try {
-                RawField rawfield = fieldBuilder.build();
+                MutableRawField flyweight = flyweightBuilder != null ? flyweightBuilder.buildFlyweight() : null;
+                if (flyweight != null && !needsCopy(flyweight)) {
+                    if (flyweight.getDelimiterIdx() != flyweight.getName().length()) {
+                        monitor(Event.OBSOLETE_HEADER);
+                    }
+                    field = flyweight;
+                    return true;
+                }
+                RawField rawfield = flyweight != null ? flyweight.copy() : fieldBuilder.build();
                 if (rawfield == null) {
                     continue;
                 }
@@ -282,6 +296,22 @@ class MimeEntity implements EntityStateMachine {
         }
     }
 
+    /**
+     * The flyweight is handed out as is only if the body descriptor builder is
+     * the fallback builder, which keeps no reference to the fields it is passed
+     * and reads nothing but the fields describing the body. Any other builder
+     * may retain the field, so it gets a copy.
+     */
+    private boolean needsCopy(MutableRawField flyweight) {
+        if (!(bodyDescBuilder instanceof FallbackBodyDescriptorBuilder)) {
+            return true;
+        }
+        String name = flyweight.getNameLowerCase();
+        return name.equals("content-type")
+                || name.equals("content-transfer-encoding")
+                || name.equals("content-length");
+    }
+
     public EntityStateMachine advance() throws IOException, MimeException {
         switch (state) {
         case T_START_MESSAGE:
@@ -418,8 +448,10 @@ class MimeEntity implements EntityStateMachine {
     }
 
     private EntityStateMachine nextMimeEntity(EntityState startState, EntityState endState, InputStream instream) {
+        // decoded streams have no position in the root stream
+        long offset = instream == currentMimePartStream || instream == inbuffer ? getPosition() : -1;
         if (recursionMode == RecursionMode.M_RAW) {
-            return new RawEntity(instream);
+            return new RawEntity(instream, offset);
         } else {
             MimeEntity mimeentity = new MimeEntity(
                     lineSource,
@@ -431,10 +463,16 @@ class MimeEntity implements EntityStateMachine {
                     fieldBuilder,
                     bodyDescBuilder.newChild());
             mimeentity.setRecursionMode(recursionMode);
+            mimeentity.origin = offset;
             return mimeentity;
         }
     }
 
+    private long getPosition() {
+        long pos = origin >= 0 ? inbuffer.getPosition() : -1;
+        return pos >= 0 ? origin + pos : -1;
+    }
+
     private InputStream getLimitedContentStream() {
         long maxContentLimit = config.getMaxContentLen();
         if (maxContentLimit >= 0) {
@@ -498,6 +536,26 @@ class MimeEntity implements EntityStateMachine {
         }
     }
 
+    /**
+     * Returns the offset of the current content in the root input stream.
+     * This method is valid in the same states as {@link #getContentStream()}.
+     *
+     * @return offset of the first content byte, or <code>-1</code> if the
+     *  content does not map onto a contiguous range of the root stream,
+     *  for instance inside an encoded <code>message/rfc822</code> part.
+     */
+    public long getContentOffset() {
+        switch (state) {
+        case T_START_MULTIPART:
+        case T_PREAMBLE:
+        case T_EPILOGUE:
+        case T_BODY:
+            return getPosition();
+        default:
+            throw new IllegalStateException("Invalid state: " + stateToString(state));
+        }
+    }
+
     /**
      * @see org.apache.james.mime4j.stream.EntityStateMachine#getDecodedContentStream()
      */
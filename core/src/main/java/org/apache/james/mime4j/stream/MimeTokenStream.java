@@ -126,7 +126,7 @@ public class MimeTokenStream {
         super();
         this.config = config != null ? config : MimeConfig.DEFAULT;
         this.fieldBuilder = fieldBuilder != null ? fieldBuilder :
-            new DefaultFieldBuilder(this.config.getMaxHeaderLen());
+            new DefaultFieldBuilder(this.config.getMaxHeaderLen(), this.config.isFlyweightFields());
         this.monitor = monitor != null ? monitor :
             (this.config.isStrictParsing() ? DecodeMonitor.STRICT : DecodeMonitor.SILENT);
         this.bodyDescBuilder = bodyDescBuilder != null ? bodyDescBuilder :
@@ -305,6 +305,35 @@ public class MimeTokenStream {
         return currentStateMachine.getDecodedContentStream();
     }
 
+    /**
+     * <p>
+     * Gets the offset of the current content in the parsed stream. Together
+     * with the number of bytes read from {@link #getInputStream()} this
+     * locates the raw (not transfer decoded) content in the source, which
+     * lets callers holding the whole message in memory reference the content
+     * rather than copy it.
+     * </p>
+     * <p>
+     * This method is valid, if {@link #getState()} returns either of
+     * {@link EntityState#T_BODY}, {@link EntityState#T_RAW_ENTITY},
+     * {@link EntityState#T_PREAMBLE}, or {@link EntityState#T_EPILOGUE}.
+     * </p>
+     *
+     * @return offset of the first content byte, or <code>-1</code> if the
+     *  content cannot be located in the parsed stream, for instance because
+     *  it is part of an encoded embedded message.
+     * @throws IllegalStateException {@link #getState()} returns an
+     *   invalid value.
+     */
+    public long getContentOffset() {
+        if (currentStateMachine instanceof MimeEntity) {
+            return ((MimeEntity) currentStateMachine).getContentOffset();
+        } else if (currentStateMachine instanceof RawEntity) {
+            return ((RawEntity) currentStateMachine).getContentOffset();
+        }
+        return -1;
+    }
+
     /**
      * Gets a reader configured for the current body or body part.
      * The reader will return a transfer and charset decoded
@@ -353,6 +382,9 @@ public class MimeTokenStream {
 
     /**
      * This method is valid, if {@link #getState()} returns {@link EntityState#T_FIELD}.
+     * In flyweight mode (see {@link MimeConfig#isFlyweightFields()}) the returned
+     * instance may be reused and is only valid until the next call to
+     * {@link #next()}; use {@link RawField#copyOf(Field)} to retain it.
      * @return String with the fields raw contents.
      * @throws IllegalStateException {@link #getState()} returns another
      *   value than {@link EntityState#T_FIELD}.
@@ -0,0 +1,90 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.mime4j.stream;
+
+import java.util.Locale;
+
+import org.apache.james.mime4j.util.ByteArrayBuffer;
+import org.apache.james.mime4j.util.ByteSequence;
+import org.apache.james.mime4j.util.ContentUtil;
+
+/**
+ * Raw field that is reused for every field of a header in flyweight mode (see
+ * {@link MimeConfig.Builder#setFlyweightFields(boolean)}). The raw bytes are a
+ * view over the buffer of {@link DefaultFieldBuilder}, so an instance is only
+ * valid until the next field is read. {@link RawField#copyOf(Field)} detaches
+ * it.
+ */
+final class MutableRawField implements Field {
+
+    private ByteSequence raw;
+    private int delimiterIdx;
+    private String name;
+    private String nameLowerCase;
+
+    MutableRawField() {
+        this.delimiterIdx = -1;
+        this.name = "";
+    }
+
+    void reset(ByteSequence raw, int delimiterIdx, String name) {
+        this.raw = raw;
+        this.delimiterIdx = delimiterIdx;
+        this.name = name.trim();
+        this.nameLowerCase = null;
+    }
+
+    /**
+     * Returns an immutable copy of the current field.
+     */
+    RawField copy() {
+        ByteArrayBuffer bytes = new ByteArrayBuffer(raw.toByteArray(), true);
+        return new RawField(bytes, delimiterIdx, name, null);
+    }
+
+    public ByteSequence getRaw() {
+        return raw;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getNameLowerCase() {
+        if (nameLowerCase == null) {
+            nameLowerCase = name.toLowerCase(Locale.US);
+        }
+        return nameLowerCase;
+    }
+
+    public String getBody() {
+        return raw != null ? RawField.bodyView(raw, delimiterIdx).toString() : null;
+    }
+
+    public int getDelimiterIdx() {
+        return delimiterIdx;
+    }
+
+    @Override
+    public String toString() {
+        return raw != null ? ContentUtil.decode(raw) : name + ": ";
+    }
+
+}
@@ -30,14 +30,20 @@ import java.io.InputStream;
 public class RawEntity implements EntityStateMachine {
 
     private final InputStream stream;
+    private final long offset;
 
     private EntityState state;
 
-    RawEntity(InputStream stream) {
+    RawEntity(InputStream stream, long offset) {
         this.stream = stream;
+        this.offset = offset;
         this.state = EntityState.T_RAW_ENTITY;
     }
 
+    RawEntity(InputStream stream) {
+        this(stream, -1);
+    }
+
     public EntityState getState() {
         return state;
     }
@@ -60,6 +66,14 @@ public class RawEntity implements EntityStateMachine {
         return stream;
     }
 
+    /**
+     * Returns the offset of the raw data in the root input stream,
+     * or <code>-1</code> if unknown.
+     */
+    public long getContentOffset() {
+        return offset;
+    }
+
     /**
      * This method has no effect and always returns <code>null</code>.
      */
@@ -21,10 +21,10 @@ package org.apache.james.mime4j.stream;
 
 import java.util.Locale;
 
+import org.apache.james.mime4j.util.AsciiByteSequenceView;
 import org.apache.james.mime4j.util.ByteSequence;
 import org.apache.james.mime4j.util.CharsetUtil;
 import org.apache.james.mime4j.util.ContentUtil;
-import org.apache.james.mime4j.util.MimeUtil;
 
 /**
  * <p>
@@ -57,6 +57,23 @@ public final class RawField implements Field {
         this(null, -1, name, body);
     }
 
+    /**
+     * Returns a field that can safely be retained after the parser has moved on.
+     * If the parser hands out flyweight fields (see
+     * {@link MimeConfig.Builder#setFlyweightFields(boolean)}) the returned field
+     * is an immutable copy of the flyweight, otherwise <code>field</code> itself
+     * is returned.
+     *
+     * @param field the field passed by the parser.
+     * @return a field that is not reused by the parser.
+     */
+    public static Field copyOf(Field field) {
+        if (field instanceof MutableRawField) {
+            return ((MutableRawField) field).copy();
+        }
+        return field;
+    }
+
     public ByteSequence getRaw() {
         return raw;
     }
@@ -78,16 +95,35 @@ public final class RawField implements Field {
             return body;
         }
         if (raw != null) {
-            int len = raw.length();
-            int off = delimiterIdx + 1;
-            if (len > off + 1 && (CharsetUtil.isWhitespace((char) (raw.byteAt(off) & 0xff)))) {
-                off++;
-            }
-            return MimeUtil.unfold(ContentUtil.decode(raw, off, len - off));
+            return getBodyView().toString();
         }
         return null;
     }
 
+    /**
+     * Returns the unfolded field body like {@link #getBody()}. If the field has
+     * a raw representation the returned sequence is a view over the raw bytes
+     * and no <code>String</code> is created; callers that keep the value should
+     * convert it with {@link CharSequence#toString()}.
+     *
+     * @return the unfolded field body or <code>null</code> if not available.
+     */
+    public CharSequence getBodyView() {
+        if (body != null || raw == null) {
+            return body;
+        }
+        return bodyView(raw, delimiterIdx);
+    }
+
+    static CharSequence bodyView(ByteSequence raw, int delimiterIdx) {
+        int len = raw.length();
+        int off = delimiterIdx + 1;
+        if (len > off + 1 && (CharsetUtil.isWhitespace((char) (raw.byteAt(off) & 0xff)))) {
+            off++;
+        }
+        return AsciiByteSequenceView.unfold(raw, off, len - off);
+    }
+
     public int getDelimiterIdx() {
         return delimiterIdx;
     }
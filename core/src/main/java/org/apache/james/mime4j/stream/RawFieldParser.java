@@ -21,12 +21,15 @@ package org.apache.james.mime4j.stream;
 
 import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.james.mime4j.MimeException;
 import org.apache.james.mime4j.util.ByteSequence;
 import org.apache.james.mime4j.util.CharsetUtil;
 import org.apache.james.mime4j.util.ContentUtil;
+import org.apache.james.mime4j.util.FieldNameMap;
 
 /**
  * <p>
@@ -51,6 +54,28 @@ public class RawFieldParser {
     static final BitSet EQUAL_OR_SEMICOLON      = INIT_BITSET('=', ';');
     static final BitSet SEMICOLON               = INIT_BITSET(';');
 
+    /**
+     * Names of common fields. Their String instances are shared by all fields parsed
+     * with a name spelled exactly the same way.
+     */
+    private static final FieldNameMap<String> WELL_KNOWN_NAMES = initWellKnownNames(
+            "Content-Type", "Content-Length", "Content-Transfer-Encoding", "Content-Disposition",
+            "Content-ID", "Content-MD5", "Content-Description", "Content-Language",
+            "Content-Location", "MIME-Version", "Date", "Message-ID", "Subject", "From", "Sender",
+            "To", "Cc", "Bcc", "Reply-To", "In-Reply-To", "References", "Resent-Date",
+            "Resent-From", "Resent-Sender", "Resent-To", "Resent-Cc", "Resent-Bcc",
+            "Received", "Return-Path", "Delivered-To", "Received-SPF", "Authentication-Results",
+            "DKIM-Signature", "ARC-Seal", "ARC-Message-Signature", "ARC-Authentication-Results",
+            "List-Id", "List-Unsubscribe", "Precedence", "X-Mailer");
+
+    private static FieldNameMap<String> initWellKnownNames(String... names) {
+        Map<String, String> map = new HashMap<String, String>();
+        for (String name : names) {
+            map.put(name, name);
+        }
+        return new FieldNameMap<String>(map);
+    }
+
     public static final RawFieldParser DEFAULT = new RawFieldParser();
 
     /**
@@ -62,6 +87,13 @@ public class RawFieldParser {
         if (raw == null) {
             return null;
         }
+        int colon = indexOfPlainName(raw);
+        if (colon > 0) {
+            String name = WELL_KNOWN_NAMES.getExactName(raw, 0, colon);
+            if (name != null) {
+                return new RawField(raw, colon, name, null);
+            }
+        }
         ParserCursor cursor = new ParserCursor(0, raw.length());
         String name = parseToken(raw, cursor, COLON);
         if (cursor.atEnd()) {
@@ -71,6 +103,38 @@ public class RawFieldParser {
         return new RawField(raw, cursor.getPos(), name, null);
     }
 
+    /**
+     * Parses the sequence of bytes into the given flyweight field. Only fields
+     * with a well-known name are parsed without allocation.
+     */
+    void parseField(final ByteSequence raw, final MutableRawField target) throws MimeException {
+        int colon = indexOfPlainName(raw);
+        String name = colon > 0 ? WELL_KNOWN_NAMES.getExactName(raw, 0, colon) : null;
+        if (name == null) {
+            RawField field = parseField(raw);
+            colon = field.getDelimiterIdx();
+            name = field.getName();
+        }
+        target.reset(raw, colon, name);
+    }
+
+    /**
+     * Returns the index of the name/value separator if the field name contains no
+     * whitespace or comments, <code>-1</code> otherwise.
+     */
+    private static int indexOfPlainName(final ByteSequence raw) {
+        for (int i = 0; i < raw.length(); i++) {
+            int b = raw.byteAt(i) & 0xff;
+            if (b == ':') {
+                return i;
+            }
+            if (b <= ' ' || b == '(') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
     /**
      * Parses the field body containing a value with parameters into {@link RawBody}.
      *
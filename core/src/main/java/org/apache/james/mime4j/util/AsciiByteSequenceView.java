@@ -0,0 +1,195 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+
+package org.apache.james.mime4j.util;
+
+/**
+ * Read-only {@link CharSequence} view of a range of a {@link ByteSequence}
+ * holding US-ASCII (or ISO-8859-1) text. Each byte maps onto exactly one
+ * character, the same way {@link ContentUtil#decode(ByteSequence, int, int)}
+ * decodes bytes. Header values can thus be tokenized directly over the bytes
+ * they were read as; a <code>String</code> is only created by
+ * {@link #toString()}.
+ * <p>
+ * Views created by {@link #unfold(ByteSequence, int, int)} skip all CR and LF
+ * bytes of the range, i.e. they present the range as if it had been unfolded
+ * with {@link MimeUtil#unfold(String)}.
+ * </p>
+ * <p>
+ * A view does not copy the bytes, so it must not outlive modifications of the
+ * underlying byte sequence.
+ * </p>
+ */
+public final class AsciiByteSequenceView implements CharSequence {
+
+    private final ByteSequence buf;
+    private final int offset;
+    private final int length;
+    // positions of skipped line break bytes relative to offset, or null if none
+    private final int[] breaks;
+
+    /**
+     * Creates a view of all bytes of the given byte sequence.
+     */
+    public AsciiByteSequenceView(final ByteSequence buf) {
+        this(buf, 0, buf.length());
+    }
+
+    /**
+     * Creates a view of <code>length</code> bytes of the given byte sequence
+     * starting at <code>offset</code>.
+     */
+    public AsciiByteSequenceView(final ByteSequence buf, final int offset, final int length) {
+        this(buf, offset, length, null);
+        if (offset < 0 || length < 0 || offset + length > buf.length()) {
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+    private AsciiByteSequenceView(final ByteSequence buf, final int offset, final int length,
+            final int[] breaks) {
+        this.buf = buf;
+        this.offset = offset;
+        this.length = length;
+        this.breaks = breaks;
+    }
+
+    /**
+     * Creates an unfolded view of <code>length</code> bytes of the given byte
+     * sequence starting at <code>offset</code>: all CR and LF bytes are
+     * skipped.
+     */
+    public static AsciiByteSequenceView unfold(final ByteSequence buf, final int offset,
+            final int length) {
+        if (offset < 0 || length < 0 || offset + length > buf.length()) {
+            throw new IndexOutOfBoundsException();
+        }
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (isLineBreak(buf.byteAt(offset + i))) {
+                count++;
+            }
+        }
+        if (count == 0) {
+            return new AsciiByteSequenceView(buf, offset, length, null);
+        }
+        int[] breaks = new int[count];
+        for (int i = 0, j = 0; j < count; i++) {
+            if (isLineBreak(buf.byteAt(offset + i))) {
+                breaks[j++] = i;
+            }
+        }
+        return new AsciiByteSequenceView(buf, offset, length - count, breaks);
+    }
+
+    private static boolean isLineBreak(final byte b) {
+        return b == '\r' || b == '\n';
+    }
+
+    /**
+     * Returns the underlying byte sequence.
+     */
+    public ByteSequence getByteSequence() {
+        return buf;
+    }
+
+    /**
+     * Returns the position of the first character of this view within the
+     * underlying byte sequence.
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Returns <code>true</code> if the characters of this view map one to one
+     * onto the bytes of the underlying byte sequence starting at
+     * {@link #getOffset()}, i.e. no line breaks are skipped.
+     */
+    public boolean isContiguous() {
+        return breaks == null;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public char charAt(final int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + length);
+        }
+        return (char) (buf.byteAt(offset + source(index)) & 0xff);
+    }
+
+    public CharSequence subSequence(final int start, final int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (breaks == null || start == end) {
+            return new AsciiByteSequenceView(buf, offset + start, end - start, null);
+        }
+        int from = source(start);
+        int to = source(end - 1) + 1;
+        return unfold(buf, offset + from, to - from);
+    }
+
+    /**
+     * Maps a character index onto a byte position relative to the offset.
+     */
+    private int source(final int index) {
+        if (breaks == null) {
+            return index;
+        }
+        // number of breaks preceding the character: break j precedes it if
+        // fewer than index + 1 characters come before the break
+        int lo = 0;
+        int hi = breaks.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (breaks[mid] - mid <= index) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return index + lo;
+    }
+
+    @Override
+    public String toString() {
+        char[] chars = new char[length];
+        if (breaks == null) {
+            for (int i = 0; i < length; i++) {
+                chars[i] = (char) (buf.byteAt(offset + i) & 0xff);
+            }
+        } else {
+            int n = 0;
+            int end = length + breaks.length;
+            for (int i = 0; i < end; i++) {
+                byte b = buf.byteAt(offset + i);
+                if (!isLineBreak(b)) {
+                    chars[n++] = (char) (b & 0xff);
+                }
+            }
+        }
+        return new String(chars);
+    }
+
+}
@@ -0,0 +1,168 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+
+package org.apache.james.mime4j.util;
+
+/**
+ * Statistics about the bytes of a body, gathered in a single pass, that
+ * tell which <code>Content-Transfer-Encoding</code> suits the body best.
+ * <p>
+ * Instances are filled with {@link #update(byte[], int, int)} while the
+ * content goes by, for instance through a
+ * {@link org.apache.james.mime4j.io.StatisticsInputStream}.
+ * Instances of this class are not thread-safe.
+ */
+public final class ContentStatistics {
+
+    /** Maximum length of a line in 7bit data, excluding the CRLF (RFC 5322). */
+    public static final int MAX_7BIT_LINE_LENGTH = 998;
+
+    private long length;
+    private long eightBitCount;
+    private long maxLineLength;
+    private long lineLength;
+    private boolean nul;
+    private boolean bareLineBreak;
+    private boolean pendingCr;
+
+    /**
+     * Returns the statistics of the given content.
+     */
+    public static ContentStatistics of(final byte[] b, final int off, final int len) {
+        ContentStatistics statistics = new ContentStatistics();
+        statistics.update(b, off, len);
+        return statistics;
+    }
+
+    public void update(final byte[] b, final int off, final int len) {
+        for (int i = off; i < off + len; i++) {
+            update(b[i]);
+        }
+    }
+
+    public void update(final int b) {
+        int c = b & 0xff;
+        length++;
+        if (pendingCr) {
+            pendingCr = false;
+            if (c == '\n') {
+                endLine();
+                return;
+            }
+            bareLineBreak = true;
+        }
+        if (c == '\r') {
+            pendingCr = true;
+            return;
+        }
+        if (c == '\n') {
+            bareLineBreak = true;
+            endLine();
+            return;
+        }
+        if (c >= 0x80) {
+            eightBitCount++;
+        } else if (c == 0) {
+            nul = true;
+        }
+        lineLength++;
+    }
+
+    private void endLine() {
+        if (lineLength > maxLineLength) {
+            maxLineLength = lineLength;
+        }
+        lineLength = 0;
+    }
+
+    /**
+     * Returns the number of bytes seen.
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Returns the number of bytes with the high bit set.
+     */
+    public long getEightBitCount() {
+        return eightBitCount;
+    }
+
+    /**
+     * Returns the length of the longest line, excluding line breaks.
+     */
+    public long getMaxLineLength() {
+        return Math.max(maxLineLength, lineLength);
+    }
+
+    /**
+     * Returns <code>true</code> if a NUL byte has been seen.
+     */
+    public boolean hasNul() {
+        return nul;
+    }
+
+    /**
+     * Returns <code>true</code> if a CR or LF has been seen that is not
+     * part of a CRLF pair.
+     */
+    public boolean hasBareLineBreak() {
+        return bareLineBreak || pendingCr;
+    }
+
+    /**
+     * Returns the ratio of bytes with the high bit set, between 0 and 1.
+     */
+    public double getNonAsciiRatio() {
+        return length > 0 ? (double) eightBitCount / length : 0;
+    }
+
+    /**
+     * Returns <code>true</code> if the content can be sent as is in
+     * <code>7bit</code> data.
+     */
+    public boolean is7bit() {
+        return eightBitCount == 0 && !nul && !hasBareLineBreak()
+            && getMaxLineLength() <= MAX_7BIT_LINE_LENGTH;
+    }
+
+    /**
+     * Returns the transfer encoding that represents the content most
+     * compactly in 7bit data: <code>7bit</code> if it already is,
+     * <code>quoted-printable</code> for text that is mostly ASCII and
+     * <code>base64</code> otherwise.
+     *
+     * @param text
+     *            whether the content is text, whose line breaks have to be
+     *            kept readable.
+     */
+    public String getTransferEncoding(final boolean text) {
+        if (is7bit()) {
+            return MimeUtil.ENC_7BIT;
+        }
+        // quoted-printable adds two bytes per 8bit byte, base64 one byte per three
+        if (text && !nul && !hasBareLineBreak() && eightBitCount * 6 <= length) {
+            return MimeUtil.ENC_QUOTED_PRINTABLE;
+        }
+        return MimeUtil.ENC_BASE64;
+    }
+
+}
@@ -0,0 +1,218 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+
+package org.apache.james.mime4j.util;
+
+import java.util.Map;
+
+/**
+ * <p>
+ * Immutable map keyed by MIME field names. Keys are matched case-insensitively (US-ASCII)
+ * either against a {@link CharSequence} or directly against a range of a
+ * {@link ByteSequence}, so that a value can be looked up from raw field bytes without
+ * decoding the field name into a String first.
+ * </p>
+ * <p>
+ * Keys are stored in an open addressing table whose size is chosen, where possible,
+ * so that no two keys share the same slot. Lookups of registered names then take
+ * exactly one probe. Lookups never allocate.
+ * </p>
+ * <p>
+ * This class is immutable and thread safe.
+ * </p>
+ */
+public final class FieldNameMap<V> {
+
+    private static final int MAX_SIZE_FACTOR = 64;
+
+    private final String[] names;
+    private final int[] hashes;
+    private final Object[] values;
+    private final int mask;
+
+    /**
+     * Creates a new map with the given entries. Keys which only differ in case are
+     * considered equal; the last one wins.
+     */
+    public FieldNameMap(final Map<String, ? extends V> entries) {
+        int n = Math.max(entries.size(), 1);
+        int[] entryHashes = new int[entries.size()];
+        int idx = 0;
+        for (String name : entries.keySet()) {
+            entryHashes[idx++] = spread(hash(name));
+        }
+        int capacity = Integer.highestOneBit(n * 2 - 1) << 1;
+        while (capacity < n * MAX_SIZE_FACTOR && !isCollisionFree(entryHashes, capacity - 1)) {
+            capacity <<= 1;
+        }
+        this.names = new String[capacity];
+        this.hashes = new int[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+        for (Map.Entry<String, ? extends V> entry : entries.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private static boolean isCollisionFree(final int[] spreadHashes, final int mask) {
+        boolean[] used = new boolean[mask + 1];
+        int[] slots = new int[mask + 1];
+        for (int h : spreadHashes) {
+            int i = h & mask;
+            // equal hashes cannot be separated by a larger table
+            if (used[i] && slots[i] != h) {
+                return false;
+            }
+            used[i] = true;
+            slots[i] = h;
+        }
+        return true;
+    }
+
+    private void put(final String name, final V value) {
+        int h = hash(name);
+        int i = spread(h) & mask;
+        while (names[i] != null) {
+            if (hashes[i] == h && names[i].equalsIgnoreCase(name)) {
+                break;
+            }
+            i = (i + 1) & mask;
+        }
+        names[i] = name;
+        hashes[i] = h;
+        values[i] = value;
+    }
+
+    private static int spread(final int h) {
+        return h ^ (h >>> 16);
+    }
+
+    private static int toLowerCase(final int ch) {
+        return ch >= 'A' && ch <= 'Z' ? ch + ('a' - 'A') : ch;
+    }
+
+    /**
+     * Computes a case-insensitive (US-ASCII) hash code of the given name. The result is
+     * equal to the {@link String#hashCode()} of the lower case form of the name.
+     */
+    public static int hash(final CharSequence name) {
+        int h = 0;
+        for (int i = 0; i < name.length(); i++) {
+            h = 31 * h + toLowerCase(name.charAt(i));
+        }
+        return h;
+    }
+
+    /**
+     * Computes a case-insensitive (US-ASCII) hash code of the given range of bytes,
+     * consistent with {@link #hash(CharSequence)}.
+     */
+    public static int hash(final ByteSequence buf, final int off, final int len) {
+        int h = 0;
+        for (int i = off; i < off + len; i++) {
+            h = 31 * h + toLowerCase(buf.byteAt(i) & 0xff);
+        }
+        return h;
+    }
+
+    private static boolean equalsIgnoreCase(final String name, final ByteSequence buf,
+            final int off, final int len) {
+        if (name.length() != len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (toLowerCase(name.charAt(i)) != toLowerCase(buf.byteAt(off + i) & 0xff)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equalsIgnoreCase(final String name, final CharSequence other) {
+        if (name.length() != other.length()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (toLowerCase(name.charAt(i)) != toLowerCase(other.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int indexOf(final CharSequence name) {
+        int h = hash(name);
+        for (int i = spread(h) & mask; names[i] != null; i = (i + 1) & mask) {
+            if (hashes[i] == h && equalsIgnoreCase(names[i], name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int indexOf(final ByteSequence buf, final int off, final int len) {
+        int h = hash(buf, off, len);
+        for (int i = spread(h) & mask; names[i] != null; i = (i + 1) & mask) {
+            if (hashes[i] == h && equalsIgnoreCase(names[i], buf, off, len)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the value mapped to the given name or <code>null</code>.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(final CharSequence name) {
+        int i = indexOf(name);
+        return i != -1 ? (V) values[i] : null;
+    }
+
+    /**
+     * Returns the value mapped to the name contained in the given range of bytes
+     * or <code>null</code>.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(final ByteSequence buf, final int off, final int len) {
+        int i = indexOf(buf, off, len);
+        return i != -1 ? (V) values[i] : null;
+    }
+
+    /**
+     * Returns the key, as it was registered, matching the given range of bytes exactly
+     * (case-sensitively) or <code>null</code>. This can be used to reuse a String
+     * instance instead of decoding the bytes.
+     */
+    public String getExactName(final ByteSequence buf, final int off, final int len) {
+        int i = indexOf(buf, off, len);
+        if (i == -1) {
+            return null;
+        }
+        String name = names[i];
+        for (int j = 0; j < len; j++) {
+            if (name.charAt(j) != (char) (buf.byteAt(off + j) & 0xff)) {
+                return null;
+            }
+        }
+        return name;
+    }
+
+}
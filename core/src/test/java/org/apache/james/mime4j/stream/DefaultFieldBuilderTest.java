@@ -133,4 +133,31 @@ public class DefaultFieldBuilderTest extends TestCase {
         }
     }
 
+    public void testFlyweight() throws Exception {
+        DefaultFieldBuilder builder = new DefaultFieldBuilder(0, true);
+        builder.reset();
+        builder.append(line("Subject: stuff\r\n"));
+        MutableRawField field1 = builder.buildFlyweight();
+        assertEquals("Subject", field1.getName());
+        assertEquals("stuff", field1.getBody());
+        Field copy = RawField.copyOf(field1);
+        assertTrue(copy instanceof RawField);
+
+        builder.reset();
+        builder.append(line("raw: other stuff\r\n"));
+        MutableRawField field2 = builder.buildFlyweight();
+        assertSame(field1, field2);
+        assertEquals("raw", field2.getName());
+        assertEquals("other stuff", field2.getBody());
+
+        assertEquals("Subject", copy.getName());
+        assertEquals("stuff", copy.getBody());
+        assertEquals("Subject: stuff", new String(copy.getRaw().toByteArray(), "US-ASCII"));
+        assertSame(copy, RawField.copyOf(copy));
+
+        RawField built = builder.build();
+        assertNotSame(built, builder.build());
+        assertEquals("other stuff", built.getBody());
+    }
+
 }
@@ -20,11 +20,14 @@
 package org.apache.james.mime4j.stream;
 
 import org.apache.james.mime4j.ExampleMail;
+import org.apache.james.mime4j.util.ContentUtil;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 public class MimeTokenStreamTest {
 
@@ -81,4 +84,84 @@ public class MimeTokenStreamTest {
     private void checkNextIs(EntityState expected) throws Exception {
         Assert.assertEquals(MimeTokenStream.stateToString(expected), MimeTokenStream.stateToString(stream.next()));
     }
+
+    @Test
+    public void testContentOffset() throws Exception {
+        StringBuilder big = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            big.append("line ").append(i).append("\r\n");
+        }
+        String msg = "Content-Type: multipart/mixed; boundary=xyz\r\n" +
+                "\r\n" +
+                "--xyz\r\n" +
+                "Content-Type: text/plain\r\n" +
+                "\r\n" +
+                big + "end\r\n" +
+                "--xyz\r\n" +
+                "Content-Type: message/rfc822\r\n" +
+                "\r\n" +
+                "Subject: inner\r\n" +
+                "\r\n" +
+                "inner body\r\n" +
+                "--xyz\r\n" +
+                "Content-Type: message/rfc822\r\n" +
+                "Content-Transfer-Encoding: base64\r\n" +
+                "\r\n" +
+                "U3ViamVjdDogZW5jb2RlZA0KDQplbmNvZGVkIGJvZHk=\r\n" +
+                "--xyz--\r\n";
+        byte[] bytes = msg.getBytes("US-ASCII");
+        stream.parse(new ByteArrayInputStream(bytes));
+
+        List<String> bodies = new ArrayList<String>();
+        for (EntityState state = stream.getState(); state != EntityState.T_END_OF_STREAM; state = stream.next()) {
+            if (state == EntityState.T_BODY) {
+                long offset = stream.getContentOffset();
+                byte[] content = ContentUtil.buffer(stream.getInputStream());
+                if (offset < 0) {
+                    bodies.add(null);
+                } else {
+                    Assert.assertEquals(new String(content, "US-ASCII"),
+                            new String(bytes, (int) offset, content.length, "US-ASCII"));
+                    bodies.add(new String(content, "US-ASCII"));
+                }
+            }
+        }
+        Assert.assertEquals(3, bodies.size());
+        Assert.assertEquals(big + "end", bodies.get(0));
+        Assert.assertEquals("inner body", bodies.get(1));
+        Assert.assertNull(bodies.get(2));
+    }
+
+    @Test
+    public void testFlyweightFields() throws Exception {
+        String msg = "Subject: first\r\n" +
+                "Content-Type: text/plain; charset=UTF-8\r\n" +
+                "X-Custom: second\r\n" +
+                "\r\n" +
+                "body\r\n";
+        for (boolean flyweight : new boolean[] { false, true }) {
+            stream = new MimeTokenStream(MimeConfig.custom().setFlyweightFields(flyweight).build());
+            stream.parse(new ByteArrayInputStream(msg.getBytes("US-ASCII")));
+            List<Field> fields = new ArrayList<Field>();
+            List<Field> copies = new ArrayList<Field>();
+            String charset = null;
+            for (EntityState state = stream.getState(); state != EntityState.T_END_OF_STREAM; state = stream.next()) {
+                if (state == EntityState.T_FIELD) {
+                    fields.add(stream.getField());
+                    copies.add(RawField.copyOf(stream.getField()));
+                } else if (state == EntityState.T_BODY) {
+                    charset = stream.getBodyDescriptor().getCharset();
+                }
+            }
+            Assert.assertEquals(3, fields.size());
+            Assert.assertEquals(flyweight, fields.get(0) == fields.get(2));
+            Assert.assertFalse(fields.get(1) instanceof MutableRawField);
+            Assert.assertEquals(flyweight, fields.get(0) instanceof MutableRawField);
+            Assert.assertEquals("first", copies.get(0).getBody());
+            Assert.assertEquals("text/plain; charset=UTF-8", copies.get(1).getBody());
+            Assert.assertEquals("second", copies.get(2).getBody());
+            Assert.assertEquals("UTF-8", charset);
+        }
+    }
+
 }
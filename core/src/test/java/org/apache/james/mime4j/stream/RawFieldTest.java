@@ -63,4 +63,16 @@ public class RawFieldTest {
         Assert.assertEquals(s, field.toString());
     }
 
+    @Test
+    public void testWellKnownNameIsShared() throws Exception {
+        RawField field1 = RawFieldParser.DEFAULT.parseField(ContentUtil.encode("Subject: one"));
+        RawField field2 = RawFieldParser.DEFAULT.parseField(ContentUtil.encode("Subject: two"));
+        Assert.assertSame(field1.getName(), field2.getName());
+        Assert.assertEquals("one", field1.getBody());
+
+        RawField field3 = RawFieldParser.DEFAULT.parseField(ContentUtil.encode("SUBJECT: three"));
+        Assert.assertEquals("SUBJECT", field3.getName());
+        Assert.assertEquals(7, field3.getDelimiterIdx());
+    }
+
 }
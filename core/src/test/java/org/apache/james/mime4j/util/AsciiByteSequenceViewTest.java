@@ -0,0 +1,83 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+
+package org.apache.james.mime4j.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AsciiByteSequenceViewTest {
+
+    @Test
+    public void testView() throws Exception {
+        ByteSequence buf = ContentUtil.encode("Subject: caf\u00e9");
+        AsciiByteSequenceView view = new AsciiByteSequenceView(buf, 9, 4);
+        Assert.assertTrue(view.isContiguous());
+        Assert.assertEquals(4, view.length());
+        Assert.assertEquals('c', view.charAt(0));
+        Assert.assertEquals("caf\u00e9", view.toString());
+        Assert.assertEquals("af", view.subSequence(1, 3).toString());
+        Assert.assertSame(buf, view.getByteSequence());
+        Assert.assertEquals(9, view.getOffset());
+        try {
+            view.charAt(4);
+            Assert.fail("IndexOutOfBoundsException should have been thrown");
+        } catch (IndexOutOfBoundsException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testHighBytesMapOntoLatin1() throws Exception {
+        ByteSequence buf = new ByteArrayBuffer(new byte[] { 'a', (byte) 0xe9 }, true);
+        AsciiByteSequenceView view = new AsciiByteSequenceView(buf);
+        Assert.assertEquals("a\u00e9", view.toString());
+        Assert.assertEquals(ContentUtil.decode(buf), view.toString());
+    }
+
+    @Test
+    public void testUnfold() throws Exception {
+        String[] values = {
+            "", "plain", "a\r\n b", "\r\n a\r\n\tb\r\n", "a\n\nb\r\r c", "a\r\n"
+        };
+        for (String value : values) {
+            ByteSequence buf = ContentUtil.encode("X: " + value);
+            AsciiByteSequenceView view = AsciiByteSequenceView.unfold(buf, 3, value.length());
+            String expected = MimeUtil.unfold(value);
+            Assert.assertEquals(expected, view.toString());
+            Assert.assertEquals(expected.length(), view.length());
+            for (int i = 0; i < expected.length(); i++) {
+                Assert.assertEquals(expected.charAt(i), view.charAt(i));
+                for (int j = i; j <= expected.length(); j++) {
+                    Assert.assertEquals(expected.substring(i, j), view.subSequence(i, j).toString());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testUnfoldWithoutLineBreaksIsContiguous() throws Exception {
+        ByteSequence buf = ContentUtil.encode("To: a@b.c");
+        Assert.assertTrue(AsciiByteSequenceView.unfold(buf, 4, 5).isContiguous());
+        Assert.assertFalse(AsciiByteSequenceView.unfold(
+                ContentUtil.encode("a\r\n b"), 0, 5).isContiguous());
+    }
+
+}
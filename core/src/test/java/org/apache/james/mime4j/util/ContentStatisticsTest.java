@@ -0,0 +1,109 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.mime4j.util;
+
+import java.io.ByteArrayInputStream;
+
+import org.apache.james.mime4j.Charsets;
+import org.apache.james.mime4j.io.StatisticsInputStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ContentStatisticsTest {
+
+    private static ContentStatistics of(String s) {
+        byte[] b = s.getBytes(Charsets.UTF_8);
+        return ContentStatistics.of(b, 0, b.length);
+    }
+
+    @Test
+    public void testAsciiText() throws Exception {
+        ContentStatistics statistics = of("first line\r\nsecond line\r\n");
+        Assert.assertEquals(25, statistics.getLength());
+        Assert.assertEquals(0, statistics.getEightBitCount());
+        Assert.assertEquals(11, statistics.getMaxLineLength());
+        Assert.assertFalse(statistics.hasNul());
+        Assert.assertFalse(statistics.hasBareLineBreak());
+        Assert.assertTrue(statistics.is7bit());
+        Assert.assertEquals(MimeUtil.ENC_7BIT, statistics.getTransferEncoding(true));
+        Assert.assertEquals(MimeUtil.ENC_7BIT, statistics.getTransferEncoding(false));
+    }
+
+    @Test
+    public void testMostlyAsciiText() throws Exception {
+        ContentStatistics statistics = of("caf\u00e9 au lait\r\n");
+        Assert.assertEquals(2, statistics.getEightBitCount());
+        Assert.assertEquals(2.0 / 15, statistics.getNonAsciiRatio(), 0.0001);
+        Assert.assertFalse(statistics.is7bit());
+        Assert.assertEquals(MimeUtil.ENC_QUOTED_PRINTABLE, statistics.getTransferEncoding(true));
+        Assert.assertEquals(MimeUtil.ENC_BASE64, statistics.getTransferEncoding(false));
+    }
+
+    @Test
+    public void testMostlyNonAsciiText() throws Exception {
+        ContentStatistics statistics = of("\u00e9\u00e8\u00ea\u00eb");
+        Assert.assertEquals(1.0, statistics.getNonAsciiRatio(), 0.0001);
+        Assert.assertEquals(MimeUtil.ENC_BASE64, statistics.getTransferEncoding(true));
+    }
+
+    @Test
+    public void testBareLineBreaks() throws Exception {
+        Assert.assertTrue(of("line\nline").hasBareLineBreak());
+        Assert.assertTrue(of("line\rline").hasBareLineBreak());
+        Assert.assertTrue(of("line\r").hasBareLineBreak());
+        Assert.assertFalse(of("line\r\n").hasBareLineBreak());
+        Assert.assertEquals(MimeUtil.ENC_BASE64, of("line\nline").getTransferEncoding(true));
+    }
+
+    @Test
+    public void testNul() throws Exception {
+        ContentStatistics statistics = of("a\u0000b");
+        Assert.assertTrue(statistics.hasNul());
+        Assert.assertFalse(statistics.is7bit());
+        Assert.assertEquals(MimeUtil.ENC_BASE64, statistics.getTransferEncoding(true));
+    }
+
+    @Test
+    public void testLongLine() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < ContentStatistics.MAX_7BIT_LINE_LENGTH + 1; i++) {
+            sb.append('x');
+        }
+        ContentStatistics statistics = of(sb.toString());
+        Assert.assertEquals(999, statistics.getMaxLineLength());
+        Assert.assertFalse(statistics.is7bit());
+        Assert.assertEquals(MimeUtil.ENC_QUOTED_PRINTABLE, statistics.getTransferEncoding(true));
+    }
+
+    @Test
+    public void testStatisticsInputStream() throws Exception {
+        byte[] b = "caf\u00e9\r\n".getBytes(Charsets.UTF_8);
+        StatisticsInputStream in = new StatisticsInputStream(new ByteArrayInputStream(b));
+        Assert.assertEquals('c', in.read());
+        byte[] buf = new byte[16];
+        Assert.assertEquals(b.length - 1, in.read(buf));
+        Assert.assertEquals(-1, in.read());
+        ContentStatistics statistics = in.getStatistics();
+        Assert.assertEquals(b.length, statistics.getLength());
+        Assert.assertEquals(2, statistics.getEightBitCount());
+        Assert.assertEquals(5, statistics.getMaxLineLength());
+    }
+
+}
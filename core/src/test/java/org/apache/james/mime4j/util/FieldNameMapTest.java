@@ -0,0 +1,93 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+
+package org.apache.james.mime4j.util;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FieldNameMapTest {
+
+    private static FieldNameMap<Integer> create(String... names) {
+        Map<String, Integer> map = new HashMap<String, Integer>();
+        for (int i = 0; i < names.length; i++) {
+            map.put(names[i], i);
+        }
+        return new FieldNameMap<Integer>(map);
+    }
+
+    @Test
+    public void testLookupIgnoresCase() {
+        FieldNameMap<Integer> map = create("Content-Type", "From", "To", "Cc");
+        Assert.assertEquals(Integer.valueOf(0), map.get("content-type"));
+        Assert.assertEquals(Integer.valueOf(1), map.get("FROM"));
+        Assert.assertEquals(Integer.valueOf(3), map.get("cC"));
+        Assert.assertNull(map.get("Bcc"));
+        Assert.assertNull(map.get("Content-Typ"));
+        Assert.assertNull(map.get(""));
+    }
+
+    @Test
+    public void testLookupByBytes() {
+        FieldNameMap<Integer> map = create("Content-Type", "From", "To", "Cc");
+        ByteSequence raw = ContentUtil.encode("TO: someone; from: else");
+        Assert.assertEquals(Integer.valueOf(2), map.get(raw, 0, 2));
+        Assert.assertEquals(Integer.valueOf(1), map.get(raw, 13, 4));
+        Assert.assertNull(map.get(raw, 0, 3));
+    }
+
+    @Test
+    public void testGetExactName() {
+        FieldNameMap<Integer> map = create("Content-Type");
+        Assert.assertEquals("Content-Type", map.getExactName(ContentUtil.encode("Content-Type"), 0, 12));
+        Assert.assertNull(map.getExactName(ContentUtil.encode("Content-type"), 0, 12));
+    }
+
+    @Test
+    public void testHashConsistency() {
+        String name = "Content-Transfer-Encoding";
+        Assert.assertEquals(name.toLowerCase(Locale.US).hashCode(), FieldNameMap.hash(name));
+        Assert.assertEquals(FieldNameMap.hash(name),
+                FieldNameMap.hash(ContentUtil.encode(name.toUpperCase(Locale.US)), 0, name.length()));
+    }
+
+    @Test
+    public void testManyNames() {
+        String[] names = new String[200];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = "X-Header-" + i;
+        }
+        FieldNameMap<Integer> map = create(names);
+        for (int i = 0; i < names.length; i++) {
+            Assert.assertEquals(Integer.valueOf(i), map.get(names[i].toUpperCase(Locale.US)));
+        }
+    }
+
+    @Test
+    public void testEmptyMap() {
+        FieldNameMap<Integer> map = create();
+        Assert.assertNull(map.get("From"));
+    }
+
+}
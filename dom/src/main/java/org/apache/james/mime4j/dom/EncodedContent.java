@@ -0,0 +1,55 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+
+package org.apache.james.mime4j.dom;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Implemented by single bodies that keep the transfer encoded content they
+ * were parsed from and decode it on access.
+ * <p>
+ * As long as the <code>Content-Transfer-Encoding</code> of the enclosing
+ * entity matches {@link #getTransferEncoding()}, a {@link MessageWriter} may
+ * write this content as is instead of encoding the decoded content again.
+ * This saves a decode/encode round trip and leaves the body bytes unchanged.
+ */
+public interface EncodedContent {
+
+    /**
+     * Returns the transfer encoding of the content, or <code>null</code> if
+     * the content is not known to be encoded.
+     *
+     * @return the transfer encoding.
+     */
+    String getTransferEncoding();
+
+    /**
+     * Writes the still encoded content to the given stream.
+     *
+     * @param out
+     *            the stream to write to.
+     * @throws IOException
+     *             in case of an I/O error
+     */
+    void writeEncodedTo(OutputStream out) throws IOException;
+
+}
@@ -44,6 +44,7 @@ import org.apache.james.mime4j.dom.field.FieldName;
 import org.apache.james.mime4j.dom.field.MailboxField;
 import org.apache.james.mime4j.dom.field.MailboxListField;
 import org.apache.james.mime4j.dom.field.ParseException;
+import org.apache.james.mime4j.dom.field.ParsedField;
 import org.apache.james.mime4j.dom.field.UnstructuredField;
 import org.apache.james.mime4j.field.DefaultFieldParser;
 import org.apache.james.mime4j.field.Fields;
@@ -900,12 +901,16 @@ public interface Message extends Entity, Body {
 
         public Message build() {
             MessageImpl message = new MessageImpl();
-            HeaderImpl header = new HeaderImpl();
+            HeaderImpl header = fieldParser != null ? new HeaderImpl(fieldParser, monitor) : new HeaderImpl();
             message.setHeader(header);
             if (!containsField(FieldName.MIME_VERSION_LOWERCASE)) {
                 header.setField(Fields.version("1.0"));
             }
             for (Field field : getFields()) {
+                // fields copied from a lazily parsed header may still be raw
+                if (fieldParser == null && !(field instanceof ParsedField)) {
+                    field = parseField(field);
+                }
                 header.addField(field);
             }
 
@@ -914,6 +919,12 @@ public interface Message extends Entity, Body {
             return message;
         }
 
+        @Override
+        protected ParsedField parseField(Field field) {
+            return (fieldParser != null ? fieldParser : LenientFieldParser.getParser())
+                    .parse(field, monitor != null ? monitor : DecodeMonitor.SILENT);
+        }
+
         private Mailbox getMailbox(String fieldName) {
             MailboxField field = obtainField(fieldName);
             return field != null ? field.getMailbox() : null;
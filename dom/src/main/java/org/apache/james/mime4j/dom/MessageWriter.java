@@ -22,6 +22,7 @@ package org.apache.james.mime4j.dom;
 import java.io.IOException;
 import java.io.OutputStream;
 
+import org.apache.james.mime4j.io.CountingOutputStream;
 import org.apache.james.mime4j.stream.Field;
 
 /**
@@ -42,4 +43,19 @@ public interface MessageWriter {
 
     void writeHeader(Header header, OutputStream out) throws IOException;
 
+    /**
+     * Returns the number of bytes {@link #writeEntity(Entity, OutputStream)}
+     * would write for the given entity, e.g. for an IMAP
+     * <code>RFC822.SIZE</code> or an SMTP <code>SIZE</code> parameter.
+     * <p>
+     * The default implementation writes the entity to a stream that only
+     * counts the bytes. Implementations are encouraged to compute the size
+     * more efficiently.
+     */
+    default long size(Entity entity) throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        writeEntity(entity, out);
+        return out.getCount();
+    }
+
 }
@@ -23,6 +23,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 
+import org.apache.james.mime4j.util.ContentStatistics;
+
 /**
  * Abstract implementation of a single message body; that is, a body that does
  * not contain (directly or indirectly) any other child bodies. It also provides
@@ -80,6 +82,18 @@ public abstract class SingleBody implements Body {
         in.close();
     }
 
+    /**
+     * Returns statistics about the bytes of this body, if they are known
+     * without reading the body again, for instance because they have been
+     * gathered while the body was stored. The default implementation returns
+     * <code>null</code>.
+     *
+     * @return the statistics or <code>null</code> if not known.
+     */
+    public ContentStatistics getContentStatistics() {
+        return null;
+    }
+
     /**
      * Returns a copy of this <code>SingleBody</code> (optional operation).
      * <p>
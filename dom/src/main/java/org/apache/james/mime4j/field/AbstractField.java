@@ -19,11 +19,13 @@
 
 package org.apache.james.mime4j.field;
 
+import org.apache.james.mime4j.MimeException;
 import org.apache.james.mime4j.codec.DecodeMonitor;
 import org.apache.james.mime4j.dom.field.ParseException;
 import org.apache.james.mime4j.dom.field.ParsedField;
 import org.apache.james.mime4j.stream.Field;
 import org.apache.james.mime4j.stream.RawField;
+import org.apache.james.mime4j.stream.RawFieldParser;
 import org.apache.james.mime4j.util.ByteSequence;
 
 /**
@@ -34,6 +36,11 @@ public abstract class AbstractField implements ParsedField {
     protected final Field rawField;
     protected final DecodeMonitor monitor;
 
+    // computed on first use; both are immutable, so threads racing to
+    // compute them at worst do it twice
+    private RawField resolvedRawField;
+    private CharSequence bodyView;
+
     protected AbstractField(final Field rawField, final DecodeMonitor monitor) {
         this.rawField = rawField;
         this.monitor = monitor != null ? monitor : DecodeMonitor.SILENT;
@@ -96,9 +103,47 @@ public abstract class AbstractField implements ParsedField {
     protected RawField getRawField() {
         if (rawField instanceof RawField) {
             return ((RawField) rawField);
-        } else {
-            return new RawField(rawField.getName(), rawField.getBody());
         }
+        RawField field = resolvedRawField;
+        if (field == null) {
+            field = resolveRawField();
+            resolvedRawField = field;
+        }
+        return field;
+    }
+
+    private RawField resolveRawField() {
+        ByteSequence raw = rawField.getRaw();
+        if (raw != null) {
+            // keep working on the raw bytes rather than on a decoded copy
+            try {
+                RawField field = RawFieldParser.DEFAULT.parseField(raw);
+                if (field.getName().equals(rawField.getName())) {
+                    return field;
+                }
+            } catch (MimeException ignore) {
+            }
+        }
+        return new RawField(rawField.getName(), rawField.getBody());
+    }
+
+    /**
+     * Gets the unfolded field body like {@link #getBody()}, but as a view over
+     * the raw bytes of the field if possible, so that parsers can tokenize the
+     * body without it being decoded into a <code>String</code> first.
+     *
+     * @return the unfolded field body.
+     */
+    protected CharSequence getBodyView() {
+        if (rawField.getRaw() == null) {
+            return getBody();
+        }
+        CharSequence view = bodyView;
+        if (view == null) {
+            view = getRawField().getBodyView();
+            bodyView = view;
+        }
+        return view;
     }
 
     @Override
@@ -41,6 +41,17 @@ public class AddressListFieldImpl extends AbstractField implements AddressListFi
         super(rawField, monitor);
     }
 
+    /**
+     * Creates a field from an already structured value. The value is not
+     * parsed from <code>rawField</code>, which only supplies the name and
+     * the (possibly lazily rendered) body.
+     */
+    AddressListFieldImpl(Field rawField, AddressList addressList) {
+        super(rawField, DecodeMonitor.SILENT);
+        this.addressList = addressList;
+        this.parsed = true;
+    }
+
     /**
      * @see org.apache.james.mime4j.dom.field.AddressListField#getAddressList()
      */
@@ -63,7 +74,7 @@ public class AddressListFieldImpl extends AbstractField implements AddressListFi
     }
 
     private void parse() {
-        String body = getBody();
+        CharSequence body = getBodyView();
 
         try {
             addressList = DefaultAddressParser.DEFAULT.parseAddressList(body, monitor);
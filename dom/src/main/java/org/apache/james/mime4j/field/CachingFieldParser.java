@@ -0,0 +1,156 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+
+package org.apache.james.mime4j.field;
+
+import org.apache.james.mime4j.MimeException;
+import org.apache.james.mime4j.codec.DecodeMonitor;
+import org.apache.james.mime4j.dom.FieldParser;
+import org.apache.james.mime4j.dom.field.AddressListField;
+import org.apache.james.mime4j.dom.field.ContentDescriptionField;
+import org.apache.james.mime4j.dom.field.ContentDispositionField;
+import org.apache.james.mime4j.dom.field.ContentIdField;
+import org.apache.james.mime4j.dom.field.ContentLanguageField;
+import org.apache.james.mime4j.dom.field.ContentLengthField;
+import org.apache.james.mime4j.dom.field.ContentLocationField;
+import org.apache.james.mime4j.dom.field.ContentMD5Field;
+import org.apache.james.mime4j.dom.field.ContentTransferEncodingField;
+import org.apache.james.mime4j.dom.field.ContentTypeField;
+import org.apache.james.mime4j.dom.field.DateTimeField;
+import org.apache.james.mime4j.dom.field.MailboxField;
+import org.apache.james.mime4j.dom.field.MailboxListField;
+import org.apache.james.mime4j.dom.field.MimeVersionField;
+import org.apache.james.mime4j.dom.field.ParsedField;
+import org.apache.james.mime4j.dom.field.UnstructuredField;
+import org.apache.james.mime4j.stream.Field;
+import org.apache.james.mime4j.stream.RawField;
+import org.apache.james.mime4j.stream.RawFieldParser;
+import org.apache.james.mime4j.util.ByteArrayBuffer;
+import org.apache.james.mime4j.util.ByteSequence;
+
+/**
+ * {@link FieldParser} that looks fields up in a {@link ParsedFieldCache}
+ * before handing them to the underlying parser.
+ * <p>
+ * Only fields of the standard field types are cached. Before a field is
+ * added to the cache all of its lazily parsed values are computed, so that
+ * the shared instance is no longer modified afterwards. Date and time
+ * values are returned as copies by the standard fields, so that a caller
+ * modifying one does not affect other messages sharing the field. Cached
+ * fields are
+ * parsed from a copy of the raw bytes, so the cache neither depends on nor
+ * retains the buffer the original field was read from.
+ * </p>
+ */
+public class CachingFieldParser implements FieldParser<ParsedField> {
+
+    private final FieldParser<? extends ParsedField> parser;
+    private final ParsedFieldCache cache;
+
+    public CachingFieldParser(final FieldParser<? extends ParsedField> parser, final ParsedFieldCache cache) {
+        if (parser == null || cache == null) {
+            throw new IllegalArgumentException("Parser and cache may not be null");
+        }
+        this.parser = parser;
+        this.cache = cache;
+    }
+
+    public FieldParser<? extends ParsedField> getParser() {
+        return parser;
+    }
+
+    public ParsedFieldCache getCache() {
+        return cache;
+    }
+
+    public ParsedField parse(final Field rawField, final DecodeMonitor monitor) {
+        ByteSequence raw = rawField.getRaw();
+        if (!cache.isCacheable(raw)) {
+            return parser.parse(rawField, monitor);
+        }
+        ParsedField field = cache.get(raw, parser, monitor);
+        if (field != null) {
+            return field;
+        }
+        // the cache outlives the buffer the field was read from, which may be
+        // large or reused for the next field, so entries are made from a copy
+        ByteSequence copy = new ByteArrayBuffer(raw.toByteArray(), true);
+        RawField copied;
+        try {
+            copied = RawFieldParser.DEFAULT.parseField(copy);
+        } catch (MimeException ex) {
+            return parser.parse(rawField, monitor);
+        }
+        field = parser.parse(copied, monitor);
+        if (field.getRaw() == copy && resolve(field)) {
+            cache.put(copy, parser, monitor, field);
+        }
+        return field;
+    }
+
+    /**
+     * Computes all lazily parsed values of a standard field. Returns false
+     * for other field types.
+     */
+    static boolean resolve(final ParsedField field) {
+        field.getParseException();
+        if (field instanceof UnstructuredField) {
+            ((UnstructuredField) field).getValue();
+        } else if (field instanceof ContentTypeField) {
+            ContentTypeField f = (ContentTypeField) field;
+            f.getMimeType();
+            f.getParameters();
+        } else if (field instanceof ContentDispositionField) {
+            ContentDispositionField f = (ContentDispositionField) field;
+            f.getDispositionType();
+            f.getCreationDate();
+            f.getModificationDate();
+            f.getReadDate();
+        } else if (field instanceof MailboxListField) {
+            ((MailboxListField) field).getMailboxList();
+        } else if (field instanceof AddressListField) {
+            ((AddressListField) field).getAddressList();
+        } else if (field instanceof MailboxField) {
+            ((MailboxField) field).getMailbox();
+        } else if (field instanceof DateTimeField) {
+            ((DateTimeField) field).getDate();
+        } else if (field instanceof ContentTransferEncodingField) {
+            ((ContentTransferEncodingField) field).getEncoding();
+        } else if (field instanceof MimeVersionField) {
+            ((MimeVersionField) field).getMajorVersion();
+        } else if (field instanceof ContentLanguageField) {
+            ((ContentLanguageField) field).getLanguages();
+        } else if (field instanceof ContentLocationField) {
+            ((ContentLocationField) field).getLocation();
+        } else if (field instanceof ContentIdField) {
+            ((ContentIdField) field).getId();
+        } else if (field instanceof ContentDescriptionField) {
+            ((ContentDescriptionField) field).getDescription();
+        } else if (field instanceof ContentLengthField) {
+            ((ContentLengthField) field).getContentLength();
+        } else if (field instanceof ContentMD5Field) {
+            ((ContentMD5Field) field).getMD5Raw();
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+}
@@ -19,7 +19,6 @@
 
 package org.apache.james.mime4j.field;
 
-import java.io.StringReader;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -32,7 +31,6 @@ import org.apache.james.mime4j.dom.field.ContentDispositionField;
 import org.apache.james.mime4j.field.contentdisposition.parser.ContentDispositionParser;
 import org.apache.james.mime4j.field.contentdisposition.parser.ParseException;
 import org.apache.james.mime4j.field.contentdisposition.parser.TokenMgrError;
-import org.apache.james.mime4j.field.datetime.parser.DateTimeParser;
 import org.apache.james.mime4j.stream.Field;
 
 /**
@@ -59,6 +57,19 @@ public class ContentDispositionFieldImpl extends AbstractField implements Conten
         super(rawField, monitor);
     }
 
+    /**
+     * Creates a field from an already structured value. The value is not
+     * parsed from <code>rawField</code>, which only supplies the name and
+     * the (possibly lazily rendered) body.
+     * Parameter names are expected in lower case.
+     */
+    ContentDispositionFieldImpl(Field rawField, String dispositionType, Map<String, String> parameters) {
+        super(rawField, DecodeMonitor.SILENT);
+        this.dispositionType = dispositionType.toLowerCase(Locale.US);
+        this.parameters.putAll(parameters);
+        this.parsed = true;
+    }
+
     /**
      * Gets the exception that was raised during parsing of the field value, if
      * any; otherwise, null.
@@ -147,7 +158,7 @@ public class ContentDispositionFieldImpl extends AbstractField implements Conten
             creationDateParsed = true;
         }
 
-        return creationDate;
+        return creationDate != null ? new Date(creationDate.getTime()) : null;
     }
 
     /**
@@ -159,7 +170,7 @@ public class ContentDispositionFieldImpl extends AbstractField implements Conten
             modificationDateParsed = true;
         }
 
-        return modificationDate;
+        return modificationDate != null ? new Date(modificationDate.getTime()) : null;
     }
 
     /**
@@ -171,7 +182,7 @@ public class ContentDispositionFieldImpl extends AbstractField implements Conten
             readDateParsed = true;
         }
 
-        return readDate;
+        return readDate != null ? new Date(readDate.getTime()) : null;
     }
 
     /**
@@ -198,7 +209,7 @@ public class ContentDispositionFieldImpl extends AbstractField implements Conten
         }
 
         try {
-            return new DateTimeParser(new StringReader(value)).parseAll()
+            return ThreadLocalParsers.dateTimeParser(value).parseAll()
                     .getDate();
         } catch (org.apache.james.mime4j.field.datetime.parser.ParseException e) {
             if (monitor.isListening()) {
@@ -214,10 +225,9 @@ public class ContentDispositionFieldImpl extends AbstractField implements Conten
     }
 
     private void parse() {
-        String body = getBody();
+        CharSequence body = getBodyView();
 
-        ContentDispositionParser parser = new ContentDispositionParser(
-                new StringReader(body));
+        ContentDispositionParser parser = ThreadLocalParsers.contentDispositionParser(body);
         try {
             parser.parseAll();
         } catch (ParseException e) {
@@ -126,7 +126,7 @@ public class ContentDispositionFieldLenientImpl extends AbstractField implements
             creationDate = parseDate(PARAM_CREATION_DATE);
             creationDateParsed = true;
         }
-        return creationDate;
+        return creationDate != null ? new Date(creationDate.getTime()) : null;
     }
 
     public Date getModificationDate() {
@@ -134,7 +134,7 @@ public class ContentDispositionFieldLenientImpl extends AbstractField implements
             modificationDate = parseDate(PARAM_MODIFICATION_DATE);
             modificationDateParsed = true;
         }
-        return modificationDate;
+        return modificationDate != null ? new Date(modificationDate.getTime()) : null;
     }
 
     public Date getReadDate() {
@@ -142,7 +142,7 @@ public class ContentDispositionFieldLenientImpl extends AbstractField implements
             readDate = parseDate(PARAM_READ_DATE);
             readDateParsed = true;
         }
-        return readDate;
+        return readDate != null ? new Date(readDate.getTime()) : null;
     }
 
     public long getSize() {
@@ -19,7 +19,6 @@
 
 package org.apache.james.mime4j.field;
 
-import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -47,9 +46,9 @@ public class ContentLanguageFieldImpl extends AbstractField implements ContentLa
     private void parse() {
         parsed = true;
         languages = Collections.emptyList();
-        String body = getBody();
+        CharSequence body = getBodyView();
         if (body != null) {
-            ContentLanguageParser parser = new ContentLanguageParser(new StringReader(body));
+            ContentLanguageParser parser = ThreadLocalParsers.contentLanguageParser(body);
             try {
                 languages = parser.parse();
             } catch (ParseException ex) {
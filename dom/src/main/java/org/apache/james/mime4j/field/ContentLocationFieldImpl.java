@@ -19,7 +19,6 @@
 
 package org.apache.james.mime4j.field;
 
-import java.io.StringReader;
 import java.util.regex.Pattern;
 
 import org.apache.james.mime4j.codec.DecodeMonitor;
@@ -45,11 +44,10 @@ public class ContentLocationFieldImpl extends AbstractField implements ContentLo
 
     private void parse() {
         parsed = true;
-        String body = getBody();
+        CharSequence body = getBodyView();
         location = null;
         if (body != null) {
-            StringReader stringReader = new StringReader(body);
-            StructuredFieldParser parser = new StructuredFieldParser(stringReader);
+            StructuredFieldParser parser = ThreadLocalParsers.structuredFieldParser(body);
             try {
                 // From RFC2017 3.1
                 /*
@@ -19,7 +19,6 @@
 
 package org.apache.james.mime4j.field;
 
-import java.io.StringReader;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -49,6 +48,22 @@ public class ContentTypeFieldImpl extends AbstractField implements ContentTypeFi
         super(rawField, monitor);
     }
 
+    /**
+     * Creates a field from an already structured value. The value is not
+     * parsed from <code>rawField</code>, which only supplies the name and
+     * the (possibly lazily rendered) body.
+     * Parameter names are expected in lower case.
+     */
+    ContentTypeFieldImpl(Field rawField, String mimeType, Map<String, String> parameters) {
+        super(rawField, DecodeMonitor.SILENT);
+        int idx = mimeType.indexOf('/');
+        this.mediaType = mimeType.substring(0, idx);
+        this.subType = mimeType.substring(idx + 1);
+        this.mimeType = mimeType.toLowerCase();
+        this.parameters.putAll(parameters);
+        this.parsed = true;
+    }
+
     /**
      * @see org.apache.james.mime4j.dom.field.ContentTypeField#getParseException()
      */
@@ -189,9 +204,9 @@ public class ContentTypeFieldImpl extends AbstractField implements ContentTypeFi
     }
 
     private void parse() {
-        String body = getBody();
+        CharSequence body = getBodyView();
 
-        ContentTypeParser parser = new ContentTypeParser(new StringReader(body));
+        ContentTypeParser parser = ThreadLocalParsers.contentTypeParser(body);
         try {
             parser.parseAll();
         } catch (ParseException e) {
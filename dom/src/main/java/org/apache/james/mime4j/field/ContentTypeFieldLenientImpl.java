@@ -114,12 +114,11 @@ public class ContentTypeFieldLenientImpl extends AbstractField implements Conten
         String type = null;
         String subtype = null;
         if (main != null) {
-            main = main.toLowerCase().trim();
             int index = main.indexOf('/');
             boolean valid = false;
             if (index != -1) {
-                type = main.substring(0, index).trim();
-                subtype = main.substring(index + 1).trim();
+                type = trimToLowerCase(main, 0, index);
+                subtype = trimToLowerCase(main, index + 1, main.length());
                 if (type.length() > 0 && subtype.length() > 0) {
                     main = type + "/" + subtype;
                     valid = true;
@@ -144,6 +143,16 @@ public class ContentTypeFieldLenientImpl extends AbstractField implements Conten
         }
     }
 
+    private static String trimToLowerCase(final String s, int start, int end) {
+        while (start < end && s.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && s.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return s.substring(start, end).toLowerCase(Locale.US);
+    }
+
     public static final FieldParser<ContentTypeField> PARSER = new FieldParser<ContentTypeField>() {
 
         public ContentTypeField parse(final Field rawField, final DecodeMonitor monitor) {
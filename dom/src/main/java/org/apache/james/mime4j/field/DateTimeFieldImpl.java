@@ -19,13 +19,11 @@
 
 package org.apache.james.mime4j.field;
 
-import java.io.StringReader;
 import java.util.Date;
 
 import org.apache.james.mime4j.codec.DecodeMonitor;
 import org.apache.james.mime4j.dom.FieldParser;
 import org.apache.james.mime4j.dom.field.DateTimeField;
-import org.apache.james.mime4j.field.datetime.parser.DateTimeParser;
 import org.apache.james.mime4j.field.datetime.parser.ParseException;
 import org.apache.james.mime4j.field.datetime.parser.TokenMgrError;
 import org.apache.james.mime4j.stream.Field;
@@ -43,6 +41,17 @@ public class DateTimeFieldImpl extends AbstractField implements DateTimeField {
         super(rawField, monitor);
     }
 
+    /**
+     * Creates a field from an already structured value. The value is not
+     * parsed from <code>rawField</code>, which only supplies the name and
+     * the (possibly lazily rendered) body.
+     */
+    DateTimeFieldImpl(Field rawField, Date date) {
+        super(rawField, DecodeMonitor.SILENT);
+        this.date = date;
+        this.parsed = true;
+    }
+
     /**
      * @see org.apache.james.mime4j.dom.field.DateTimeField#getDate()
      */
@@ -50,7 +59,7 @@ public class DateTimeFieldImpl extends AbstractField implements DateTimeField {
         if (!parsed)
             parse();
 
-        return date;
+        return date != null ? new Date(date.getTime()) : null;
     }
 
     /**
@@ -65,10 +74,18 @@ public class DateTimeFieldImpl extends AbstractField implements DateTimeField {
     }
 
     private void parse() {
-        String body = getBody();
+        long millis = DateTimeUtil.parse(rawField, true);
+        if (millis != DateTimeUtil.INVALID) {
+            date = new Date(millis);
+            parsed = true;
+            return;
+        }
+
+        // let the grammar based parser report the problem
+        CharSequence body = getBodyView();
 
         try {
-            date = new DateTimeParser(new StringReader(body)).parseAll()
+            date = ThreadLocalParsers.dateTimeParser(body).parseAll()
                     .getDate();
         } catch (ParseException e) {
             parseException = e;
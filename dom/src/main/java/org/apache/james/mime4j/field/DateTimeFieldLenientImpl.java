@@ -129,12 +129,17 @@ public class DateTimeFieldLenientImpl extends AbstractField implements DateTimeF
         if (!parsed) {
             parse();
         }
-        return date;
+        return date != null ? new Date(date.getTime()) : null;
     }
 
     private void parse() {
         parsed = true;
         date = null;
+        long millis = DateTimeUtil.parse(rawField, false);
+        if (millis != DateTimeUtil.INVALID) {
+            date = new Date(millis);
+            return;
+        }
         String body = getBody();
         if (body != null) {
             body = body.trim();
@@ -0,0 +1,414 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+
+package org.apache.james.mime4j.field;
+
+import org.apache.james.mime4j.stream.Field;
+import org.apache.james.mime4j.stream.RawField;
+import org.apache.james.mime4j.util.ByteSequence;
+
+/**
+ * Single pass parser for RFC 5322 <code>date-time</code> values. The parser
+ * works directly on the raw field bytes when they are available and returns
+ * the number of milliseconds since the epoch without creating any
+ * intermediate strings, tokens or calendars.
+ * <p>
+ * Besides the regular syntax the obsolete forms defined in RFC 5322 section
+ * 4.3 are understood: a missing day of week, two and three digit years,
+ * named time zones (<code>UT</code>, <code>GMT</code>, <code>EST</code>,
+ * ...) and military zones (which are treated as <code>+0000</code>).
+ * Comments and folding white space may appear between the tokens.
+ * </p>
+ * <p>
+ * In strict mode the whole value has to match the grammar. In lenient mode
+ * day and month names are matched case insensitively, the comma after the day
+ * of week, fractional seconds and the zone are optional and an unsigned four
+ * digit offset is accepted.
+ * </p>
+ * Values that cannot be handled are reported as {@link #INVALID}; callers are
+ * expected to fall back to a full grammar based parser in that case. This
+ * includes days that do not exist in the given month and text following the
+ * zone, so that these keep being treated the way the full parsers treat them.
+ */
+public final class DateTimeUtil {
+
+    /**
+     * Returned when the value could not be parsed.
+     */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private static final String[] DAYS = {
+        "Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun"
+    };
+
+    private static final String[] MONTHS = {
+        "Jan", "Feb", "Mar", "Apr", "May", "Jun",
+        "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"
+    };
+
+    private static final String[] ZONES = {
+        "UT", "GMT", "EST", "EDT", "CST", "CDT", "MST", "MDT", "PST", "PDT"
+    };
+
+    private static final int[] ZONE_OFFSETS = {
+        0, 0, -5, -4, -6, -5, -7, -6, -8, -7
+    };
+
+    // the Gregorian calendar used by the strict parser switches to Julian
+    // dates before 1582; those are left to it
+    private static final int MIN_YEAR = 1583;
+
+    private DateTimeUtil() {
+    }
+
+    /**
+     * Parses the body of the given field, using its raw bytes if possible.
+     *
+     * @param field the field to parse.
+     * @param strict whether to apply the strict grammar.
+     * @return milliseconds since the epoch or {@link #INVALID}.
+     */
+    public static long parse(final Field field, final boolean strict) {
+        if (field instanceof RawField) {
+            RawField rawField = (RawField) field;
+            ByteSequence raw = rawField.getRaw();
+            int delimiterIdx = rawField.getDelimiterIdx();
+            if (raw != null && delimiterIdx >= 0) {
+                return parse(raw, delimiterIdx + 1, raw.length(), strict);
+            }
+        }
+        String body = field.getBody();
+        if (body == null) {
+            return INVALID;
+        }
+        return parse(body, strict);
+    }
+
+    /**
+     * Parses a date-time value held in a character sequence.
+     *
+     * @param s the value.
+     * @param strict whether to apply the strict grammar.
+     * @return milliseconds since the epoch or {@link #INVALID}.
+     */
+    public static long parse(final CharSequence s, final boolean strict) {
+        return new Cursor(null, s, 0, s.length()).parse(strict);
+    }
+
+    /**
+     * Parses a date-time value held in a byte sequence.
+     *
+     * @param bytes the sequence.
+     * @param start index of the first byte of the value.
+     * @param end index after the last byte of the value.
+     * @param strict whether to apply the strict grammar.
+     * @return milliseconds since the epoch or {@link #INVALID}.
+     */
+    public static long parse(final ByteSequence bytes, final int start, final int end, final boolean strict) {
+        return new Cursor(bytes, null, start, end).parse(strict);
+    }
+
+    /**
+     * Computes the number of days since the epoch for the given date of the
+     * proleptic Gregorian calendar.
+     */
+    static long toEpochDay(final int year, final int month, final int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yoe = y - era * 400;
+        long doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    private static int lengthOfMonth(final int year, final int month) {
+        switch (month) {
+            case 2:
+                boolean leap = year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static final class Cursor {
+
+        private final ByteSequence bytes;
+        private final CharSequence chars;
+        private final int end;
+        private int pos;
+
+        Cursor(final ByteSequence bytes, final CharSequence chars, final int start, final int end) {
+            this.bytes = bytes;
+            this.chars = chars;
+            this.pos = start;
+            this.end = end;
+        }
+
+        private char charAt(final int i) {
+            return bytes != null ? (char) (bytes.byteAt(i) & 0xff) : chars.charAt(i);
+        }
+
+        long parse(final boolean strict) {
+            if (!skipCFWS()) {
+                return INVALID;
+            }
+            if (pos < end && isAlpha(charAt(pos))) {
+                if (matchWord(DAYS, strict) < 0 || !skipCFWS()) {
+                    return INVALID;
+                }
+                if (pos < end && charAt(pos) == ',') {
+                    pos++;
+                } else if (strict) {
+                    return INVALID;
+                }
+                if (!skipCFWS()) {
+                    return INVALID;
+                }
+            }
+            int day = number();
+            if (day < 0 || !skipCFWS()) {
+                return INVALID;
+            }
+            int month = matchWord(MONTHS, strict) + 1;
+            if (month <= 0 || !skipCFWS()) {
+                return INVALID;
+            }
+            int yearStart = pos;
+            int year = number();
+            int yearDigits = pos - yearStart;
+            if (year < 0 || !skipCFWS()) {
+                return INVALID;
+            }
+            switch (yearDigits) {
+                case 1:
+                case 2:
+                    year += year < 70 ? 2000 : 1900;
+                    break;
+                case 3:
+                    year += 1900;
+                    break;
+                default:
+                    break;
+            }
+            int hour = number();
+            if (hour < 0 || !skipCFWS() || !expect(':') || !skipCFWS()) {
+                return INVALID;
+            }
+            int minute = number();
+            if (minute < 0 || !skipCFWS()) {
+                return INVALID;
+            }
+            int second = 0;
+            if (pos < end && charAt(pos) == ':') {
+                pos++;
+                if (!skipCFWS()) {
+                    return INVALID;
+                }
+                second = number();
+                if (second < 0 || !skipCFWS()) {
+                    return INVALID;
+                }
+            }
+            int millis = 0;
+            if (!strict && pos < end && charAt(pos) == '.') {
+                pos++;
+                int fractionStart = pos;
+                int fraction = number();
+                if (fraction < 0) {
+                    return INVALID;
+                }
+                for (int digits = pos - fractionStart; digits < 3; digits++) {
+                    fraction *= 10;
+                }
+                for (int digits = pos - fractionStart; digits > 3; digits--) {
+                    fraction /= 10;
+                }
+                millis = fraction;
+                if (!skipCFWS()) {
+                    return INVALID;
+                }
+            }
+            if (year < MIN_YEAR || day < 1 || day > lengthOfMonth(year, month)
+                    || hour > 23 || minute > 59 || second > 60) {
+                return INVALID;
+            }
+            int zone = zone(strict);
+            if (zone == Integer.MIN_VALUE) {
+                return INVALID;
+            }
+            if (!skipCFWS() || pos < end) {
+                return INVALID;
+            }
+            int offsetMinutes = (zone / 100) * 60 + zone % 100;
+            long epochDay = toEpochDay(year, month, 1) + day - 1;
+            long seconds = ((epochDay * 24 + hour) * 60 + minute - offsetMinutes) * 60 + second;
+            return seconds * 1000 + millis;
+        }
+
+        /**
+         * Reads the zone as a signed <code>hhmm</code> number, returning
+         * {@link Integer#MIN_VALUE} if it is missing or malformed.
+         */
+        private int zone(final boolean strict) {
+            if (pos >= end) {
+                return strict ? Integer.MIN_VALUE : 0;
+            }
+            char ch = charAt(pos);
+            if (ch == '+' || ch == '-') {
+                pos++;
+                if (strict && !skipCFWS()) {
+                    return Integer.MIN_VALUE;
+                }
+                int digitsStart = pos;
+                int value = number();
+                if (value < 0 || (!strict && pos - digitsStart != 4)) {
+                    return Integer.MIN_VALUE;
+                }
+                return ch == '-' ? -value : value;
+            }
+            if (isDigit(ch)) {
+                if (strict) {
+                    return Integer.MIN_VALUE;
+                }
+                int digitsStart = pos;
+                int value = number();
+                return pos - digitsStart == 4 ? value : Integer.MIN_VALUE;
+            }
+            if (isAlpha(ch)) {
+                int wordStart = pos;
+                int idx = matchWord(ZONES, strict);
+                if (idx >= 0) {
+                    return ZONE_OFFSETS[idx] * 100;
+                }
+                pos = wordStart;
+                while (pos < end && isAlpha(charAt(pos))) {
+                    pos++;
+                }
+                if (pos - wordStart == 1 && ch != 'J' && ch != 'j') {
+                    // military zones are ignored as recommended by RFC 5322
+                    return 0;
+                }
+                return strict ? Integer.MIN_VALUE : 0;
+            }
+            return strict ? Integer.MIN_VALUE : 0;
+        }
+
+        /**
+         * Reads up to nine digits, returning -1 if there are none or the
+         * number is too long.
+         */
+        private int number() {
+            int start = pos;
+            int value = 0;
+            while (pos < end) {
+                char ch = charAt(pos);
+                if (!isDigit(ch)) {
+                    break;
+                }
+                if (pos - start == 9) {
+                    return -1;
+                }
+                value = value * 10 + (ch - '0');
+                pos++;
+            }
+            return pos > start ? value : -1;
+        }
+
+        /**
+         * Matches a whole alphabetic word against the given names and returns
+         * the index of the matching name or -1.
+         */
+        private int matchWord(final String[] names, final boolean strict) {
+            int start = pos;
+            while (pos < end && isAlpha(charAt(pos))) {
+                pos++;
+            }
+            int len = pos - start;
+            for (int i = 0; i < names.length; i++) {
+                String name = names[i];
+                if (name.length() != len) {
+                    continue;
+                }
+                int j = 0;
+                while (j < len) {
+                    char c1 = charAt(start + j);
+                    char c2 = name.charAt(j);
+                    if (c1 != c2 && (strict || (c1 | 0x20) != (c2 | 0x20))) {
+                        break;
+                    }
+                    j++;
+                }
+                if (j == len) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private boolean expect(final char ch) {
+            if (pos < end && charAt(pos) == ch) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Skips folding white space and (nested) comments. Returns false if a
+         * comment is not terminated.
+         */
+        private boolean skipCFWS() {
+            int level = 0;
+            while (pos < end) {
+                char ch = charAt(pos);
+                if (level > 0) {
+                    if (ch == '\\') {
+                        pos++;
+                    } else if (ch == '(') {
+                        level++;
+                    } else if (ch == ')') {
+                        level--;
+                    }
+                } else if (ch == '(') {
+                    level++;
+                } else if (ch != ' ' && ch != '\t' && ch != '\r' && ch != '\n') {
+                    break;
+                }
+                pos++;
+            }
+            return level == 0;
+        }
+
+        private static boolean isDigit(final char ch) {
+            return ch >= '0' && ch <= '9';
+        }
+
+        private static boolean isAlpha(final char ch) {
+            return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z');
+        }
+    }
+
+}
@@ -19,23 +19,33 @@
 
 package org.apache.james.mime4j.field;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.apache.james.mime4j.codec.DecodeMonitor;
 import org.apache.james.mime4j.dom.FieldParser;
 import org.apache.james.mime4j.dom.field.ParsedField;
 import org.apache.james.mime4j.stream.Field;
+import org.apache.james.mime4j.stream.RawField;
+import org.apache.james.mime4j.util.ByteSequence;
+import org.apache.james.mime4j.util.FieldNameMap;
 
+/**
+ * {@link FieldParser} that dispatches to the parser registered for the field name. For
+ * raw fields the registered parser is matched case-insensitively against the field name
+ * bytes directly, using a {@link FieldNameMap} rebuilt whenever a parser is registered.
+ */
 public class DelegatingFieldParser implements FieldParser<ParsedField> {
 
     private final FieldParser<? extends ParsedField> defaultParser;
     private final Map<String, FieldParser<? extends ParsedField>> parsers;
+    private volatile FieldNameMap<FieldParser<? extends ParsedField>> dispatch;
 
     public DelegatingFieldParser(final FieldParser<? extends ParsedField> defaultParser) {
         super();
         this.defaultParser = defaultParser;
-        this.parsers = new HashMap<String, FieldParser<? extends ParsedField>>();
+        this.parsers = new LinkedHashMap<String, FieldParser<? extends ParsedField>>();
+        this.dispatch = new FieldNameMap<FieldParser<? extends ParsedField>>(parsers);
     }
 
     /**
@@ -44,11 +54,14 @@ public class DelegatingFieldParser implements FieldParser<ParsedField> {
      * @param parser the parser for fields named <code>name</code>
      */
     public void setFieldParser(final String name, final FieldParser<? extends ParsedField> parser) {
-        parsers.put(name.toLowerCase(), parser);
+        synchronized (parsers) {
+            parsers.put(name.toLowerCase(), parser);
+            dispatch = new FieldNameMap<FieldParser<? extends ParsedField>>(parsers);
+        }
     }
 
     public FieldParser<? extends ParsedField> getParser(final String name) {
-        final FieldParser<? extends ParsedField> field = parsers.get(name.toLowerCase());
+        final FieldParser<? extends ParsedField> field = dispatch.get(name);
         if (field == null) {
             return defaultParser;
         }
@@ -56,7 +69,14 @@ public class DelegatingFieldParser implements FieldParser<ParsedField> {
     }
 
     private FieldParser<? extends ParsedField> getParser(final Field rawField) {
-        final FieldParser<? extends ParsedField> field = parsers.get(rawField.getNameLowerCase());
+        final FieldParser<? extends ParsedField> field;
+        ByteSequence raw = rawField.getRaw();
+        if (rawField instanceof RawField && raw != null
+                && ((RawField) rawField).getDelimiterIdx() == rawField.getName().length()) {
+            field = dispatch.get(raw, 0, rawField.getName().length());
+        } else {
+            field = dispatch.get(rawField.getName());
+        }
         if (field == null) {
             return defaultParser;
         }
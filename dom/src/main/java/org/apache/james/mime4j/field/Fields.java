@@ -19,10 +19,13 @@
 
 package org.apache.james.mime4j.field;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.TimeZone;
 import java.util.regex.Pattern;
@@ -31,7 +34,9 @@ import org.apache.james.mime4j.codec.DecodeMonitor;
 import org.apache.james.mime4j.codec.EncoderUtil;
 import org.apache.james.mime4j.dom.FieldParser;
 import org.apache.james.mime4j.dom.address.Address;
+import org.apache.james.mime4j.dom.address.AddressList;
 import org.apache.james.mime4j.dom.address.Mailbox;
+import org.apache.james.mime4j.dom.address.MailboxList;
 import org.apache.james.mime4j.dom.field.AddressListField;
 import org.apache.james.mime4j.dom.field.ContentDispositionField;
 import org.apache.james.mime4j.dom.field.ContentTransferEncodingField;
@@ -51,6 +56,10 @@ import org.apache.james.mime4j.util.MimeUtil;
 
 /**
  * Factory for concrete {@link Field} instances.
+ * <p>
+ * Fields created from structured values (dates, addresses, MIME types and
+ * parameters) carry those values directly; their textual body is only
+ * rendered when it is requested, e.g. when the field is written.
  */
 public class Fields {
 
@@ -96,19 +105,7 @@ public class Fields {
         if (!isValidMimeType(mimeType))
             throw new IllegalArgumentException();
 
-        if (parameters == null || parameters.isEmpty()) {
-            return parse(ContentTypeFieldImpl.PARSER, FieldName.CONTENT_TYPE,
-                    mimeType);
-        } else {
-            StringBuilder sb = new StringBuilder(mimeType);
-            for (Map.Entry<String, String> entry : parameters.entrySet()) {
-                sb.append("; ");
-                sb.append(EncoderUtil.encodeHeaderParameter(entry.getKey(),
-                        entry.getValue()));
-            }
-            String contentType = sb.toString();
-            return contentType(contentType);
-        }
+        return contentType0(mimeType, toNameValuePairs(parameters));
     }
 
     /**
@@ -127,20 +124,7 @@ public class Fields {
         if (!isValidMimeType(mimeType)) {
             throw new IllegalArgumentException(mimeType + " is not a valid MIME type");
         }
-        if (parameters == null) {
-            return parse(ContentTypeFieldImpl.PARSER, FieldName.CONTENT_TYPE,
-                    mimeType);
-        } else {
-            StringBuilder sb = new StringBuilder(mimeType);
-            for (NameValuePair param : parameters) {
-                sb.append("; ");
-                String name = param.getName();
-                String value = param.getValue();
-                sb.append(EncoderUtil.encodeHeaderParameter(name, value != null ? value : ""));
-            }
-            String contentType = sb.toString();
-            return contentType(contentType);
-        }
+        return contentType0(mimeType, toNameValuePairs(parameters));
     }
 
     /**
@@ -206,19 +190,8 @@ public class Fields {
         if (!isValidDispositionType(dispositionType))
             throw new IllegalArgumentException();
 
-        if (parameters == null || parameters.isEmpty()) {
-            return parse(ContentDispositionFieldImpl.PARSER,
-                    FieldName.CONTENT_DISPOSITION, dispositionType);
-        } else {
-            StringBuilder sb = new StringBuilder(dispositionType);
-            for (Map.Entry<String, String> entry : parameters.entrySet()) {
-                sb.append("; ");
-                sb.append(EncoderUtil.encodeHeaderParameter(entry.getKey(),
-                        entry.getValue()));
-            }
-            String contentDisposition = sb.toString();
-            return contentDisposition(contentDisposition);
-        }
+        return contentDisposition0(dispositionType,
+                toNameValuePairs(parameters));
     }
 
     /**
@@ -237,20 +210,8 @@ public class Fields {
         if (!isValidDispositionType(dispositionType))
             throw new IllegalArgumentException();
 
-        if (parameters == null) {
-            return parse(ContentDispositionFieldImpl.PARSER,
-                    FieldName.CONTENT_DISPOSITION, dispositionType);
-        } else {
-            StringBuilder sb = new StringBuilder(dispositionType);
-            for (NameValuePair param : parameters) {
-                sb.append("; ");
-                String name = param.getName();
-                String value = param.getValue();
-                sb.append(EncoderUtil.encodeHeaderParameter(name, value != null ? value : ""));
-            }
-            String contentDisposition = sb.toString();
-            return contentDisposition(contentDisposition);
-        }
+        return contentDisposition0(dispositionType,
+                toNameValuePairs(parameters));
     }
 
     /**
@@ -417,12 +378,19 @@ public class Fields {
      *            the subject string.
      * @return the newly created <i>Subject</i> field.
      */
-    public static UnstructuredField subject(String subject) {
-        int usedCharacters = FieldName.SUBJECT.length() + 2;
-        String fieldValue = EncoderUtil.encodeIfNecessary(subject,
-                EncoderUtil.Usage.TEXT_TOKEN, usedCharacters);
+    public static UnstructuredField subject(final String subject) {
+        if (subject == null)
+            throw new IllegalArgumentException("Subject may not be null");
 
-        return parse(UnstructuredFieldImpl.PARSER, FieldName.SUBJECT, fieldValue);
+        Field field = new RenderedField(FieldName.SUBJECT) {
+            @Override
+            protected String render() {
+                int usedCharacters = FieldName.SUBJECT.length() + 2;
+                return EncoderUtil.encodeIfNecessary(subject,
+                        EncoderUtil.Usage.TEXT_TOKEN, usedCharacters);
+            }
+        };
+        return new UnstructuredFieldImpl(field, subject);
     }
 
     /**
@@ -663,25 +631,87 @@ public class Fields {
 
     private static DateTimeField date0(String fieldName, Date date,
             TimeZone zone) {
-        final String formattedDate = MimeUtil.formatDate(date, zone);
-        return parse(DateTimeFieldImpl.PARSER, fieldName, formattedDate);
+        // the rendered value has a resolution of one second
+        final long time = date.getTime();
+        final Date value = new Date(time - Math.floorMod(time, 1000L));
+        final TimeZone tz = zone != null ? zone : TimeZone.getDefault();
+
+        Field field = new RenderedField(fieldName) {
+            @Override
+            protected String render() {
+                return MimeUtil.formatDate(value, tz);
+            }
+        };
+        return new DateTimeFieldImpl(field, value);
     }
 
-    private static MailboxField mailbox0(String fieldName, Mailbox mailbox) {
-        String fieldValue = encodeAddresses(Collections.singleton(mailbox));
-        return parse(MailboxFieldImpl.PARSER, fieldName, fieldValue);
+    private static MailboxField mailbox0(String fieldName, final Mailbox mailbox) {
+        if (mailbox == null)
+            throw new IllegalArgumentException("Mailbox may not be null");
+
+        Field field = new RenderedField(fieldName) {
+            @Override
+            protected String render() {
+                return encodeAddresses(Collections.singleton(mailbox));
+            }
+        };
+        return new MailboxFieldImpl(field, mailbox);
     }
 
     private static MailboxListField mailboxList0(String fieldName,
             Iterable<Mailbox> mailboxes) {
-        String fieldValue = encodeAddresses(mailboxes);
-        return parse(MailboxListFieldImpl.PARSER, fieldName, fieldValue);
+        final List<Mailbox> list = new ArrayList<Mailbox>();
+        for (Mailbox mailbox : mailboxes) {
+            list.add(mailbox);
+        }
+
+        Field field = new RenderedField(fieldName) {
+            @Override
+            protected String render() {
+                return encodeAddresses(list);
+            }
+        };
+        return new MailboxListFieldImpl(field, new MailboxList(list, true));
     }
 
     private static AddressListField addressList0(String fieldName,
             Iterable<? extends Address> addresses) {
-        String fieldValue = encodeAddresses(addresses);
-        return parse(AddressListFieldImpl.PARSER, fieldName, fieldValue);
+        final List<Address> list = new ArrayList<Address>();
+        for (Address address : addresses) {
+            list.add(address);
+        }
+
+        Field field = new RenderedField(fieldName) {
+            @Override
+            protected String render() {
+                return encodeAddresses(list);
+            }
+        };
+        return new AddressListFieldImpl(field, new AddressList(list, true));
+    }
+
+    private static ContentTypeField contentType0(final String mimeType,
+            final List<NameValuePair> parameters) {
+        Field field = new RenderedField(FieldName.CONTENT_TYPE) {
+            @Override
+            protected String render() {
+                return encodeParameters(mimeType, parameters);
+            }
+        };
+        return new ContentTypeFieldImpl(field, mimeType,
+                toParameterMap(parameters));
+    }
+
+    private static ContentDispositionField contentDisposition0(
+            final String dispositionType, final List<NameValuePair> parameters) {
+        Field field = new RenderedField(FieldName.CONTENT_DISPOSITION) {
+            @Override
+            protected String render() {
+                return encodeParameters(dispositionType, parameters);
+            }
+        };
+        return new ContentDispositionFieldImpl(field, dispositionType,
+                toParameterMap(parameters));
     }
 
     private static void checkValidFieldName(String fieldName) {
@@ -713,6 +743,50 @@ public class Fields {
         return parser.parse(rawField, DecodeMonitor.SILENT);
     }
 
+    private static List<NameValuePair> toNameValuePairs(
+            Map<String, String> parameters) {
+        List<NameValuePair> list = new ArrayList<NameValuePair>();
+        if (parameters != null) {
+            for (Map.Entry<String, String> entry : parameters.entrySet()) {
+                list.add(new NameValuePair(entry.getKey(), entry.getValue()));
+            }
+        }
+        return list;
+    }
+
+    private static List<NameValuePair> toNameValuePairs(
+            Iterable<NameValuePair> parameters) {
+        List<NameValuePair> list = new ArrayList<NameValuePair>();
+        if (parameters != null) {
+            for (NameValuePair param : parameters) {
+                list.add(param);
+            }
+        }
+        return list;
+    }
+
+    private static Map<String, String> toParameterMap(
+            List<NameValuePair> parameters) {
+        Map<String, String> map = new HashMap<String, String>();
+        for (NameValuePair param : parameters) {
+            String value = param.getValue();
+            map.put(param.getName().toLowerCase(Locale.US), value != null ? value : "");
+        }
+        return map;
+    }
+
+    private static String encodeParameters(String type,
+            List<NameValuePair> parameters) {
+        StringBuilder sb = new StringBuilder(type);
+        for (NameValuePair param : parameters) {
+            sb.append("; ");
+            String name = param.getName();
+            String value = param.getValue();
+            sb.append(EncoderUtil.encodeHeaderParameter(name, value != null ? value : ""));
+        }
+        return sb.toString();
+    }
+
     private static String encodeAddresses(Iterable<? extends Address> addresses) {
         StringBuilder sb = new StringBuilder();
 
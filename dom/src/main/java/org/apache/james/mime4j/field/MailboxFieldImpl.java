@@ -40,6 +40,17 @@ public class MailboxFieldImpl extends AbstractField implements MailboxField {
         super(rawField, monitor);
     }
 
+    /**
+     * Creates a field from an already structured value. The value is not
+     * parsed from <code>rawField</code>, which only supplies the name and
+     * the (possibly lazily rendered) body.
+     */
+    MailboxFieldImpl(Field rawField, Mailbox mailbox) {
+        super(rawField, DecodeMonitor.SILENT);
+        this.mailbox = mailbox;
+        this.parsed = true;
+    }
+
     /**
      * @see org.apache.james.mime4j.dom.field.MailboxField#getMailbox()
      */
@@ -62,7 +73,7 @@ public class MailboxFieldImpl extends AbstractField implements MailboxField {
     }
 
     private void parse() {
-        String body = getBody();
+        CharSequence body = getBodyView();
 
         try {
             mailbox = DefaultAddressParser.DEFAULT.parseMailbox(body, monitor);
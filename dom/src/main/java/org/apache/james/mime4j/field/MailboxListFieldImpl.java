@@ -40,6 +40,17 @@ public class MailboxListFieldImpl extends AbstractField implements MailboxListFi
         super(rawField, monitor);
     }
 
+    /**
+     * Creates a field from an already structured value. The value is not
+     * parsed from <code>rawField</code>, which only supplies the name and
+     * the (possibly lazily rendered) body.
+     */
+    MailboxListFieldImpl(Field rawField, MailboxList mailboxList) {
+        super(rawField, DecodeMonitor.SILENT);
+        this.mailboxList = mailboxList;
+        this.parsed = true;
+    }
+
     /**
      * @see org.apache.james.mime4j.dom.field.MailboxListField#getMailboxList()
      */
@@ -62,7 +73,7 @@ public class MailboxListFieldImpl extends AbstractField implements MailboxListFi
     }
 
     private void parse() {
-        String body = getBody();
+        CharSequence body = getBodyView();
 
         try {
             mailboxList = DefaultAddressParser.DEFAULT.parseAddressList(body, monitor).flatten();
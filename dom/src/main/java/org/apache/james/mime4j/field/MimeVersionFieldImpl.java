@@ -19,7 +19,6 @@
 
 package org.apache.james.mime4j.field;
 
-import java.io.StringReader;
 
 import org.apache.james.mime4j.MimeException;
 import org.apache.james.mime4j.codec.DecodeMonitor;
@@ -50,10 +49,9 @@ public class MimeVersionFieldImpl extends AbstractField implements MimeVersionFi
         parsed = true;
         major = DEFAULT_MAJOR_VERSION;
         minor = DEFAULT_MINOR_VERSION;
-        String body = getBody();
+        CharSequence body = getBodyView();
         if (body != null) {
-            StringReader reader = new StringReader(body);
-            MimeVersionParser parser = new MimeVersionParser(reader);
+            MimeVersionParser parser = ThreadLocalParsers.mimeVersionParser(body);
             try {
                 parser.parse();
                 int v = parser.getMajorVersion();
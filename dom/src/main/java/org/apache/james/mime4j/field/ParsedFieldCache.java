@@ -0,0 +1,253 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+
+package org.apache.james.mime4j.field;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.james.mime4j.codec.DecodeMonitor;
+import org.apache.james.mime4j.dom.FieldParser;
+import org.apache.james.mime4j.dom.field.ParsedField;
+import org.apache.james.mime4j.util.ByteSequence;
+
+/**
+ * Bounded, thread safe cache of parsed fields keyed by their raw bytes.
+ * <p>
+ * Messages from mailing lists and automated senders repeat the same
+ * <code>From</code>, <code>Content-Type</code> or <code>List-*</code>
+ * fields over and over again. A cache shared by the message builders of an
+ * application (see {@link CachingFieldParser}) lets identical fields be
+ * parsed once and the resulting objects be shared, which saves both parsing
+ * time and heap. Values returned by shared fields (dates, lists, maps) must
+ * therefore be treated as read only.
+ * </p>
+ * <p>
+ * The cache is split into segments, each holding its most recently used
+ * entries in access order under its own lock. Fields longer than the
+ * configured maximum length are never cached.
+ * </p>
+ */
+public class ParsedFieldCache {
+
+    public static final int DEFAULT_MAX_FIELD_LENGTH = 1024;
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments;
+    private final int maxEntries;
+    private final int maxFieldLength;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates a cache of at most <code>maxEntries</code> fields, each at most
+     * {@link #DEFAULT_MAX_FIELD_LENGTH} bytes long.
+     */
+    public ParsedFieldCache(final int maxEntries) {
+        this(maxEntries, DEFAULT_MAX_FIELD_LENGTH);
+    }
+
+    /**
+     * Creates a cache of at most <code>maxEntries</code> fields, each at most
+     * <code>maxFieldLength</code> bytes long.
+     */
+    public ParsedFieldCache(final int maxEntries, final int maxFieldLength) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Maximum number of entries must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.maxFieldLength = maxFieldLength;
+        int count = Math.min(SEGMENTS, maxEntries);
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            int capacity = maxEntries / count + (i < maxEntries % count ? 1 : 0);
+            this.segments[i] = new Segment(capacity);
+        }
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public int getMaxFieldLength() {
+        return maxFieldLength;
+    }
+
+    /**
+     * Returns the number of cached fields.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the share of lookups answered from the cache, or 0 if there
+     * were none.
+     */
+    public double getHitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    /**
+     * Removes all entries and resets the statistics.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+        hits.set(0);
+        misses.set(0);
+    }
+
+    boolean isCacheable(final ByteSequence raw) {
+        return raw != null && raw.length() <= maxFieldLength;
+    }
+
+    ParsedField get(
+            final ByteSequence raw, final FieldParser<?> parser, final DecodeMonitor monitor) {
+        Key key = new Key(raw);
+        Segment segment = segmentFor(key);
+        Entry entry;
+        synchronized (segment) {
+            entry = segment.get(key);
+        }
+        if (entry != null && entry.parser == parser && entry.monitor == monitor) {
+            hits.incrementAndGet();
+            return entry.field;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Adds an entry. The cache keeps a reference to <code>raw</code>, which
+     * must therefore not be shared with a buffer that may change.
+     */
+    void put(
+            final ByteSequence raw, final FieldParser<?> parser, final DecodeMonitor monitor,
+            final ParsedField field) {
+        Key key = new Key(raw);
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            segment.put(key, new Entry(parser, monitor, field));
+        }
+    }
+
+    private Segment segmentFor(final Key key) {
+        int h = key.hash;
+        h ^= h >>> 16;
+        return segments[(h & 0x7fffffff) % segments.length];
+    }
+
+    private static final class Segment extends LinkedHashMap<Key, Entry> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        Segment(final int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Key, Entry> eldest) {
+            return size() > capacity;
+        }
+
+    }
+
+    private static final class Entry {
+
+        final FieldParser<?> parser;
+        final DecodeMonitor monitor;
+        final ParsedField field;
+
+        Entry(final FieldParser<?> parser, final DecodeMonitor monitor, final ParsedField field) {
+            this.parser = parser;
+            this.monitor = monitor;
+            this.field = field;
+        }
+
+    }
+
+    private static final class Key {
+
+        final ByteSequence bytes;
+        final int hash;
+
+        Key(final ByteSequence bytes) {
+            this.bytes = bytes;
+            int h = 1;
+            for (int i = 0; i < bytes.length(); i++) {
+                h = 31 * h + bytes.byteAt(i);
+            }
+            this.hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            int len = bytes.length();
+            if (hash != other.hash || len != other.bytes.length()) {
+                return false;
+            }
+            for (int i = 0; i < len; i++) {
+                if (bytes.byteAt(i) != other.bytes.byteAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+    }
+
+}
@@ -0,0 +1,68 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+
+package org.apache.james.mime4j.field;
+
+import org.apache.james.mime4j.stream.Field;
+import org.apache.james.mime4j.util.ByteSequence;
+
+/**
+ * A {@link Field} built from structured values whose body is rendered on
+ * first access only. Typed fields created by {@link Fields} are backed by
+ * this class so that their textual form is produced when the field is
+ * written (or its body requested) rather than up front.
+ */
+abstract class RenderedField implements Field {
+
+    private final String name;
+    private String body;
+
+    RenderedField(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Renders the (unfolded) field body from the structured value.
+     */
+    protected abstract String render();
+
+    public String getName() {
+        return name;
+    }
+
+    public String getBody() {
+        String s = body;
+        if (s == null) {
+            s = render();
+            body = s;
+        }
+        return s;
+    }
+
+    public ByteSequence getRaw() {
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return name + ": " + getBody();
+    }
+
+}
@@ -0,0 +1,183 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+
+package org.apache.james.mime4j.field;
+
+import java.io.Reader;
+
+import org.apache.james.mime4j.field.contentdisposition.parser.ContentDispositionParser;
+import org.apache.james.mime4j.field.contenttype.parser.ContentTypeParser;
+import org.apache.james.mime4j.field.datetime.parser.DateTimeParser;
+import org.apache.james.mime4j.field.language.parser.ContentLanguageParser;
+import org.apache.james.mime4j.field.mimeversion.parser.MimeVersionParser;
+import org.apache.james.mime4j.field.structured.parser.StructuredFieldParser;
+
+/**
+ * Per-thread instances of the generated field body parsers.
+ * <p>
+ * Creating one of the generated parsers allocates its token manager,
+ * lookahead arrays and a character stream buffer of several kilobytes.
+ * The strict field implementations therefore take a parser from here, which
+ * has been re-initialized over the given body, and must have read all
+ * results from it before asking for a parser of the same kind again.
+ * </p>
+ */
+final class ThreadLocalParsers {
+
+    private static final ThreadLocal<ThreadLocalParsers> PARSERS = new ThreadLocal<ThreadLocalParsers>() {
+
+        @Override
+        protected ThreadLocalParsers initialValue() {
+            return new ThreadLocalParsers();
+        }
+
+    };
+
+    private final CharSequenceReader contentTypeReader = new CharSequenceReader();
+    private final CharSequenceReader contentDispositionReader = new CharSequenceReader();
+    private final CharSequenceReader dateTimeReader = new CharSequenceReader();
+    private final CharSequenceReader contentLanguageReader = new CharSequenceReader();
+    private final CharSequenceReader mimeVersionReader = new CharSequenceReader();
+    private final CharSequenceReader structuredFieldReader = new CharSequenceReader();
+
+    private ContentTypeParser contentTypeParser;
+    private ContentDispositionParser contentDispositionParser;
+    private DateTimeParser dateTimeParser;
+    private ContentLanguageParser contentLanguageParser;
+    private MimeVersionParser mimeVersionParser;
+    private StructuredFieldParser structuredFieldParser;
+
+    private ThreadLocalParsers() {
+    }
+
+    static ContentTypeParser contentTypeParser(final CharSequence text) {
+        ThreadLocalParsers parsers = PARSERS.get();
+        Reader reader = parsers.contentTypeReader.reset(text);
+        if (parsers.contentTypeParser == null) {
+            parsers.contentTypeParser = new ContentTypeParser(reader);
+        } else {
+            parsers.contentTypeParser.reset(reader);
+        }
+        return parsers.contentTypeParser;
+    }
+
+    static ContentDispositionParser contentDispositionParser(final CharSequence text) {
+        ThreadLocalParsers parsers = PARSERS.get();
+        Reader reader = parsers.contentDispositionReader.reset(text);
+        if (parsers.contentDispositionParser == null) {
+            parsers.contentDispositionParser = new ContentDispositionParser(reader);
+        } else {
+            parsers.contentDispositionParser.reset(reader);
+        }
+        return parsers.contentDispositionParser;
+    }
+
+    static DateTimeParser dateTimeParser(final CharSequence text) {
+        ThreadLocalParsers parsers = PARSERS.get();
+        Reader reader = parsers.dateTimeReader.reset(text);
+        if (parsers.dateTimeParser == null) {
+            parsers.dateTimeParser = new DateTimeParser(reader);
+        } else {
+            parsers.dateTimeParser.reset(reader);
+        }
+        return parsers.dateTimeParser;
+    }
+
+    static ContentLanguageParser contentLanguageParser(final CharSequence text) {
+        ThreadLocalParsers parsers = PARSERS.get();
+        Reader reader = parsers.contentLanguageReader.reset(text);
+        if (parsers.contentLanguageParser == null) {
+            parsers.contentLanguageParser = new ContentLanguageParser(reader);
+        } else {
+            parsers.contentLanguageParser.reset(reader);
+        }
+        return parsers.contentLanguageParser;
+    }
+
+    static MimeVersionParser mimeVersionParser(final CharSequence text) {
+        ThreadLocalParsers parsers = PARSERS.get();
+        Reader reader = parsers.mimeVersionReader.reset(text);
+        if (parsers.mimeVersionParser == null) {
+            parsers.mimeVersionParser = new MimeVersionParser(reader);
+        } else {
+            parsers.mimeVersionParser.reset(reader);
+        }
+        return parsers.mimeVersionParser;
+    }
+
+    static StructuredFieldParser structuredFieldParser(final CharSequence text) {
+        ThreadLocalParsers parsers = PARSERS.get();
+        Reader reader = parsers.structuredFieldReader.reset(text);
+        if (parsers.structuredFieldParser == null) {
+            parsers.structuredFieldParser = new StructuredFieldParser(reader);
+        } else {
+            parsers.structuredFieldParser.reset(reader);
+        }
+        return parsers.structuredFieldParser;
+    }
+
+    /**
+     * Reader over a character sequence that can be pointed at new input.
+     */
+    static final class CharSequenceReader extends Reader {
+
+        private CharSequence text = "";
+        private int pos;
+
+        CharSequenceReader reset(final CharSequence text) {
+            this.text = text;
+            this.pos = 0;
+            return this;
+        }
+
+        @Override
+        public int read() {
+            return pos < text.length() ? text.charAt(pos++) : -1;
+        }
+
+        @Override
+        public int read(final char[] cbuf, final int off, final int len) {
+            if (len == 0) {
+                return 0;
+            }
+            int remaining = text.length() - pos;
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = Math.min(len, remaining);
+            if (text instanceof String) {
+                ((String) text).getChars(pos, pos + n, cbuf, off);
+            } else {
+                for (int i = 0; i < n; i++) {
+                    cbuf[off + i] = text.charAt(pos + i);
+                }
+            }
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+            // nothing to release
+        }
+
+    }
+
+}
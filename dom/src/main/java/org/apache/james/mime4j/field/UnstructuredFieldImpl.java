@@ -37,6 +37,17 @@ public class UnstructuredFieldImpl extends AbstractField implements Unstructured
         super(rawField, monitor);
     }
 
+    /**
+     * Creates a field from an already structured value. The value is not
+     * parsed from <code>rawField</code>, which only supplies the name and
+     * the (possibly lazily rendered) body.
+     */
+    UnstructuredFieldImpl(Field rawField, String value) {
+        super(rawField, DecodeMonitor.SILENT);
+        this.value = value;
+        this.parsed = true;
+    }
+
     /**
      * @see org.apache.james.mime4j.dom.field.UnstructuredField#getValue()
      */
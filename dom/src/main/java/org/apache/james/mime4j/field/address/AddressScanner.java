@@ -0,0 +1,499 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+
+package org.apache.james.mime4j.field.address;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.james.mime4j.codec.DecodeMonitor;
+import org.apache.james.mime4j.codec.DecoderUtil;
+import org.apache.james.mime4j.dom.address.Address;
+import org.apache.james.mime4j.dom.address.AddressList;
+import org.apache.james.mime4j.dom.address.DomainList;
+import org.apache.james.mime4j.dom.address.Group;
+import org.apache.james.mime4j.dom.address.Mailbox;
+import org.apache.james.mime4j.dom.address.MailboxList;
+
+/**
+ * Hand-written, single pass implementation of the strict address grammar
+ * used by {@link DefaultAddressParser}. It produces exactly the same
+ * addresses as the generated {@link AddressListParser} and {@link Builder}
+ * but works directly on the character sequence without building a token
+ * list or syntax tree.
+ * <p>
+ * Input the scanner does not accept (invalid syntax, domain literals,
+ * undecodable display names, ...) is reported by returning
+ * <code>null</code>; callers are expected to run the generated parser in
+ * that case so that the resulting {@link ParseException} stays the same.
+ * </p>
+ * <p>
+ * {@link LenientAddressParser} does not use the scanner, as its results
+ * for malformed input and its normalization of display names differ from
+ * those of the strict grammar.
+ * </p>
+ */
+final class AddressScanner {
+
+    private static final Fallback FALLBACK = new Fallback();
+
+    private final CharSequence text;
+    private final int end;
+    private final DecodeMonitor monitor;
+    private int pos;
+
+    private AddressScanner(final CharSequence text, final DecodeMonitor monitor) {
+        this.text = text;
+        this.end = text.length();
+        this.monitor = monitor;
+        this.pos = 0;
+    }
+
+    static AddressList parseAddressList(final CharSequence text, final DecodeMonitor monitor) {
+        AddressScanner scanner = new AddressScanner(text, monitor);
+        try {
+            return scanner.addressList();
+        } catch (Fallback ex) {
+            return null;
+        }
+    }
+
+    static Address parseAddress(final CharSequence text, final DecodeMonitor monitor) {
+        AddressScanner scanner = new AddressScanner(text, monitor);
+        try {
+            Address address = scanner.address();
+            scanner.expectEnd();
+            return address;
+        } catch (Fallback ex) {
+            return null;
+        }
+    }
+
+    static Mailbox parseMailbox(final CharSequence text, final DecodeMonitor monitor) {
+        AddressScanner scanner = new AddressScanner(text, monitor);
+        try {
+            Mailbox mailbox = scanner.mailbox();
+            scanner.expectEnd();
+            return mailbox;
+        } catch (Fallback ex) {
+            return null;
+        }
+    }
+
+    // address-list = [address] *("," [address])
+    private AddressList addressList() {
+        List<Address> addresses = new ArrayList<Address>();
+        for (;;) {
+            skipCFWS(null);
+            if (pos == end) {
+                break;
+            }
+            if (text.charAt(pos) == ',') {
+                pos++;
+                continue;
+            }
+            addresses.add(address());
+            skipCFWS(null);
+            if (pos < end && text.charAt(pos) != ',') {
+                throw FALLBACK;
+            }
+        }
+        return new AddressList(addresses, true);
+    }
+
+    // address = addr-spec / angle-addr / phrase (group-body / angle-addr)
+    private Address address() {
+        skipCFWS(null);
+        Mailbox mailbox = addrSpec();
+        if (mailbox != null) {
+            return mailbox;
+        }
+        if (pos < end && text.charAt(pos) == '<') {
+            return angleAddr(null);
+        }
+        String phrase = phrase();
+        if (pos < end && text.charAt(pos) == ':') {
+            pos++;
+            return new Group(phrase, groupBody());
+        }
+        if (pos < end && text.charAt(pos) == '<') {
+            return angleAddr(decode(phrase));
+        }
+        throw FALLBACK;
+    }
+
+    // mailbox = addr-spec / angle-addr / phrase angle-addr
+    private Mailbox mailbox() {
+        skipCFWS(null);
+        Mailbox mailbox = addrSpec();
+        if (mailbox != null) {
+            return mailbox;
+        }
+        if (pos < end && text.charAt(pos) == '<') {
+            return angleAddr(null);
+        }
+        String phrase = phrase();
+        if (pos < end && text.charAt(pos) == '<') {
+            return angleAddr(decode(phrase));
+        }
+        throw FALLBACK;
+    }
+
+    // group-body = ":" [mailbox] *("," [mailbox]) ";"
+    private MailboxList groupBody() {
+        List<Mailbox> mailboxes = new ArrayList<Mailbox>();
+        for (;;) {
+            skipCFWS(null);
+            if (pos == end) {
+                throw FALLBACK;
+            }
+            char ch = text.charAt(pos);
+            if (ch == ';') {
+                pos++;
+                break;
+            }
+            if (ch == ',') {
+                pos++;
+                continue;
+            }
+            mailboxes.add(mailbox());
+            skipCFWS(null);
+            if (pos == end || (text.charAt(pos) != ',' && text.charAt(pos) != ';')) {
+                throw FALLBACK;
+            }
+        }
+        return new MailboxList(mailboxes, true);
+    }
+
+    // angle-addr = "<" [route] addr-spec ">"
+    private Mailbox angleAddr(final String name) {
+        pos++;
+        skipCFWS(null);
+        DomainList route = null;
+        if (pos < end && text.charAt(pos) == '@') {
+            route = route();
+        }
+        Mailbox mailbox = addrSpec();
+        if (mailbox == null) {
+            throw FALLBACK;
+        }
+        skipCFWS(null);
+        if (pos == end || text.charAt(pos) != '>') {
+            throw FALLBACK;
+        }
+        pos++;
+        return new Mailbox(name, route, mailbox.getLocalPart(), mailbox.getDomain());
+    }
+
+    // route = "@" domain *(*"," "@" domain) ":"
+    private DomainList route() {
+        List<String> domains = new ArrayList<String>();
+        for (;;) {
+            pos++;
+            skipCFWS(null);
+            String domain = domain();
+            if (domain == null) {
+                throw FALLBACK;
+            }
+            domains.add(domain);
+            skipCFWS(null);
+            boolean comma = false;
+            while (pos < end && text.charAt(pos) == ',') {
+                pos++;
+                comma = true;
+                skipCFWS(null);
+            }
+            if (pos == end) {
+                throw FALLBACK;
+            }
+            char ch = text.charAt(pos);
+            if (ch == ':' && !comma) {
+                pos++;
+                skipCFWS(null);
+                return new DomainList(domains);
+            }
+            if (ch != '@') {
+                throw FALLBACK;
+            }
+        }
+    }
+
+    /**
+     * Tries to read an addr-spec starting at the current position. Returns
+     * <code>null</code> and restores the position if the input does not
+     * start with one.
+     */
+    private Mailbox addrSpec() {
+        int start = pos;
+        StringBuilder localPart = new StringBuilder();
+        if (!word(localPart)) {
+            return null;
+        }
+        boolean separated = true;
+        boolean lastWasAtom = text.charAt(start) != '"';
+        for (;;) {
+            skipCFWS(null);
+            if (pos == end) {
+                break;
+            }
+            char ch = text.charAt(pos);
+            if (ch == '.') {
+                pos++;
+                localPart.append('.');
+                skipCFWS(null);
+                lastWasAtom = pos < end && text.charAt(pos) != '"';
+                if (!word(localPart)) {
+                    pos = start;
+                    return null;
+                }
+            } else if (isAText(ch) || ch == '"') {
+                if (!lastWasAtom || localPart.charAt(localPart.length() - 1) != '.') {
+                    separated = false;
+                }
+                lastWasAtom = ch != '"';
+                word(localPart);
+            } else {
+                break;
+            }
+        }
+        if (pos == end || text.charAt(pos) != '@') {
+            pos = start;
+            return null;
+        }
+        pos++;
+        skipCFWS(null);
+        String domain = domain();
+        if (domain == null) {
+            pos = start;
+            return null;
+        }
+        if (!separated) {
+            // the generated parser rejects words not separated by '.'
+            throw FALLBACK;
+        }
+        return new Mailbox(null, null, localPart.toString(), domain);
+    }
+
+    // domain = dot-atom *(["."] dot-atom) / domain-literal
+    private String domain() {
+        if (pos == end) {
+            return null;
+        }
+        char ch = text.charAt(pos);
+        if (ch == '[') {
+            throw FALLBACK;
+        }
+        if (!isAText(ch)) {
+            return null;
+        }
+        StringBuilder domain = new StringBuilder();
+        dotAtom(domain);
+        boolean separated = true;
+        for (;;) {
+            int mark = pos;
+            skipCFWS(null);
+            if (pos == end) {
+                pos = mark;
+                break;
+            }
+            ch = text.charAt(pos);
+            if (ch == '.') {
+                pos++;
+                domain.append('.');
+                skipCFWS(null);
+                if (pos == end || !isAText(text.charAt(pos))) {
+                    return null;
+                }
+                dotAtom(domain);
+            } else if (isAText(ch)) {
+                if (domain.charAt(domain.length() - 1) != '.') {
+                    separated = false;
+                }
+                dotAtom(domain);
+            } else {
+                pos = mark;
+                break;
+            }
+        }
+        if (!separated) {
+            throw FALLBACK;
+        }
+        return domain.toString();
+    }
+
+    // phrase = 1*(dot-atom / quoted-string), keeping the white space between words
+    private String phrase() {
+        StringBuilder phrase = new StringBuilder();
+        if (!word(phrase)) {
+            throw FALLBACK;
+        }
+        for (;;) {
+            int length = phrase.length();
+            skipCFWS(phrase);
+            if (!word(phrase)) {
+                phrase.setLength(length);
+                return phrase.toString();
+            }
+        }
+    }
+
+    private String decode(final String phrase) {
+        try {
+            return DecoderUtil.decodeEncodedWords(phrase, monitor);
+        } catch (IllegalArgumentException ex) {
+            throw FALLBACK;
+        }
+    }
+
+    /**
+     * Appends a dot-atom or the content of a quoted-string to the buffer.
+     * Returns false if there is neither at the current position.
+     */
+    private boolean word(final StringBuilder dst) {
+        if (pos == end) {
+            return false;
+        }
+        char ch = text.charAt(pos);
+        if (isAText(ch)) {
+            dotAtom(dst);
+            return true;
+        }
+        if (ch != '"') {
+            return false;
+        }
+        pos++;
+        while (pos < end) {
+            ch = text.charAt(pos++);
+            if (ch == '"') {
+                return true;
+            }
+            if (ch == '\\') {
+                if (pos == end) {
+                    break;
+                }
+                ch = text.charAt(pos++);
+            }
+            dst.append(ch);
+        }
+        throw FALLBACK;
+    }
+
+    private void dotAtom(final StringBuilder dst) {
+        int start = pos;
+        pos++;
+        while (pos < end) {
+            char ch = text.charAt(pos);
+            if (!isAText(ch) && ch != '.') {
+                break;
+            }
+            pos++;
+        }
+        dst.append(text, start, pos);
+    }
+
+    /**
+     * Skips white space and comments, appending the white space (but not the
+     * comments) to the given buffer if it is not <code>null</code>.
+     */
+    private void skipCFWS(final StringBuilder ws) {
+        while (pos < end) {
+            char ch = text.charAt(pos);
+            if (ch == ' ' || ch == '\t') {
+                if (ws != null) {
+                    ws.append(ch);
+                }
+                pos++;
+            } else if (ch == '(') {
+                skipComment();
+            } else {
+                break;
+            }
+        }
+    }
+
+    private void skipComment() {
+        int level = 0;
+        while (pos < end) {
+            char ch = text.charAt(pos++);
+            if (ch == '\\') {
+                pos++;
+            } else if (ch == '(') {
+                level++;
+            } else if (ch == ')') {
+                level--;
+                if (level == 0) {
+                    return;
+                }
+            }
+        }
+        throw FALLBACK;
+    }
+
+    private void expectEnd() {
+        skipCFWS(null);
+        if (pos != end) {
+            throw FALLBACK;
+        }
+    }
+
+    private static boolean isAText(final char ch) {
+        if ((ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || (ch >= '0' && ch <= '9')) {
+            return true;
+        }
+        switch (ch) {
+            case '!':
+            case '#':
+            case '$':
+            case '%':
+            case '&':
+            case '\'':
+            case '*':
+            case '+':
+            case '-':
+            case '/':
+            case '=':
+            case '?':
+            case '^':
+            case '_':
+            case '`':
+            case '{':
+            case '|':
+            case '}':
+            case '~':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Signals input the scanner leaves to the generated parser.
+     */
+    private static final class Fallback extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        Fallback() {
+            super(null, null, false, false);
+        }
+
+    }
+
+}
@@ -29,6 +29,11 @@ import org.apache.james.mime4j.io.InputStreams;
 
 /**
  * Default (strict) builder for {@link Address} and its subclasses.
+ * <p>
+ * Well-formed input is handled by a hand-written single pass scanner; the
+ * generated grammar is only run for input the scanner does not accept, so
+ * that error reporting is unchanged.
+ * </p>
  */
 public class DefaultAddressParser implements AddressParser {
 
@@ -48,6 +53,10 @@ public class DefaultAddressParser implements AddressParser {
      * @throws ParseException if the raw string does not represent a single address.
      */
     public Address parseAddress(CharSequence text, DecodeMonitor monitor) throws ParseException {
+        Address address = AddressScanner.parseAddress(text, monitor);
+        if (address != null) {
+            return address;
+        }
         AddressListParser parser = new AddressListParser(InputStreams.create(text, Charsets.UTF_8));
         return Builder.getInstance().buildAddress(parser.parseAddress(), monitor);
     }
@@ -65,6 +74,10 @@ public class DefaultAddressParser implements AddressParser {
      */
     public AddressList parseAddressList(CharSequence text, DecodeMonitor monitor)
             throws ParseException {
+        AddressList addressList = AddressScanner.parseAddressList(text, monitor);
+        if (addressList != null) {
+            return addressList;
+        }
         AddressListParser parser = new AddressListParser(InputStreams.create(text, Charsets.UTF_8));
         return Builder.getInstance().buildAddressList(parser.parseAddressList(), monitor);
     }
@@ -85,6 +98,10 @@ public class DefaultAddressParser implements AddressParser {
      *             address.
      */
     public Mailbox parseMailbox(CharSequence text, DecodeMonitor monitor) throws ParseException {
+        Mailbox mailbox = AddressScanner.parseMailbox(text, monitor);
+        if (mailbox != null) {
+            return mailbox;
+        }
         AddressListParser parser = new AddressListParser(InputStreams.create(text, Charsets.UTF_8));
         return Builder.getInstance().buildMailbox(parser.parseMailbox(), monitor);
     }
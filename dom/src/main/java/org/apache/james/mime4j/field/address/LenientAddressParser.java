@@ -33,6 +33,7 @@ import org.apache.james.mime4j.dom.address.Group;
 import org.apache.james.mime4j.dom.address.Mailbox;
 import org.apache.james.mime4j.stream.ParserCursor;
 import org.apache.james.mime4j.stream.RawFieldParser;
+import org.apache.james.mime4j.util.AsciiByteSequenceView;
 import org.apache.james.mime4j.util.ByteSequence;
 import org.apache.james.mime4j.util.CharsetUtil;
 import org.apache.james.mime4j.util.ContentUtil;
@@ -40,6 +41,13 @@ import org.apache.james.mime4j.util.ContentUtil;
 /**
  * Lenient (tolerant to non-critical format violations) builder for {@link Address}
  * and its subclasses.
+ * <p>
+ * This parser does not use the {@link AddressScanner} that
+ * {@link DefaultAddressParser} tries first. It already works in a single pass
+ * over the raw bytes, and the scanner only implements the strict grammar: it
+ * gives up on the malformed input this parser is meant to recover from, and
+ * does not normalize display names and routes the way this parser does.
+ * </p>
  */
 public class LenientAddressParser implements AddressParser {
 
@@ -56,6 +64,16 @@ public class LenientAddressParser implements AddressParser {
     private static final BitSet COLON_ONLY             = RawFieldParser.INIT_BITSET(COLON);
     private static final BitSet SEMICOLON_ONLY         = RawFieldParser.INIT_BITSET(SEMICOLON);
 
+    // delimiter sets for the nesting levels used by this parser, so that they
+    // need not be rebuilt for every address
+    private static final BitSet ROUTE_DELIMITERS       = RawFieldParser.INIT_BITSET(COMMA, COLON, CLOSING_BRACKET);
+    private static final BitSet MAILBOX_DELIMITERS     = RawFieldParser.INIT_BITSET(AT, OPENING_BRACKET);
+    private static final BitSet MAILBOX_IN_LIST        = RawFieldParser.INIT_BITSET(AT, OPENING_BRACKET, COMMA);
+    private static final BitSet MAILBOX_IN_GROUP       = RawFieldParser.INIT_BITSET(AT, OPENING_BRACKET, COMMA, SEMICOLON);
+    private static final BitSet COMMA_AND_SEMICOLON    = RawFieldParser.INIT_BITSET(COMMA, SEMICOLON);
+    private static final BitSet ADDRESS_DELIMITERS     = RawFieldParser.INIT_BITSET(COLON, AT, OPENING_BRACKET);
+    private static final BitSet ADDRESS_IN_LIST        = RawFieldParser.INIT_BITSET(COLON, AT, OPENING_BRACKET, COMMA);
+
     public static final LenientAddressParser DEFAULT = new LenientAddressParser(DecodeMonitor.SILENT);
 
     private final DecodeMonitor monitor;
@@ -67,6 +85,15 @@ public class LenientAddressParser implements AddressParser {
         this.parser = new RawFieldParser();
     }
 
+    private static BitSet union(final BitSet bitset, final BitSet delimiters) {
+        if (delimiters == null) {
+            return bitset;
+        }
+        BitSet result = (BitSet) bitset.clone();
+        result.or(delimiters);
+        return result;
+    }
+
     String parseDomain(final ByteSequence buf, final ParserCursor cursor, final BitSet delimiters) {
         StringBuilder dst = new StringBuilder();
         while (!cursor.atEnd()) {
@@ -85,10 +112,8 @@ public class LenientAddressParser implements AddressParser {
     }
 
     DomainList parseRoute(final ByteSequence buf, final ParserCursor cursor, final BitSet delimiters) {
-        BitSet bitset = RawFieldParser.INIT_BITSET(COMMA, COLON);
-        if (delimiters != null) {
-            bitset.or(delimiters);
-        }
+        BitSet bitset = delimiters == CLOSING_BRACKET_ONLY
+                ? ROUTE_DELIMITERS : union(RawFieldParser.INIT_BITSET(COMMA, COLON), delimiters);
         List<String> domains = null;
         for (;;) {
             this.parser.skipAllWhiteSpace(buf, cursor);
@@ -192,9 +217,15 @@ public class LenientAddressParser implements AddressParser {
 
     public Mailbox parseMailbox(
             final ByteSequence buf, final ParserCursor cursor, final BitSet delimiters) {
-        BitSet bitset = RawFieldParser.INIT_BITSET(AT, OPENING_BRACKET);
-        if (delimiters != null) {
-            bitset.or(delimiters);
+        BitSet bitset;
+        if (delimiters == null) {
+            bitset = MAILBOX_DELIMITERS;
+        } else if (delimiters == COMMA_ONLY) {
+            bitset = MAILBOX_IN_LIST;
+        } else if (delimiters == COMMA_AND_SEMICOLON) {
+            bitset = MAILBOX_IN_GROUP;
+        } else {
+            bitset = union(MAILBOX_DELIMITERS, delimiters);
         }
         String openingText = this.parser.parseValue(buf, cursor, bitset);
         if (cursor.atEnd()) {
@@ -216,16 +247,20 @@ public class LenientAddressParser implements AddressParser {
     }
 
     public Mailbox parseMailbox(final CharSequence text) {
-        ByteSequence raw = ContentUtil.encode(text);
-        ParserCursor cursor = new ParserCursor(0, text.length());
+        ByteSequence raw = bytesOf(text);
+        ParserCursor cursor = cursorOf(text);
         return parseMailbox(raw, cursor, null);
     }
 
     List<Mailbox> parseMailboxes(
             final ByteSequence buf, final ParserCursor cursor, final BitSet delimiters) {
-        BitSet bitset = RawFieldParser.INIT_BITSET(COMMA);
-        if (delimiters != null) {
-            bitset.or(delimiters);
+        BitSet bitset;
+        if (delimiters == null) {
+            bitset = COMMA_ONLY;
+        } else if (delimiters == SEMICOLON_ONLY) {
+            bitset = COMMA_AND_SEMICOLON;
+        } else {
+            bitset = union(COMMA_ONLY, delimiters);
         }
         List<Mailbox> mboxes = new ArrayList<Mailbox>();
         while (!cursor.atEnd()) {
@@ -260,16 +295,20 @@ public class LenientAddressParser implements AddressParser {
     }
 
     public Group parseGroup(final CharSequence text) {
-        ByteSequence raw = ContentUtil.encode(text);
-        ParserCursor cursor = new ParserCursor(0, text.length());
+        ByteSequence raw = bytesOf(text);
+        ParserCursor cursor = cursorOf(text);
         return parseGroup(raw, cursor);
     }
 
     public Address parseAddress(
             final ByteSequence buf, final ParserCursor cursor, final BitSet delimiters) {
-        BitSet bitset = RawFieldParser.INIT_BITSET(COLON, AT, OPENING_BRACKET);
-        if (delimiters != null) {
-            bitset.or(delimiters);
+        BitSet bitset;
+        if (delimiters == null) {
+            bitset = ADDRESS_DELIMITERS;
+        } else if (delimiters == COMMA_ONLY) {
+            bitset = ADDRESS_IN_LIST;
+        } else {
+            bitset = union(ADDRESS_DELIMITERS, delimiters);
         }
         String openingText = this.parser.parseValue(buf, cursor, bitset);
         if (cursor.atEnd()) {
@@ -303,8 +342,8 @@ public class LenientAddressParser implements AddressParser {
     }
 
     public Address parseAddress(final CharSequence text) {
-        ByteSequence raw = ContentUtil.encode(text);
-        ParserCursor cursor = new ParserCursor(0, text.length());
+        ByteSequence raw = bytesOf(text);
+        ParserCursor cursor = cursorOf(text);
         return parseAddress(raw, cursor, null);
     }
 
@@ -326,9 +365,28 @@ public class LenientAddressParser implements AddressParser {
     }
 
     public AddressList parseAddressList(final CharSequence text) {
-        ByteSequence raw = ContentUtil.encode(text);
-        ParserCursor cursor = new ParserCursor(0, text.length());
+        ByteSequence raw = bytesOf(text);
+        ParserCursor cursor = cursorOf(text);
         return parseAddressList(raw, cursor);
     }
 
+    /**
+     * Returns the bytes to parse for the given text. Views over raw bytes are
+     * parsed in place.
+     */
+    private static ByteSequence bytesOf(final CharSequence text) {
+        if (text instanceof AsciiByteSequenceView && ((AsciiByteSequenceView) text).isContiguous()) {
+            return ((AsciiByteSequenceView) text).getByteSequence();
+        }
+        return ContentUtil.encode(text);
+    }
+
+    private static ParserCursor cursorOf(final CharSequence text) {
+        if (text instanceof AsciiByteSequenceView && ((AsciiByteSequenceView) text).isContiguous()) {
+            int offset = ((AsciiByteSequenceView) text).getOffset();
+            return new ParserCursor(offset, offset + text.length());
+        }
+        return new ParserCursor(0, text.length());
+    }
+
 }
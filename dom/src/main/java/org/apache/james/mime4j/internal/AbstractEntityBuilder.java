@@ -21,15 +21,10 @@ package org.apache.james.mime4j.internal;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Locale;
-import java.util.Map;
 
+import org.apache.james.mime4j.codec.DecodeMonitor;
 import org.apache.james.mime4j.dom.BinaryBody;
 import org.apache.james.mime4j.dom.Body;
 import org.apache.james.mime4j.dom.Message;
@@ -41,6 +36,7 @@ import org.apache.james.mime4j.dom.field.ContentTypeField;
 import org.apache.james.mime4j.dom.field.FieldName;
 import org.apache.james.mime4j.dom.field.ParsedField;
 import org.apache.james.mime4j.field.Fields;
+import org.apache.james.mime4j.field.LenientFieldParser;
 import org.apache.james.mime4j.message.MultipartBuilder;
 import org.apache.james.mime4j.message.SingleBodyBuilder;
 import org.apache.james.mime4j.stream.Field;
@@ -49,14 +45,12 @@ import org.apache.james.mime4j.util.MimeUtil;
 
 public abstract class AbstractEntityBuilder {
 
-    private final List<Field> fields;
-    private final Map<String, List<Field>> fieldMap;
+    private final FieldStore fields;
 
     private Body body;
 
     public AbstractEntityBuilder() {
-        this.fields = new LinkedList<Field>();
-        this.fieldMap = new HashMap<String, List<Field>>();
+        this.fields = new FieldStore();
     }
 
     /**
@@ -65,13 +59,6 @@ public abstract class AbstractEntityBuilder {
      * @param field the field to add.
      */
     public AbstractEntityBuilder addField(Field field) {
-        String lowerCasedFieldName = field.getNameLowerCase();
-        List<Field> values = fieldMap.get(lowerCasedFieldName);
-        if (values == null) {
-            values = new LinkedList<Field>();
-            fieldMap.put(lowerCasedFieldName, values);
-        }
-        values.add(field);
         fields.add(field);
         return this;
     }
@@ -83,7 +70,7 @@ public abstract class AbstractEntityBuilder {
      * @return the list of <code>Field</code> objects.
      */
     public List<Field> getFields() {
-        return Collections.unmodifiableList(fields);
+        return fields.asList();
     }
 
     /**
@@ -94,11 +81,7 @@ public abstract class AbstractEntityBuilder {
      * @return the field or <code>null</code> if none found.
      */
     public Field getField(String name) {
-        List<Field> l = fieldMap.get(name.toLowerCase(Locale.US));
-        if (l != null && !l.isEmpty()) {
-            return l.get(0);
-        }
-        return null;
+        return fields.getField(name);
     }
 
     /**
@@ -111,14 +94,7 @@ public abstract class AbstractEntityBuilder {
      * @return the field or <code>null</code> if none found.
      */
     public <F extends Field> F getField(final String name, final Class<F> clazz) {
-        List<Field> l = fieldMap.get(name.toLowerCase(Locale.US));
-        for (int i = 0; i < l.size(); i++) {
-            Field field = l.get(i);
-            if (clazz.isInstance(field)) {
-                return clazz.cast(field);
-            }
-        }
-        return null;
+        return fields.getField(name, clazz);
     }
 
     /**
@@ -130,8 +106,7 @@ public abstract class AbstractEntityBuilder {
      * set field with the given name, <code>false</code> otherwise.
      */
     public boolean containsField(String name) {
-        List<Field> l = fieldMap.get(name.toLowerCase(Locale.US));
-        return l != null && !l.isEmpty();
+        return fields.contains(name);
     }
 
     /**
@@ -141,15 +116,7 @@ public abstract class AbstractEntityBuilder {
      * @return the list of fields.
      */
     public List<Field> getFields(final String name) {
-        final String lowerCaseName = name.toLowerCase(Locale.US);
-        final List<Field> l = fieldMap.get(lowerCaseName);
-        final List<Field> results;
-        if (l == null || l.isEmpty()) {
-            results = Collections.emptyList();
-        } else {
-            results = Collections.unmodifiableList(l);
-        }
-        return results;
+        return fields.getFields(name);
     }
 
     /**
@@ -161,19 +128,7 @@ public abstract class AbstractEntityBuilder {
      * @return the list of fields.
      */
     public <F extends Field> List<F> getFields(final String name, final Class<F> clazz) {
-        final String lowerCaseName = name.toLowerCase(Locale.US);
-        final List<Field> l = fieldMap.get(lowerCaseName);
-        if (l == null) {
-            return Collections.emptyList();
-        }
-        final List<F> results = new ArrayList<F>();
-        for (int i = 0; i < l.size(); i++) {
-            Field field = l.get(i);
-            if (clazz.isInstance(field)) {
-                results.add(clazz.cast(field));
-            }
-        }
-        return results;
+        return fields.getFields(name, clazz);
     }
 
     /**
@@ -183,17 +138,7 @@ public abstract class AbstractEntityBuilder {
      *            the field name (e.g. From, Subject).
      */
     public AbstractEntityBuilder removeFields(String name) {
-        final String lowerCaseName = name.toLowerCase(Locale.US);
-        List<Field> removed = fieldMap.remove(lowerCaseName);
-        if (removed == null || removed.isEmpty()) {
-            return this;
-        }
-        for (Iterator<Field> iterator = fields.iterator(); iterator.hasNext();) {
-            Field field = iterator.next();
-            if (field.getName().equalsIgnoreCase(name)) {
-                iterator.remove();
-            }
-        }
+        fields.remove(name);
         return this;
     }
 
@@ -210,28 +155,7 @@ public abstract class AbstractEntityBuilder {
      * @param field the field to set.
      */
     public AbstractEntityBuilder setField(Field field) {
-        final String lowerCaseName = field.getNameLowerCase();
-        List<Field> l = fieldMap.get(lowerCaseName);
-        if (l == null || l.isEmpty()) {
-            addField(field);
-            return this;
-        }
-
-        l.clear();
-        l.add(field);
-
-        int firstOccurrence = -1;
-        int index = 0;
-        for (Iterator<Field> iterator = fields.iterator(); iterator.hasNext(); index++) {
-            Field f = iterator.next();
-            if (f.getName().equalsIgnoreCase(field.getName())) {
-                iterator.remove();
-                if (firstOccurrence == -1) {
-                    firstOccurrence = index;
-                }
-            }
-        }
-        fields.add(firstOccurrence, field);
+        fields.set(field);
         return this;
     }
 
@@ -240,13 +164,34 @@ public abstract class AbstractEntityBuilder {
      */
     public AbstractEntityBuilder clearFields() {
         fields.clear();
-        fieldMap.clear();
         return this;
     }
 
+    /**
+     * Obtains the first header field with the specified name. A raw field (for instance
+     * one copied from a lazily parsed header) is parsed on first access and replaced by
+     * its structured form.
+     */
     @SuppressWarnings("unchecked")
     public <F extends ParsedField> F obtainField(String fieldName) {
-        return (F) getField(fieldName);
+        int i = fields.indexOf(fieldName);
+        if (i == -1) {
+            return null;
+        }
+        Field field = fields.get(i);
+        if (!(field instanceof ParsedField)) {
+            field = parseField(field);
+            fields.replace(i, field);
+        }
+        return (F) field;
+    }
+
+    /**
+     * Parses a raw field into its structured form. Uses the lenient field
+     * parser unless overridden by a builder that has a field parser of its own.
+     */
+    protected ParsedField parseField(Field field) {
+        return LenientFieldParser.getParser().parse(field, DecodeMonitor.SILENT);
     }
 
     /**
@@ -0,0 +1,104 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+
+package org.apache.james.mime4j.internal;
+
+import org.apache.james.mime4j.stream.Field;
+import org.apache.james.mime4j.util.AsciiByteSequenceView;
+import org.apache.james.mime4j.util.ByteSequence;
+import org.apache.james.mime4j.util.CharsetUtil;
+
+/**
+ * Raw field whose bytes live in a block shared by all packed fields of a
+ * header (see {@link FieldStore#compact()}). Apart from the shared block a
+ * field only holds its interned name and its position within the block; the
+ * body is decoded whenever it is requested.
+ */
+final class CompactField implements Field {
+
+    private final byte[] block;
+    private final int offset;
+    private final int length;
+    private final int delimiterIdx;
+    private final String name;
+
+    CompactField(byte[] block, int offset, int length, int delimiterIdx, String name) {
+        this.block = block;
+        this.offset = offset;
+        this.length = length;
+        this.delimiterIdx = delimiterIdx;
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getNameLowerCase() {
+        return FieldStore.toLowerCase(name);
+    }
+
+    public String getBody() {
+        int off = delimiterIdx + 1;
+        if (length > off + 1 && CharsetUtil.isWhitespace((char) (block[offset + off] & 0xff))) {
+            off++;
+        }
+        return AsciiByteSequenceView.unfold(getRaw(), off, length - off).toString();
+    }
+
+    public ByteSequence getRaw() {
+        return new Slice();
+    }
+
+    public int getDelimiterIdx() {
+        return delimiterIdx;
+    }
+
+    @Override
+    public String toString() {
+        return new AsciiByteSequenceView(getRaw()).toString();
+    }
+
+    /**
+     * View of the raw bytes of this field within the shared block.
+     */
+    private final class Slice implements ByteSequence {
+
+        public int length() {
+            return length;
+        }
+
+        public byte byteAt(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException();
+            }
+            return block[offset + index];
+        }
+
+        public byte[] toByteArray() {
+            byte[] bytes = new byte[length];
+            System.arraycopy(block, offset, bytes, 0, length);
+            return bytes;
+        }
+
+    }
+
+}
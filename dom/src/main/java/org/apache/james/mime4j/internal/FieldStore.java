@@ -0,0 +1,423 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+
+package org.apache.james.mime4j.internal;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.james.mime4j.dom.field.FieldName;
+import org.apache.james.mime4j.stream.Field;
+import org.apache.james.mime4j.stream.RawField;
+import org.apache.james.mime4j.util.ByteArrayBuffer;
+import org.apache.james.mime4j.util.ByteSequence;
+import org.apache.james.mime4j.util.FieldNameMap;
+
+/**
+ * Compact, array backed store of header fields. Each field is kept exactly once
+ * along with a precomputed case-insensitive hash of its name, so that lookups by
+ * name neither lower case the name nor allocate any intermediate objects.
+ * <p>
+ * Stores created by {@link #copy()} share their arrays with the original
+ * until either of them is modified.
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ */
+public final class FieldStore {
+
+    private static final String[] WELL_KNOWN_NAMES = {
+        FieldName.CONTENT_TYPE, FieldName.CONTENT_LENGTH, FieldName.CONTENT_TRANSFER_ENCODING,
+        FieldName.CONTENT_DISPOSITION, FieldName.CONTENT_ID, FieldName.CONTENT_MD5,
+        FieldName.CONTENT_DESCRIPTION, FieldName.CONTENT_LANGUAGE, FieldName.CONTENT_LOCATION,
+        FieldName.MIME_VERSION, FieldName.DATE, FieldName.MESSAGE_ID, FieldName.SUBJECT,
+        FieldName.FROM, FieldName.SENDER, FieldName.TO, FieldName.CC, FieldName.BCC,
+        FieldName.REPLY_TO, FieldName.RESENT_DATE, FieldName.RESENT_FROM, FieldName.RESENT_SENDER,
+        FieldName.RESENT_TO, FieldName.RESENT_CC, FieldName.RESENT_BCC
+    };
+
+    private static final FieldNameMap<String> WELL_KNOWN_LOWERCASE;
+
+    static {
+        Map<String, String> lowerCaseNames = new HashMap<String, String>();
+        for (String name : WELL_KNOWN_NAMES) {
+            lowerCaseNames.put(name, name.toLowerCase(Locale.US).intern());
+        }
+        WELL_KNOWN_LOWERCASE = new FieldNameMap<String>(lowerCaseNames);
+    }
+
+    private static final Field[] EMPTY_FIELDS = new Field[0];
+    private static final int[] EMPTY_HASHES = new int[0];
+
+    private Field[] fields;
+    private int[] hashes;
+    private int size;
+    // whether the arrays may be referenced by another store
+    private boolean shared;
+
+    public FieldStore() {
+        this.fields = EMPTY_FIELDS;
+        this.hashes = EMPTY_HASHES;
+    }
+
+    /**
+     * Computes a case-insensitive (US-ASCII) hash code of the given field name. The hash
+     * is equal to the {@link String#hashCode()} of the lower case form of the name.
+     */
+    public static int hashIgnoreCase(final CharSequence name) {
+        return FieldNameMap.hash(name);
+    }
+
+    /**
+     * Returns the lower case form of the given field name. Interned constants are returned
+     * for the well-known names defined in {@link FieldName}.
+     */
+    public static String toLowerCase(final String name) {
+        String lowerCaseName = WELL_KNOWN_LOWERCASE.get(name);
+        return lowerCaseName != null ? lowerCaseName : name.toLowerCase(Locale.US);
+    }
+
+    private static boolean matches(final Field field, final String name) {
+        String fieldName = field.getName();
+        return fieldName == name || fieldName.equalsIgnoreCase(name);
+    }
+
+    /**
+     * Returns a copy of this store. The arrays are shared and copied on the
+     * first modification of either store, so that copying a header that is
+     * left unmodified costs no more than a few allocations. A store that is
+     * already shared is not written to.
+     */
+    public FieldStore copy() {
+        FieldStore copy = new FieldStore();
+        if (size > 0) {
+            copy.fields = fields;
+            copy.hashes = hashes;
+            copy.size = size;
+            copy.shared = true;
+            if (!shared) {
+                shared = true;
+            }
+        }
+        return copy;
+    }
+
+    private void unshare() {
+        if (shared) {
+            fields = fields.clone();
+            hashes = hashes.clone();
+            shared = false;
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > fields.length) {
+            int newCapacity = Math.max(capacity, fields.length < 8 ? 8 : fields.length + (fields.length >> 1));
+            fields = Arrays.copyOf(fields, newCapacity);
+            hashes = Arrays.copyOf(hashes, newCapacity);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Field get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return fields[index];
+    }
+
+    /**
+     * Adds a field to the end of the list of fields.
+     */
+    public void add(final Field field) {
+        unshare();
+        ensureCapacity(size + 1);
+        fields[size] = field;
+        hashes[size] = hashIgnoreCase(field.getName());
+        size++;
+    }
+
+    /**
+     * Returns the index of the first field with the given name or <code>-1</code>.
+     */
+    public int indexOf(final String name) {
+        return indexOf(name, hashIgnoreCase(name), 0);
+    }
+
+    /**
+     * Returns the index of the first field with the given name at or after
+     * <code>fromIndex</code> or <code>-1</code>.
+     */
+    public int indexOf(final String name, final int fromIndex) {
+        return indexOf(name, hashIgnoreCase(name), fromIndex);
+    }
+
+    private int indexOf(final String name, final int hash, final int from) {
+        for (int i = from; i < size; i++) {
+            if (hashes[i] == hash && matches(fields[i], name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the first field with the given name or <code>null</code> if none found.
+     */
+    public Field getField(final String name) {
+        int i = indexOf(name);
+        return i != -1 ? fields[i] : null;
+    }
+
+    /**
+     * Gets the first field with the given name and of the given type or <code>null</code>
+     * if none found.
+     */
+    public <F extends Field> F getField(final String name, final Class<F> clazz) {
+        int hash = hashIgnoreCase(name);
+        for (int i = indexOf(name, hash, 0); i != -1; i = indexOf(name, hash, i + 1)) {
+            Field field = fields[i];
+            if (clazz.isInstance(field)) {
+                return clazz.cast(field);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns <code>true</code> if there is at least one field with the given name.
+     */
+    public boolean contains(final String name) {
+        return indexOf(name) != -1;
+    }
+
+    /**
+     * Gets all fields with the given name in order of appearance.
+     */
+    public List<Field> getFields(final String name) {
+        int hash = hashIgnoreCase(name);
+        int first = indexOf(name, hash, 0);
+        if (first == -1) {
+            return Collections.emptyList();
+        }
+        int next = indexOf(name, hash, first + 1);
+        if (next == -1) {
+            return Collections.singletonList(fields[first]);
+        }
+        List<Field> results = new ArrayList<Field>(4);
+        results.add(fields[first]);
+        for (int i = next; i != -1; i = indexOf(name, hash, i + 1)) {
+            results.add(fields[i]);
+        }
+        return Collections.unmodifiableList(results);
+    }
+
+    /**
+     * Gets all fields with the given name and of the given type in order of appearance.
+     */
+    public <F extends Field> List<F> getFields(final String name, final Class<F> clazz) {
+        int hash = hashIgnoreCase(name);
+        List<F> results = null;
+        for (int i = indexOf(name, hash, 0); i != -1; i = indexOf(name, hash, i + 1)) {
+            Field field = fields[i];
+            if (clazz.isInstance(field)) {
+                if (results == null) {
+                    results = new ArrayList<F>(4);
+                }
+                results.add(clazz.cast(field));
+            }
+        }
+        return results != null ? results : Collections.<F>emptyList();
+    }
+
+    /**
+     * Removes all fields with the given name.
+     *
+     * @return number of fields removed.
+     */
+    public int remove(final String name) {
+        int hash = hashIgnoreCase(name);
+        int first = indexOf(name, hash, 0);
+        if (first == -1) {
+            return 0;
+        }
+        unshare();
+        int j = first;
+        for (int i = first + 1; i < size; i++) {
+            if (hashes[i] != hash || !matches(fields[i], name)) {
+                fields[j] = fields[i];
+                hashes[j] = hashes[i];
+                j++;
+            }
+        }
+        int removed = size - j;
+        Arrays.fill(fields, j, size, null);
+        size = j;
+        return removed;
+    }
+
+    /**
+     * Replaces the first field with the same name as the given field and removes all
+     * further occurrences. The field is added to the end of the list if no such field
+     * is present.
+     */
+    public void set(final Field field) {
+        String name = field.getName();
+        int hash = hashIgnoreCase(name);
+        int first = indexOf(name, hash, 0);
+        if (first == -1) {
+            add(field);
+            return;
+        }
+        unshare();
+        fields[first] = field;
+        int j = first + 1;
+        for (int i = first + 1; i < size; i++) {
+            if (hashes[i] != hash || !matches(fields[i], name)) {
+                fields[j] = fields[i];
+                hashes[j] = hashes[i];
+                j++;
+            }
+        }
+        Arrays.fill(fields, j, size, null);
+        size = j;
+    }
+
+    /**
+     * Replaces the field at the given index with a field of the same name.
+     */
+    public void replace(final int index, final Field field) {
+        get(index);
+        unshare();
+        fields[index] = field;
+    }
+
+    /**
+     * Removes all fields.
+     */
+    public void clear() {
+        unshare();
+        Arrays.fill(fields, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Packs the raw bytes of all unparsed {@link RawField}s into a single block
+     * shared by the replacement fields, interns their names and trims the
+     * internal arrays to the number of fields. Parsed fields and fields without
+     * a raw representation are kept as is.
+     *
+     * @return the number of fields packed.
+     */
+    public int compact() {
+        int total = 0;
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (isCompactable(fields[i])) {
+                total += fields[i].getRaw().length();
+                count++;
+            }
+        }
+        if (count > 0) {
+            unshare();
+            byte[] block = new byte[total];
+            int pos = 0;
+            for (int i = 0; i < size; i++) {
+                Field field = fields[i];
+                if (isCompactable(field)) {
+                    RawField rawField = (RawField) field;
+                    ByteSequence raw = rawField.getRaw();
+                    int len = raw.length();
+                    if (raw instanceof ByteArrayBuffer) {
+                        System.arraycopy(((ByteArrayBuffer) raw).buffer(), 0, block, pos, len);
+                    } else {
+                        for (int j = 0; j < len; j++) {
+                            block[pos + j] = raw.byteAt(j);
+                        }
+                    }
+                    fields[i] = new CompactField(block, pos, len, rawField.getDelimiterIdx(),
+                            rawField.getName().intern());
+                    pos += len;
+                }
+            }
+        }
+        if (fields.length > size) {
+            fields = size > 0 ? Arrays.copyOf(fields, size) : EMPTY_FIELDS;
+            hashes = size > 0 ? Arrays.copyOf(hashes, size) : EMPTY_HASHES;
+        }
+        return count;
+    }
+
+    private static boolean isCompactable(final Field field) {
+        return field instanceof RawField && field.getRaw() != null
+                && ((RawField) field).getDelimiterIdx() >= 0;
+    }
+
+    /**
+     * Returns an unmodifiable live view of the fields.
+     */
+    public List<Field> asList() {
+        return new AbstractList<Field>() {
+
+            @Override
+            public Field get(int index) {
+                return FieldStore.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+        };
+    }
+
+    /**
+     * Returns a newly built map of fields indexed by lower case names. For each name,
+     * values are ordered by which they appear in this store.
+     */
+    public Map<String, List<Field>> asMap() {
+        Map<String, List<Field>> map = new LinkedHashMap<String, List<Field>>();
+        for (int i = 0; i < size; i++) {
+            String lowerCaseName = toLowerCase(fields[i].getName());
+            List<Field> values = map.get(lowerCaseName);
+            if (values == null) {
+                values = new ArrayList<Field>(1);
+                map.put(lowerCaseName, values);
+            }
+            values.add(fields[i]);
+        }
+        for (Map.Entry<String, List<Field>> entry : map.entrySet()) {
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        }
+        return map;
+    }
+
+}
@@ -20,11 +20,14 @@
 package org.apache.james.mime4j.internal;
 
 import org.apache.james.mime4j.MimeException;
+import org.apache.james.mime4j.codec.DecodeMonitor;
 import org.apache.james.mime4j.dom.Body;
 import org.apache.james.mime4j.dom.Entity;
+import org.apache.james.mime4j.dom.FieldParser;
 import org.apache.james.mime4j.dom.Header;
 import org.apache.james.mime4j.dom.Message;
 import org.apache.james.mime4j.dom.Multipart;
+import org.apache.james.mime4j.dom.field.ParsedField;
 import org.apache.james.mime4j.message.BodyFactory;
 import org.apache.james.mime4j.message.BodyPart;
 import org.apache.james.mime4j.message.DefaultMessageImplFactory;
@@ -34,6 +37,7 @@ import org.apache.james.mime4j.message.MultipartImpl;
 import org.apache.james.mime4j.parser.ContentHandler;
 import org.apache.james.mime4j.stream.BodyDescriptor;
 import org.apache.james.mime4j.stream.Field;
+import org.apache.james.mime4j.stream.RawField;
 import org.apache.james.mime4j.util.ByteArrayBuffer;
 import org.apache.james.mime4j.util.ByteSequence;
 
@@ -50,24 +54,39 @@ public class ParserStreamContentHandler implements ContentHandler {
     private final Entity entity;
     private final MessageImplFactory messageImplFactory;
     private final BodyFactory bodyFactory;
+    private final FieldParser<? extends ParsedField> lazyFieldParser;
+    private final DecodeMonitor monitor;
     private final Stack<Object> stack;
 
     public ParserStreamContentHandler(
             final Entity entity,
             final BodyFactory bodyFactory) {
-        this.entity = entity;
-        this.messageImplFactory = new DefaultMessageImplFactory();
-        this.bodyFactory = bodyFactory;
-        this.stack = new Stack<Object>();
+        this(entity, new DefaultMessageImplFactory(), bodyFactory);
     }
 
     public ParserStreamContentHandler(
             final Entity entity,
             final MessageImplFactory messageImplFactory,
             final BodyFactory bodyFactory) {
+        this(entity, messageImplFactory, bodyFactory, null, null);
+    }
+
+    /**
+     * @param lazyFieldParser if not <code>null</code> headers are created so that raw
+     *  fields are parsed with this parser on first access by name.
+     * @param monitor decoding monitor used by the lazy field parser.
+     */
+    public ParserStreamContentHandler(
+            final Entity entity,
+            final MessageImplFactory messageImplFactory,
+            final BodyFactory bodyFactory,
+            final FieldParser<? extends ParsedField> lazyFieldParser,
+            final DecodeMonitor monitor) {
         this.entity = entity;
         this.messageImplFactory = messageImplFactory;
         this.bodyFactory = bodyFactory;
+        this.lazyFieldParser = lazyFieldParser;
+        this.monitor = monitor;
         this.stack = new Stack<Object>();
     }
 
@@ -91,17 +110,18 @@ public class ParserStreamContentHandler implements ContentHandler {
     }
 
     public void endMessage() throws MimeException {
-        expect(Message.class);
+        // the entity being built may be a body part
+        expect(stack.size() == 1 ? Entity.class : Message.class);
         stack.pop();
     }
 
     public void startHeader() throws MimeException {
-        stack.push(new HeaderImpl());
+        stack.push(lazyFieldParser != null ? new HeaderImpl(lazyFieldParser, monitor) : new HeaderImpl());
     }
 
     public void field(Field field) throws MimeException {
         expect(Header.class);
-        ((Header) stack.peek()).addField(field);
+        ((Header) stack.peek()).addField(RawField.copyOf(field));
     }
 
     public void endHeader() throws MimeException {
@@ -124,17 +144,23 @@ public class ParserStreamContentHandler implements ContentHandler {
     public void body(BodyDescriptor bd, final InputStream is) throws MimeException, IOException {
         expect(Entity.class);
 
-        final Body body;
-        if (bd.getMimeType().startsWith("text/")) {
-            body = bodyFactory.textBody(is, bd.getCharset());
-        } else {
-            body = bodyFactory.binaryBody(is);
-        }
+        final Body body = createBody(bd, is);
 
         Entity entity = ((Entity) stack.peek());
         entity.setBody(body);
     }
 
+    /**
+     * Creates the body of a single part entity from the given content.
+     */
+    protected Body createBody(BodyDescriptor bd, final InputStream is) throws IOException {
+        if (bd.getMimeType().startsWith("text/")) {
+            return bodyFactory.textBody(is, bd.getCharset());
+        } else {
+            return bodyFactory.binaryBody(is);
+        }
+    }
+
     public void endMultipart() throws MimeException {
         stack.pop();
     }
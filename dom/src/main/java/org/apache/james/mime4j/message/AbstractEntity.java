@@ -37,6 +37,11 @@ public abstract class AbstractEntity implements Entity {
     private Body body = null;
     private Entity parent = null;
 
+    // modifications of this entity and its descendants, see changed()
+    private int modCount;
+    // memoized by DefaultMessageWriter#size(Entity)
+    volatile SerializedSize serializedSize;
+
     /**
      * Creates a new <code>Entity</code>. Typically invoked implicitly by a
      * subclass constructor.
@@ -79,7 +84,18 @@ public abstract class AbstractEntity implements Entity {
      * @param header the header.
      */
     public void setHeader(Header header) {
+        if (this.header instanceof AbstractHeader && ((AbstractHeader) this.header).owner == this) {
+            ((AbstractHeader) this.header).owner = null;
+        }
         this.header = header;
+        if (header instanceof AbstractHeader) {
+            AbstractEntity previous = ((AbstractHeader) header).owner;
+            if (previous != null && previous != this) {
+                previous.changed();
+            }
+            ((AbstractHeader) header).owner = this;
+        }
+        changed();
     }
 
     /**
@@ -103,6 +119,7 @@ public abstract class AbstractEntity implements Entity {
 
         this.body = body;
         body.setParent(this);
+        changed();
     }
 
     /**
@@ -119,6 +136,7 @@ public abstract class AbstractEntity implements Entity {
         Body body = this.body;
         this.body = null;
         body.setParent(null);
+        changed();
 
         return body;
     }
@@ -224,11 +242,30 @@ public abstract class AbstractEntity implements Entity {
      */
     Header obtainHeader() {
         if (header == null) {
-            header = new HeaderImpl();
+            setHeader(new HeaderImpl());
         }
         return header;
     }
 
+    /**
+     * Records a modification of this entity, of its header or of one of its
+     * descendants, and propagates it to the ancestors of this entity.
+     */
+    void changed() {
+        modCount++;
+        Entity parent = getParent();
+        if (parent instanceof AbstractEntity) {
+            ((AbstractEntity) parent).changed();
+        }
+    }
+
+    /**
+     * Returns the number of modifications recorded by {@link #changed()}.
+     */
+    int getModCount() {
+        return modCount;
+    }
+
     /**
      * Obtains the header field with the specified name.
      *
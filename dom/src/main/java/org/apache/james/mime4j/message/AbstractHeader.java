@@ -19,30 +19,53 @@
 
 package org.apache.james.mime4j.message;
 
-import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 
+import org.apache.james.mime4j.codec.DecodeMonitor;
+import org.apache.james.mime4j.dom.FieldParser;
 import org.apache.james.mime4j.dom.Header;
+import org.apache.james.mime4j.dom.field.ParsedField;
+import org.apache.james.mime4j.internal.FieldStore;
 import org.apache.james.mime4j.stream.Field;
 
 /**
  * Abstract MIME header.
+ * <p>
+ * A header created with a {@link FieldParser} parses its fields on demand: raw
+ * (unparsed) fields are kept as is and converted into {@link ParsedField}s only when
+ * looked up by name. The parsed field then replaces the raw one. Fields returned by
+ * {@link #getFields()} and {@link #iterator()} are never parsed by the header.
+ * </p>
  */
 public abstract class AbstractHeader implements Header {
 
-    private final List<Field> fields = new LinkedList<Field>();
-    private final Map<String, List<Field>> fieldMap = new HashMap<String, List<Field>>();
+    private FieldStore fields = new FieldStore();
+    final FieldParser<? extends ParsedField> fieldParser;
+    final DecodeMonitor monitor;
+    private int modCount;
+    // entity this header is set on, notified of modifications
+    AbstractEntity owner;
 
     /**
      * Creates a new empty <code>Header</code>.
      */
     public AbstractHeader() {
+        this(null, null);
+    }
+
+    /**
+     * Creates a new empty <code>Header</code> that parses raw fields on demand.
+     *
+     * @param fieldParser parser used to convert raw fields on first access by name or
+     *            <code>null</code> if fields are to be returned as added.
+     * @param monitor decoding monitor used by the field parser.
+     */
+    public AbstractHeader(FieldParser<? extends ParsedField> fieldParser, DecodeMonitor monitor) {
+        this.fieldParser = fieldParser;
+        this.monitor = monitor != null ? monitor : DecodeMonitor.SILENT;
     }
 
     /**
@@ -56,25 +79,31 @@ public abstract class AbstractHeader implements Header {
      *            header to copy.
      */
     public AbstractHeader(Header other) {
+        this(other instanceof AbstractHeader ? ((AbstractHeader) other).fieldParser : null,
+                other instanceof AbstractHeader ? ((AbstractHeader) other).monitor : null);
         for (Field otherField : other.getFields()) {
             addField(otherField);
         }
     }
 
+    /**
+     * Replaces the fields of this header, which is expected to be empty, by
+     * those of the specified header. The list of fields is shared by both
+     * headers until either of them is modified, so this costs no more than
+     * a few allocations. {@link #addField(Field)} is not called.
+     */
+    void shareFields(AbstractHeader other) {
+        fields = other.fields.copy();
+    }
+
     /**
      * Adds a field to the end of the list of fields.
      *
      * @param field the field to add.
      */
     public void addField(Field field) {
-        String lowerCaseFieldName = field.getNameLowerCase();
-        List<Field> values = fieldMap.get(lowerCaseFieldName);
-        if (values == null) {
-            values = new LinkedList<Field>();
-            fieldMap.put(lowerCaseFieldName, values);
-        }
-        values.add(field);
         fields.add(field);
+        modified();
     }
 
     /**
@@ -84,7 +113,7 @@ public abstract class AbstractHeader implements Header {
      * @return the list of <code>Field</code> objects.
      */
     public List<Field> getFields() {
-        return Collections.unmodifiableList(fields);
+        return fields.asList();
     }
 
     /**
@@ -96,7 +125,7 @@ public abstract class AbstractHeader implements Header {
      */
     @Override
     public Map<String, List<Field>> getFieldsAsMap() {
-        return Collections.unmodifiableMap(fieldMap);
+        return Collections.unmodifiableMap(fields.asMap());
     }
 
     /**
@@ -107,11 +136,11 @@ public abstract class AbstractHeader implements Header {
      * @return the field or <code>null</code> if none found.
      */
     public Field getField(String name) {
-        List<Field> l = fieldMap.get(name.toLowerCase(Locale.US));
-        if (l != null && !l.isEmpty()) {
-            return l.get(0);
+        if (fieldParser == null) {
+            return fields.getField(name);
         }
-        return null;
+        int i = fields.indexOf(name);
+        return i != -1 ? resolve(i) : null;
     }
 
     /**
@@ -124,12 +153,11 @@ public abstract class AbstractHeader implements Header {
      * @return the field or <code>null</code> if none found.
      */
     public <F extends Field> F getField(final String name, final Class<F> clazz) {
-        List<Field> l = fieldMap.get(name.toLowerCase(Locale.US));
-        if (l == null) {
-            return null;
+        if (fieldParser == null) {
+            return fields.getField(name, clazz);
         }
-        for (int i = 0; i < l.size(); i++) {
-            Field field = l.get(i);
+        for (int i = fields.indexOf(name); i != -1; i = fields.indexOf(name, i + 1)) {
+            Field field = resolve(i);
             if (clazz.isInstance(field)) {
                 return clazz.cast(field);
             }
@@ -144,15 +172,8 @@ public abstract class AbstractHeader implements Header {
      * @return the list of fields.
      */
     public List<Field> getFields(final String name) {
-        final String lowerCaseName = name.toLowerCase(Locale.US);
-        final List<Field> l = fieldMap.get(lowerCaseName);
-        final List<Field> results;
-        if (l == null || l.isEmpty()) {
-            results = Collections.emptyList();
-        } else {
-            results = Collections.unmodifiableList(l);
-        }
-        return results;
+        resolveAll(name);
+        return fields.getFields(name);
     }
 
     /**
@@ -164,19 +185,8 @@ public abstract class AbstractHeader implements Header {
      * @return the list of fields.
      */
     public <F extends Field> List<F> getFields(final String name, final Class<F> clazz) {
-        final String lowerCaseName = name.toLowerCase(Locale.US);
-        final List<Field> l = fieldMap.get(lowerCaseName);
-        if (l == null) {
-            return Collections.emptyList();
-        }
-        final List<F> results = new ArrayList<F>();
-        for (int i = 0; i < l.size(); i++) {
-            Field field = l.get(i);
-            if (clazz.isInstance(field)) {
-                results.add(clazz.cast(field));
-            }
-        }
-        return results;
+        resolveAll(name);
+        return fields.getFields(name, clazz);
     }
 
     /**
@@ -185,7 +195,7 @@ public abstract class AbstractHeader implements Header {
      * @return an iterator.
      */
     public Iterator<Field> iterator() {
-        return Collections.unmodifiableList(fields).iterator();
+        return fields.asList().iterator();
     }
 
     /**
@@ -196,18 +206,11 @@ public abstract class AbstractHeader implements Header {
      * @return number of fields removed.
      */
     public int removeFields(String name) {
-        final String lowerCaseName = name.toLowerCase(Locale.US);
-        List<Field> removed = fieldMap.remove(lowerCaseName);
-        if (removed == null || removed.isEmpty())
-            return 0;
-
-        for (Iterator<Field> iterator = fields.iterator(); iterator.hasNext();) {
-            Field field = iterator.next();
-            if (field.getName().equalsIgnoreCase(name))
-                iterator.remove();
+        int removed = fields.remove(name);
+        if (removed > 0) {
+            modified();
         }
-
-        return removed.size();
+        return removed;
     }
 
     /**
@@ -223,29 +226,59 @@ public abstract class AbstractHeader implements Header {
      * @param field the field to set.
      */
     public void setField(Field field) {
-        final String lowerCaseName = field.getNameLowerCase();
-        List<Field> l = fieldMap.get(lowerCaseName);
-        if (l == null || l.isEmpty()) {
-            addField(field);
-            return;
-        }
+        fields.set(field);
+        modified();
+    }
 
-        l.clear();
-        l.add(field);
+    /**
+     * Packs this header into a memory compact form suited to long lived,
+     * read-mostly messages. The raw bytes of all fields that have not been
+     * parsed yet are copied into a single block shared by the fields of this
+     * header, and field names are interned. The content of the header does not
+     * change; field bodies are decoded on demand from the shared block.
+     * <p>
+     * Parsed fields are left untouched, so this is most effective for headers
+     * created with a {@link FieldParser} that parses fields on demand.
+     * </p>
+     *
+     * @return the number of fields packed.
+     */
+    public int compact() {
+        return fields.compact();
+    }
+
+    /**
+     * Returns the number of structural modifications (fields added, set or
+     * removed) made to this header so far. Replacing a raw field by its parsed
+     * form on lookup does not count as a modification.
+     */
+    int getModCount() {
+        return modCount;
+    }
 
-        int firstOccurrence = -1;
-        int index = 0;
-        for (Iterator<Field> iterator = fields.iterator(); iterator.hasNext(); index++) {
-            Field f = iterator.next();
-            if (f.getName().equalsIgnoreCase(field.getName())) {
-                iterator.remove();
+    private void modified() {
+        modCount++;
+        if (owner != null) {
+            owner.changed();
+        }
+    }
 
-                if (firstOccurrence == -1)
-                    firstOccurrence = index;
-            }
+    private Field resolve(int index) {
+        Field field = fields.get(index);
+        if (!(field instanceof ParsedField)) {
+            field = fieldParser.parse(field, monitor);
+            fields.replace(index, field);
         }
+        return field;
+    }
 
-        fields.add(firstOccurrence, field);
+    private void resolveAll(String name) {
+        if (fieldParser == null) {
+            return;
+        }
+        for (int i = fields.indexOf(name); i != -1; i = fields.indexOf(name, i + 1)) {
+            resolve(i);
+        }
     }
 
     /**
@@ -257,7 +290,7 @@ public abstract class AbstractHeader implements Header {
     @Override
     public String toString() {
         StringBuilder str = new StringBuilder(128);
-        for (Field field : fields) {
+        for (Field field : fields.asList()) {
             str.append(field.toString());
             str.append("\r\n");
         }
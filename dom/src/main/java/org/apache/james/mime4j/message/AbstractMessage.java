@@ -20,7 +20,9 @@
 package org.apache.james.mime4j.message;
 
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
+import org.apache.james.mime4j.dom.Header;
 import org.apache.james.mime4j.dom.Message;
 import org.apache.james.mime4j.dom.address.AddressList;
 import org.apache.james.mime4j.dom.address.Mailbox;
@@ -35,9 +37,37 @@ import org.apache.james.mime4j.stream.Field;
 
 /**
  * Abstract MIME message.
+ * <p>
+ * The decoded values returned by the header accessors of this class are
+ * memoized per message. The memoized values are discarded as soon as the
+ * header is replaced or modified through {@link Header#addField(Field)},
+ * {@link Header#setField(Field)} or {@link Header#removeFields(String)}.
+ * Values are only memoized if the header is an {@link AbstractHeader}.
+ * </p>
+ * <p>
+ * Memoized values are published safely, so a message that is no longer
+ * modified can be read from several threads, as without memoization. Note
+ * that a header that parses its fields lazily is still modified on read.
+ * </p>
  */
 public abstract class AbstractMessage extends AbstractEntity implements Message {
 
+    private static final int MESSAGE_ID = 0;
+    private static final int SUBJECT = 1;
+    private static final int DATE = 2;
+    private static final int SENDER = 3;
+    private static final int FROM = 4;
+    private static final int TO = 5;
+    private static final int CC = 6;
+    private static final int BCC = 7;
+    private static final int REPLY_TO = 8;
+    private static final int SLOTS = 9;
+
+    /** Marks a memoized value for a field that is not present. */
+    private static final Object ABSENT = new Object();
+
+    private volatile Memo memo;
+
     /**
      * Returns the value of the <i>Message-ID</i> header field of this message
      * or <code>null</code> if it is not present.
@@ -45,11 +75,12 @@ public abstract class AbstractMessage extends AbstractEntity implements Message
      * @return the identifier of this message.
      */
     public String getMessageId() {
-        Field field = obtainField(FieldName.MESSAGE_ID_LOWERCASE);
-        if (field == null)
-            return null;
+        Object cached = cachedValue(MESSAGE_ID);
+        if (cached != null)
+            return unmask(cached);
 
-        return field.getBody();
+        Field field = obtainField(FieldName.MESSAGE_ID_LOWERCASE);
+        return cacheValue(MESSAGE_ID, field != null ? field.getBody() : null);
     }
 
     /**
@@ -59,11 +90,12 @@ public abstract class AbstractMessage extends AbstractEntity implements Message
      * @return the subject of this message.
      */
     public String getSubject() {
-        UnstructuredField field = obtainField(FieldName.SUBJECT_LOWERCASE);
-        if (field == null)
-            return null;
+        Object cached = cachedValue(SUBJECT);
+        if (cached != null)
+            return unmask(cached);
 
-        return field.getValue();
+        UnstructuredField field = obtainField(FieldName.SUBJECT_LOWERCASE);
+        return cacheValue(SUBJECT, field != null ? field.getValue() : null);
     }
 
     /**
@@ -73,11 +105,12 @@ public abstract class AbstractMessage extends AbstractEntity implements Message
      * @return the date of this message.
      */
     public Date getDate() {
-        DateTimeField dateField = obtainField(FieldName.DATE_LOWERCASE);
-        if (dateField == null)
-            return null;
+        Object cached = cachedValue(DATE);
+        if (cached != null)
+            return unmask(cached);
 
-        return dateField.getDate();
+        DateTimeField dateField = obtainField(FieldName.DATE_LOWERCASE);
+        return cacheValue(DATE, dateField != null ? dateField.getDate() : null);
     }
 
     /**
@@ -88,7 +121,7 @@ public abstract class AbstractMessage extends AbstractEntity implements Message
      * @return the sender of this message.
      */
     public Mailbox getSender() {
-        return getMailbox(FieldName.SENDER_LOWERCASE);
+        return getMailbox(SENDER, FieldName.SENDER_LOWERCASE);
     }
 
     /**
@@ -99,7 +132,7 @@ public abstract class AbstractMessage extends AbstractEntity implements Message
      * @return value of the from field of this message.
      */
     public MailboxList getFrom() {
-        return getMailboxList(FieldName.FROM_LOWERCASE);
+        return getMailboxList(FROM, FieldName.FROM_LOWERCASE);
     }
 
     /**
@@ -110,7 +143,7 @@ public abstract class AbstractMessage extends AbstractEntity implements Message
      * @return value of the to field of this message.
      */
     public AddressList getTo() {
-        return getAddressList(FieldName.TO_LOWERCASE);
+        return getAddressList(TO, FieldName.TO_LOWERCASE);
     }
 
     /**
@@ -121,7 +154,7 @@ public abstract class AbstractMessage extends AbstractEntity implements Message
      * @return value of the cc field of this message.
      */
     public AddressList getCc() {
-        return getAddressList(FieldName.CC_LOWERCASE);
+        return getAddressList(CC, FieldName.CC_LOWERCASE);
     }
 
     /**
@@ -132,7 +165,7 @@ public abstract class AbstractMessage extends AbstractEntity implements Message
      * @return value of the bcc field of this message.
      */
     public AddressList getBcc() {
-        return getAddressList(FieldName.BCC_LOWERCASE);
+        return getAddressList(BCC, FieldName.BCC_LOWERCASE);
     }
 
     /**
@@ -143,31 +176,90 @@ public abstract class AbstractMessage extends AbstractEntity implements Message
      * @return value of the reply to field of this message.
      */
     public AddressList getReplyTo() {
-        return getAddressList(FieldName.REPLY_TO_LOWERCASE);
+        return getAddressList(REPLY_TO, FieldName.REPLY_TO_LOWERCASE);
     }
 
-    private Mailbox getMailbox(String fieldName) {
-        MailboxField field = obtainField(fieldName);
-        if (field == null)
-            return null;
+    private Mailbox getMailbox(int slot, String fieldName) {
+        Object cached = cachedValue(slot);
+        if (cached != null)
+            return unmask(cached);
 
-        return field.getMailbox();
+        MailboxField field = obtainField(fieldName);
+        return cacheValue(slot, field != null ? field.getMailbox() : null);
     }
 
-    private MailboxList getMailboxList(String fieldName) {
-        MailboxListField field = obtainField(fieldName);
-        if (field == null)
-            return null;
+    private MailboxList getMailboxList(int slot, String fieldName) {
+        Object cached = cachedValue(slot);
+        if (cached != null)
+            return unmask(cached);
 
-        return field.getMailboxList();
+        MailboxListField field = obtainField(fieldName);
+        return cacheValue(slot, field != null ? field.getMailboxList() : null);
     }
 
-    private AddressList getAddressList(String fieldName) {
+    private AddressList getAddressList(int slot, String fieldName) {
+        Object cached = cachedValue(slot);
+        if (cached != null)
+            return unmask(cached);
+
         AddressListField field = obtainField(fieldName);
-        if (field == null)
+        return cacheValue(slot, field != null ? field.getAddressList() : null);
+    }
+
+    /**
+     * Returns the memoized value of the given slot, {@link #ABSENT} if the
+     * field is known not to be present or <code>null</code> if the value has
+     * to be (re)computed.
+     */
+    private Object cachedValue(int slot) {
+        Memo current = currentMemo();
+        return current != null ? current.values.get(slot) : null;
+    }
+
+    private <T> T cacheValue(int slot, T value) {
+        Memo current = currentMemo();
+        if (current != null) {
+            current.values.set(slot, value != null ? value : ABSENT);
+        }
+        return value;
+    }
+
+    /**
+     * Returns the memoized values for the current state of the header,
+     * discarding all values if the header has been replaced or modified since
+     * they were computed.
+     */
+    private Memo currentMemo() {
+        Header header = getHeader();
+        if (!(header instanceof AbstractHeader)) {
             return null;
+        }
+        int modCount = ((AbstractHeader) header).getModCount();
+        Memo current = memo;
+        if (current == null || current.header != header || current.modCount != modCount) {
+            // racing readers may each install a memo; values are recomputed then
+            current = new Memo(header, modCount);
+            memo = current;
+        }
+        return current;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T unmask(Object value) {
+        return value == ABSENT ? null : (T) value;
+    }
+
+    private static final class Memo {
+
+        final Header header;
+        final int modCount;
+        final AtomicReferenceArray<Object> values = new AtomicReferenceArray<Object>(SLOTS);
+
+        Memo(Header header, int modCount) {
+            this.header = header;
+            this.modCount = modCount;
+        }
 
-        return field.getAddressList();
     }
 
 }
@@ -115,6 +115,7 @@ public abstract class AbstractMultipart implements Multipart {
         for (Entity bodyPart : bodyParts) {
             bodyPart.setParent(parent);
         }
+        changed();
     }
 
     /**
@@ -129,6 +130,7 @@ public abstract class AbstractMultipart implements Multipart {
 
         bodyParts.add(bodyPart);
         bodyPart.setParent(parent);
+        changed();
     }
 
     /**
@@ -148,6 +150,7 @@ public abstract class AbstractMultipart implements Multipart {
 
         bodyParts.add(index, bodyPart);
         bodyPart.setParent(parent);
+        changed();
     }
 
     /**
@@ -164,6 +167,7 @@ public abstract class AbstractMultipart implements Multipart {
     public Entity removeBodyPart(int index) {
         Entity bodyPart = bodyParts.remove(index);
         bodyPart.setParent(null);
+        changed();
         return bodyPart;
     }
 
@@ -191,10 +195,21 @@ public abstract class AbstractMultipart implements Multipart {
 
         bodyPart.setParent(parent);
         replacedEntity.setParent(null);
+        changed();
 
         return replacedEntity;
     }
 
+    /**
+     * Records a modification of this multipart with the entity it is the
+     * body of, see {@link AbstractEntity#changed()}.
+     */
+    void changed() {
+        if (parent instanceof AbstractEntity) {
+            ((AbstractEntity) parent).changed();
+        }
+    }
+
     /**
      * Gets the preamble or null if the message has no preamble.
      *
@@ -34,6 +34,7 @@ import org.apache.james.mime4j.dom.BinaryBody;
 import org.apache.james.mime4j.dom.SingleBody;
 import org.apache.james.mime4j.dom.TextBody;
 import org.apache.james.mime4j.io.InputStreams;
+import org.apache.james.mime4j.util.ContentStatistics;
 import org.apache.james.mime4j.util.ContentUtil;
 
 /**
@@ -149,6 +150,7 @@ public class BasicBodyFactory implements BodyFactory {
 
         private final String content;
         private final Charset charset;
+        private volatile ContentStatistics statistics;
 
         StringBody1(final String content, final Charset charset) {
             super();
@@ -172,6 +174,19 @@ public class BasicBodyFactory implements BodyFactory {
                     this.charset != null ? this.charset : Charsets.DEFAULT_CHARSET);
         }
 
+        @Override
+        public ContentStatistics getContentStatistics() {
+            // computed from the encoded content on first use, safely published
+            ContentStatistics statistics = this.statistics;
+            if (statistics == null) {
+                byte[] bytes = this.content.getBytes(
+                        this.charset != null ? this.charset : Charsets.DEFAULT_CHARSET);
+                statistics = ContentStatistics.of(bytes, 0, bytes.length);
+                this.statistics = statistics;
+            }
+            return statistics;
+        }
+
         @Override
         public void dispose() {
         }
@@ -187,6 +202,7 @@ public class BasicBodyFactory implements BodyFactory {
 
         private final byte[] content;
         private final Charset charset;
+        private volatile ContentStatistics statistics;
 
         StringBody2(final byte[] content, final Charset charset) {
             super();
@@ -209,6 +225,17 @@ public class BasicBodyFactory implements BodyFactory {
             return InputStreams.create(this.content);
         }
 
+        @Override
+        public ContentStatistics getContentStatistics() {
+            // computed from the content in memory on first use, safely published
+            ContentStatistics statistics = this.statistics;
+            if (statistics == null) {
+                statistics = ContentStatistics.of(this.content, 0, this.content.length);
+                this.statistics = statistics;
+            }
+            return statistics;
+        }
+
         @Override
         public void dispose() {
         }
@@ -223,6 +250,7 @@ public class BasicBodyFactory implements BodyFactory {
     static class BinaryBody1 extends BinaryBody {
 
         private final byte[] content;
+        private volatile ContentStatistics statistics;
 
         BinaryBody1(final byte[] content) {
             super();
@@ -234,6 +262,17 @@ public class BasicBodyFactory implements BodyFactory {
             return InputStreams.create(this.content);
         }
 
+        @Override
+        public ContentStatistics getContentStatistics() {
+            // computed from the content in memory on first use, safely published
+            ContentStatistics statistics = this.statistics;
+            if (statistics == null) {
+                statistics = ContentStatistics.of(this.content, 0, this.content.length);
+                this.statistics = statistics;
+            }
+            return statistics;
+        }
+
         @Override
         public void dispose() {
         }
@@ -249,6 +288,7 @@ public class BasicBodyFactory implements BodyFactory {
 
         private final String content;
         private final Charset charset;
+        private volatile ContentStatistics statistics;
 
         BinaryBody2(final String content, final Charset charset) {
             super();
@@ -262,6 +302,19 @@ public class BasicBodyFactory implements BodyFactory {
                     this.charset != null ? this.charset : Charsets.DEFAULT_CHARSET);
         }
 
+        @Override
+        public ContentStatistics getContentStatistics() {
+            // computed from the encoded content on first use, safely published
+            ContentStatistics statistics = this.statistics;
+            if (statistics == null) {
+                byte[] bytes = this.content.getBytes(
+                        this.charset != null ? this.charset : Charsets.DEFAULT_CHARSET);
+                statistics = ContentStatistics.of(bytes, 0, bytes.length);
+                this.statistics = statistics;
+            }
+            return statistics;
+        }
+
         @Override
         public void dispose() {
         }
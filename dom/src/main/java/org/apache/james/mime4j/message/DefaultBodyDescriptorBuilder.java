@@ -42,6 +42,7 @@ import org.apache.james.mime4j.util.MimeUtil;
 public class DefaultBodyDescriptorBuilder implements BodyDescriptorBuilder {
 
     private static final String CONTENT_TYPE = FieldName.CONTENT_TYPE.toLowerCase(Locale.US);
+    private static final String CONTENT_PREFIX = "content-";
 
     private static final String US_ASCII = "us-ascii";
     private static final String SUB_TYPE_EMAIL = "rfc822";
@@ -55,6 +56,7 @@ public class DefaultBodyDescriptorBuilder implements BodyDescriptorBuilder {
     private final String parentMimeType;
     private final DecodeMonitor monitor;
     private final FieldParser<? extends ParsedField> fieldParser;
+    private final boolean lazyFieldParsing;
     private final Map<String, ParsedField> fields;
 
     /**
@@ -75,10 +77,26 @@ public class DefaultBodyDescriptorBuilder implements BodyDescriptorBuilder {
             final String parentMimeType,
             final FieldParser<? extends ParsedField> fieldParser,
             final DecodeMonitor monitor) {
+        this(parentMimeType, fieldParser, monitor, false);
+    }
+
+    /**
+     * Creates a new <code>BodyDescriptor</code> instance.
+     *
+     * @param lazyFieldParsing if <code>true</code> only the <code>Content-*</code> and
+     *  <code>MIME-Version</code> fields required to describe the body are parsed, all
+     *  other fields are passed on unparsed.
+     */
+    public DefaultBodyDescriptorBuilder(
+            final String parentMimeType,
+            final FieldParser<? extends ParsedField> fieldParser,
+            final DecodeMonitor monitor,
+            final boolean lazyFieldParsing) {
         super();
         this.parentMimeType = parentMimeType;
         this.fieldParser = fieldParser != null ? fieldParser : DefaultFieldParser.getParser();
         this.monitor = monitor != null ? monitor : DecodeMonitor.SILENT;
+        this.lazyFieldParsing = lazyFieldParsing;
         this.fields = new HashMap<String, ParsedField>();
     }
 
@@ -86,15 +104,32 @@ public class DefaultBodyDescriptorBuilder implements BodyDescriptorBuilder {
         fields.clear();
     }
 
+    /**
+     * Parses the given field and returns the parsed instance, which the caller is
+     * expected to pass on (for instance to the header of the entity) instead of parsing
+     * the raw field again. Only the fields describing the body are retained by the
+     * builder.
+     */
     public Field addField(final RawField rawfield) throws MimeException {
+        boolean descriptorField = isDescriptorField(rawfield.getName());
+        if (lazyFieldParsing && !descriptorField) {
+            return rawfield;
+        }
         ParsedField field = fieldParser.parse(rawfield, monitor);
-        String name = field.getNameLowerCase();
-        if (!fields.containsKey(name)) {
-            fields.put(name, field);
+        if (descriptorField) {
+            String name = field.getNameLowerCase();
+            if (!fields.containsKey(name)) {
+                fields.put(name, field);
+            }
         }
         return field;
     }
 
+    private static boolean isDescriptorField(final String name) {
+        return name.regionMatches(true, 0, CONTENT_PREFIX, 0, CONTENT_PREFIX.length())
+                || name.equalsIgnoreCase(FieldName.MIME_VERSION);
+    }
+
     public BodyDescriptor build() {
         String actualMimeType = null;
         String actualMediaType = null;
@@ -150,7 +185,7 @@ public class DefaultBodyDescriptorBuilder implements BodyDescriptorBuilder {
                 actualMimeType = DEFAULT_MIME_TYPE;
             }
         }
-        return new DefaultBodyDescriptorBuilder(actualMimeType, fieldParser, monitor);
+        return new DefaultBodyDescriptorBuilder(actualMimeType, fieldParser, monitor, lazyFieldParsing);
     }
 
 }
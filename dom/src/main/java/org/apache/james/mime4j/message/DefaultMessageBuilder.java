@@ -21,6 +21,7 @@ package org.apache.james.mime4j.message;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import org.apache.james.mime4j.MimeException;
@@ -28,6 +29,7 @@ import org.apache.james.mime4j.MimeIOException;
 import org.apache.james.mime4j.codec.DecodeMonitor;
 import org.apache.james.mime4j.dom.Body;
 import org.apache.james.mime4j.dom.Disposable;
+import org.apache.james.mime4j.dom.EncodedContent;
 import org.apache.james.mime4j.dom.Entity;
 import org.apache.james.mime4j.dom.FieldParser;
 import org.apache.james.mime4j.dom.Header;
@@ -36,15 +38,26 @@ import org.apache.james.mime4j.dom.MessageBuilder;
 import org.apache.james.mime4j.dom.Multipart;
 import org.apache.james.mime4j.dom.SingleBody;
 import org.apache.james.mime4j.dom.field.ParsedField;
+import org.apache.james.mime4j.field.CachingFieldParser;
 import org.apache.james.mime4j.field.DefaultFieldParser;
 import org.apache.james.mime4j.field.LenientFieldParser;
+import org.apache.james.mime4j.field.ParsedFieldCache;
 import org.apache.james.mime4j.internal.ParserStreamContentHandler;
+import org.apache.james.mime4j.io.InputStreams;
 import org.apache.james.mime4j.parser.AbstractContentHandler;
 import org.apache.james.mime4j.parser.MimeStreamParser;
+import org.apache.james.mime4j.stream.BodyDescriptor;
 import org.apache.james.mime4j.stream.BodyDescriptorBuilder;
+import org.apache.james.mime4j.stream.EntityState;
 import org.apache.james.mime4j.stream.Field;
 import org.apache.james.mime4j.stream.MimeConfig;
+import org.apache.james.mime4j.stream.MimeTokenStream;
 import org.apache.james.mime4j.stream.NameValuePair;
+import org.apache.james.mime4j.stream.RawField;
+import org.apache.james.mime4j.stream.RecursionMode;
+import org.apache.james.mime4j.util.ByteArrayBuffer;
+import org.apache.james.mime4j.util.ContentUtil;
+import org.apache.james.mime4j.util.MimeUtil;
 
 /**
  * Default implementation of {@link MessageBuilder}.
@@ -58,12 +71,34 @@ public class DefaultMessageBuilder implements MessageBuilder {
     private BodyDescriptorBuilder bodyDescBuilder = null;
     private boolean contentDecoding = true;
     private boolean flatMode = false;
+    private boolean lazyFieldParsing = false;
+    private ParsedFieldCache fieldCache = null;
+    private boolean compactHeaders = false;
     private DecodeMonitor monitor = null;
+    private boolean lazyMultipartParsing = false;
+    private boolean keepEncodedContent = false;
 
     public DefaultMessageBuilder() {
         super();
     }
 
+    private DefaultMessageBuilder(final DefaultMessageBuilder other) {
+        super();
+        this.fieldParser = other.fieldParser;
+        this.messageImplFactory = other.messageImplFactory;
+        this.bodyFactory = other.bodyFactory;
+        this.config = other.config;
+        this.bodyDescBuilder = other.bodyDescBuilder;
+        this.contentDecoding = other.contentDecoding;
+        this.flatMode = other.flatMode;
+        this.lazyFieldParsing = other.lazyFieldParsing;
+        this.fieldCache = other.fieldCache;
+        this.compactHeaders = other.compactHeaders;
+        this.monitor = other.monitor;
+        this.lazyMultipartParsing = other.lazyMultipartParsing;
+        this.keepEncodedContent = other.keepEncodedContent;
+    }
+
     public void setFieldParser(final FieldParser<? extends ParsedField> fieldParser) {
         this.fieldParser = fieldParser;
     }
@@ -96,22 +131,102 @@ public class DefaultMessageBuilder implements MessageBuilder {
         this.flatMode = flatMode;
     }
 
+    /**
+     * Enables or disables lazy field parsing. In lazy mode only the fields required to
+     * drive the parser (<code>Content-*</code> and <code>MIME-Version</code>) are parsed
+     * while building the message. All other fields are kept unparsed in the header and
+     * converted into structured fields on first access by name, for instance by
+     * {@link Header#getField(String)} or {@link Message#getFrom()}.
+     * <p>
+     * This mode has no effect on a custom {@link BodyDescriptorBuilder}.
+     */
+    public void setLazyFieldParsing(boolean lazyFieldParsing) {
+        this.lazyFieldParsing = lazyFieldParsing;
+    }
+
+    /**
+     * Sets a cache of parsed fields, usually shared by all builders of an
+     * application, which is consulted before a field is parsed. Fields
+     * found in the cache are shared between messages.
+     *
+     * @param fieldCache the cache or <code>null</code> to parse every field.
+     * @see CachingFieldParser
+     */
+    public void setFieldCache(ParsedFieldCache fieldCache) {
+        this.fieldCache = fieldCache;
+    }
+
+    /**
+     * Enables or disables compact headers. If enabled the headers of parsed
+     * messages are packed with {@link AbstractHeader#compact()} once the
+     * message has been built, which reduces the memory retained by messages
+     * that are kept around. This works best along with
+     * {@link #setLazyFieldParsing(boolean) lazy field parsing}.
+     */
+    public void setCompactHeaders(boolean compactHeaders) {
+        this.compactHeaders = compactHeaders;
+    }
+
+    /**
+     * Enables or disables lazy multipart parsing. In lazy mode the content of
+     * a multipart body is kept unparsed, as a slice of the source buffer or in
+     * the storage of the {@link BodyFactory}, and its body parts are parsed
+     * on first access, for instance by {@link Multipart#getBodyParts()}. The
+     * headers of embedded messages are parsed right away, their multipart
+     * bodies lazily.
+     * <p>
+     * Errors found in a multipart parsed on access are reported with an
+     * {@link java.io.UncheckedIOException} whose cause is the
+     * {@link MimeIOException} or {@link IOException} raised by the parser.
+     * The parts are parsed once even if the multipart is accessed
+     * concurrently.
+     * <p>
+     * This mode has no effect in flat mode or with a custom
+     * {@link BodyDescriptorBuilder}: a single builder instance cannot derive
+     * the descriptors of body parts parsed later, possibly concurrently, from
+     * the descriptor of their multipart.
+     */
+    public void setLazyMultipartParsing(boolean lazyMultipartParsing) {
+        this.lazyMultipartParsing = lazyMultipartParsing;
+    }
+
+    /**
+     * Enables or disables keeping the encoded content of bodies parsed from
+     * a stream. If enabled base64 and quoted-printable bodies are stored by
+     * the {@link BodyFactory} as they appear in the message and decoded on
+     * access. {@link DefaultMessageWriter} then writes them unchanged as
+     * long as the <code>Content-Transfer-Encoding</code> of their entity is
+     * not modified. Bodies of messages parsed from a buffer always keep
+     * their encoded content.
+     * <p>
+     * This mode only applies if content decoding is enabled.
+     *
+     * @see EncodedContent
+     * @see #setContentDecoding(boolean)
+     */
+    public void setKeepEncodedContent(boolean keepEncodedContent) {
+        this.keepEncodedContent = keepEncodedContent;
+    }
+
+    private FieldParser<? extends ParsedField> getFieldParser(boolean strict) {
+        FieldParser<? extends ParsedField> fp = fieldParser != null ? fieldParser :
+            strict ? DefaultFieldParser.getParser() : LenientFieldParser.getParser();
+        return fieldCache != null ? new CachingFieldParser(fp, fieldCache) : fp;
+    }
+
     /**
      * Creates a new <code>Header</code> from the specified
      * <code>Header</code>. The <code>Header</code> instance is initialized
      * with a copy of the list of {@link Field}s of the specified
      * <code>Header</code>. The <code>Field</code> objects are not copied
      * because they are immutable and can safely be shared between headers.
+     * The list is shared too until either header is modified.
      *
      * @param other
      *            header to copy.
      */
     public Header copy(Header other) {
-        HeaderImpl copy = new HeaderImpl();
-        for (Field otherField : other.getFields()) {
-            copy.addField(otherField);
-        }
-        return copy;
+        return other instanceof AbstractHeader ? HeaderImpl.sharing((AbstractHeader) other) : new HeaderImpl(other);
     }
 
     /**
@@ -238,6 +353,103 @@ public class DefaultMessageBuilder implements MessageBuilder {
         return copy;
     }
 
+    /**
+     * Creates a copy of the specified <code>Message</code> that shares
+     * everything it can with the original, for cheap copies of a message
+     * of which only a few parts are modified.
+     * <p>
+     * The structure of the message, its body parts and their multiparts, is
+     * copied when this method is called. Headers are shared until either
+     * side modifies them, see {@link #copy(Header)}, and the raw preambles
+     * and epilogues of multiparts are shared. Single bodies are copied with
+     * {@link SingleBody#copy()}. The copy and the original can then be
+     * modified independently; no field or body content is copied, but the
+     * copy costs a few allocations for every entity of the message.
+     *
+     * @param other
+     *            message to copy.
+     * @throws UnsupportedOperationException
+     *             if <code>other</code> contains a {@link SingleBody} that
+     *             does not support the {@link SingleBody#copy() copy()}
+     *             operation.
+     * @throws IllegalArgumentException
+     *             if <code>other</code> contains a <code>Body</code> that
+     *             is neither a {@link Message}, {@link Multipart} or
+     *             {@link SingleBody}.
+     * @see #copy(Message)
+     */
+    public Message copyOnWrite(Message other) {
+        MessageImpl copy = newMessageImpl();
+        copyOnWrite(other, copy);
+        return copy;
+    }
+
+    private BodyPart copyOnWrite(Entity other) {
+        BodyPart copy = new BodyPart();
+        copyOnWrite(other, copy);
+        return copy;
+    }
+
+    private void copyOnWrite(Entity other, AbstractEntity copy) {
+        if (other.getHeader() != null) {
+            copy.setHeader(copy(other.getHeader()));
+        }
+        Body body = other.getBody();
+        if (body instanceof Message) {
+            copy.setBody(copyOnWrite((Message) body));
+        } else if (body instanceof Multipart) {
+            copy.setBody(copyOnWrite((Multipart) body));
+        } else if (body != null) {
+            copy.setBody(copy(body));
+        }
+    }
+
+    private Multipart copyOnWrite(Multipart other) {
+        MultipartImpl copy = new MultipartImpl(other.getSubType(), other.getContentTypeParameters());
+        for (Entity bodyPart : other.getBodyParts()) {
+            copy.addBodyPart(copyOnWrite(bodyPart));
+        }
+        if (other instanceof MultipartImpl) {
+            copy.setPreambleRaw(((MultipartImpl) other).getPreambleRaw());
+            copy.setEpilogueRaw(((MultipartImpl) other).getEpilogueRaw());
+        } else {
+            copy.setPreamble(other.getPreamble());
+            copy.setEpilogue(other.getEpilogue());
+        }
+        return copy;
+    }
+
+    /**
+     * Returns an immutable snapshot of the specified <code>Message</code>,
+     * which can be shared between threads without copies or locks once it
+     * has been safely published, for instance through a concurrent map.
+     * <p>
+     * All mutators of the snapshot, its header, its body parts and its
+     * bodies throw an <code>UnsupportedOperationException</code>. Header
+     * fields are parsed and decoded values are computed when the snapshot
+     * is built, so that reading it never modifies it. Single bodies are
+     * copied with {@link SingleBody#copy()}; they may be read concurrently
+     * as long as their {@link SingleBody#getInputStream() getInputStream()}
+     * returns a new stream on each call, which is the case for the bodies
+     * created by the body factories of this library.
+     * <p>
+     * The snapshot does not depend on the original, which may be modified or
+     * disposed of. Disposing of the snapshot releases its bodies and must
+     * only be done once no thread uses it anymore.
+     *
+     * @param message
+     *            message to freeze.
+     * @return the snapshot, or <code>message</code> if it is a snapshot
+     *         already.
+     * @throws UnsupportedOperationException
+     *             if <code>message</code> contains a {@link SingleBody}
+     *             that does not support the {@link SingleBody#copy()
+     *             copy()} operation.
+     */
+    public Message freeze(Message message) {
+        return FrozenEntities.freeze(message);
+    }
+
     public Header newHeader() {
         return new HeaderImpl();
     }
@@ -263,10 +475,11 @@ public class DefaultMessageBuilder implements MessageBuilder {
         boolean strict = cfg.isStrictParsing();
         final DecodeMonitor mon = monitor != null ? monitor :
             strict ? DecodeMonitor.STRICT : DecodeMonitor.SILENT;
-        final FieldParser<? extends ParsedField> fp = fieldParser != null ? fieldParser :
-            strict ? DefaultFieldParser.getParser() : LenientFieldParser.getParser();
-        final HeaderImpl header = new HeaderImpl();
-        final MimeStreamParser parser = new MimeStreamParser(cfg, mon, null);
+        final FieldParser<? extends ParsedField> fp = getFieldParser(strict);
+        final HeaderImpl header = lazyFieldParsing ? new HeaderImpl(fp, mon) : new HeaderImpl();
+        // the descriptor builder hands over the fields it parsed, so that none is parsed twice
+        final MimeStreamParser parser = new MimeStreamParser(cfg, mon,
+                new DefaultBodyDescriptorBuilder(null, fp, mon, lazyFieldParsing));
         parser.setContentHandler(new AbstractContentHandler() {
             @Override
             public void endHeader() {
@@ -274,13 +487,12 @@ public class DefaultMessageBuilder implements MessageBuilder {
             }
             @Override
             public void field(Field field) throws MimeException {
-                ParsedField parsedField;
-                if (field instanceof ParsedField) {
-                    parsedField = (ParsedField) field;
+                field = RawField.copyOf(field);
+                if (lazyFieldParsing || field instanceof ParsedField) {
+                    header.addField(field);
                 } else {
-                    parsedField = fp.parse(field, mon);
+                    header.addField(fp.parse(field, mon));
                 }
-                header.addField(parsedField);
             }
         });
         try {
@@ -288,6 +500,9 @@ public class DefaultMessageBuilder implements MessageBuilder {
         } catch (MimeException ex) {
             throw new MimeIOException(ex);
         }
+        if (compactHeaders) {
+            header.compact();
+        }
         return header;
     }
 
@@ -300,31 +515,207 @@ public class DefaultMessageBuilder implements MessageBuilder {
     }
 
     public Message parseMessage(final InputStream is) throws IOException, MimeIOException {
+        MessageImpl message = newMessageImpl();
+        parser().parse(message, is, null, null);
+        return message;
+    }
+
+    /**
+     * Parses a message held entirely in the given buffer, such as a cached
+     * message or a mapped file. Instead of being copied into new storage, the
+     * bodies of the returned message reference their content in the buffer
+     * and are transfer decoded on access, so parsing costs the message
+     * structure only. The configured {@link BodyFactory} is not used.
+     * <p>
+     * The remaining bytes of the buffer are parsed; its position is not
+     * changed. The buffer must not be modified while the message is in use.
+     * </p>
+     *
+     * @see SliceBodyFactory
+     */
+    public Message parseMessage(final ByteBuffer source) throws IOException, MimeIOException {
+        if (source == null) {
+            throw new IllegalArgumentException("Source buffer may not be null");
+        }
+        MessageImpl message = newMessageImpl();
+        parser().parse(message, InputStreams.create(source.duplicate()), source, null);
+        return message;
+    }
+
+    /**
+     * Returns the builder used to parse a message. Multiparts parsed lazily keep
+     * a reference to it, so they get a copy that later changes to this builder
+     * do not affect.
+     */
+    private DefaultMessageBuilder parser() {
+        return isLazyMultiparts() ? new DefaultMessageBuilder(this) : this;
+    }
+
+    private boolean isLazyMultiparts() {
+        return lazyMultipartParsing && !flatMode && bodyDescBuilder == null;
+    }
+
+    /**
+     * Parses an entity, its header and its body, into the given entity.
+     *
+     * @param source buffer holding the content of the input stream, or
+     *  <code>null</code> if the bodies have to be copied.
+     * @param parentMimeType MIME type of the enclosing multipart, if any.
+     */
+    void parse(final Entity entity, final InputStream is, final ByteBuffer source,
+            final String parentMimeType) throws IOException, MimeIOException {
         try {
-            MessageImpl message = newMessageImpl();
             MimeConfig cfg = config != null ? config : MimeConfig.DEFAULT;
             boolean strict = cfg.isStrictParsing();
-            DecodeMonitor mon = monitor != null ? monitor :
+            final DecodeMonitor mon = monitor != null ? monitor :
                 strict ? DecodeMonitor.STRICT : DecodeMonitor.SILENT;
+            FieldParser<? extends ParsedField> fp = getFieldParser(strict);
             BodyDescriptorBuilder bdb = bodyDescBuilder != null ? bodyDescBuilder :
-                new DefaultBodyDescriptorBuilder(null, fieldParser != null ? fieldParser :
-                    strict ? DefaultFieldParser.getParser() : LenientFieldParser.getParser(), mon);
-            BodyFactory bf = bodyFactory != null ? bodyFactory : new BasicBodyFactory(!strict);
-            MimeStreamParser parser = new MimeStreamParser(cfg, mon, bdb);
-            parser.setContentHandler(new ParserStreamContentHandler(message, bf));
-            parser.setContentDecoding(contentDecoding);
-            if (flatMode) {
+                new DefaultBodyDescriptorBuilder(parentMimeType, fp, mon, lazyFieldParsing);
+            final SliceBodyFactory sbf = source != null ? new SliceBodyFactory(source, !strict, mon) : null;
+            final BodyFactory bf = sbf != null ? sbf :
+                bodyFactory != null ? bodyFactory : new BasicBodyFactory(!strict);
+            final MimeStreamParser parser = new MimeStreamParser(cfg, mon, bdb);
+            // Fields parsed by the descriptor builder are added to the header as is. Fields it
+            // passes on unparsed (lazy mode or a custom builder) are parsed on first access.
+            boolean lazy = lazyFieldParsing || bodyDescBuilder != null;
+            boolean lazyMultiparts = isLazyMultiparts();
+            if (sbf == null && !lazyMultiparts && !(keepEncodedContent && contentDecoding)) {
+                parser.setContentHandler(new ParserStreamContentHandler(entity, new DefaultMessageImplFactory(), bf,
+                        lazy ? fp : null, mon));
+                parser.setContentDecoding(contentDecoding);
+            } else {
+                // bodies are taken from the raw content and decoded here or on access
+                parser.setContentHandler(new ParserStreamContentHandler(entity, new DefaultMessageImplFactory(), bf,
+                        lazy ? fp : null, mon) {
+                    @Override
+                    protected Body createBody(BodyDescriptor bd, InputStream raw) throws IOException {
+                        return DefaultMessageBuilder.this.createBody(bd, raw, parser.getContentOffset(), sbf, bf, mon);
+                    }
+                });
+                parser.setContentDecoding(false);
+            }
+            if (flatMode || lazyMultiparts) {
                 parser.setFlat();
             } else {
                 parser.setRecurse();
             }
             parser.parse(is);
-            return message;
+            if (compactHeaders) {
+                compactHeaders(entity);
+            }
         } catch (MimeException e) {
             throw new MimeIOException(e);
         }
     }
 
+    private Body createBody(final BodyDescriptor bd, final InputStream raw, final long offset,
+            final SliceBodyFactory sbf, final BodyFactory bf, final DecodeMonitor mon) throws IOException {
+        String mimeType = bd.getMimeType();
+        if (isLazyMultiparts()) {
+            if (MimeUtil.isMultipart(mimeType)) {
+                if (bd.getBoundary() == null) {
+                    throw new MimeIOException(new MimeException("Multipart body does not have a valid boundary"));
+                }
+                // like the stream parser, ignore the transfer encoding of multiparts
+                ByteBuffer content = sbf != null ? sbf.slice(raw, offset) : null;
+                return new LazyMultipart(this, bd.getSubType(), bd.getBoundary(),
+                        content, content == null ? bf.binaryBody(raw) : null);
+            }
+            if (MimeUtil.isMessage(mimeType)) {
+                // the stream parser always decodes embedded messages
+                String transferEncoding = bd.getTransferEncoding();
+                boolean encoded = MimeUtil.isBase64Encoding(transferEncoding)
+                        || MimeUtil.isQuotedPrintableEncoded(transferEncoding);
+                ByteBuffer content = sbf != null && !encoded ? sbf.slice(raw, offset) : null;
+                MessageImpl message = new DefaultMessageImplFactory().messageImpl();
+                if (content != null) {
+                    parse(message, InputStreams.create(content.duplicate()), content, null);
+                } else {
+                    parse(message, SliceBodyFactory.decode(raw, transferEncoding, mon), null, null);
+                }
+                return message;
+            }
+        }
+        String transferEncoding = contentDecoding ? bd.getTransferEncoding() : null;
+        boolean text = mimeType.startsWith("text/");
+        if (sbf != null) {
+            return text ? sbf.textBody(raw, offset, transferEncoding, bd.getCharset())
+                    : sbf.binaryBody(raw, offset, transferEncoding);
+        }
+        if (keepEncodedContent && (MimeUtil.isBase64Encoding(transferEncoding)
+                || MimeUtil.isQuotedPrintableEncoded(transferEncoding))) {
+            // stored as is, decoded on access
+            return text ? new StoredEncodedBodies.StoredTextBody(bf.textBody(raw, bd.getCharset()), transferEncoding, mon)
+                    : new StoredEncodedBodies.StoredBinaryBody(bf.binaryBody(raw), transferEncoding, mon);
+        }
+        InputStream is = SliceBodyFactory.decode(raw, transferEncoding, mon);
+        return text ? bf.textBody(is, bd.getCharset()) : bf.binaryBody(is);
+    }
+
+    /**
+     * Parses the body parts, preamble and epilogue of a multipart body into
+     * the given multipart. Used by multiparts parsed on first access.
+     *
+     * @param source buffer holding the content, or <code>null</code>.
+     */
+    void parseBodyParts(final MultipartImpl multipart, final InputStream content, final ByteBuffer source,
+            final String boundary) throws IOException, MimeIOException {
+        MimeConfig cfg = config != null ? config : MimeConfig.DEFAULT;
+        DecodeMonitor mon = monitor != null ? monitor :
+            cfg.isStrictParsing() ? DecodeMonitor.STRICT : DecodeMonitor.SILENT;
+        String mimeType = "multipart/" + multipart.getSubType();
+        SliceBodyFactory sbf = source != null ? new SliceBodyFactory(source) : null;
+        MimeTokenStream stream = new MimeTokenStream(cfg, mon, null);
+        stream.setRecursionMode(RecursionMode.M_RAW);
+        stream.parseHeadless(content, mimeType + "; boundary=\"" + boundary + "\"");
+        try {
+            for (EntityState state = stream.getState(); state != EntityState.T_END_OF_STREAM; state = stream.next()) {
+                switch (state) {
+                case T_PREAMBLE:
+                    multipart.setPreambleRaw(new ByteArrayBuffer(ContentUtil.buffer(stream.getInputStream()), true));
+                    break;
+                case T_EPILOGUE:
+                    multipart.setEpilogueRaw(new ByteArrayBuffer(ContentUtil.buffer(stream.getInputStream()), true));
+                    break;
+                case T_RAW_ENTITY:
+                    BodyPart part = new BodyPart();
+                    InputStream raw = stream.getInputStream();
+                    ByteBuffer slice = sbf != null ? sbf.slice(raw, stream.getContentOffset()) : null;
+                    if (slice != null) {
+                        parse(part, InputStreams.create(slice.duplicate()), slice, mimeType);
+                    } else {
+                        parse(part, raw, null, mimeType);
+                    }
+                    multipart.addBodyPart(part);
+                    break;
+                default:
+                    break;
+                }
+            }
+        } catch (MimeException e) {
+            throw new MimeIOException(e);
+        }
+    }
+
+    private static void compactHeaders(Entity entity) {
+        if (entity.getHeader() instanceof AbstractHeader) {
+            ((AbstractHeader) entity.getHeader()).compact();
+        }
+        Body body = entity.getBody();
+        if (body instanceof LazyMultipart && !((LazyMultipart) body).isParsed()) {
+            // compacted when parsed
+            return;
+        }
+        if (body instanceof Multipart) {
+            for (Entity part : ((Multipart) body).getBodyParts()) {
+                compactHeaders(part);
+            }
+        } else if (body instanceof Entity) {
+            compactHeaders((Entity) body);
+        }
+    }
+
     private MessageImpl newMessageImpl() {
         MessageImplFactory mif = messageImplFactory != null ? messageImplFactory : new DefaultMessageImplFactory();
         return mif.messageImpl();
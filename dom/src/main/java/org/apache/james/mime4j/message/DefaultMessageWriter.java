@@ -22,22 +22,30 @@ package org.apache.james.mime4j.message;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 
 import org.apache.james.mime4j.codec.Base64OutputStream;
 import org.apache.james.mime4j.codec.QuotedPrintableOutputStream;
 import org.apache.james.mime4j.dom.BinaryBody;
 import org.apache.james.mime4j.dom.Body;
+import org.apache.james.mime4j.dom.EncodedContent;
 import org.apache.james.mime4j.dom.Entity;
 import org.apache.james.mime4j.dom.Header;
 import org.apache.james.mime4j.dom.Message;
 import org.apache.james.mime4j.dom.MessageWriter;
 import org.apache.james.mime4j.dom.Multipart;
 import org.apache.james.mime4j.dom.SingleBody;
+import org.apache.james.mime4j.dom.TextBody;
 import org.apache.james.mime4j.dom.field.ContentTypeField;
 import org.apache.james.mime4j.dom.field.FieldName;
+import org.apache.james.mime4j.field.Fields;
+import org.apache.james.mime4j.io.ChannelOutputStream;
+import org.apache.james.mime4j.io.CountingOutputStream;
 import org.apache.james.mime4j.stream.Field;
 import org.apache.james.mime4j.util.ByteArrayBuffer;
 import org.apache.james.mime4j.util.ByteSequence;
+import org.apache.james.mime4j.util.ContentStatistics;
 import org.apache.james.mime4j.util.ContentUtil;
 import org.apache.james.mime4j.util.MimeUtil;
 
@@ -48,6 +56,12 @@ public class DefaultMessageWriter implements MessageWriter {
 
     private static final byte[] CRLF = { '\r', '\n' };
     private static final byte[] DASHES = { '-', '-' };
+    private static final int BASE64_LINE_LENGTH = 76;
+
+    // per thread buffer for channel writes; null while in use
+    private static final ThreadLocal<ByteBuffer> CHANNEL_BUFFER = new ThreadLocal<ByteBuffer>();
+
+    private boolean autoTransferEncoding;
 
     public static byte[] asBytes(Message message) throws IOException {
         ByteArrayOutputStream buffer = new ByteArrayOutputStream();
@@ -62,6 +76,23 @@ public class DefaultMessageWriter implements MessageWriter {
     public DefaultMessageWriter() {
     }
 
+    /**
+     * Sets whether a <code>Content-Transfer-Encoding</code> is chosen for
+     * entities that do not specify one.
+     * <p>
+     * If enabled, single bodies that know their
+     * {@link SingleBody#getContentStatistics() content statistics} are
+     * written as <code>quoted-printable</code> or <code>base64</code> when
+     * they are not valid <code>7bit</code> data, and the corresponding
+     * header field is added to the output. The entity itself is not
+     * modified. Disabled by default.
+     *
+     * @see ContentStatistics#getTransferEncoding(boolean)
+     */
+    public void setAutoTransferEncoding(boolean autoTransferEncoding) {
+        this.autoTransferEncoding = autoTransferEncoding;
+    }
+
     /**
      * Write the specified <code>Body</code> to the specified
      * <code>OutputStream</code>.
@@ -100,15 +131,32 @@ public class DefaultMessageWriter implements MessageWriter {
         if (header == null)
             throw new IllegalArgumentException("Missing header");
 
-        writeHeader(header, out);
-
         final Body body = entity.getBody();
         if (body == null)
             throw new IllegalArgumentException("Missing body");
 
+        String encoding = selectTransferEncoding(header, body);
+        if (encoding != null) {
+            for (Field field : header) {
+                writeField(field, out);
+            }
+            writeField(Fields.contentTransferEncoding(encoding), out);
+            out.write(CRLF);
+        } else {
+            writeHeader(header, out);
+            encoding = entity.getContentTransferEncoding();
+        }
+        if (body instanceof EncodedContent) {
+            String bodyEncoding = ((EncodedContent) body).getTransferEncoding();
+            if (bodyEncoding != null && bodyEncoding.equalsIgnoreCase(encoding)) {
+                // unmodified since parsed, no need to decode and encode again
+                ((EncodedContent) body).writeEncodedTo(out);
+                return;
+            }
+        }
+
         boolean binaryBody = body instanceof BinaryBody;
-        OutputStream encOut = encodeStream(out, entity
-                .getContentTransferEncoding(), binaryBody);
+        OutputStream encOut = encodeStream(out, encoding, binaryBody);
 
         writeBody(body, encOut);
 
@@ -132,6 +180,123 @@ public class DefaultMessageWriter implements MessageWriter {
         writeEntity(message, out);
     }
 
+    /**
+     * Write the specified <code>Message</code> to the specified
+     * <code>WritableByteChannel</code>.
+     *
+     * @param message
+     *            the <code>Message</code> to write.
+     * @param channel
+     *            the blocking channel to write to.
+     * @throws IOException
+     *             if an I/O error occurs.
+     * @see #writeEntity(Entity, WritableByteChannel)
+     */
+    public void writeMessage(Message message, WritableByteChannel channel) throws IOException {
+        writeEntity(message, channel);
+    }
+
+    /**
+     * Write the specified <code>Entity</code> to the specified
+     * <code>WritableByteChannel</code>.
+     * <p>
+     * Header fields, boundaries and line breaks are coalesced in a buffer
+     * reused by the calling thread, and are written together with large
+     * body content using gathering writes. Bodies that are not transfer
+     * encoded may write their content to the channel directly, see
+     * {@link ChannelOutputStream#getChannel()}.
+     *
+     * @param entity
+     *            the <code>Entity</code> to write.
+     * @param channel
+     *            the blocking channel to write to.
+     * @throws IOException
+     *             if an I/O error occurs.
+     */
+    public void writeEntity(Entity entity, WritableByteChannel channel) throws IOException {
+        ByteBuffer buffer = CHANNEL_BUFFER.get();
+        CHANNEL_BUFFER.set(null);
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(ChannelOutputStream.DEFAULT_BUFFER_SIZE);
+        }
+        try {
+            ChannelOutputStream out = new ChannelOutputStream(channel, buffer);
+            writeEntity(entity, out);
+            out.flush();
+        } finally {
+            buffer.clear();
+            CHANNEL_BUFFER.set(buffer);
+        }
+    }
+
+    /**
+     * Returns the number of bytes {@link #writeEntity(Entity, OutputStream)}
+     * would write for the specified <code>Entity</code>.
+     * <p>
+     * Header fields and multipart framing are measured without being
+     * written. Bodies without transfer encoding are measured from their
+     * {@link SingleBody#getContentStatistics() content statistics} where
+     * known, and the size of <code>base64</code> output is derived from the
+     * length of the content. Only <code>quoted-printable</code> content has
+     * to be encoded to be measured.
+     * <p>
+     * The size of each {@link AbstractEntity} is memoized and computed again
+     * only after its header, its body or any of its descendants changed, so
+     * asking for the size of an unmodified message again is cheap. Changes
+     * are counted by the entities as they happen, so checking a memoized size
+     * does not walk the tree. The size of a single body is kept as long as the
+     * body and its transfer encoding stay the same. Sizes of frozen snapshots
+     * are not memoized, as reading a snapshot never writes to it. Subclasses
+     * that change the output of the write methods should override this
+     * method.
+     *
+     * @param entity
+     *            the <code>Entity</code> to measure.
+     * @return the serialized size of the entity in bytes.
+     * @throws IOException
+     *             if an I/O error occurs while reading body content.
+     */
+    @Override
+    public long size(Entity entity) throws IOException {
+        final Header header = entity.getHeader();
+        if (header == null)
+            throw new IllegalArgumentException("Missing header");
+
+        final Body body = entity.getBody();
+        if (body == null)
+            throw new IllegalArgumentException("Missing body");
+
+        AbstractEntity memo = entity instanceof AbstractEntity ? (AbstractEntity) entity : null;
+        SerializedSize previous = memo != null ? memo.serializedSize : null;
+        if (previous != null && previous.isCurrent(memo, autoTransferEncoding)) {
+            return previous.getSize();
+        }
+
+        long size = 0;
+        String encoding = selectTransferEncoding(header, body);
+        if (encoding != null) {
+            for (Field field : header) {
+                size += fieldSize(field);
+            }
+            size += fieldSize(Fields.contentTransferEncoding(encoding)) + CRLF.length;
+        } else {
+            size += headerSize(header);
+            encoding = entity.getContentTransferEncoding();
+        }
+
+        long bodySize = previous != null ? previous.getBodySize(body, encoding) : -1;
+        if (bodySize < 0) {
+            bodySize = bodySize(body, encoding);
+        }
+        size += bodySize;
+
+        if (memo != null && SerializedSize.isTracked(memo, autoTransferEncoding)) {
+            memo.serializedSize = new SerializedSize(memo, body,
+                    autoTransferEncoding, encoding, bodySize, size);
+        }
+        return size;
+    }
+
     /**
      * Write the specified <code>Multipart</code> to the specified
      * <code>OutputStream</code>.
@@ -193,18 +358,7 @@ public class DefaultMessageWriter implements MessageWriter {
      *             if an I/O error occurs.
      */
     public void writeField(Field field, OutputStream out) throws IOException {
-        ByteSequence raw = field.getRaw();
-        if (raw == null) {
-            StringBuilder buf = new StringBuilder();
-            buf.append(field.getName());
-            buf.append(": ");
-            String body = field.getBody();
-            if (body != null) {
-                buf.append(body);
-            }
-            raw = ContentUtil.encode(MimeUtil.fold(buf.toString(), 0));
-        }
-        writeBytes(raw, out);
+        writeBytes(getRaw(field), out);
         out.write(CRLF);
     }
 
@@ -227,6 +381,128 @@ public class DefaultMessageWriter implements MessageWriter {
         out.write(CRLF);
     }
 
+    private long bodySize(Body body, String encoding) throws IOException {
+        if (body instanceof EncodedContent) {
+            String bodyEncoding = ((EncodedContent) body).getTransferEncoding();
+            if (bodyEncoding != null && bodyEncoding.equalsIgnoreCase(encoding)) {
+                CountingOutputStream out = new CountingOutputStream();
+                ((EncodedContent) body).writeEncodedTo(out);
+                return out.getCount();
+            }
+        }
+
+        boolean base64 = MimeUtil.isBase64Encoding(encoding);
+        if (body instanceof SingleBody) {
+            if (base64) {
+                return base64Size(contentSize((SingleBody) body));
+            } else if (!MimeUtil.isQuotedPrintableEncoded(encoding)) {
+                return contentSize((SingleBody) body);
+            }
+        } else if (!base64 && !MimeUtil.isQuotedPrintableEncoded(encoding)) {
+            if (body instanceof Message) {
+                return size((Message) body);
+            } else if (body instanceof Multipart) {
+                return multipartSize((Multipart) body);
+            }
+        }
+
+        CountingOutputStream out = new CountingOutputStream();
+        OutputStream encOut = encodeStream(out, encoding, body instanceof BinaryBody);
+        writeBody(body, encOut);
+        if (encOut != out)
+            encOut.close();
+        return out.getCount();
+    }
+
+    private long multipartSize(Multipart multipart) throws IOException {
+        int boundary = getBoundary(getContentType(multipart)).length();
+
+        ByteSequence preamble;
+        ByteSequence epilogue;
+        if (multipart instanceof MultipartImpl) {
+            preamble = ((MultipartImpl) multipart).getPreambleRaw();
+            epilogue = ((MultipartImpl) multipart).getEpilogueRaw();
+        } else {
+            preamble = multipart.getPreamble() != null ? ContentUtil.encode(multipart.getPreamble()) : null;
+            epilogue = multipart.getEpilogue() != null ? ContentUtil.encode(multipart.getEpilogue()) : null;
+        }
+
+        long size = 0;
+        if (preamble != null) {
+            size += preamble.length() + CRLF.length;
+        }
+        for (Entity bodyPart : multipart.getBodyParts()) {
+            size += DASHES.length + boundary + CRLF.length;
+            size += size(bodyPart) + CRLF.length;
+        }
+        size += DASHES.length + boundary + DASHES.length + CRLF.length;
+        if (epilogue != null) {
+            size += epilogue.length();
+        }
+        return size;
+    }
+
+    private long headerSize(Header header) {
+        long size = 0;
+        for (Field field : header) {
+            size += fieldSize(field);
+        }
+        return size + CRLF.length;
+    }
+
+    private long fieldSize(Field field) {
+        return getRaw(field).length() + CRLF.length;
+    }
+
+    private ByteSequence getRaw(Field field) {
+        ByteSequence raw = field.getRaw();
+        if (raw == null) {
+            StringBuilder buf = new StringBuilder();
+            buf.append(field.getName());
+            buf.append(": ");
+            String body = field.getBody();
+            if (body != null) {
+                buf.append(body);
+            }
+            raw = ContentUtil.encode(MimeUtil.fold(buf.toString(), 0));
+        }
+        return raw;
+    }
+
+    private static long contentSize(SingleBody body) throws IOException {
+        ContentStatistics statistics = body.getContentStatistics();
+        if (statistics != null) {
+            return statistics.getLength();
+        }
+        CountingOutputStream out = new CountingOutputStream();
+        body.writeTo(out);
+        return out.getCount();
+    }
+
+    // Base64OutputStream breaks lines after 76 characters and terminates
+    // non-empty output with a line break
+    private static long base64Size(long length) {
+        if (length == 0) {
+            return 0;
+        }
+        long chars = (length + 2) / 3 * 4;
+        long lines = (chars + BASE64_LINE_LENGTH - 1) / BASE64_LINE_LENGTH;
+        return chars + lines * CRLF.length;
+    }
+
+    private String selectTransferEncoding(Header header, Body body) {
+        if (!autoTransferEncoding || !(body instanceof SingleBody)
+                || header.getField(FieldName.CONTENT_TRANSFER_ENCODING) != null) {
+            return null;
+        }
+        ContentStatistics statistics = ((SingleBody) body).getContentStatistics();
+        if (statistics == null) {
+            return null;
+        }
+        String encoding = statistics.getTransferEncoding(body instanceof TextBody);
+        return MimeUtil.ENC_7BIT.equals(encoding) ? null : encoding;
+    }
+
     protected OutputStream encodeStream(OutputStream out, String encoding,
             boolean binaryBody) throws IOException {
         if (MimeUtil.isBase64Encoding(encoding)) {
@@ -0,0 +1,191 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.mime4j.message;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+import org.apache.james.mime4j.dom.Entity;
+import org.apache.james.mime4j.stream.NameValuePair;
+import org.apache.james.mime4j.util.ByteSequence;
+
+/**
+ * Multipart whose body parts, preamble and epilogue are only built on first
+ * access.
+ * <p>
+ * Building the content is synchronized, so that concurrent readers see it
+ * built exactly once. Other accesses are no more thread-safe than those of
+ * {@link MultipartImpl}. If the content cannot be built every access throws
+ * an {@link UncheckedIOException} with the cause of the failure.
+ */
+abstract class DeferredMultipart extends MultipartImpl {
+
+    private volatile boolean loaded;
+    // set while the content is being built, which accesses this multipart
+    private boolean loading;
+    private UncheckedIOException failure;
+
+    DeferredMultipart(final String subType, final List<NameValuePair> parameters) {
+        super(subType, parameters);
+        this.loaded = false;
+    }
+
+    boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Builds the content of this multipart. Called at most once, before any
+     * other access to it.
+     *
+     * @throws IOException if the content cannot be built.
+     */
+    abstract void loadContent() throws IOException;
+
+    /**
+     * Releases the resources held to build the content of this multipart, if
+     * it is disposed of before being loaded.
+     */
+    abstract void release();
+
+    final void load() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded && !loading) {
+                    loading = true;
+                    try {
+                        loadContent();
+                    } catch (IOException ex) {
+                        failure = new UncheckedIOException("Unable to build multipart: " + ex.getMessage(), ex);
+                    } finally {
+                        loading = false;
+                        loaded = true;
+                    }
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public int getCount() {
+        load();
+        return super.getCount();
+    }
+
+    @Override
+    public List<Entity> getBodyParts() {
+        load();
+        return super.getBodyParts();
+    }
+
+    @Override
+    public void setBodyParts(List<Entity> bodyParts) {
+        load();
+        super.setBodyParts(bodyParts);
+    }
+
+    @Override
+    public void addBodyPart(Entity bodyPart) {
+        load();
+        super.addBodyPart(bodyPart);
+    }
+
+    @Override
+    public void addBodyPart(Entity bodyPart, int index) {
+        load();
+        super.addBodyPart(bodyPart, index);
+    }
+
+    @Override
+    public Entity removeBodyPart(int index) {
+        load();
+        return super.removeBodyPart(index);
+    }
+
+    @Override
+    public Entity replaceBodyPart(Entity bodyPart, int index) {
+        load();
+        return super.replaceBodyPart(bodyPart, index);
+    }
+
+    @Override
+    public ByteSequence getPreambleRaw() {
+        load();
+        return super.getPreambleRaw();
+    }
+
+    @Override
+    public void setPreambleRaw(ByteSequence preamble) {
+        load();
+        super.setPreambleRaw(preamble);
+    }
+
+    @Override
+    public String getPreamble() {
+        load();
+        return super.getPreamble();
+    }
+
+    @Override
+    public void setPreamble(String preamble) {
+        load();
+        super.setPreamble(preamble);
+    }
+
+    @Override
+    public ByteSequence getEpilogueRaw() {
+        load();
+        return super.getEpilogueRaw();
+    }
+
+    @Override
+    public void setEpilogueRaw(ByteSequence epilogue) {
+        load();
+        super.setEpilogueRaw(epilogue);
+    }
+
+    @Override
+    public String getEpilogue() {
+        load();
+        return super.getEpilogue();
+    }
+
+    @Override
+    public void setEpilogue(String epilogue) {
+        load();
+        super.setEpilogue(epilogue);
+    }
+
+    @Override
+    public void dispose() {
+        synchronized (this) {
+            if (!loaded && !loading) {
+                loaded = true;
+                release();
+            }
+        }
+        super.dispose();
+    }
+
+}
@@ -0,0 +1,686 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.mime4j.message;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.james.mime4j.dom.BinaryBody;
+import org.apache.james.mime4j.dom.Body;
+import org.apache.james.mime4j.dom.EncodedContent;
+import org.apache.james.mime4j.dom.Entity;
+import org.apache.james.mime4j.dom.Header;
+import org.apache.james.mime4j.dom.Message;
+import org.apache.james.mime4j.dom.Multipart;
+import org.apache.james.mime4j.dom.SingleBody;
+import org.apache.james.mime4j.dom.TextBody;
+import org.apache.james.mime4j.dom.address.AddressList;
+import org.apache.james.mime4j.dom.address.Mailbox;
+import org.apache.james.mime4j.dom.address.MailboxList;
+import org.apache.james.mime4j.dom.field.AddressListField;
+import org.apache.james.mime4j.dom.field.ContentDescriptionField;
+import org.apache.james.mime4j.dom.field.ContentDispositionField;
+import org.apache.james.mime4j.dom.field.ContentIdField;
+import org.apache.james.mime4j.dom.field.ContentLanguageField;
+import org.apache.james.mime4j.dom.field.ContentLengthField;
+import org.apache.james.mime4j.dom.field.ContentLocationField;
+import org.apache.james.mime4j.dom.field.ContentMD5Field;
+import org.apache.james.mime4j.dom.field.ContentTransferEncodingField;
+import org.apache.james.mime4j.dom.field.ContentTypeField;
+import org.apache.james.mime4j.dom.field.DateTimeField;
+import org.apache.james.mime4j.dom.field.MailboxField;
+import org.apache.james.mime4j.dom.field.MailboxListField;
+import org.apache.james.mime4j.dom.field.MimeVersionField;
+import org.apache.james.mime4j.dom.field.ParsedField;
+import org.apache.james.mime4j.dom.field.UnstructuredField;
+import org.apache.james.mime4j.field.ContentTransferEncodingFieldImpl;
+import org.apache.james.mime4j.field.ContentTypeFieldImpl;
+import org.apache.james.mime4j.stream.Field;
+import org.apache.james.mime4j.stream.NameValuePair;
+import org.apache.james.mime4j.util.ByteSequence;
+import org.apache.james.mime4j.util.ContentStatistics;
+import org.apache.james.mime4j.util.ContentUtil;
+
+/**
+ * Immutable snapshots of messages, that can be shared between threads.
+ * <p>
+ * Every mutator of a frozen entity, header, multipart or body throws an
+ * {@link UnsupportedOperationException}. Nothing is computed lazily once a
+ * snapshot has been built: header fields are parsed and the values returned
+ * by the {@link Message} accessors are decoded up front, so reading a
+ * snapshot never writes to it.
+ * <p>
+ * The state read by the accessors of a snapshot is held in final fields of
+ * the snapshot classes, or in objects written only while the snapshot is
+ * being built and reachable only through such final fields, so a snapshot
+ * is safely published to other threads even without synchronization. In
+ * particular the body parts, preamble and epilogue of a frozen multipart
+ * are kept in final fields of its own rather than in the mutable fields
+ * inherited from {@link MultipartImpl}.
+ *
+ * @see DefaultMessageBuilder#freeze(Message)
+ */
+final class FrozenEntities {
+
+    private FrozenEntities() {
+    }
+
+    static Message freeze(Message message) {
+        if (message instanceof FrozenMessage && message.getParent() == null) {
+            return message;
+        }
+        return new FrozenMessage(message, null);
+    }
+
+    private static Header freeze(Header header) {
+        return header != null ? new FrozenHeader(header) : null;
+    }
+
+    private static Body freeze(Body body, Entity parent) {
+        if (body == null) {
+            return null;
+        }
+        if (body instanceof Message) {
+            return new FrozenMessage((Message) body, parent);
+        }
+        if (body instanceof Multipart) {
+            return new FrozenMultipart((Multipart) body, parent);
+        }
+        if (body instanceof TextBody) {
+            return new FrozenTextBody((TextBody) ((TextBody) body).copy(), parent);
+        }
+        if (body instanceof SingleBody) {
+            return new FrozenBinaryBody(((SingleBody) body).copy(), parent);
+        }
+        throw new IllegalArgumentException("Unsupported body class");
+    }
+
+    private static UnsupportedOperationException frozen() {
+        return new UnsupportedOperationException("Frozen entities cannot be modified");
+    }
+
+    /**
+     * Forces a parsed field to parse its body, which fields otherwise do on
+     * first access.
+     */
+    private static void parse(Field field) {
+        if (field instanceof AddressListField) {
+            ((AddressListField) field).getAddressList();
+        } else if (field instanceof MailboxListField) {
+            ((MailboxListField) field).getMailboxList();
+        } else if (field instanceof MailboxField) {
+            ((MailboxField) field).getMailbox();
+        } else if (field instanceof DateTimeField) {
+            ((DateTimeField) field).getDate();
+        } else if (field instanceof UnstructuredField) {
+            ((UnstructuredField) field).getValue();
+        } else if (field instanceof ContentTypeField) {
+            ((ContentTypeField) field).getMimeType();
+        } else if (field instanceof ContentDispositionField) {
+            ContentDispositionField disposition = (ContentDispositionField) field;
+            disposition.getCreationDate();
+            disposition.getModificationDate();
+            disposition.getReadDate();
+        } else if (field instanceof ContentTransferEncodingField) {
+            ((ContentTransferEncodingField) field).getEncoding();
+        } else if (field instanceof ContentLanguageField) {
+            ((ContentLanguageField) field).getLanguages();
+        } else if (field instanceof ContentLengthField) {
+            ((ContentLengthField) field).getContentLength();
+        } else if (field instanceof ContentLocationField) {
+            ((ContentLocationField) field).getLocation();
+        } else if (field instanceof ContentMD5Field) {
+            ((ContentMD5Field) field).getMD5Raw();
+        } else if (field instanceof ContentIdField) {
+            ((ContentIdField) field).getId();
+        } else if (field instanceof ContentDescriptionField) {
+            ((ContentDescriptionField) field).getDescription();
+        } else if (field instanceof MimeVersionField) {
+            ((MimeVersionField) field).getMajorVersion();
+        }
+        if (field instanceof ParsedField) {
+            ((ParsedField) field).getParseException();
+        }
+    }
+
+    static final class FrozenHeader extends AbstractHeader {
+
+        /**
+         * The fields are collected in a temporary header and shared with it
+         * from the start, so that copying this header later never has to
+         * mark its fields as shared.
+         */
+        FrozenHeader(final Header source) {
+            super();
+            shareFields(parsed(source));
+        }
+
+        private static AbstractHeader parsed(final Header source) {
+            AbstractHeader lazy = source instanceof AbstractHeader && ((AbstractHeader) source).fieldParser != null
+                ? (AbstractHeader) source : null;
+            AbstractHeader header = new HeaderImpl();
+            for (Field field : source.getFields()) {
+                if (lazy != null && !(field instanceof ParsedField)) {
+                    field = lazy.fieldParser.parse(field, lazy.monitor);
+                }
+                parse(field);
+                header.addField(field);
+            }
+            return header;
+        }
+
+        @Override
+        public void addField(Field field) {
+            throw frozen();
+        }
+
+        @Override
+        public int removeFields(String name) {
+            throw frozen();
+        }
+
+        @Override
+        public void setField(Field field) {
+            throw frozen();
+        }
+
+        @Override
+        public int compact() {
+            return 0;
+        }
+
+    }
+
+    static final class FrozenMessage extends AbstractMessage {
+
+        private final Entity parent;
+        private final Header header;
+        private final Body body;
+
+        // decoded up front, AbstractMessage memoizes them on first access
+        private final String messageId;
+        private final String subject;
+        private final Date date;
+        private final Mailbox sender;
+        private final MailboxList from;
+        private final AddressList to;
+        private final AddressList cc;
+        private final AddressList bcc;
+        private final AddressList replyTo;
+
+        FrozenMessage(final Message source, final Entity parent) {
+            this.parent = parent;
+            this.header = freeze(source.getHeader());
+            this.body = freeze(source.getBody(), this);
+            this.messageId = super.getMessageId();
+            this.subject = super.getSubject();
+            this.date = super.getDate();
+            this.sender = super.getSender();
+            this.from = super.getFrom();
+            this.to = super.getTo();
+            this.cc = super.getCc();
+            this.bcc = super.getBcc();
+            this.replyTo = super.getReplyTo();
+        }
+
+        @Override
+        public Entity getParent() {
+            return parent;
+        }
+
+        @Override
+        public void setParent(Entity parent) {
+            throw frozen();
+        }
+
+        @Override
+        public Header getHeader() {
+            return header;
+        }
+
+        @Override
+        public void setHeader(Header header) {
+            throw frozen();
+        }
+
+        @Override
+        public Body getBody() {
+            return body;
+        }
+
+        @Override
+        public void setBody(Body body) {
+            throw frozen();
+        }
+
+        @Override
+        public Body removeBody() {
+            throw frozen();
+        }
+
+        @Override
+        public String getMessageId() {
+            return messageId;
+        }
+
+        @Override
+        public String getSubject() {
+            return subject;
+        }
+
+        @Override
+        public Date getDate() {
+            return date != null ? new Date(date.getTime()) : null;
+        }
+
+        @Override
+        public Mailbox getSender() {
+            return sender;
+        }
+
+        @Override
+        public MailboxList getFrom() {
+            return from;
+        }
+
+        @Override
+        public AddressList getTo() {
+            return to;
+        }
+
+        @Override
+        public AddressList getCc() {
+            return cc;
+        }
+
+        @Override
+        public AddressList getBcc() {
+            return bcc;
+        }
+
+        @Override
+        public AddressList getReplyTo() {
+            return replyTo;
+        }
+
+        @Override
+        public void dispose() {
+            if (body != null) {
+                body.dispose();
+            }
+        }
+
+        @Override
+        protected String calcTransferEncoding(ContentTransferEncodingField f) {
+            return ContentTransferEncodingFieldImpl.getEncoding(f);
+        }
+
+        @Override
+        protected String calcMimeType(ContentTypeField child, ContentTypeField parent) {
+            return ContentTypeFieldImpl.getMimeType(child, parent);
+        }
+
+        @Override
+        protected String calcCharset(ContentTypeField contentType) {
+            return ContentTypeFieldImpl.getCharset(contentType);
+        }
+
+    }
+
+    static final class FrozenBodyPart extends BodyPart {
+
+        private final Entity parent;
+        private final Header header;
+        private final Body body;
+
+        FrozenBodyPart(final Entity source, final Entity parent) {
+            this.parent = parent;
+            this.header = freeze(source.getHeader());
+            this.body = freeze(source.getBody(), this);
+        }
+
+        @Override
+        public Entity getParent() {
+            return parent;
+        }
+
+        @Override
+        public void setParent(Entity parent) {
+            throw frozen();
+        }
+
+        @Override
+        public Header getHeader() {
+            return header;
+        }
+
+        @Override
+        public void setHeader(Header header) {
+            throw frozen();
+        }
+
+        @Override
+        public Body getBody() {
+            return body;
+        }
+
+        @Override
+        public void setBody(Body body) {
+            throw frozen();
+        }
+
+        @Override
+        public Body removeBody() {
+            throw frozen();
+        }
+
+        @Override
+        public void dispose() {
+            if (body != null) {
+                body.dispose();
+            }
+        }
+
+    }
+
+    static final class FrozenMultipart extends MultipartImpl {
+
+        private final Entity parent;
+        private final String subType;
+        private final List<Entity> bodyParts;
+        private final ByteSequence preambleRaw;
+        private final String preamble;
+        private final ByteSequence epilogueRaw;
+        private final String epilogue;
+
+        /**
+         * @param parent the entity of this multipart, which is also the
+         *  parent of its body parts.
+         */
+        FrozenMultipart(final Multipart source, final Entity parent) {
+            super(source.getSubType(), Collections.unmodifiableList(
+                    new ArrayList<NameValuePair>(source.getContentTypeParameters())));
+            this.parent = parent;
+            this.subType = source.getSubType();
+            List<Entity> parts = new ArrayList<Entity>(source.getCount());
+            for (Entity bodyPart : source.getBodyParts()) {
+                parts.add(new FrozenBodyPart(bodyPart, parent));
+            }
+            this.bodyParts = Collections.unmodifiableList(parts);
+            if (source instanceof MultipartImpl) {
+                this.preambleRaw = ((MultipartImpl) source).getPreambleRaw();
+                this.epilogueRaw = ((MultipartImpl) source).getEpilogueRaw();
+            } else {
+                this.preambleRaw = source.getPreamble() != null ? ContentUtil.encode(source.getPreamble()) : null;
+                this.epilogueRaw = source.getEpilogue() != null ? ContentUtil.encode(source.getEpilogue()) : null;
+            }
+            this.preamble = source.getPreamble();
+            this.epilogue = source.getEpilogue();
+        }
+
+        @Override
+        public Entity getParent() {
+            return parent;
+        }
+
+        @Override
+        public String getSubType() {
+            return subType;
+        }
+
+        @Override
+        public int getCount() {
+            return bodyParts.size();
+        }
+
+        @Override
+        public List<Entity> getBodyParts() {
+            return bodyParts;
+        }
+
+        @Override
+        public ByteSequence getPreambleRaw() {
+            return preambleRaw;
+        }
+
+        @Override
+        public String getPreamble() {
+            return preamble;
+        }
+
+        @Override
+        public ByteSequence getEpilogueRaw() {
+            return epilogueRaw;
+        }
+
+        @Override
+        public String getEpilogue() {
+            return epilogue;
+        }
+
+        @Override
+        public void dispose() {
+            for (Entity bodyPart : bodyParts) {
+                bodyPart.dispose();
+            }
+        }
+
+        @Override
+        public void setParent(Entity parent) {
+            throw frozen();
+        }
+
+        @Override
+        public void setSubType(String subType) {
+            throw frozen();
+        }
+
+        @Override
+        public void setBodyParts(List<Entity> bodyParts) {
+            throw frozen();
+        }
+
+        @Override
+        public void addBodyPart(Entity bodyPart) {
+            throw frozen();
+        }
+
+        @Override
+        public void addBodyPart(Entity bodyPart, int index) {
+            throw frozen();
+        }
+
+        @Override
+        public Entity removeBodyPart(int index) {
+            throw frozen();
+        }
+
+        @Override
+        public Entity replaceBodyPart(Entity bodyPart, int index) {
+            throw frozen();
+        }
+
+        @Override
+        public void setPreambleRaw(ByteSequence preamble) {
+            throw frozen();
+        }
+
+        @Override
+        public void setPreamble(String preamble) {
+            throw frozen();
+        }
+
+        @Override
+        public void setEpilogueRaw(ByteSequence epilogue) {
+            throw frozen();
+        }
+
+        @Override
+        public void setEpilogue(String epilogue) {
+            throw frozen();
+        }
+
+    }
+
+    static final class FrozenTextBody extends TextBody implements EncodedContent {
+
+        private final TextBody body;
+        private final Entity parent;
+
+        FrozenTextBody(final TextBody body, final Entity parent) {
+            this.body = body;
+            this.parent = parent;
+        }
+
+        @Override
+        public Entity getParent() {
+            return parent;
+        }
+
+        @Override
+        public void setParent(Entity parent) {
+            throw frozen();
+        }
+
+        @Override
+        public String getMimeCharset() {
+            return body.getMimeCharset();
+        }
+
+        @Override
+        public Reader getReader() throws IOException {
+            return body.getReader();
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return body.getInputStream();
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            body.writeTo(out);
+        }
+
+        @Override
+        public ContentStatistics getContentStatistics() {
+            return body.getContentStatistics();
+        }
+
+        @Override
+        public String getTransferEncoding() {
+            return body instanceof EncodedContent ? ((EncodedContent) body).getTransferEncoding() : null;
+        }
+
+        @Override
+        public void writeEncodedTo(OutputStream out) throws IOException {
+            if (body instanceof EncodedContent) {
+                ((EncodedContent) body).writeEncodedTo(out);
+            } else {
+                body.writeTo(out);
+            }
+        }
+
+        /**
+         * Returns a copy of the underlying body, which is not frozen.
+         */
+        @Override
+        public SingleBody copy() {
+            return body.copy();
+        }
+
+        @Override
+        public void dispose() {
+            body.dispose();
+        }
+
+    }
+
+    static final class FrozenBinaryBody extends BinaryBody implements EncodedContent {
+
+        private final SingleBody body;
+        private final Entity parent;
+
+        FrozenBinaryBody(final SingleBody body, final Entity parent) {
+            this.body = body;
+            this.parent = parent;
+        }
+
+        @Override
+        public Entity getParent() {
+            return parent;
+        }
+
+        @Override
+        public void setParent(Entity parent) {
+            throw frozen();
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return body.getInputStream();
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            body.writeTo(out);
+        }
+
+        @Override
+        public ContentStatistics getContentStatistics() {
+            return body.getContentStatistics();
+        }
+
+        @Override
+        public String getTransferEncoding() {
+            return body instanceof EncodedContent ? ((EncodedContent) body).getTransferEncoding() : null;
+        }
+
+        @Override
+        public void writeEncodedTo(OutputStream out) throws IOException {
+            if (body instanceof EncodedContent) {
+                ((EncodedContent) body).writeEncodedTo(out);
+            } else {
+                body.writeTo(out);
+            }
+        }
+
+        /**
+         * Returns a copy of the underlying body, which is not frozen.
+         */
+        @Override
+        public SingleBody copy() {
+            return body.copy();
+        }
+
+        @Override
+        public void dispose() {
+            body.dispose();
+        }
+
+    }
+
+}
@@ -19,7 +19,10 @@
 
 package org.apache.james.mime4j.message;
 
+import org.apache.james.mime4j.codec.DecodeMonitor;
+import org.apache.james.mime4j.dom.FieldParser;
 import org.apache.james.mime4j.dom.Header;
+import org.apache.james.mime4j.dom.field.ParsedField;
 
 /**
  * Default implementation of {@link Header}.
@@ -32,4 +35,36 @@ public class HeaderImpl extends AbstractHeader {
     public HeaderImpl() {
     }
 
+    /**
+     * Creates a new empty <code>Header</code> that parses raw fields on demand
+     * using the given field parser.
+     *
+     * @param fieldParser parser used to convert raw fields on first access by name.
+     * @param monitor decoding monitor used by the field parser.
+     */
+    public HeaderImpl(FieldParser<? extends ParsedField> fieldParser, DecodeMonitor monitor) {
+        super(fieldParser, monitor);
+    }
+
+    /**
+     * Creates a new <code>Header</code> from the specified
+     * <code>Header</code>, with a copy of its list of fields.
+     *
+     * @param other
+     *            header to copy.
+     */
+    public HeaderImpl(Header other) {
+        super(other);
+    }
+
+    /**
+     * Returns a copy of the specified header that shares its list of fields
+     * until either header is modified.
+     */
+    static HeaderImpl sharing(AbstractHeader other) {
+        HeaderImpl copy = new HeaderImpl(other.fieldParser, other.monitor);
+        copy.shareFields(other);
+        return copy;
+    }
+
 }
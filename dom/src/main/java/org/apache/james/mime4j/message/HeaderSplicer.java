@@ -0,0 +1,271 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+
+package org.apache.james.mime4j.message;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.james.mime4j.MimeException;
+import org.apache.james.mime4j.MimeIOException;
+import org.apache.james.mime4j.codec.DecodeMonitor;
+import org.apache.james.mime4j.io.ChannelOutputStream;
+import org.apache.james.mime4j.stream.EntityState;
+import org.apache.james.mime4j.stream.Field;
+import org.apache.james.mime4j.stream.MimeConfig;
+import org.apache.james.mime4j.stream.MimeTokenStream;
+import org.apache.james.mime4j.stream.RecursionMode;
+import org.apache.james.mime4j.util.ContentUtil;
+
+/**
+ * Edits the top level header of a message while copying it, without
+ * building a DOM.
+ * <p>
+ * Only the header is parsed. Fields that are not edited are written as they
+ * appear in the source, and the body is copied unchanged. When splicing
+ * from a {@link FileChannel} the body is sent with
+ * {@link FileChannel#transferTo(long, long, WritableByteChannel)}, so the
+ * cost of an edit does not depend on the size of the body.
+ * <p>
+ * Example usage:
+ *
+ * <pre>
+ * HeaderSplicer.create()
+ *     .prependField(receivedField)
+ *     .setField(Fields.subject(&quot;[ext] &quot; + subject))
+ *     .removeFields(&quot;Bcc&quot;)
+ *     .splice(in, out);
+ * </pre>
+ */
+public class HeaderSplicer {
+
+    private static final byte[] CRLF = { '\r', '\n' };
+
+    private final List<Field> prepended;
+    private final List<Field> appended;
+    private final Map<String, Field> replaced;
+    private final Set<String> removed;
+
+    private MimeConfig config;
+    private DecodeMonitor monitor;
+
+    public static HeaderSplicer create() {
+        return new HeaderSplicer();
+    }
+
+    private HeaderSplicer() {
+        this.prepended = new ArrayList<Field>();
+        this.appended = new ArrayList<Field>();
+        this.replaced = new LinkedHashMap<String, Field>();
+        this.removed = new HashSet<String>();
+    }
+
+    public HeaderSplicer use(final MimeConfig config) {
+        this.config = config;
+        return this;
+    }
+
+    public HeaderSplicer use(final DecodeMonitor monitor) {
+        this.monitor = monitor;
+        return this;
+    }
+
+    /**
+     * Adds a field above the fields of the source header. Fields added with
+     * this method are written in the order they were added, for instance
+     * <code>Received</code> followed by <code>Authentication-Results</code>.
+     *
+     * @param field
+     *            the field to add.
+     */
+    public HeaderSplicer prependField(Field field) {
+        if (field == null)
+            throw new IllegalArgumentException();
+        prepended.add(field);
+        return this;
+    }
+
+    /**
+     * Adds a field below the fields of the source header.
+     *
+     * @param field
+     *            the field to add.
+     */
+    public HeaderSplicer addField(Field field) {
+        if (field == null)
+            throw new IllegalArgumentException();
+        appended.add(field);
+        return this;
+    }
+
+    /**
+     * Sets or replaces a field, like {@link org.apache.james.mime4j.dom.Header#setField(Field)}.
+     * The first field of the source header with the same name is replaced by
+     * the given field and all further occurrences are removed. If there is
+     * none the field is added below the fields of the source header.
+     *
+     * @param field
+     *            the field to set.
+     */
+    public HeaderSplicer setField(Field field) {
+        if (field == null)
+            throw new IllegalArgumentException();
+        replaced.put(field.getNameLowerCase(), field);
+        return this;
+    }
+
+    /**
+     * Removes all fields of the source header having the specified name.
+     * Fields added to this splicer are not affected.
+     *
+     * @param name
+     *            the field name (e.g. From, Subject).
+     */
+    public HeaderSplicer removeFields(String name) {
+        if (name == null)
+            throw new IllegalArgumentException();
+        removed.add(name.toLowerCase(Locale.US));
+        return this;
+    }
+
+    /**
+     * Copies the message read from the given stream to the given stream,
+     * editing its header.
+     *
+     * @param in
+     *            the message to read.
+     * @param out
+     *            the stream to write to.
+     * @throws IOException
+     *             if an I/O error occurs.
+     * @throws MimeIOException
+     *             if the header cannot be parsed.
+     */
+    public void splice(InputStream in, OutputStream out) throws IOException {
+        MimeTokenStream stream = spliceHeader(in, out);
+        if (stream != null) {
+            ContentUtil.copy(stream.getInputStream(), out);
+        }
+    }
+
+    /**
+     * Copies the message read from the current position of the given file
+     * to the given channel, editing its header. The body is transferred from
+     * the file directly. The position of the file is left at its end.
+     *
+     * @param in
+     *            the message to read.
+     * @param out
+     *            the blocking channel to write to.
+     * @throws IOException
+     *             if an I/O error occurs.
+     * @throws MimeIOException
+     *             if the header cannot be parsed.
+     */
+    public void splice(FileChannel in, WritableByteChannel out) throws IOException {
+        long start = in.position();
+        ChannelOutputStream cout = new ChannelOutputStream(out);
+        MimeTokenStream stream = spliceHeader(Channels.newInputStream(in), cout);
+        long offset = stream != null ? stream.getContentOffset() : -1;
+        if (stream != null && offset < 0) {
+            // the body does not start at a known position of the file
+            ContentUtil.copy(stream.getInputStream(), cout);
+        }
+        cout.flush();
+        if (offset >= 0) {
+            long size = in.size();
+            for (long position = start + offset; position < size; ) {
+                long written = in.transferTo(position, size - position, out);
+                ChannelOutputStream.checkProgress(written);
+                position += written;
+            }
+            in.position(size);
+        }
+    }
+
+    /**
+     * Writes the edited header and returns the stream positioned at the
+     * body, or <code>null</code> if the message has no body.
+     */
+    private MimeTokenStream spliceHeader(InputStream in, OutputStream out) throws IOException {
+        MimeConfig cfg = config != null ? config : MimeConfig.DEFAULT;
+        DecodeMonitor mon = monitor != null ? monitor :
+            cfg.isStrictParsing() ? DecodeMonitor.STRICT : DecodeMonitor.SILENT;
+        MimeTokenStream stream = new MimeTokenStream(cfg, mon, null);
+        // the body is copied as is, multiparts included
+        stream.setRecursionMode(RecursionMode.M_FLAT);
+        stream.parse(in);
+
+        DefaultMessageWriter writer = new DefaultMessageWriter();
+        for (Field field : prepended) {
+            writer.writeField(field, out);
+        }
+        Set<String> written = new HashSet<String>();
+        try {
+            for (EntityState state = stream.getState(); ; state = stream.next()) {
+                switch (state) {
+                case T_FIELD:
+                    Field field = stream.getField();
+                    String name = field.getNameLowerCase();
+                    Field replacement = replaced.get(name);
+                    if (replacement != null) {
+                        if (written.add(name)) {
+                            writer.writeField(replacement, out);
+                        }
+                    } else if (!removed.contains(name)) {
+                        writer.writeField(field, out);
+                    }
+                    break;
+                case T_END_HEADER:
+                    for (Map.Entry<String, Field> entry : replaced.entrySet()) {
+                        if (!written.contains(entry.getKey())) {
+                            writer.writeField(entry.getValue(), out);
+                        }
+                    }
+                    for (Field appendedField : appended) {
+                        writer.writeField(appendedField, out);
+                    }
+                    out.write(CRLF);
+                    break;
+                case T_BODY:
+                    return stream;
+                case T_END_OF_STREAM:
+                    return null;
+                default:
+                    break;
+                }
+            }
+        } catch (MimeException e) {
+            throw new MimeIOException(e);
+        }
+    }
+
+}
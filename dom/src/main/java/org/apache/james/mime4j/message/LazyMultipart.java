@@ -0,0 +1,84 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+
+package org.apache.james.mime4j.message;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+
+import org.apache.james.mime4j.dom.SingleBody;
+import org.apache.james.mime4j.io.InputStreams;
+import org.apache.james.mime4j.stream.NameValuePair;
+
+/**
+ * Multipart whose body parts are parsed on first access.
+ * <p>
+ * Until then the multipart holds its raw content, either as a slice of the
+ * buffer the message was parsed from or as a body created by the
+ * {@link BodyFactory}, which is disposed of once the parts are built.
+ *
+ * @see DefaultMessageBuilder#setLazyMultipartParsing(boolean)
+ */
+class LazyMultipart extends DeferredMultipart {
+
+    private final DefaultMessageBuilder builder;
+    private final String boundary;
+    private ByteBuffer content;
+    private SingleBody stored;
+
+    LazyMultipart(
+            final DefaultMessageBuilder builder,
+            final String subType,
+            final String boundary,
+            final ByteBuffer content,
+            final SingleBody stored) {
+        super(subType, Collections.<NameValuePair>emptyList());
+        this.builder = builder;
+        this.boundary = boundary;
+        this.content = content;
+        this.stored = stored;
+    }
+
+    boolean isParsed() {
+        return isLoaded();
+    }
+
+    @Override
+    void loadContent() throws IOException {
+        try {
+            InputStream is = content != null ? InputStreams.create(content.duplicate()) : stored.getInputStream();
+            builder.parseBodyParts(this, is, content, boundary);
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    void release() {
+        if (stored != null) {
+            stored.dispose();
+        }
+        content = null;
+        stored = null;
+    }
+
+}
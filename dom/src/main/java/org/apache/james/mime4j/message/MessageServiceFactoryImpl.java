@@ -22,14 +22,15 @@ import org.apache.james.mime4j.codec.DecodeMonitor;
 import org.apache.james.mime4j.dom.MessageBuilder;
 import org.apache.james.mime4j.dom.MessageServiceFactory;
 import org.apache.james.mime4j.dom.MessageWriter;
+import org.apache.james.mime4j.field.ParsedFieldCache;
 import org.apache.james.mime4j.stream.BodyDescriptorBuilder;
 import org.apache.james.mime4j.stream.MimeConfig;
 
 /**
  * The default MessageBuilderFactory bundled with Mime4j.
  *
- * Supports the "StorageProvider", "MimeEntityConfig" and "MutableBodyDescriptorFactory"
- * attributes.
+ * Supports the "StorageProvider", "MimeEntityConfig", "MutableBodyDescriptorFactory"
+ * and "ParsedFieldCache" attributes.
  */
 public class MessageServiceFactoryImpl extends MessageServiceFactory {
 
@@ -39,6 +40,7 @@ public class MessageServiceFactoryImpl extends MessageServiceFactory {
     private DecodeMonitor decodeMonitor = null;
     private Boolean flatMode = null;
     private Boolean contentDecoding = null;
+    private ParsedFieldCache fieldCache = null;
 
     @Override
     public MessageBuilder newMessageBuilder() {
@@ -49,6 +51,7 @@ public class MessageServiceFactoryImpl extends MessageServiceFactory {
         if (flatMode != null) m.setFlatMode(flatMode);
         if (contentDecoding != null) m.setContentDecoding(contentDecoding);
         if (decodeMonitor != null) m.setDecodeMonitor(decodeMonitor);
+        if (fieldCache != null) m.setFieldCache(fieldCache);
         return m;
     }
 
@@ -90,6 +93,11 @@ public class MessageServiceFactoryImpl extends MessageServiceFactory {
                 this.contentDecoding = (Boolean) value;
                 return;
             } else throw new IllegalArgumentException("Unsupported attribute value type for "+name+", expected a Boolean");
+        } else if ("ParsedFieldCache".equals(name)) {
+            if (value instanceof ParsedFieldCache) {
+                this.fieldCache = (ParsedFieldCache) value;
+                return;
+            } else throw new IllegalArgumentException("Unsupported attribute value type for "+name+", expected a ParsedFieldCache");
         }
 
         throw new IllegalArgumentException("Unsupported attribute: "+name);
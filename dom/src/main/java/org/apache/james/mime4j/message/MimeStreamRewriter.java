@@ -0,0 +1,540 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+
+package org.apache.james.mime4j.message;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.apache.james.mime4j.Charsets;
+import org.apache.james.mime4j.MimeException;
+import org.apache.james.mime4j.MimeIOException;
+import org.apache.james.mime4j.codec.DecodeMonitor;
+import org.apache.james.mime4j.field.Fields;
+import org.apache.james.mime4j.io.InputStreams;
+import org.apache.james.mime4j.stream.BodyDescriptor;
+import org.apache.james.mime4j.stream.EntityState;
+import org.apache.james.mime4j.stream.Field;
+import org.apache.james.mime4j.stream.MimeConfig;
+import org.apache.james.mime4j.stream.MimeTokenStream;
+import org.apache.james.mime4j.stream.RawField;
+import org.apache.james.mime4j.stream.RecursionMode;
+import org.apache.james.mime4j.util.ByteArrayBuffer;
+import org.apache.james.mime4j.util.ContentStatistics;
+import org.apache.james.mime4j.util.ContentUtil;
+import org.apache.james.mime4j.util.MimeUtil;
+
+/**
+ * Rewrites a message while copying it, without building a DOM.
+ * <p>
+ * The message is read with a {@link MimeTokenStream}. Once the header of an
+ * entity has been read each {@link Rule} is given a {@link Part} through
+ * which it can edit the header, drop the entity, replace it or change its
+ * transfer encoding. Entities left alone are copied as they are, with their
+ * original fields, boundaries and encoded content. Embedded messages are
+ * handled as single parts, unless a rule has them rewritten with
+ * {@link Part#rewriteMessage(MimeStreamRewriter)}.
+ * <p>
+ * Only the fields of the current entity are held in memory, plus whatever
+ * a rule reads ahead with {@link Part#isLargerThan(long)} or
+ * {@link Part#is7bit(long)}.
+ * <p>
+ * Example usage, replacing attachments over 10 MB by a short note:
+ *
+ * <pre>
+ * MimeStreamRewriter.create()
+ *     .addRule(new MimeStreamRewriter.Rule() {
+ *         public void apply(MimeStreamRewriter.Part part) throws IOException {
+ *             if (!part.isMultipart() &amp;&amp; part.isLargerThan(10 * 1024 * 1024)) {
+ *                 part.replace(&quot;Attachment removed&quot;);
+ *             }
+ *         }
+ *     })
+ *     .rewrite(in, out);
+ * </pre>
+ */
+public class MimeStreamRewriter {
+
+    private static final byte[] CRLF = { '\r', '\n' };
+    private static final byte[] DASHES = { '-', '-' };
+
+    /**
+     * A rule applied to every entity of the rewritten message, in the order
+     * the entities appear.
+     */
+    public interface Rule {
+
+        /**
+         * Inspects and optionally edits the given entity. Rules following a
+         * rule that dropped or replaced the entity are not applied.
+         */
+        void apply(Part part) throws IOException;
+
+    }
+
+    /**
+     * An entity of the rewritten message, as seen by the rules.
+     */
+    public static final class Part {
+
+        private final List<Field> fields;
+        private final BodyDescriptor descriptor;
+        private final int depth;
+        private InputStream body;
+        private ByteArrayBuffer readAhead;
+
+        private boolean dropped;
+        private List<Field> replacementFields;
+        private InputStream replacement;
+        private String transferEncoding;
+        private MimeStreamRewriter messageRewriter;
+
+        Part(final List<Field> fields, final BodyDescriptor descriptor, final int depth, final InputStream body) {
+            this.fields = fields;
+            this.descriptor = descriptor;
+            this.depth = depth;
+            this.body = body;
+        }
+
+        /**
+         * Returns the header fields of this entity. The list can be modified;
+         * fields left in place are written as they were read.
+         */
+        public List<Field> getFields() {
+            return fields;
+        }
+
+        public BodyDescriptor getBodyDescriptor() {
+            return descriptor;
+        }
+
+        /**
+         * Returns the nesting level of this entity, <code>0</code> for the
+         * message itself.
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        public boolean isMultipart() {
+            return body == null;
+        }
+
+        /**
+         * Removes all fields having the specified name.
+         */
+        public void removeFields(String name) {
+            for (int i = fields.size() - 1; i >= 0; i--) {
+                if (fields.get(i).getName().equalsIgnoreCase(name)) {
+                    fields.remove(i);
+                }
+            }
+        }
+
+        /**
+         * Renames all fields having the specified name, keeping their bodies.
+         */
+        public void renameFields(String name, String newName) {
+            for (int i = 0; i < fields.size(); i++) {
+                Field field = fields.get(i);
+                if (field.getName().equalsIgnoreCase(name)) {
+                    fields.set(i, new RawField(newName, field.getBody()));
+                }
+            }
+        }
+
+        /**
+         * Sets or replaces a field, like {@link org.apache.james.mime4j.dom.Header#setField(Field)}.
+         */
+        public void setField(Field field) {
+            MimeStreamWriter.setField(fields, field);
+        }
+
+        /**
+         * Tells whether the raw, still encoded, body of this single part is
+         * larger than the given size. Up to <code>size + 1</code> bytes of
+         * the body are read ahead and kept in memory.
+         *
+         * @throws IllegalStateException
+         *             if this part is a multipart.
+         */
+        public boolean isLargerThan(long size) throws IOException {
+            if (body == null) {
+                throw new IllegalStateException("Size of a multipart is not known");
+            }
+            if (readAhead == null) {
+                readAhead = new ByteArrayBuffer(1024);
+            }
+            byte[] buf = new byte[1024];
+            while (readAhead.length() <= size) {
+                int len = body.read(buf, 0, (int) Math.min(buf.length, size + 1 - readAhead.length()));
+                if (len == -1) {
+                    break;
+                }
+                readAhead.append(buf, 0, len);
+            }
+            return readAhead.length() > size;
+        }
+
+        /**
+         * Tells whether the raw, still encoded, body of this single part is
+         * valid <code>7bit</code> data and not larger than the given size. Up
+         * to <code>size + 1</code> bytes of the body are read ahead and kept in
+         * memory; the scan stops at the first byte that is not valid
+         * <code>7bit</code> data. A larger body is reported as not being
+         * <code>7bit</code> data, as it has not been scanned entirely.
+         *
+         * @throws IllegalStateException
+         *             if this part is a multipart.
+         * @see ContentStatistics#is7bit()
+         */
+        public boolean is7bit(long size) throws IOException {
+            if (body == null) {
+                throw new IllegalStateException("Content of a multipart is not known");
+            }
+            if (readAhead == null) {
+                readAhead = new ByteArrayBuffer(1024);
+            }
+            ContentStatistics statistics = ContentStatistics.of(readAhead.buffer(), 0, readAhead.length());
+            byte[] buf = new byte[1024];
+            while (statistics.getEightBitCount() == 0 && !statistics.hasNul()) {
+                long remaining = size - readAhead.length();
+                if (remaining < 0) {
+                    return false;
+                }
+                int len = body.read(buf, 0, remaining < buf.length ? (int) remaining + 1 : buf.length);
+                if (len == -1) {
+                    return statistics.is7bit();
+                }
+                readAhead.append(buf, 0, len);
+                statistics.update(buf, 0, len);
+            }
+            return false;
+        }
+
+        /**
+         * Drops this entity from the message.
+         *
+         * @throws IllegalStateException
+         *             if this entity is the message itself.
+         */
+        public void drop() {
+            if (depth == 0) {
+                throw new IllegalStateException("The message cannot be dropped");
+            }
+            dropped = true;
+        }
+
+        /**
+         * Replaces this entity, and its body parts if it is a multipart, by
+         * an entity with the given header and body.
+         *
+         * @param content
+         *            the body content, not encoded; it is read to its end.
+         * @param transferEncoding
+         *            the transfer encoding to apply, or <code>null</code>.
+         * @param fields
+         *            the header fields of the new entity.
+         */
+        public void replace(InputStream content, String transferEncoding, Field... fields) {
+            if (content == null) {
+                throw new IllegalArgumentException("Content may not be null");
+            }
+            List<Field> header = new ArrayList<Field>();
+            Collections.addAll(header, fields);
+            this.replacementFields = header;
+            this.replacement = content;
+            this.transferEncoding = transferEncoding;
+        }
+
+        /**
+         * Replaces this entity by a <code>text/plain</code> entity with the
+         * given text. Fields other than <code>Content-*</code> fields are kept.
+         */
+        public void replace(String text) {
+            List<Field> header = new ArrayList<Field>();
+            for (Field field : fields) {
+                if (!field.getNameLowerCase().startsWith("content-")) {
+                    header.add(field);
+                }
+            }
+            header.add(Fields.contentType("text/plain; charset=UTF-8"));
+            replace(InputStreams.create(text, Charsets.UTF_8),
+                    MimeUtil.ENC_QUOTED_PRINTABLE, header.toArray(new Field[0]));
+        }
+
+        /**
+         * Writes the body of this single part with the given transfer
+         * encoding. The body is decoded and encoded again.
+         *
+         * @throws IllegalStateException
+         *             if this part is a multipart.
+         */
+        public void setTransferEncoding(String transferEncoding) {
+            if (body == null) {
+                throw new IllegalStateException("A multipart cannot be encoded");
+            }
+            if (transferEncoding == null) {
+                throw new IllegalArgumentException("Transfer encoding may not be null");
+            }
+            this.transferEncoding = transferEncoding;
+            this.messageRewriter = null;
+            setField(Fields.contentTransferEncoding(transferEncoding));
+        }
+
+        /**
+         * Rewrites the message embedded in this part with the given
+         * rewriter while it is copied. The rewriter may be the one this
+         * part comes from. The body is not decoded: the transfer encoding
+         * of the part should be <code>7bit</code>, <code>8bit</code> or
+         * <code>binary</code>, as RFC 2046 requires for messages.
+         *
+         * @throws IllegalStateException
+         *             if this part is not a <code>message/rfc822</code> part.
+         */
+        public void rewriteMessage(MimeStreamRewriter rewriter) {
+            if (body == null || !MimeUtil.isMessage(descriptor.getMimeType())) {
+                throw new IllegalStateException("Not an embedded message");
+            }
+            if (rewriter == null) {
+                throw new IllegalArgumentException("Rewriter may not be null");
+            }
+            this.messageRewriter = rewriter;
+            this.transferEncoding = null;
+        }
+
+        boolean isDone() {
+            return dropped || replacement != null;
+        }
+
+        InputStream getBody() {
+            if (readAhead == null) {
+                return body;
+            }
+            return new SequenceInputStream(InputStreams.create(readAhead), body);
+        }
+
+    }
+
+    private final List<Rule> rules;
+
+    private MimeConfig config;
+    private DecodeMonitor monitor;
+
+    public static MimeStreamRewriter create() {
+        return new MimeStreamRewriter();
+    }
+
+    private MimeStreamRewriter() {
+        this.rules = new ArrayList<Rule>();
+    }
+
+    public MimeStreamRewriter use(final MimeConfig config) {
+        this.config = config;
+        return this;
+    }
+
+    public MimeStreamRewriter use(final DecodeMonitor monitor) {
+        this.monitor = monitor;
+        return this;
+    }
+
+    public MimeStreamRewriter addRule(final Rule rule) {
+        if (rule == null) {
+            throw new IllegalArgumentException("Rule may not be null");
+        }
+        rules.add(rule);
+        return this;
+    }
+
+    /**
+     * Reads a message from the given stream and writes it, rewritten, to
+     * the given stream.
+     *
+     * @throws IOException
+     *             if an I/O error occurs.
+     * @throws MimeIOException
+     *             if the message cannot be parsed.
+     */
+    public void rewrite(InputStream in, OutputStream out) throws IOException {
+        rewrite(in, out, false);
+    }
+
+    private void rewrite(InputStream in, OutputStream out, boolean embedded) throws IOException {
+        MimeConfig cfg = config != null ? config : MimeConfig.DEFAULT;
+        DecodeMonitor mon = monitor != null ? monitor :
+            cfg.isStrictParsing() ? DecodeMonitor.STRICT : DecodeMonitor.SILENT;
+        MimeTokenStream stream = new MimeTokenStream(cfg, mon, null);
+        // embedded messages are rewritten as single parts
+        stream.setRecursionMode(RecursionMode.M_NO_RECURSE);
+        stream.parse(in);
+
+        DefaultMessageWriter writer = new DefaultMessageWriter();
+        // boundaries of the multiparts being copied, innermost first, null once closed
+        LinkedList<byte[]> boundaries = new LinkedList<byte[]>();
+        // whether each entity being read has been written
+        LinkedList<Boolean> written = new LinkedList<Boolean>();
+        List<Field> fields = null;
+        int depth = 0;
+        // depth of the dropped or replaced entity being skipped, or 0
+        int skipped = 0;
+        try {
+            for (EntityState state = stream.getState(); state != EntityState.T_END_OF_STREAM; state = stream.next()) {
+                switch (state) {
+                case T_START_MESSAGE:
+                case T_START_BODYPART:
+                    depth++;
+                    fields = new ArrayList<Field>();
+                    break;
+                case T_FIELD:
+                    if (skipped == 0) {
+                        // the field may be a flyweight reused for the next field
+                        fields.add(RawField.copyOf(stream.getField()));
+                    }
+                    break;
+                case T_END_HEADER:
+                    if (skipped != 0) {
+                        break;
+                    }
+                    // the descriptor is available from the next state on
+                    boolean multipart = stream.next() == EntityState.T_START_MULTIPART;
+                    BodyDescriptor bd = stream.getBodyDescriptor();
+                    InputStream body = multipart ? null : stream.getInputStream();
+                    Part part = new Part(fields, bd, depth - 1, body);
+                    for (Rule rule : rules) {
+                        rule.apply(part);
+                        if (part.isDone()) {
+                            break;
+                        }
+                    }
+                    fields = null;
+
+                    written.addFirst(!part.dropped);
+                    if (part.dropped) {
+                        skipped = multipart ? depth : 0;
+                        break;
+                    }
+                    if (!boundaries.isEmpty()) {
+                        out.write(DASHES);
+                        out.write(boundaries.getFirst());
+                        out.write(CRLF);
+                    }
+                    if (part.replacement != null) {
+                        write(writer, part.replacementFields, part.replacement, part.transferEncoding, out);
+                        skipped = multipart ? depth : 0;
+                    } else if (multipart) {
+                        writeHeader(writer, part.fields, out);
+                        boundaries.addFirst(ContentUtil.toAsciiByteArray(bd.getBoundary()));
+                    } else if (part.transferEncoding != null) {
+                        InputStream decoded = SliceBodyFactory.decode(part.getBody(), bd.getTransferEncoding(), mon);
+                        write(writer, part.fields, decoded, part.transferEncoding, out);
+                    } else if (part.messageRewriter != null) {
+                        writeHeader(writer, part.fields, out);
+                        part.messageRewriter.rewrite(part.getBody(), out, true);
+                    } else {
+                        writeHeader(writer, part.fields, out);
+                        ContentUtil.copy(part.getBody(), out);
+                    }
+                    break;
+                case T_PREAMBLE:
+                    if (skipped == 0) {
+                        ContentUtil.copy(stream.getInputStream(), out);
+                        out.write(CRLF);
+                    }
+                    break;
+                case T_EPILOGUE:
+                    if (skipped == 0) {
+                        writeCloseDelimiter(boundaries.getFirst(), out);
+                        out.write(CRLF);
+                        boundaries.set(0, null);
+                        ContentUtil.copy(stream.getInputStream(), out);
+                    }
+                    break;
+                case T_END_MULTIPART:
+                    if (skipped == 0) {
+                        byte[] boundary = boundaries.removeFirst();
+                        // not closed yet if there is no epilogue; the line break
+                        // of a nested multipart or embedded message is written
+                        // at the end of its part
+                        if (boundary != null) {
+                            writeCloseDelimiter(boundary, out);
+                            if (depth == 1 && !embedded) {
+                                out.write(CRLF);
+                            }
+                        }
+                    }
+                    break;
+                case T_END_BODYPART:
+                case T_END_MESSAGE:
+                    if (skipped == depth) {
+                        skipped = 0;
+                    }
+                    if (skipped == 0) {
+                        if (written.removeFirst() && state == EntityState.T_END_BODYPART) {
+                            out.write(CRLF);
+                        }
+                    }
+                    depth--;
+                    break;
+                default:
+                    break;
+                }
+            }
+        } catch (MimeException e) {
+            throw new MimeIOException(e);
+        }
+        out.flush();
+    }
+
+    private void writeHeader(DefaultMessageWriter writer, List<Field> fields, OutputStream out) throws IOException {
+        for (Field field : fields) {
+            writer.writeField(field, out);
+        }
+        out.write(CRLF);
+    }
+
+    private void write(DefaultMessageWriter writer, List<Field> fields, InputStream content,
+            String transferEncoding, OutputStream out) throws IOException {
+        List<Field> header = new ArrayList<Field>(fields);
+        if (transferEncoding != null) {
+            MimeStreamWriter.setField(header, Fields.contentTransferEncoding(transferEncoding));
+        }
+        writeHeader(writer, header, out);
+        OutputStream encOut = writer.encodeStream(out, transferEncoding, !MimeStreamWriter.isText(header));
+        ContentUtil.copy(content, encOut);
+        // close if wrapped (base64 or quoted-printable)
+        if (encOut != out) {
+            encOut.close();
+        }
+    }
+
+    private void writeCloseDelimiter(byte[] boundary, OutputStream out) throws IOException {
+        out.write(DASHES);
+        out.write(boundary);
+        out.write(DASHES);
+    }
+
+}
@@ -0,0 +1,301 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+
+package org.apache.james.mime4j.message;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.apache.james.mime4j.codec.Base64OutputStream;
+import org.apache.james.mime4j.codec.DecodeMonitor;
+import org.apache.james.mime4j.codec.QuotedPrintableOutputStream;
+import org.apache.james.mime4j.dom.field.ContentTypeField;
+import org.apache.james.mime4j.dom.field.FieldName;
+import org.apache.james.mime4j.dom.field.ParsedField;
+import org.apache.james.mime4j.field.Fields;
+import org.apache.james.mime4j.field.LenientFieldParser;
+import org.apache.james.mime4j.io.ChannelOutputStream;
+import org.apache.james.mime4j.stream.Field;
+import org.apache.james.mime4j.stream.NameValuePair;
+import org.apache.james.mime4j.util.ContentUtil;
+import org.apache.james.mime4j.util.MimeUtil;
+
+/**
+ * Writes a message entity by entity, without building a DOM.
+ * <p>
+ * Every entity, the message or a body part, is started with its header
+ * fields and then given either a single body, with
+ * {@link #writeBody(InputStream, String)}, or a multipart body, with
+ * {@link #startMultipart(String, NameValuePair...)}, the body parts and
+ * {@link #endMultipart()}. Bodies are transfer encoded while they are
+ * copied and nothing is retained once an entity has been written, so the
+ * memory used does not depend on the size of the message.
+ * <p>
+ * Example usage:
+ *
+ * <pre>
+ * MimeStreamWriter writer = new MimeStreamWriter(out);
+ * writer.startMessage(Fields.subject(&quot;Export&quot;));
+ * writer.startMultipart(&quot;mixed&quot;);
+ * writer.startPart(Fields.contentType(&quot;text/plain; charset=UTF-8&quot;));
+ * writer.writeBody(text, MimeUtil.ENC_QUOTED_PRINTABLE);
+ * writer.startPart(Fields.contentType(&quot;application/zip&quot;));
+ * writer.writeBody(archive, MimeUtil.ENC_BASE64);
+ * writer.endMultipart();
+ * writer.flush();
+ * </pre>
+ * <p>
+ * Instances of this class are not thread-safe. The output stream or
+ * channel is not closed by this writer.
+ */
+public class MimeStreamWriter {
+
+    private static final byte[] CRLF = { '\r', '\n' };
+    private static final byte[] DASHES = { '-', '-' };
+
+    private final OutputStream out;
+    private final DefaultMessageWriter writer;
+    private final LinkedList<String> boundaries;
+
+    private List<Field> header;
+    private boolean started;
+    private boolean complete;
+
+    public MimeStreamWriter(final OutputStream out) {
+        if (out == null) {
+            throw new IllegalArgumentException("Output stream may not be null");
+        }
+        this.out = out;
+        this.writer = new DefaultMessageWriter();
+        this.boundaries = new LinkedList<String>();
+    }
+
+    /**
+     * Creates a writer for the given channel. Small writes are coalesced,
+     * see {@link ChannelOutputStream}.
+     */
+    public MimeStreamWriter(final WritableByteChannel channel) {
+        this(new ChannelOutputStream(channel));
+    }
+
+    /**
+     * Starts the message with the given header fields. A
+     * <code>MIME-Version</code> field is added if there is none.
+     *
+     * @throws IllegalStateException
+     *             if the message has already been started.
+     */
+    public void startMessage(Field... fields) {
+        if (started) {
+            throw new IllegalStateException("Message already started");
+        }
+        started = true;
+        header = new ArrayList<Field>(Arrays.asList(fields));
+        if (indexOf(header, FieldName.MIME_VERSION) < 0) {
+            header.add(0, Fields.version("1.0"));
+        }
+    }
+
+    /**
+     * Starts a body part of the current multipart with the given header
+     * fields.
+     *
+     * @throws IllegalStateException
+     *             if no multipart body is being written.
+     * @throws IOException
+     *             if an I/O error occurs.
+     */
+    public void startPart(Field... fields) throws IOException {
+        if (header != null || boundaries.isEmpty()) {
+            throw new IllegalStateException("No multipart to add a part to");
+        }
+        out.write(DASHES);
+        out.write(ContentUtil.toAsciiByteArray(boundaries.getFirst()));
+        out.write(CRLF);
+        header = new ArrayList<Field>(Arrays.asList(fields));
+    }
+
+    /**
+     * Writes the header of the current entity with a
+     * <code>Content-Type</code> field for a multipart of the given sub-type
+     * and a generated boundary, and starts its multipart body. Any
+     * <code>Content-Type</code> field of the entity is replaced.
+     *
+     * @param subType
+     *            the multipart sub-type, e.g. <code>mixed</code>.
+     * @param parameters
+     *            further parameters of the <code>Content-Type</code> field.
+     * @throws IllegalStateException
+     *             if no entity has been started.
+     * @throws IOException
+     *             if an I/O error occurs.
+     */
+    public void startMultipart(String subType, NameValuePair... parameters) throws IOException {
+        if (header == null) {
+            throw new IllegalStateException("No entity started");
+        }
+        String boundary = MimeUtil.createUniqueBoundary();
+        List<NameValuePair> params = new ArrayList<NameValuePair>(Arrays.asList(parameters));
+        params.add(new NameValuePair("boundary", boundary));
+        setField(header, Fields.contentType("multipart/" + subType, params));
+        writeHeader();
+        boundaries.addFirst(boundary);
+    }
+
+    /**
+     * Ends the current multipart body, and the entity it belongs to.
+     *
+     * @throws IllegalStateException
+     *             if no multipart body is being written or a part has been
+     *             started but not written.
+     * @throws IOException
+     *             if an I/O error occurs.
+     */
+    public void endMultipart() throws IOException {
+        if (header != null || boundaries.isEmpty()) {
+            throw new IllegalStateException("No multipart to end");
+        }
+        String boundary = boundaries.removeFirst();
+        out.write(DASHES);
+        out.write(ContentUtil.toAsciiByteArray(boundary));
+        out.write(DASHES);
+        out.write(CRLF);
+        endEntity();
+    }
+
+    /**
+     * Writes the header of the current entity and the given content as its
+     * body, which ends the entity. The content is read to its end but not
+     * closed.
+     *
+     * @param content
+     *            the body content, not encoded.
+     * @param transferEncoding
+     *            the transfer encoding to apply, e.g. <code>base64</code>,
+     *            which replaces any <code>Content-Transfer-Encoding</code>
+     *            field of the entity, or <code>null</code> to keep the
+     *            fields and write the content as is.
+     * @throws IllegalStateException
+     *             if no entity has been started.
+     * @throws IOException
+     *             if an I/O error occurs.
+     */
+    public void writeBody(InputStream content, String transferEncoding) throws IOException {
+        if (header == null) {
+            throw new IllegalStateException("No entity started");
+        }
+        if (content == null) {
+            throw new IllegalArgumentException("Content may not be null");
+        }
+        if (transferEncoding != null) {
+            setField(header, Fields.contentTransferEncoding(transferEncoding));
+        }
+        boolean binary = !isText(header);
+        writeHeader();
+
+        OutputStream encOut;
+        if (MimeUtil.isBase64Encoding(transferEncoding)) {
+            encOut = new Base64OutputStream(out);
+        } else if (MimeUtil.isQuotedPrintableEncoded(transferEncoding)) {
+            encOut = new QuotedPrintableOutputStream(out, binary);
+        } else {
+            encOut = out;
+        }
+        ContentUtil.copy(content, encOut);
+        // close if wrapped (base64 or quoted-printable)
+        if (encOut != out) {
+            encOut.close();
+        }
+        endEntity();
+    }
+
+    /**
+     * Returns <code>true</code> once the message has been written completely.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Flushes the underlying stream.
+     */
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    private void writeHeader() throws IOException {
+        for (Field field : header) {
+            writer.writeField(field, out);
+        }
+        out.write(CRLF);
+        header = null;
+    }
+
+    private void endEntity() throws IOException {
+        if (boundaries.isEmpty()) {
+            complete = true;
+        } else {
+            out.write(CRLF);
+        }
+    }
+
+    static int indexOf(List<Field> fields, String name) {
+        for (int i = 0; i < fields.size(); i++) {
+            if (fields.get(i).getName().equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static void setField(List<Field> fields, Field field) {
+        int i = indexOf(fields, field.getName());
+        if (i < 0) {
+            fields.add(field);
+            return;
+        }
+        fields.set(i, field);
+        for (int j = fields.size() - 1; j > i; j--) {
+            if (fields.get(j).getName().equalsIgnoreCase(field.getName())) {
+                fields.remove(j);
+            }
+        }
+    }
+
+    static boolean isText(List<Field> fields) {
+        int i = indexOf(fields, FieldName.CONTENT_TYPE);
+        if (i < 0) {
+            // text/plain by default
+            return true;
+        }
+        Field field = fields.get(i);
+        ParsedField parsed = field instanceof ParsedField ? (ParsedField) field :
+            LenientFieldParser.getParser().parse(field, DecodeMonitor.SILENT);
+        return parsed instanceof ContentTypeField
+            && ((ContentTypeField) parsed).getMimeType().startsWith("text/");
+    }
+
+}
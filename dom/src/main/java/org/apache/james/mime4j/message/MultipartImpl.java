@@ -65,6 +65,7 @@ public class MultipartImpl extends AbstractMultipart {
         this.preamble = preamble;
         this.preambleStrCache = null;
         this.preambleComputed = false;
+        changed();
     }
 
     /**
@@ -92,6 +93,7 @@ public class MultipartImpl extends AbstractMultipart {
         this.preamble = preamble != null ? ContentUtil.encode(preamble) : null;
         this.preambleStrCache = preamble;
         this.preambleComputed = true;
+        changed();
     }
 
     // package private for now; might become public someday
@@ -103,6 +105,7 @@ public class MultipartImpl extends AbstractMultipart {
         this.epilogue = epilogue;
         this.epilogueStrCache = null;
         this.epilogueComputed = false;
+        changed();
     }
 
     /**
@@ -130,6 +133,7 @@ public class MultipartImpl extends AbstractMultipart {
         this.epilogue = epilogue != null ? ContentUtil.encode(epilogue) : null;
         this.epilogueStrCache = epilogue;
         this.epilogueComputed = true;
+        changed();
     }
 
 }
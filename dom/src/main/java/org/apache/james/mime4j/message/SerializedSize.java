@@ -0,0 +1,120 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.mime4j.message;
+
+import org.apache.james.mime4j.dom.Body;
+import org.apache.james.mime4j.dom.Entity;
+import org.apache.james.mime4j.dom.Header;
+import org.apache.james.mime4j.dom.Message;
+import org.apache.james.mime4j.dom.Multipart;
+import org.apache.james.mime4j.dom.SingleBody;
+
+/**
+ * Serialized size of an entity as computed by
+ * {@link DefaultMessageWriter#size(Entity)}, together with the state it was
+ * computed from.
+ * <p>
+ * A size is current as long as the modification count of its entity, which
+ * counts the modifications of the entity, its header and its descendants,
+ * is unchanged. Sizes are therefore only memoized for entities whose whole
+ * tree reports its modifications, see
+ * {@link #isTracked(AbstractEntity, boolean)}.
+ * Instances are immutable so that entities shared between threads may
+ * memoize their size without further synchronization.
+ */
+final class SerializedSize {
+
+    private final int modCount;
+    private final Body body;
+    private final boolean autoTransferEncoding;
+    private final String encoding;
+    private final long bodySize;
+    private final long size;
+
+    SerializedSize(AbstractEntity entity, Body body, boolean autoTransferEncoding,
+            String encoding, long bodySize, long size) {
+        this.modCount = entity.getModCount();
+        this.body = body;
+        this.autoTransferEncoding = autoTransferEncoding;
+        this.encoding = encoding;
+        this.bodySize = bodySize;
+        this.size = size;
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the size of the given single body in the given transfer
+     * encoding if it has been computed before, <code>-1</code> otherwise.
+     * Single bodies are immutable, so this survives header modifications.
+     */
+    long getBodySize(Body body, String encoding) {
+        if (body instanceof SingleBody && body == this.body
+                && encoding != null && encoding.equalsIgnoreCase(this.encoding)) {
+            return bodySize;
+        }
+        return -1;
+    }
+
+    boolean isCurrent(AbstractEntity entity, boolean autoTransferEncoding) {
+        return entity.getModCount() == modCount && this.autoTransferEncoding == autoTransferEncoding;
+    }
+
+    /**
+     * Returns whether all modifications that change the size of the given
+     * entity are reported to it: its header has to be an
+     * {@link AbstractHeader} set on this entity only, and a multipart or
+     * message body has to be made of entities whose size is memoized.
+     * Frozen entities never qualify, so that reading them never writes.
+     */
+    static boolean isTracked(AbstractEntity entity, boolean autoTransferEncoding) {
+        Header header = entity.getHeader();
+        if (!(header instanceof AbstractHeader) || ((AbstractHeader) header).owner != entity) {
+            return false;
+        }
+        Body body = entity.getBody();
+        if (body instanceof Message) {
+            return isCurrent((Message) body, autoTransferEncoding);
+        }
+        if (body instanceof Multipart) {
+            if (!(body instanceof AbstractMultipart)) {
+                return false;
+            }
+            for (Entity bodyPart : ((Multipart) body).getBodyParts()) {
+                if (!isCurrent(bodyPart, autoTransferEncoding)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean isCurrent(Entity entity, boolean autoTransferEncoding) {
+        if (!(entity instanceof AbstractEntity)) {
+            return false;
+        }
+        SerializedSize serializedSize = ((AbstractEntity) entity).serializedSize;
+        return serializedSize != null
+                && serializedSize.isCurrent((AbstractEntity) entity, autoTransferEncoding);
+    }
+
+}
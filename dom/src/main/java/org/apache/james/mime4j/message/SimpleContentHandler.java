@@ -27,6 +27,7 @@ import org.apache.james.mime4j.dom.field.ParsedField;
 import org.apache.james.mime4j.field.LenientFieldParser;
 import org.apache.james.mime4j.parser.AbstractContentHandler;
 import org.apache.james.mime4j.stream.Field;
+import org.apache.james.mime4j.stream.RawField;
 
 /**
  * Abstract implementation of ContentHandler that automates common
@@ -78,7 +79,7 @@ public abstract class SimpleContentHandler extends AbstractContentHandler {
         if (field instanceof ParsedField) {
             parsedField = (ParsedField) field;
         } else {
-            parsedField = fieldParser.parse(field, monitor);
+            parsedField = fieldParser.parse(RawField.copyOf(field), monitor);
         }
         currHeader.addField(parsedField);
     }
@@ -0,0 +1,272 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+
+package org.apache.james.mime4j.message;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import org.apache.james.mime4j.codec.Base64InputStream;
+import org.apache.james.mime4j.codec.DecodeMonitor;
+import org.apache.james.mime4j.codec.QuotedPrintableInputStream;
+import org.apache.james.mime4j.dom.BinaryBody;
+import org.apache.james.mime4j.dom.EncodedContent;
+import org.apache.james.mime4j.dom.SingleBody;
+import org.apache.james.mime4j.dom.TextBody;
+import org.apache.james.mime4j.io.InputStreams;
+import org.apache.james.mime4j.util.ContentUtil;
+import org.apache.james.mime4j.util.MimeUtil;
+
+/**
+ * Factory for bodies that reference the content of a message held entirely
+ * in memory (or in a mapped file) instead of copying it.
+ * <p>
+ * Bodies are created from the raw, still transfer encoded, content stream
+ * together with the offset of that content in the source buffer. The
+ * content is consumed only to find its length; decoding is deferred until
+ * {@link SingleBody#getInputStream()} is called, and bodies that are still
+ * encoded are written as is by {@link DefaultMessageWriter}, see
+ * {@link EncodedContent}. Content without a known offset is decoded and
+ * copied like {@link BasicBodyFactory} does.
+ * </p>
+ * <p>
+ * The source buffer must not be modified for as long as the bodies are in
+ * use. Instances of this class are not thread-safe.
+ * </p>
+ *
+ * @see DefaultMessageBuilder#parseMessage(ByteBuffer)
+ */
+public class SliceBodyFactory extends BasicBodyFactory {
+
+    private final ByteBuffer source;
+    private final DecodeMonitor monitor;
+
+    private byte[] tmpbuf;
+
+    /**
+     * @param source the buffer holding the parsed message; offsets are relative
+     *  to its current position.
+     * @param lenient whether unknown charsets fall back to the platform default.
+     * @param monitor monitor used when content is decoded.
+     */
+    public SliceBodyFactory(final ByteBuffer source, final boolean lenient, final DecodeMonitor monitor) {
+        super(lenient);
+        if (source == null) {
+            throw new IllegalArgumentException("Source buffer may not be null");
+        }
+        this.source = source.slice();
+        this.monitor = monitor != null ? monitor : DecodeMonitor.SILENT;
+    }
+
+    public SliceBodyFactory(final ByteBuffer source) {
+        this(source, true, null);
+    }
+
+    /**
+     * Creates a {@link BinaryBody} referencing the content at the given offset.
+     *
+     * @param raw the raw content stream; it is read to its end.
+     * @param offset offset of the content in the source buffer, or a negative
+     *  value if unknown.
+     * @param transferEncoding transfer encoding to undo on access, or
+     *  <code>null</code> to hand out the content as is.
+     */
+    public BinaryBody binaryBody(
+            final InputStream raw,
+            final long offset,
+            final String transferEncoding) throws IOException {
+        ByteBuffer slice = slice(raw, offset);
+        if (slice == null) {
+            return binaryBody(decode(raw, transferEncoding, monitor));
+        }
+        return new SliceBinaryBody(slice, transferEncoding, monitor);
+    }
+
+    /**
+     * Creates a {@link TextBody} referencing the content at the given offset.
+     *
+     * @param raw the raw content stream; it is read to its end.
+     * @param offset offset of the content in the source buffer, or a negative
+     *  value if unknown.
+     * @param transferEncoding transfer encoding to undo on access, or
+     *  <code>null</code> to hand out the content as is.
+     * @param mimeCharset name of a MIME charset.
+     */
+    public TextBody textBody(
+            final InputStream raw,
+            final long offset,
+            final String transferEncoding,
+            final String mimeCharset) throws IOException {
+        ByteBuffer slice = slice(raw, offset);
+        if (slice == null) {
+            return textBody(decode(raw, transferEncoding, monitor), mimeCharset);
+        }
+        return new SliceTextBody(slice, transferEncoding, monitor, resolveCharset(mimeCharset));
+    }
+
+    /**
+     * Reads the raw content to its end and returns the range of the source
+     * buffer it occupies, or <code>null</code> without reading anything if
+     * the offset is unknown.
+     */
+    ByteBuffer slice(final InputStream raw, final long offset) throws IOException {
+        if (offset < 0 || offset > source.limit()) {
+            return null;
+        }
+        if (tmpbuf == null) {
+            tmpbuf = new byte[4096];
+        }
+        long len = 0;
+        int l;
+        while ((l = raw.read(tmpbuf)) != -1) {
+            len += l;
+        }
+        if (offset + len > source.limit()) {
+            throw new IllegalStateException("Content at " + offset + " (" + len + ") exceeds the source buffer");
+        }
+        ByteBuffer dup = source.duplicate();
+        // Buffer casts keep the calls binary compatible with Java 8
+        ((Buffer) dup).limit((int) (offset + len));
+        ((Buffer) dup).position((int) offset);
+        return dup.slice();
+    }
+
+    static InputStream decode(final InputStream is, final String transferEncoding, final DecodeMonitor monitor) {
+        if (MimeUtil.isBase64Encoding(transferEncoding)) {
+            return new Base64InputStream(is, monitor);
+        } else if (MimeUtil.isQuotedPrintableEncoded(transferEncoding)) {
+            return new QuotedPrintableInputStream(is, monitor);
+        } else {
+            return is;
+        }
+    }
+
+    static void write(final ByteBuffer content, final OutputStream out) throws IOException {
+        if (content.hasArray()) {
+            out.write(content.array(), content.arrayOffset() + content.position(), content.remaining());
+        } else {
+            ContentUtil.copy(InputStreams.create(content.duplicate()), out);
+        }
+    }
+
+    static class SliceTextBody extends TextBody implements EncodedContent {
+
+        private final ByteBuffer content;
+        private final String transferEncoding;
+        private final DecodeMonitor monitor;
+        private final Charset charset;
+
+        SliceTextBody(
+                final ByteBuffer content,
+                final String transferEncoding,
+                final DecodeMonitor monitor,
+                final Charset charset) {
+            super();
+            this.content = content;
+            this.transferEncoding = transferEncoding;
+            this.monitor = monitor;
+            this.charset = charset;
+        }
+
+        @Override
+        public String getMimeCharset() {
+            return this.charset != null ? this.charset.name() : null;
+        }
+
+        @Override
+        public Reader getReader() throws IOException {
+            return new InputStreamReader(getInputStream(), this.charset);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return decode(InputStreams.create(this.content.duplicate()), this.transferEncoding, this.monitor);
+        }
+
+        @Override
+        public String getTransferEncoding() {
+            return this.transferEncoding;
+        }
+
+        @Override
+        public void writeEncodedTo(OutputStream out) throws IOException {
+            write(this.content, out);
+        }
+
+        @Override
+        public void dispose() {
+        }
+
+        @Override
+        public SingleBody copy() {
+            return new SliceTextBody(this.content, this.transferEncoding, this.monitor, this.charset);
+        }
+
+    }
+
+    static class SliceBinaryBody extends BinaryBody implements EncodedContent {
+
+        private final ByteBuffer content;
+        private final String transferEncoding;
+        private final DecodeMonitor monitor;
+
+        SliceBinaryBody(
+                final ByteBuffer content,
+                final String transferEncoding,
+                final DecodeMonitor monitor) {
+            super();
+            this.content = content;
+            this.transferEncoding = transferEncoding;
+            this.monitor = monitor;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return decode(InputStreams.create(this.content.duplicate()), this.transferEncoding, this.monitor);
+        }
+
+        @Override
+        public String getTransferEncoding() {
+            return this.transferEncoding;
+        }
+
+        @Override
+        public void writeEncodedTo(OutputStream out) throws IOException {
+            write(this.content, out);
+        }
+
+        @Override
+        public void dispose() {
+        }
+
+        @Override
+        public SingleBody copy() {
+            return new SliceBinaryBody(this.content, this.transferEncoding, this.monitor);
+        }
+
+    }
+
+}
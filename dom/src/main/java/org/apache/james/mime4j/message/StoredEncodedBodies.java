@@ -0,0 +1,149 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+
+package org.apache.james.mime4j.message;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.Charset;
+
+import org.apache.james.mime4j.Charsets;
+import org.apache.james.mime4j.codec.DecodeMonitor;
+import org.apache.james.mime4j.dom.BinaryBody;
+import org.apache.james.mime4j.dom.EncodedContent;
+import org.apache.james.mime4j.dom.SingleBody;
+import org.apache.james.mime4j.dom.TextBody;
+
+/**
+ * Bodies whose transfer encoded content is held by a body created by a
+ * {@link BodyFactory}, and decoded on access.
+ *
+ * @see DefaultMessageBuilder#setKeepEncodedContent(boolean)
+ */
+final class StoredEncodedBodies {
+
+    private StoredEncodedBodies() {
+    }
+
+    static class StoredTextBody extends TextBody implements EncodedContent {
+
+        private final TextBody stored;
+        private final String transferEncoding;
+        private final DecodeMonitor monitor;
+
+        /**
+         * @param stored the encoded content; its charset is the one of the decoded content.
+         */
+        StoredTextBody(
+                final TextBody stored,
+                final String transferEncoding,
+                final DecodeMonitor monitor) {
+            super();
+            this.stored = stored;
+            this.transferEncoding = transferEncoding;
+            this.monitor = monitor;
+        }
+
+        @Override
+        public String getMimeCharset() {
+            return this.stored.getMimeCharset();
+        }
+
+        @Override
+        public Reader getReader() throws IOException {
+            String mimeCharset = this.stored.getMimeCharset();
+            Charset charset = mimeCharset != null ? Charset.forName(mimeCharset) : Charsets.DEFAULT_CHARSET;
+            return new InputStreamReader(getInputStream(), charset);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return SliceBodyFactory.decode(this.stored.getInputStream(), this.transferEncoding, this.monitor);
+        }
+
+        @Override
+        public String getTransferEncoding() {
+            return this.transferEncoding;
+        }
+
+        @Override
+        public void writeEncodedTo(OutputStream out) throws IOException {
+            this.stored.writeTo(out);
+        }
+
+        @Override
+        public void dispose() {
+            this.stored.dispose();
+        }
+
+        @Override
+        public SingleBody copy() {
+            return new StoredTextBody((TextBody) this.stored.copy(), this.transferEncoding, this.monitor);
+        }
+
+    }
+
+    static class StoredBinaryBody extends BinaryBody implements EncodedContent {
+
+        private final BinaryBody stored;
+        private final String transferEncoding;
+        private final DecodeMonitor monitor;
+
+        StoredBinaryBody(
+                final BinaryBody stored,
+                final String transferEncoding,
+                final DecodeMonitor monitor) {
+            super();
+            this.stored = stored;
+            this.transferEncoding = transferEncoding;
+            this.monitor = monitor;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return SliceBodyFactory.decode(this.stored.getInputStream(), this.transferEncoding, this.monitor);
+        }
+
+        @Override
+        public String getTransferEncoding() {
+            return this.transferEncoding;
+        }
+
+        @Override
+        public void writeEncodedTo(OutputStream out) throws IOException {
+            this.stored.writeTo(out);
+        }
+
+        @Override
+        public void dispose() {
+            this.stored.dispose();
+        }
+
+        @Override
+        public SingleBody copy() {
+            return new StoredBinaryBody((BinaryBody) this.stored.copy(), this.transferEncoding, this.monitor);
+        }
+
+    }
+
+}
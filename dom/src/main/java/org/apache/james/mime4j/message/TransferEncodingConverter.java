@@ -0,0 +1,171 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.mime4j.message;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.james.mime4j.MimeIOException;
+import org.apache.james.mime4j.codec.DecodeMonitor;
+import org.apache.james.mime4j.field.Fields;
+import org.apache.james.mime4j.stream.BodyDescriptor;
+import org.apache.james.mime4j.stream.MimeConfig;
+import org.apache.james.mime4j.util.MimeUtil;
+
+/**
+ * Converts the transfer encoding of the parts of a message while copying
+ * it, without building a DOM.
+ * <p>
+ * {@link #downgrade()} encodes <code>8bit</code> and <code>binary</code>
+ * parts, text as <code>quoted-printable</code> and anything else as
+ * <code>base64</code>, for relaying to servers that do not support
+ * 8BITMIME (RFC 6152). Parts that are <code>7bit</code>, as declared or by
+ * default, are scanned and encoded as well if their content is not valid
+ * <code>7bit</code> data. Embedded messages are converted recursively.
+ * <p>
+ * {@link #upgrade()} decodes <code>quoted-printable</code> and
+ * <code>base64</code> parts to <code>binary</code>, for BINARYMIME
+ * (RFC 3030) transfers or IMAP BINARY (RFC 3516) clients. Embedded
+ * messages are copied as they are.
+ * <p>
+ * Parts that need no conversion are copied as they are. The conversion
+ * runs on a {@link MimeStreamRewriter}, so the memory it uses does not
+ * depend on the size of the message. The scan of <code>7bit</code> parts
+ * reads ahead at most {@link #limitScan(long) a limited number of bytes};
+ * larger parts are encoded like <code>8bit</code> parts.
+ */
+public class TransferEncodingConverter {
+
+    /**
+     * Default number of bytes of a <code>7bit</code> part scanned by
+     * {@link #downgrade()}.
+     */
+    public static final long DEFAULT_SCAN_LIMIT = 64 * 1024;
+
+    private final MimeStreamRewriter rewriter;
+    private long scanLimit = DEFAULT_SCAN_LIMIT;
+
+    /**
+     * Returns a converter producing <code>7bit</code> data.
+     */
+    public static TransferEncodingConverter downgrade() {
+        return new TransferEncodingConverter(true);
+    }
+
+    /**
+     * Returns a converter producing <code>binary</code> data.
+     */
+    public static TransferEncodingConverter upgrade() {
+        return new TransferEncodingConverter(false);
+    }
+
+    private TransferEncodingConverter(final boolean downgrade) {
+        this.rewriter = MimeStreamRewriter.create().addRule(new MimeStreamRewriter.Rule() {
+            public void apply(MimeStreamRewriter.Part part) throws IOException {
+                if (downgrade) {
+                    downgradePart(part);
+                } else {
+                    upgradePart(part);
+                }
+            }
+        });
+    }
+
+    /**
+     * Sets the number of bytes of a part declared or defaulting to
+     * <code>7bit</code> that {@link #downgrade()} reads ahead, and keeps in
+     * memory, to check that its content is valid <code>7bit</code> data.
+     * Larger parts are encoded like <code>8bit</code> parts.
+     *
+     * @see MimeStreamRewriter.Part#is7bit(long)
+     */
+    public TransferEncodingConverter limitScan(final long size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Scan limit may not be negative");
+        }
+        this.scanLimit = size;
+        return this;
+    }
+
+    public TransferEncodingConverter use(final MimeConfig config) {
+        rewriter.use(config);
+        return this;
+    }
+
+    public TransferEncodingConverter use(final DecodeMonitor monitor) {
+        rewriter.use(monitor);
+        return this;
+    }
+
+    /**
+     * Reads a message from the given stream and writes it, converted, to
+     * the given stream.
+     *
+     * @throws IOException
+     *             if an I/O error occurs.
+     * @throws MimeIOException
+     *             if the message cannot be parsed.
+     */
+    public void convert(InputStream in, OutputStream out) throws IOException {
+        rewriter.rewrite(in, out);
+    }
+
+    private void downgradePart(MimeStreamRewriter.Part part) throws IOException {
+        BodyDescriptor descriptor = part.getBodyDescriptor();
+        String encoding = descriptor.getTransferEncoding();
+        if (MimeUtil.ENC_7BIT.equalsIgnoreCase(encoding)) {
+            // the declared or default encoding may not match the content
+            if (part.isMultipart()) {
+                return;
+            } else if (MimeUtil.isMessage(descriptor.getMimeType())) {
+                part.rewriteMessage(rewriter);
+                return;
+            } else if (part.is7bit(scanLimit)) {
+                return;
+            }
+        } else if (!MimeUtil.ENC_8BIT.equalsIgnoreCase(encoding) && !MimeUtil.ENC_BINARY.equalsIgnoreCase(encoding)) {
+            return;
+        }
+        if (part.isMultipart()) {
+            // the body parts are converted one by one
+            part.setField(Fields.contentTransferEncoding(MimeUtil.ENC_7BIT));
+        } else if (MimeUtil.isMessage(descriptor.getMimeType())) {
+            // messages may not be encoded, their parts are
+            part.rewriteMessage(rewriter);
+            part.setField(Fields.contentTransferEncoding(MimeUtil.ENC_7BIT));
+        } else if (descriptor.getMimeType().startsWith("text/")) {
+            part.setTransferEncoding(MimeUtil.ENC_QUOTED_PRINTABLE);
+        } else {
+            part.setTransferEncoding(MimeUtil.ENC_BASE64);
+        }
+    }
+
+    private void upgradePart(MimeStreamRewriter.Part part) {
+        if (part.isMultipart()) {
+            return;
+        }
+        String encoding = part.getBodyDescriptor().getTransferEncoding();
+        if (MimeUtil.isBase64Encoding(encoding) || MimeUtil.isQuotedPrintableEncoded(encoding)) {
+            part.setTransferEncoding(MimeUtil.ENC_BINARY);
+        }
+    }
+
+}
@@ -0,0 +1,133 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+
+package org.apache.james.mime4j.field;
+
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.util.Date;
+
+import org.apache.james.mime4j.codec.DecodeMonitor;
+import org.apache.james.mime4j.dom.FieldParser;
+import org.apache.james.mime4j.dom.field.DateTimeField;
+import org.apache.james.mime4j.field.datetime.parser.DateTimeParser;
+import org.apache.james.mime4j.stream.RawField;
+import org.apache.james.mime4j.stream.RawFieldParser;
+import org.apache.james.mime4j.util.ContentUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DateTimeUtilTest {
+
+    private static long grammar(String s) throws Exception {
+        return new DateTimeParser(new StringReader(s)).parseAll().getDate().getTime();
+    }
+
+    @Test
+    public void testMatchesGrammarBasedParser() throws Exception {
+        String[] values = {
+                "Fri, 21 Nov 1997 09:55:06 -0600",
+                "Fri, 21 Nov 97 09:55:06 -0600",
+                "Fri, 21 Nov 097 09:55:06 -0600",
+                "21 Nov 1997 09:55:06 -0600",
+                "Fri, 21 Nov 1997 19:25:06 +0330",
+                "Thu, 16 Sep 19 14:37:22 -0000",
+                "Thu, 16 Sep 2019 14:37:22 UT",
+                "Fri, 21 Nov 1997 07:00:00 EST",
+                "Fri, 21 Nov 1997 05:00:00 PDT",
+                "Fri, 21 Nov 1997 12:00:00 A",
+                "Fri, 21 Nov 1997 12:00:00 z",
+                "Sun, 13 May 1917 14:18:52Z",
+                "Wed, 13 May 87 14:18:52Z",
+                "Thu, 29 Feb 2024 23:59 +0100",
+                "  Fri (comment), 21 (nested (comment)) Nov 1997 09:55:06 GMT (tail)  "
+        };
+        for (String value : values) {
+            Assert.assertEquals(value, grammar(value), DateTimeUtil.parse(value, true));
+        }
+    }
+
+    @Test
+    public void testStrictRejectsInvalidValues() throws Exception {
+        String[] values = {
+                "",
+                "Fri 21 Nov 1997 09:55:06 -0600",
+                "Fri, 21 nov 1997 09:55:06 -0600",
+                "Fri, 21 Nov 1997 09:55:06",
+                "Fri, 21 Nov 1997 09:55:06.123 -0600",
+                "Fri, 21 Nov 1997 09:55:06 -0600 garbage",
+                "Fri, 21 Nov 1997 09:55:06 (unterminated",
+                "Fri, 21 November 1997 09:55:06 -0600"
+        };
+        for (String value : values) {
+            Assert.assertEquals(value, DateTimeUtil.INVALID, DateTimeUtil.parse(value, true));
+        }
+    }
+
+    @Test
+    public void testLenient() throws Exception {
+        Assert.assertEquals(1342563815882L, DateTimeUtil.parse("Tue, 17 Jul 2012 22:23:35.882 0000", false));
+        Assert.assertEquals(1216221153000L, DateTimeUtil.parse("wed 16 JUL 2008 17:12:33 +0200 (PDT)", false));
+        Assert.assertEquals(1216228353000L, DateTimeUtil.parse("16 Jul 2008 17:12:33", false));
+        Assert.assertEquals(1216246353000L, DateTimeUtil.parse("16 Jul 2008 17:12:33 EST", false));
+        Assert.assertEquals(DateTimeUtil.INVALID, DateTimeUtil.parse("16 Jul 2008", false));
+    }
+
+    @Test
+    public void testDayOutOfRangeFallsBack() throws Exception {
+        Assert.assertEquals(DateTimeUtil.INVALID, DateTimeUtil.parse("Sat, 31 Feb 2024 10:00:00 +0000", true));
+        Assert.assertEquals(DateTimeUtil.INVALID, DateTimeUtil.parse("31 Apr 2024 10:00:00 +0000", false));
+        Assert.assertEquals(DateTimeUtil.INVALID, DateTimeUtil.parse("29 Feb 2100 10:00:00 +0000", true));
+        Assert.assertEquals(grammar("29 Feb 2000 10:00:00 +0000"), DateTimeUtil.parse("29 Feb 2000 10:00:00 +0000", true));
+
+        // the grammar based parser decides, as it did before the fast path
+        String value = "Sat, 31 Feb 2024 10:00:00 +0000";
+        Assert.assertEquals(grammar(value), date(value, DateTimeFieldImpl.PARSER).getTime());
+    }
+
+    @Test
+    public void testTrailingTextFallsBack() throws Exception {
+        String value = "wed 16 JUL 2008 17:12:33 +0200 (PDT), junk";
+        Assert.assertEquals(DateTimeUtil.INVALID, DateTimeUtil.parse(value, false));
+        Assert.assertNull(date(value, DateTimeFieldLenientImpl.PARSER));
+        Assert.assertEquals(DateTimeUtil.INVALID, DateTimeUtil.parse("16 Jul 2008 17:12:33 EST junk", false));
+    }
+
+    private static Date date(String value, FieldParser<DateTimeField> parser) {
+        return parser.parse(new RawField("Date", value), DecodeMonitor.SILENT).getDate();
+    }
+
+    @Test
+    public void testParseRawBytes() throws Exception {
+        RawField field = RawFieldParser.DEFAULT.parseField(
+                ContentUtil.encode("Date: Fri, 21 Nov 1997\r\n 09:55:06 -0600"));
+        Assert.assertEquals(grammar("Fri, 21 Nov 1997 09:55:06 -0600"), DateTimeUtil.parse(field, true));
+        Assert.assertEquals(grammar("Fri, 21 Nov 1997 09:55:06 -0600"), DateTimeUtil.parse(field, false));
+    }
+
+    @Test
+    public void testToEpochDay() throws Exception {
+        Assert.assertEquals(0L, DateTimeUtil.toEpochDay(1970, 1, 1));
+        Assert.assertEquals(-1L, DateTimeUtil.toEpochDay(1969, 12, 31));
+        Assert.assertEquals(11016L, DateTimeUtil.toEpochDay(2000, 2, 29));
+        Assert.assertEquals(LocalDate.of(2100, 3, 1).toEpochDay(), DateTimeUtil.toEpochDay(2100, 3, 1));
+    }
+
+}
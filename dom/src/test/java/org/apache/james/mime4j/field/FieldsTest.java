@@ -409,6 +409,38 @@ public class FieldsTest {
         }
     }
 
+    @Test
+    public void testDirectlyConstructedFieldsMatchParsedFields() throws Exception {
+        Mailbox mailbox = new Mailbox("J\u00f6rg Doe", "jdoe", "example.org");
+        MailboxListField from = Fields.from(mailbox);
+        Assert.assertNull(from.getRaw());
+        Assert.assertSame(mailbox, from.getMailboxList().get(0));
+
+        MailboxListField reparsed = MailboxListFieldImpl.PARSER.parse(
+                from, null);
+        Assert.assertEquals(reparsed.getMailboxList().get(0).getName(),
+                from.getMailboxList().get(0).getName());
+
+        Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put("Charset", "UTF-8");
+        ContentTypeField contentType = Fields.contentType("Text/Plain", parameters);
+        ContentTypeField parsedContentType = Fields.contentType(contentType.getBody());
+        Assert.assertEquals(parsedContentType.getMimeType(), contentType.getMimeType());
+        Assert.assertEquals(parsedContentType.getMediaType(), contentType.getMediaType());
+        Assert.assertEquals(parsedContentType.getParameters(), contentType.getParameters());
+        Assert.assertEquals("UTF-8", contentType.getCharset());
+    }
+
+    @Test
+    public void testDirectlyConstructedDateHasSecondResolution() throws Exception {
+        DateTimeField field = Fields.date("Date", new Date(1234567),
+                TimeZone.getTimeZone("GMT"));
+        Assert.assertEquals(new Date(1234000), field.getDate());
+        Assert.assertEquals("Date: Thu, 1 Jan 1970 00:20:34 +0000", decode(field));
+        Assert.assertEquals(field.getDate(), DateTimeFieldImpl.PARSER.parse(
+                field, null).getDate());
+    }
+
     public static String decode(Field f) throws IOException {
         String s = null;
         ByteSequence raw = f.getRaw();
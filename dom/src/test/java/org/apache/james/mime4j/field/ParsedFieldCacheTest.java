@@ -0,0 +1,160 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+
+package org.apache.james.mime4j.field;
+
+import java.io.ByteArrayInputStream;
+
+import org.apache.james.mime4j.codec.DecodeMonitor;
+import org.apache.james.mime4j.dom.FieldParser;
+import org.apache.james.mime4j.dom.Message;
+import org.apache.james.mime4j.dom.field.ContentDispositionField;
+import org.apache.james.mime4j.dom.field.DateTimeField;
+import org.apache.james.mime4j.dom.field.ParsedField;
+import org.apache.james.mime4j.message.DefaultMessageBuilder;
+import org.apache.james.mime4j.stream.Field;
+import org.apache.james.mime4j.stream.RawField;
+import org.apache.james.mime4j.stream.RawFieldParser;
+import org.apache.james.mime4j.util.ByteArrayBuffer;
+import org.apache.james.mime4j.util.ContentUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ParsedFieldCacheTest {
+
+    private static RawField raw(String s) throws Exception {
+        return RawFieldParser.DEFAULT.parseField(ContentUtil.encode(s));
+    }
+
+    @Test
+    public void testIdenticalFieldsAreShared() throws Exception {
+        ParsedFieldCache cache = new ParsedFieldCache(10);
+        CachingFieldParser parser = new CachingFieldParser(LenientFieldParser.getParser(), cache);
+
+        ParsedField f1 = parser.parse(raw("Date: Fri, 21 Nov 1997 09:55:06 -0600"), DecodeMonitor.SILENT);
+        ParsedField f2 = parser.parse(raw("Date: Fri, 21 Nov 1997 09:55:06 -0600"), DecodeMonitor.SILENT);
+        ParsedField f3 = parser.parse(raw("Date: Fri, 21 Nov 1997 09:55:07 -0600"), DecodeMonitor.SILENT);
+
+        Assert.assertSame(f1, f2);
+        Assert.assertNotSame(f1, f3);
+        Assert.assertEquals(880127706000L, ((DateTimeField) f2).getDate().getTime());
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(2, cache.getMissCount());
+        Assert.assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testSharedDatesCannotBeModified() throws Exception {
+        ParsedFieldCache cache = new ParsedFieldCache(10);
+        CachingFieldParser parser = new CachingFieldParser(LenientFieldParser.getParser(), cache);
+        DefaultMessageBuilder builder = new DefaultMessageBuilder();
+        builder.setFieldParser(parser);
+        byte[] bytes = ("Date: Fri, 21 Nov 1997 09:55:06 -0600\r\n"
+                + "Content-Disposition: attachment; creation-date=\"Fri, 21 Nov 1997 09:55:06 -0600\"\r\n"
+                + "\r\nbody").getBytes("US-ASCII");
+
+        Message m1 = builder.parseMessage(new ByteArrayInputStream(bytes));
+        Message m2 = builder.parseMessage(new ByteArrayInputStream(bytes));
+        Assert.assertSame(m1.getHeader().getField("Date"), m2.getHeader().getField("Date"));
+
+        m1.getDate().setTime(0);
+        ((ContentDispositionField) m1.getHeader().getField("Content-Disposition")).getCreationDate().setTime(0);
+        Assert.assertEquals(880127706000L, m2.getDate().getTime());
+        Assert.assertEquals(880127706000L, ((ContentDispositionField) m2.getHeader()
+                .getField("Content-Disposition")).getCreationDate().getTime());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedFieldIsEvicted() throws Exception {
+        ParsedFieldCache cache = new ParsedFieldCache(1);
+        CachingFieldParser parser = new CachingFieldParser(LenientFieldParser.getParser(), cache);
+
+        ParsedField a = parser.parse(raw("Subject: a"), DecodeMonitor.SILENT);
+        parser.parse(raw("Subject: b"), DecodeMonitor.SILENT);
+        Assert.assertEquals(1, cache.size());
+        Assert.assertNotSame(a, parser.parse(raw("Subject: a"), DecodeMonitor.SILENT));
+        Assert.assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    public void testParserAndMonitorArePartOfTheKey() throws Exception {
+        ParsedFieldCache cache = new ParsedFieldCache(10);
+        CachingFieldParser lenient = new CachingFieldParser(LenientFieldParser.getParser(), cache);
+        CachingFieldParser strict = new CachingFieldParser(DefaultFieldParser.getParser(), cache);
+
+        ParsedField f1 = lenient.parse(raw("Subject: a"), DecodeMonitor.SILENT);
+        Assert.assertNotSame(f1, strict.parse(raw("Subject: a"), DecodeMonitor.SILENT));
+        Assert.assertNotSame(f1, lenient.parse(raw("Subject: a"), DecodeMonitor.STRICT));
+        Assert.assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    public void testLongAndUnknownFieldsAreNotCached() throws Exception {
+        ParsedFieldCache cache = new ParsedFieldCache(10, 16);
+        FieldParser<ParsedField> custom = new FieldParser<ParsedField>() {
+            public ParsedField parse(Field rawField, DecodeMonitor monitor) {
+                return new AbstractField(rawField, monitor) {
+                };
+            }
+        };
+        new CachingFieldParser(LenientFieldParser.getParser(), cache).parse(
+                raw("Subject: a rather long subject"), DecodeMonitor.SILENT);
+        new CachingFieldParser(custom, cache).parse(raw("X-Custom: a"), DecodeMonitor.SILENT);
+        Assert.assertEquals(0, cache.size());
+        // fields without raw bytes are not cached either
+        new CachingFieldParser(LenientFieldParser.getParser(), cache).parse(
+                new RawField("Subject", "a"), DecodeMonitor.SILENT);
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testEntriesDoNotDependOnTheSourceBuffer() throws Exception {
+        ParsedFieldCache cache = new ParsedFieldCache(10);
+        CachingFieldParser parser = new CachingFieldParser(LenientFieldParser.getParser(), cache);
+
+        byte[] buffer = "Subject: a".getBytes("US-ASCII");
+        ParsedField f1 = parser.parse(
+                RawFieldParser.DEFAULT.parseField(new ByteArrayBuffer(buffer, true)), DecodeMonitor.SILENT);
+        Assert.assertNotSame(buffer, ((ByteArrayBuffer) f1.getRaw()).buffer());
+
+        // the buffer is reused for another field
+        buffer[buffer.length - 1] = 'b';
+        ParsedField f2 = parser.parse(
+                RawFieldParser.DEFAULT.parseField(new ByteArrayBuffer(buffer, true)), DecodeMonitor.SILENT);
+        Assert.assertNotSame(f1, f2);
+        Assert.assertEquals("a", f1.getBody());
+        Assert.assertEquals("b", f2.getBody());
+        Assert.assertSame(f1, parser.parse(raw("Subject: a"), DecodeMonitor.SILENT));
+        Assert.assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void testClear() throws Exception {
+        ParsedFieldCache cache = new ParsedFieldCache(10);
+        CachingFieldParser parser = new CachingFieldParser(LenientFieldParser.getParser(), cache);
+        parser.parse(raw("Subject: a"), DecodeMonitor.SILENT);
+        parser.parse(raw("Subject: a"), DecodeMonitor.SILENT);
+        cache.clear();
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(0, cache.getHitCount());
+        Assert.assertEquals(0.0, cache.getHitRate(), 0.0);
+    }
+
+}
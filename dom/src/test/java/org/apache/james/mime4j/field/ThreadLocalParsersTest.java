@@ -0,0 +1,73 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+
+package org.apache.james.mime4j.field;
+
+import org.apache.james.mime4j.field.contenttype.parser.ContentTypeParser;
+import org.apache.james.mime4j.field.language.parser.ContentLanguageParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ThreadLocalParsersTest {
+
+    @Test
+    public void testParserIsReusedWithoutStaleResults() throws Exception {
+        ContentTypeParser parser = ThreadLocalParsers.contentTypeParser("text/plain; charset=utf-8");
+        parser.parseAll();
+        Assert.assertEquals("plain", parser.getSubType());
+        Assert.assertEquals(1, parser.getParamNames().size());
+
+        ContentTypeParser reused = ThreadLocalParsers.contentTypeParser("image/png");
+        Assert.assertSame(parser, reused);
+        reused.parseAll();
+        Assert.assertEquals("image", reused.getType());
+        Assert.assertEquals("png", reused.getSubType());
+        Assert.assertEquals(0, reused.getParamNames().size());
+        Assert.assertEquals(0, reused.getParamValues().size());
+    }
+
+    @Test
+    public void testParserIsReusedAfterFailure() throws Exception {
+        ContentLanguageParser parser = ThreadLocalParsers.contentLanguageParser("en, (unterminated");
+        try {
+            parser.parse();
+            Assert.fail();
+        } catch (org.apache.james.mime4j.field.language.parser.ParseException expected) {
+        }
+        parser = ThreadLocalParsers.contentLanguageParser("de, fr");
+        Assert.assertEquals(2, parser.parse().size());
+    }
+
+    @Test
+    public void testEachThreadHasItsOwnParser() throws Exception {
+        final ContentTypeParser[] other = new ContentTypeParser[1];
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                other[0] = ThreadLocalParsers.contentTypeParser("text/plain");
+            }
+        };
+        thread.start();
+        thread.join();
+        Assert.assertNotNull(other[0]);
+        Assert.assertNotSame(other[0], ThreadLocalParsers.contentTypeParser("text/plain"));
+    }
+
+}
@@ -0,0 +1,141 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+
+package org.apache.james.mime4j.field.address;
+
+import java.io.StringReader;
+
+import org.apache.james.mime4j.codec.DecodeMonitor;
+import org.apache.james.mime4j.dom.address.Address;
+import org.apache.james.mime4j.dom.address.AddressList;
+import org.apache.james.mime4j.dom.address.Group;
+import org.apache.james.mime4j.dom.address.Mailbox;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AddressScannerTest {
+
+    private static final String[] VALID = {
+            "",
+            "  \t  ,  , , ,,, , \t ",
+            "foo@example.com, bar@example.com, third@example.com",
+            "John Doe <jdoe@machine(comment).  example>",
+            "Mary Smith \t    \t\t  <mary@example.net>",
+            "undisclosed-recipients:;",
+            "\"a b c d e f g\" (comment) @example.net",
+            "dev : one@example.com, two@example.com; , ,,, marketing:three@example.com ,four@example.com;, five@example.com",
+            "\"George, Ted\" <Shared@Group.Arpanet>",
+            "\":sysmail\"@  Some-Group.\t         Some-Org, Muhammed.(I am  the greatest) Ali @(the)Vegas.WBA",
+            "me@home.com (comment (nested (deeply\\))))",
+            "mailing list: me@home.com, route two <you@work.com>, them@play.com ;",
+            "Pete(A nice \\) chap) <pete(his account)@silly.test(his host)>",
+            "\"Joe Q. Public\" <john.q.public@example.com>, <boss@nil.test>, \"Giant; \\\"Big\\\" Box\" <sysservices@example.net>",
+            "=?ISO-8859-1?Q?Keld_J=F8rn_Simonsen?= <keld@dkuug.dk>",
+            "John (middle) Q. \"Public\" <jqp@example.com>",
+            "<@route1.test,@route2.test:user@example.com>",
+            "name <@a.test, ,@b.test:user@example.com>",
+            "\"quoted\".local@example.com",
+            "a. b@example.com",
+            "user@sub. example.com"
+    };
+
+    private static final String[] INVALID = {
+            ")",
+            "a b@example.com",
+            "a@example.com <b@example.com>",
+            "<@route1.test,:user@example.com>",
+            "group: a@example.com",
+            "John Doe <jdoe@example.com",
+            "\"unterminated@example.com",
+            "(unterminated comment"
+    };
+
+    private static String describe(Address address) {
+        if (address instanceof Group) {
+            Group group = (Group) address;
+            StringBuilder sb = new StringBuilder();
+            sb.append("group[").append(group.getName()).append(']');
+            for (Mailbox mailbox : group.getMailboxes()) {
+                sb.append(describe(mailbox));
+            }
+            return sb.toString();
+        }
+        Mailbox mailbox = (Mailbox) address;
+        return "mailbox[" + mailbox.getName() + "|" + mailbox.getRoute() + "|"
+                + mailbox.getLocalPart() + "|" + mailbox.getDomain() + "]";
+    }
+
+    private static String describe(AddressList list) {
+        StringBuilder sb = new StringBuilder();
+        for (Address address : list) {
+            sb.append(describe(address));
+        }
+        return sb.toString();
+    }
+
+    private static AddressList parseWithGrammar(String text) throws ParseException {
+        AddressListParser parser = new AddressListParser(new StringReader(text));
+        return Builder.getInstance().buildAddressList(parser.parseAddressList(), DecodeMonitor.STRICT);
+    }
+
+    @Test
+    public void testMatchesGrammarBasedParser() throws Exception {
+        for (String text : VALID) {
+            AddressList list = AddressScanner.parseAddressList(text, DecodeMonitor.STRICT);
+            Assert.assertNotNull(text, list);
+            Assert.assertEquals(text, describe(parseWithGrammar(text)), describe(list));
+        }
+    }
+
+    @Test
+    public void testLeavesInvalidInputToGrammarBasedParser() throws Exception {
+        for (String text : INVALID) {
+            Assert.assertNull(text, AddressScanner.parseAddressList(text, DecodeMonitor.STRICT));
+            try {
+                DefaultAddressParser.DEFAULT.parseAddressList(text);
+                Assert.fail(text);
+            } catch (ParseException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void testDomainLiteralIsLeftToGrammarBasedParser() throws Exception {
+        Assert.assertNull(AddressScanner.parseAddressList("user@[127.0.0.1]", DecodeMonitor.STRICT));
+        AddressList list = DefaultAddressParser.DEFAULT.parseAddressList("user@[127.0.0.1]");
+        Assert.assertEquals("[127.0.0.1]", ((Mailbox) list.get(0)).getDomain());
+    }
+
+    @Test
+    public void testParseMailbox() throws Exception {
+        Mailbox mailbox = AddressScanner.parseMailbox(" John Doe <jdoe@example.com> ", DecodeMonitor.STRICT);
+        Assert.assertEquals("John Doe", mailbox.getName());
+        Assert.assertEquals("jdoe@example.com", mailbox.getAddress());
+        Assert.assertNull(AddressScanner.parseMailbox("group:;", DecodeMonitor.STRICT));
+        Assert.assertNull(AddressScanner.parseMailbox("a@example.com, b@example.com", DecodeMonitor.STRICT));
+    }
+
+    @Test
+    public void testParseAddress() throws Exception {
+        Address address = AddressScanner.parseAddress("group: a@example.com, B <b@example.com>;", DecodeMonitor.STRICT);
+        Assert.assertEquals("group[group]mailbox[null||a|example.com]mailbox[B||b|example.com]", describe(address));
+    }
+
+}
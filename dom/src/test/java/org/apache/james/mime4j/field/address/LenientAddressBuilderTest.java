@@ -27,6 +27,7 @@ import org.apache.james.mime4j.dom.address.Mailbox;
 import org.apache.james.mime4j.dom.address.MailboxList;
 import org.apache.james.mime4j.stream.ParserCursor;
 import org.apache.james.mime4j.stream.RawFieldParser;
+import org.apache.james.mime4j.util.AsciiByteSequenceView;
 import org.apache.james.mime4j.util.ByteSequence;
 import org.apache.james.mime4j.util.ContentUtil;
 import org.junit.Assert;
@@ -474,4 +475,23 @@ public class LenientAddressBuilderTest {
 
     }
 
+    @Test
+    public void testParseAddressListOverByteView() throws Exception {
+        String value = "John Doe <jdoe@machine.example>, Mary Smith <mary@example.net>";
+        ByteSequence raw = ContentUtil.encode("To: " + value);
+        AddressList expected = parser.parseAddressList(value);
+        AddressList actual = parser.parseAddressList(
+                new AsciiByteSequenceView(raw, 4, value.length()));
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals(((Mailbox) expected.get(i)).getName(), ((Mailbox) actual.get(i)).getName());
+            Assert.assertEquals(((Mailbox) expected.get(i)).getAddress(), ((Mailbox) actual.get(i)).getAddress());
+        }
+
+        Mailbox mailbox = parser.parseMailbox(AsciiByteSequenceView.unfold(
+                ContentUtil.encode("John\r\n Doe <jdoe@machine.example>"), 0, 33));
+        Assert.assertEquals("John Doe", mailbox.getName());
+        Assert.assertEquals("jdoe@machine.example", mailbox.getAddress());
+    }
+
 }
@@ -0,0 +1,531 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+
+package org.apache.james.mime4j.message;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.james.mime4j.MimeIOException;
+import org.apache.james.mime4j.codec.DecodeMonitor;
+import org.apache.james.mime4j.dom.BinaryBody;
+import org.apache.james.mime4j.dom.Entity;
+import org.apache.james.mime4j.dom.FieldParser;
+import org.apache.james.mime4j.dom.Header;
+import org.apache.james.mime4j.dom.Message;
+import org.apache.james.mime4j.dom.Multipart;
+import org.apache.james.mime4j.dom.TextBody;
+import org.apache.james.mime4j.dom.field.AddressListField;
+import org.apache.james.mime4j.dom.field.ContentTypeField;
+import org.apache.james.mime4j.dom.field.MailboxListField;
+import org.apache.james.mime4j.dom.field.ParsedField;
+import org.apache.james.mime4j.field.Fields;
+import org.apache.james.mime4j.field.LenientFieldParser;
+import org.apache.james.mime4j.field.ParsedFieldCache;
+import org.apache.james.mime4j.stream.Field;
+import org.apache.james.mime4j.stream.MimeConfig;
+import org.apache.james.mime4j.util.ContentUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DefaultMessageBuilderTest {
+
+    private static final String MESSAGE =
+            "Received: from foo by bar for james\r\n" +
+            "From: John Doe <jdoe@machine.example>\r\n" +
+            "To: Mary Smith <mary@example.net>, bob@example.net\r\n" +
+            "Subject: Saying Hello\r\n" +
+            "Date: Fri, 21 Nov 1997 09:55:06 -0600\r\n" +
+            "MIME-Version: 1.0\r\n" +
+            "Content-Type: multipart/mixed; boundary=\"xyz\"\r\n" +
+            "\r\n" +
+            "--xyz\r\n" +
+            "Content-Type: text/plain; charset=UTF-8\r\n" +
+            "X-Custom: some value\r\n" +
+            "\r\n" +
+            "This is a message just to say hello.\r\n" +
+            "--xyz--\r\n";
+
+    private static Message parse(DefaultMessageBuilder builder) throws Exception {
+        return builder.parseMessage(new ByteArrayInputStream(MESSAGE.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    public void testLazyFieldParsing() throws Exception {
+        DefaultMessageBuilder builder = new DefaultMessageBuilder();
+        builder.setLazyFieldParsing(true);
+        Message message = parse(builder);
+
+        Header header = message.getHeader();
+        Assert.assertEquals(7, header.getFields().size());
+        Assert.assertFalse(header.getFields().get(1) instanceof ParsedField);
+        Assert.assertTrue(header.getFields().get(6) instanceof ContentTypeField);
+
+        Assert.assertEquals("Saying Hello", message.getSubject());
+        Assert.assertEquals("jdoe@machine.example", message.getFrom().get(0).getAddress());
+        Assert.assertEquals(2, message.getTo().size());
+        Assert.assertNotNull(message.getDate());
+
+        Field from = header.getFields().get(1);
+        Assert.assertTrue(from instanceof ParsedField);
+        Assert.assertSame(from, header.getField("from"));
+        Assert.assertNotNull(header.getField("To", AddressListField.class));
+        Assert.assertEquals(1, header.getFields("received", ParsedField.class).size());
+
+        Multipart multipart = (Multipart) message.getBody();
+        Entity part = multipart.getBodyParts().get(0);
+        Assert.assertEquals("text/plain", part.getMimeType());
+        Assert.assertEquals("UTF-8", part.getCharset());
+        Assert.assertFalse(part.getHeader().getFields().get(1) instanceof ParsedField);
+        Assert.assertEquals("some value", part.getHeader().getField("X-Custom").getBody());
+    }
+
+    @Test
+    public void testLazyFieldParsingCopy() throws Exception {
+        DefaultMessageBuilder builder = new DefaultMessageBuilder();
+        builder.setLazyFieldParsing(true);
+        Message message = builder.copy(parse(builder));
+
+        Assert.assertEquals("Saying Hello", message.getSubject());
+        Assert.assertEquals("jdoe@machine.example", message.getFrom().get(0).getAddress());
+
+        Message copy = Message.Builder.of(message).build();
+        Assert.assertEquals(2, copy.getTo().size());
+        for (Field field : copy.getHeader()) {
+            Assert.assertTrue(field instanceof ParsedField);
+        }
+    }
+
+    @Test
+    public void testEagerFieldParsing() throws Exception {
+        Message message = parse(new DefaultMessageBuilder());
+        for (Field field : message.getHeader()) {
+            Assert.assertTrue(field instanceof ParsedField);
+        }
+    }
+
+    @Test
+    public void testEachFieldIsParsedOnce() throws Exception {
+        final Map<String, Integer> counts = new HashMap<String, Integer>();
+        DefaultMessageBuilder builder = new DefaultMessageBuilder();
+        builder.setFieldParser(new FieldParser<ParsedField>() {
+            public ParsedField parse(Field rawField, DecodeMonitor monitor) {
+                String name = rawField.getName().toLowerCase();
+                counts.put(name, counts.containsKey(name) ? counts.get(name) + 1 : 1);
+                return LenientFieldParser.getParser().parse(rawField, monitor);
+            }
+        });
+        Message message = parse(builder);
+        message.getSubject();
+        message.getMimeType();
+        ((Multipart) message.getBody()).getBodyParts().get(0).getCharset();
+
+        Assert.assertEquals(Integer.valueOf(2), counts.get("content-type"));
+        Assert.assertEquals(Integer.valueOf(1), counts.get("subject"));
+        Assert.assertEquals(Integer.valueOf(1), counts.get("mime-version"));
+
+        counts.clear();
+        builder.parseHeader(new ByteArrayInputStream(MESSAGE.getBytes(StandardCharsets.US_ASCII)));
+        Assert.assertEquals(Integer.valueOf(1), counts.get("content-type"));
+        Assert.assertEquals(Integer.valueOf(1), counts.get("from"));
+    }
+
+    @Test
+    public void testFieldCacheSharesFieldsBetweenMessages() throws Exception {
+        ParsedFieldCache cache = new ParsedFieldCache(100);
+        DefaultMessageBuilder builder = new DefaultMessageBuilder();
+        builder.setFieldCache(cache);
+        Message message1 = parse(builder);
+        Message message2 = parse(builder);
+
+        Field from1 = message1.getHeader().getField("From");
+        Field from2 = message2.getHeader().getField("From");
+        Assert.assertTrue(from1 instanceof MailboxListField);
+        Assert.assertSame(from1, from2);
+        Assert.assertSame(message1.getHeader().getField("Content-Type"),
+                message2.getHeader().getField("Content-Type"));
+        Assert.assertEquals("jdoe@machine.example", message2.getFrom().get(0).getAddress());
+        // one miss for every field of the first message, one hit for every field of the second one
+        Assert.assertEquals(9, cache.getMissCount());
+        Assert.assertEquals(9, cache.getHitCount());
+        Assert.assertEquals(0.5, cache.getHitRate(), 0.0);
+    }
+
+    @Test
+    public void testFieldCacheFromServiceFactory() throws Exception {
+        ParsedFieldCache cache = new ParsedFieldCache(100);
+        MessageServiceFactoryImpl factory = new MessageServiceFactoryImpl();
+        factory.setAttribute("ParsedFieldCache", cache);
+        DefaultMessageBuilder builder = (DefaultMessageBuilder) factory.newMessageBuilder();
+        parse(builder);
+        Assert.assertEquals(9, cache.size());
+    }
+
+    @Test
+    public void testFlyweightFields() throws Exception {
+        DefaultMessageBuilder builder = new DefaultMessageBuilder();
+        builder.setMimeEntityConfig(MimeConfig.custom().setFlyweightFields(true).build());
+        for (boolean lazy : new boolean[] { false, true }) {
+            builder.setLazyFieldParsing(lazy);
+            Message message = parse(builder);
+            Message expected = parse(new DefaultMessageBuilder());
+
+            List<Field> fields = message.getHeader().getFields();
+            Assert.assertEquals(expected.getHeader().getFields().size(), fields.size());
+            for (int i = 0; i < fields.size(); i++) {
+                Field field = fields.get(i);
+                Assert.assertEquals(expected.getHeader().getFields().get(i).getBody(), field.getBody());
+                Assert.assertNotSame(field, fields.get((i + 1) % fields.size()));
+            }
+            Assert.assertEquals("Saying Hello", message.getSubject());
+            Entity part = ((Multipart) message.getBody()).getBodyParts().get(0);
+            Assert.assertEquals("UTF-8", part.getCharset());
+            Assert.assertEquals("some value", part.getHeader().getField("X-Custom").getBody());
+        }
+    }
+
+    @Test
+    public void testParseMessageFromBuffer() throws Exception {
+        String msg = "Subject: slices\r\n" +
+                "Content-Type: multipart/mixed; boundary=xyz\r\n" +
+                "\r\n" +
+                "--xyz\r\n" +
+                "Content-Type: text/plain; charset=UTF-8\r\n" +
+                "Content-Transfer-Encoding: quoted-printable\r\n" +
+                "\r\n" +
+                "caf=C3=A9\r\n" +
+                "--xyz\r\n" +
+                "Content-Type: application/octet-stream\r\n" +
+                "Content-Transfer-Encoding: base64\r\n" +
+                "\r\n" +
+                "AQID\r\n" +
+                "--xyz\r\n" +
+                "Content-Type: message/rfc822\r\n" +
+                "Content-Transfer-Encoding: base64\r\n" +
+                "\r\n" +
+                "U3ViamVjdDogZW5jb2RlZA0KDQplbmNvZGVkIGJvZHk=\r\n" +
+                "--xyz--\r\n";
+        byte[] bytes = msg.getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer source = ByteBuffer.allocate(bytes.length + 3);
+        source.put(new byte[] { 'x', 'x', 'x' }).put(bytes).flip();
+        source.get(new byte[3]);
+
+        Message message = new DefaultMessageBuilder().parseMessage(source);
+        Assert.assertEquals(3, source.position());
+        Assert.assertEquals("slices", message.getSubject());
+        List<Entity> parts = ((Multipart) message.getBody()).getBodyParts();
+
+        TextBody text = (TextBody) parts.get(0).getBody();
+        Assert.assertEquals("caf\u00e9", ContentUtil.buffer(text.getReader()));
+        BinaryBody binary = (BinaryBody) parts.get(1).getBody();
+        Assert.assertArrayEquals(new byte[] { 1, 2, 3 }, ContentUtil.buffer(binary.getInputStream()));
+        Message inner = (Message) parts.get(2).getBody();
+        Assert.assertEquals("encoded", inner.getSubject());
+        Assert.assertEquals("encoded body",
+                ContentUtil.buffer(((TextBody) inner.getBody()).getReader()));
+
+        // bodies reference the source buffer rather than a copy of it
+        int idx = msg.indexOf("AQID");
+        source.put(3 + idx + 3, (byte) 'E');
+        Assert.assertArrayEquals(new byte[] { 1, 2, 4 }, ContentUtil.buffer(binary.getInputStream()));
+    }
+
+    private static final String NESTED =
+            "Subject: nested\r\n" +
+            "Content-Type: multipart/mixed; boundary=outer\r\n" +
+            "\r\n" +
+            "preamble\r\n" +
+            "--outer\r\n" +
+            "Content-Type: text/plain\r\n" +
+            "\r\n" +
+            "first\r\n" +
+            "--outer\r\n" +
+            "Content-Type: multipart/digest; boundary=inner\r\n" +
+            "\r\n" +
+            "--inner\r\n" +
+            "\r\n" +
+            "Subject: digested\r\n" +
+            "Content-Type: multipart/alternative; boundary=alt\r\n" +
+            "\r\n" +
+            "--alt\r\n" +
+            "Content-Transfer-Encoding: base64\r\n" +
+            "\r\n" +
+            "aGVsbG8=\r\n" +
+            "--alt--\r\n" +
+            "--inner--\r\n" +
+            "--outer--\r\n" +
+            "epilogue\r\n";
+
+    private static String write(Message message) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new DefaultMessageWriter().writeMessage(message, out);
+        return new String(out.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    public void testLazyMultipartParsing() throws Exception {
+        byte[] bytes = NESTED.getBytes(StandardCharsets.US_ASCII);
+        // bodies parsed from a buffer keep their encoded content
+        String[] expected = new String[] {
+                write(new DefaultMessageBuilder().parseMessage(new ByteArrayInputStream(bytes))),
+                write(new DefaultMessageBuilder().parseMessage(ByteBuffer.wrap(bytes))) };
+
+        DefaultMessageBuilder builder = new DefaultMessageBuilder();
+        builder.setLazyMultipartParsing(true);
+        Message[] messages = new Message[] {
+                builder.parseMessage(new ByteArrayInputStream(bytes)),
+                builder.parseMessage(ByteBuffer.wrap(bytes)) };
+        for (int i = 0; i < messages.length; i++) {
+            Message message = messages[i];
+            Assert.assertEquals("nested", message.getSubject());
+            LazyMultipart outer = (LazyMultipart) message.getBody();
+            Assert.assertFalse(outer.isParsed());
+            Assert.assertEquals("mixed", outer.getSubType());
+
+            Assert.assertEquals(2, outer.getCount());
+            Assert.assertTrue(outer.isParsed());
+            Assert.assertEquals("preamble", outer.getPreamble());
+            Assert.assertEquals("epilogue\r\n", outer.getEpilogue());
+            Assert.assertSame(message, outer.getBodyParts().get(0).getParent());
+
+            LazyMultipart digest = (LazyMultipart) outer.getBodyParts().get(1).getBody();
+            Assert.assertFalse(digest.isParsed());
+            Message digested = (Message) digest.getBodyParts().get(0).getBody();
+            Assert.assertEquals("digested", digested.getSubject());
+            Assert.assertFalse(((LazyMultipart) digested.getBody()).isParsed());
+
+            Assert.assertEquals(expected[i], write(message));
+        }
+    }
+
+    @Test
+    public void testLazyMultipartParsingWithCustomBodyDescriptorBuilder() throws Exception {
+        byte[] bytes = NESTED.getBytes(StandardCharsets.US_ASCII);
+        DefaultMessageBuilder builder = new DefaultMessageBuilder();
+        builder.setBodyDescriptorBuilder(new DefaultBodyDescriptorBuilder());
+        builder.setLazyMultipartParsing(true);
+        Message[] messages = new Message[] {
+                builder.parseMessage(new ByteArrayInputStream(bytes)),
+                builder.parseMessage(ByteBuffer.wrap(bytes)) };
+        for (Message message : messages) {
+            Multipart outer = (Multipart) message.getBody();
+            Assert.assertFalse(outer instanceof LazyMultipart);
+            Multipart digest = (Multipart) outer.getBodyParts().get(1).getBody();
+            Entity digestPart = digest.getBodyParts().get(0);
+            Assert.assertEquals("message/rfc822", digestPart.getMimeType());
+            Assert.assertEquals("digested", ((Message) digestPart.getBody()).getSubject());
+        }
+    }
+
+    @Test
+    public void testLazyMultipartParsingFailure() throws Exception {
+        String msg = "Content-Type: multipart/mixed; boundary=b\r\n" +
+                "\r\n" +
+                "--b\r\n" +
+                "Content-Type: text/plain\r\n" +
+                "not a header\r\n" +
+                "\r\n" +
+                "body\r\n" +
+                "--b--\r\n";
+        DefaultMessageBuilder builder = new DefaultMessageBuilder();
+        builder.setMimeEntityConfig(MimeConfig.STRICT);
+        builder.setLazyMultipartParsing(true);
+        Message message = builder.parseMessage(new ByteArrayInputStream(msg.getBytes(StandardCharsets.US_ASCII)));
+        Multipart multipart = (Multipart) message.getBody();
+        for (int i = 0; i < 2; i++) {
+            try {
+                multipart.getBodyParts();
+                Assert.fail("UncheckedIOException should have been thrown");
+            } catch (UncheckedIOException expected) {
+                Assert.assertTrue(expected.getCause() instanceof MimeIOException);
+            }
+        }
+    }
+
+    @Test
+    public void testKeepEncodedContent() throws Exception {
+        // short base64 lines and a soft line break the encoders would not produce
+        String body =
+                "preamble\r\n" +
+                "--b\r\n" +
+                "Content-Type: application/octet-stream\r\n" +
+                "Content-Transfer-Encoding: base64\r\n" +
+                "\r\n" +
+                "aGVs\r\n" +
+                "bG8=\r\n" +
+                "--b\r\n" +
+                "Content-Type: text/plain\r\n" +
+                "Content-Transfer-Encoding: quoted-printable\r\n" +
+                "\r\n" +
+                "wor=\r\n" +
+                "ld\r\n" +
+                "--b--\r\n" +
+                "epilogue\r\n";
+        byte[] bytes = ("Subject: original\r\n" +
+                "Content-Type: multipart/mixed; boundary=b\r\n" +
+                "\r\n" + body).getBytes(StandardCharsets.US_ASCII);
+
+        DefaultMessageBuilder builder = new DefaultMessageBuilder();
+        builder.setKeepEncodedContent(true);
+        for (Message message : new Message[] {
+                builder.parseMessage(new ByteArrayInputStream(bytes)),
+                new DefaultMessageBuilder().parseMessage(ByteBuffer.wrap(bytes)) }) {
+            List<Entity> parts = ((Multipart) message.getBody()).getBodyParts();
+            Assert.assertArrayEquals("hello".getBytes(StandardCharsets.US_ASCII),
+                    ContentUtil.buffer(((BinaryBody) parts.get(0).getBody()).getInputStream()));
+            Assert.assertEquals("world", ContentUtil.buffer(((TextBody) parts.get(1).getBody()).getReader()));
+
+            message.getHeader().setField(Fields.subject("changed"));
+            Assert.assertEquals("Subject: changed\r\n" +
+                    "Content-Type: multipart/mixed; boundary=b\r\n" +
+                    "\r\n" + body, write(message));
+        }
+
+        Message decoded = new DefaultMessageBuilder().parseMessage(new ByteArrayInputStream(bytes));
+        Assert.assertNotEquals(new String(bytes, StandardCharsets.US_ASCII), write(decoded));
+    }
+
+    @Test
+    public void testCopyOnWrite() throws Exception {
+        byte[] bytes = NESTED.getBytes(StandardCharsets.US_ASCII);
+        DefaultMessageBuilder builder = new DefaultMessageBuilder();
+        Message original = builder.parseMessage(new ByteArrayInputStream(bytes));
+        String expected = write(original);
+
+        Message copy = builder.copyOnWrite(original);
+        copy.getHeader().setField(Fields.subject("copy"));
+        Assert.assertEquals("copy", copy.getSubject());
+        Assert.assertEquals("nested", original.getSubject());
+
+        Multipart outer = (Multipart) copy.getBody();
+        Entity first = outer.getBodyParts().get(0);
+        Entity originalFirst = ((Multipart) original.getBody()).getBodyParts().get(0);
+        Assert.assertNotSame(originalFirst, first);
+        Assert.assertSame(copy, first.getParent());
+
+        first.getHeader().setField(Fields.contentType("text/html"));
+        Assert.assertEquals("text/html", first.getMimeType());
+        Assert.assertEquals("text/plain", originalFirst.getMimeType());
+
+        Assert.assertEquals(expected, write(original));
+        Assert.assertEquals(expected
+                .replace("Subject: nested", "Subject: copy")
+                .replace("Content-Type: text/plain", "Content-Type: text/html"), write(copy));
+        copy.dispose();
+        Assert.assertEquals(expected, write(original));
+    }
+
+    @Test
+    public void testCopyOnWriteIsNotAffectedByTheOriginal() throws Exception {
+        byte[] bytes = NESTED.getBytes(StandardCharsets.US_ASCII);
+        DefaultMessageBuilder builder = new DefaultMessageBuilder();
+        Message original = builder.parseMessage(new ByteArrayInputStream(bytes));
+        String expected = write(original);
+        Message copy = builder.copyOnWrite(original);
+
+        Multipart outer = (Multipart) original.getBody();
+        outer.setPreamble("changed preamble");
+        outer.setEpilogue("changed epilogue");
+        outer.getBodyParts().get(0).getHeader().setField(Fields.contentType("text/html"));
+        Multipart digest = (Multipart) outer.getBodyParts().get(1).getBody();
+        digest.removeBodyPart(0);
+        outer.addBodyPart(BodyPartBuilder.create().setBody("added", StandardCharsets.US_ASCII).build());
+
+        Assert.assertEquals(expected, write(copy));
+        Assert.assertEquals("preamble", ((Multipart) copy.getBody()).getPreamble());
+        Assert.assertEquals(2, ((Multipart) copy.getBody()).getCount());
+    }
+
+    @Test
+    public void testFreeze() throws Exception {
+        byte[] bytes = NESTED.getBytes(StandardCharsets.US_ASCII);
+        DefaultMessageBuilder builder = new DefaultMessageBuilder();
+        Message original = builder.parseMessage(new ByteArrayInputStream(bytes));
+        final String expected = write(original);
+
+        final Message frozen = builder.freeze(original);
+        Assert.assertSame(frozen, builder.freeze(frozen));
+        original.getHeader().setField(Fields.subject("modified"));
+        original.dispose();
+        Assert.assertEquals("nested", frozen.getSubject());
+
+        Multipart multipart = (Multipart) frozen.getBody();
+        Entity first = multipart.getBodyParts().get(0);
+        Assert.assertSame(frozen, first.getParent());
+        Assert.assertEquals("text/plain", first.getMimeType());
+        Assert.assertEquals("mixed", multipart.getSubType());
+        Assert.assertEquals(2, multipart.getCount());
+        Assert.assertEquals("preamble", multipart.getPreamble());
+
+        Message copy = builder.copyOnWrite(frozen);
+        copy.getHeader().setField(Fields.subject("copy"));
+        ((Multipart) copy.getBody()).removeBodyPart(0);
+        Assert.assertEquals("nested", frozen.getSubject());
+        Assert.assertEquals(2, multipart.getCount());
+        try {
+            frozen.getHeader().setField(Fields.subject("frozen"));
+            Assert.fail("UnsupportedOperationException should have been thrown");
+        } catch (UnsupportedOperationException ex) {
+            // expected
+        }
+        try {
+            multipart.removeBodyPart(0);
+            Assert.fail("UnsupportedOperationException should have been thrown");
+        } catch (UnsupportedOperationException ex) {
+            // expected
+        }
+        try {
+            first.getBody().setParent(null);
+            Assert.fail("UnsupportedOperationException should have been thrown");
+        } catch (UnsupportedOperationException ex) {
+            // expected
+        }
+
+        final String[] results = new String[4];
+        Thread[] threads = new Thread[results.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        results[index] = write(frozen);
+                    } catch (Exception ex) {
+                        results[index] = ex.toString();
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (String result : results) {
+            Assert.assertEquals(expected, result);
+        }
+    }
+
+}
@@ -21,8 +21,15 @@ package org.apache.james.mime4j.message;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+
 import org.apache.james.mime4j.Charsets;
 import org.apache.james.mime4j.dom.Message;
+import org.apache.james.mime4j.dom.Entity;
+import org.apache.james.mime4j.dom.Multipart;
+import org.apache.james.mime4j.field.Fields;
 import org.junit.Test;
 
 public class DefaultMessageWriterTest {
@@ -47,4 +54,188 @@ public class DefaultMessageWriterTest {
                 "this is the body");
     }
 
-}
\ No newline at end of file
+    @Test
+    public void writeMessageShouldWriteToChannel() throws Exception {
+        byte[] large = new byte[20000];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = (byte) ('a' + i % 26);
+        }
+        Multipart multipart = MultipartBuilder.create("mixed")
+            .setPreamble("preamble")
+            .addTextPart("first part", Charsets.UTF_8)
+            .addBodyPart(BodyPartBuilder.create()
+                .setBody(large, "application/octet-stream"))
+            .build();
+        Message message = Message.Builder.of()
+            .setSubject("Channel")
+            .setBody(multipart)
+            .build();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new DefaultMessageWriter().writeMessage(message, Channels.newChannel(out));
+
+        assertThat(out.toByteArray()).isEqualTo(DefaultMessageWriter.asBytes(message));
+    }
+
+    @Test
+    public void writeEntityShouldSelectTransferEncoding() throws Exception {
+        Message message = Message.Builder.of()
+            .setSubject("Auto")
+            .setBody(MultipartBuilder.create("mixed")
+                .addBodyPart(BodyPartBuilder.create()
+                    .setBody("plain ascii", Charsets.UTF_8))
+                .addBodyPart(BodyPartBuilder.create()
+                    .setBody("caf\u00e9 au lait", Charsets.UTF_8))
+                .addBodyPart(BodyPartBuilder.create()
+                    .setBody(new byte[] { 0, 1, 2, (byte) 0xff }, "application/octet-stream"))
+                .build())
+            .build();
+        Multipart multipart = (Multipart) message.getBody();
+
+        DefaultMessageWriter writer = new DefaultMessageWriter();
+        writer.setAutoTransferEncoding(true);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeEntity(multipart.getBodyParts().get(0), out);
+        assertThat(new String(out.toByteArray(), Charsets.US_ASCII.name()))
+            .isEqualTo("Content-Type: text/plain; charset=UTF-8\r\n" +
+                "\r\n" +
+                "plain ascii");
+
+        out.reset();
+        writer.writeEntity(multipart.getBodyParts().get(1), out);
+        assertThat(new String(out.toByteArray(), Charsets.US_ASCII.name()))
+            .isEqualTo("Content-Type: text/plain; charset=UTF-8\r\n" +
+                "Content-Transfer-Encoding: quoted-printable\r\n" +
+                "\r\n" +
+                "caf=C3=A9 au lait");
+
+        out.reset();
+        writer.writeEntity(multipart.getBodyParts().get(2), out);
+        assertThat(new String(out.toByteArray(), Charsets.US_ASCII.name()))
+            .isEqualTo("Content-Type: application/octet-stream\r\n" +
+                "Content-Transfer-Encoding: base64\r\n" +
+                "\r\n" +
+                "AAEC/w==\r\n");
+        assertThat(multipart.getBodyParts().get(2).getHeader()
+            .getField("Content-Transfer-Encoding")).isNull();
+    }
+
+    @Test
+    public void sizeShouldMatchWrittenLength() throws Exception {
+        MultipartBuilder multipart = MultipartBuilder.create("mixed")
+            .setPreamble("preamble")
+            .setEpilogue("epilogue")
+            .addTextPart("caf\u00e9 au lait", Charsets.UTF_8)
+            .addBodyPart(BodyPartBuilder.create()
+                .setContentTransferEncoding("quoted-printable")
+                .setBody("caf\u00e9 au lait \r\n" + repeat("long line ", 20), Charsets.UTF_8))
+            .addBodyPart(BodyPartBuilder.create()
+                .setBody(Message.Builder.of()
+                    .setSubject("Embedded")
+                    .setBody("embedded", Charsets.US_ASCII)
+                    .build()));
+        for (int length : new int[] { 0, 1, 2, 3, 56, 57, 58, 200 }) {
+            byte[] bin = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bin[i] = (byte) i;
+            }
+            multipart.addBodyPart(BodyPartBuilder.create()
+                .setContentTransferEncoding("base64")
+                .setBody(bin, "application/octet-stream"));
+        }
+        Message message = Message.Builder.of()
+            .setSubject("Size")
+            .setBody(multipart.build())
+            .build();
+
+        DefaultMessageWriter writer = new DefaultMessageWriter();
+        assertThat(writer.size(message)).isEqualTo(DefaultMessageWriter.asBytes(message).length);
+        assertThat(writer.size(message)).isEqualTo(DefaultMessageWriter.asBytes(message).length);
+
+        Message parsed = new DefaultMessageBuilder().parseMessage(
+            new ByteArrayInputStream(DefaultMessageWriter.asBytes(message)));
+        assertThat(writer.size(parsed)).isEqualTo(DefaultMessageWriter.asBytes(parsed).length);
+
+        writer.setAutoTransferEncoding(true);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeMessage(message, out);
+        assertThat(writer.size(message)).isEqualTo(out.size());
+    }
+
+    @Test
+    public void sizeShouldFollowModifications() throws Exception {
+        Message message = Message.Builder.of()
+            .setSubject("Size")
+            .setBody(MultipartBuilder.create("mixed")
+                .addTextPart("first", Charsets.UTF_8)
+                .addBodyPart(BodyPartBuilder.create()
+                    .setBody(Message.Builder.of()
+                        .setSubject("Embedded")
+                        .setBody("embedded", Charsets.US_ASCII)
+                        .build()))
+                .build())
+            .build();
+        Multipart multipart = (Multipart) message.getBody();
+        Message embedded = (Message) multipart.getBodyParts().get(1).getBody();
+
+        DefaultMessageWriter writer = new DefaultMessageWriter();
+        long size = writer.size(message);
+
+        embedded.getHeader().setField(Fields.subject("Embedded subject"));
+        assertThat(writer.size(message)).isEqualTo(size + " subject".length());
+        assertThat(writer.size(message)).isEqualTo(DefaultMessageWriter.asBytes(message).length);
+
+        Entity part = multipart.getBodyParts().get(0);
+        part.getHeader().addField(Fields.contentTransferEncoding("base64"));
+        assertThat(writer.size(message)).isEqualTo(DefaultMessageWriter.asBytes(message).length);
+
+        multipart.addBodyPart(BodyPartBuilder.create()
+            .setBody("third", Charsets.UTF_8)
+            .build());
+        assertThat(writer.size(message)).isEqualTo(DefaultMessageWriter.asBytes(message).length);
+
+        multipart.setEpilogue("epilogue");
+        assertThat(writer.size(message)).isEqualTo(DefaultMessageWriter.asBytes(message).length);
+    }
+
+    @Test
+    public void sizeShouldBeMemoizedUntilModified() throws Exception {
+        Message message = Message.Builder.of()
+            .setSubject("Size")
+            .setBody(MultipartBuilder.create("mixed")
+                .addTextPart("first", Charsets.UTF_8)
+                .addTextPart("second", Charsets.UTF_8)
+                .build())
+            .build();
+        Entity part = ((Multipart) message.getBody()).getBodyParts().get(1);
+
+        DefaultMessageWriter writer = new DefaultMessageWriter();
+        long size = writer.size(message);
+        SerializedSize memo = ((AbstractEntity) message).serializedSize;
+        assertThat(memo).isNotNull();
+        assertThat(writer.size(message)).isEqualTo(size);
+        assertThat(((AbstractEntity) message).serializedSize).isSameAs(memo);
+
+        part.getHeader().setField(Fields.messageId("<second@example.org>"));
+        assertThat(writer.size(message)).isEqualTo(DefaultMessageWriter.asBytes(message).length);
+        assertThat(((AbstractEntity) message).serializedSize).isNotSameAs(memo);
+
+        HeaderImpl header = new HeaderImpl(part.getHeader());
+        part.setHeader(header);
+        header.setField(Fields.messageId("<replaced@example.org>"));
+        assertThat(writer.size(message)).isEqualTo(DefaultMessageWriter.asBytes(message).length);
+
+        Message frozen = new DefaultMessageBuilder().freeze(message);
+        assertThat(writer.size(frozen)).isEqualTo(writer.size(message));
+        assertThat(((AbstractEntity) frozen).serializedSize).isNull();
+    }
+
+    private static String repeat(String s, int count) {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            buf.append(s);
+        }
+        return buf.toString();
+    }
+
+}
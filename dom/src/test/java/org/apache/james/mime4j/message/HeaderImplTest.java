@@ -19,12 +19,17 @@
 
 package org.apache.james.mime4j.message;
 
+import java.util.List;
+import java.util.Map;
+
 import org.apache.commons.io.output.ByteArrayOutputStream;
 import org.apache.james.mime4j.dom.Header;
+import org.apache.james.mime4j.dom.field.UnstructuredField;
 import org.apache.james.mime4j.field.DefaultFieldParser;
 import org.apache.james.mime4j.message.DefaultMessageWriter;
 import org.apache.james.mime4j.message.HeaderImpl;
 import org.apache.james.mime4j.stream.Field;
+import org.apache.james.mime4j.stream.RawFieldParser;
 import org.apache.james.mime4j.util.ByteArrayBuffer;
 import org.apache.james.mime4j.util.ContentUtil;
 import org.junit.Assert;
@@ -49,6 +54,24 @@ public class HeaderImplTest {
                 .toString());
     }
 
+    @Test
+    public void testCopyConstructorAddsFields() throws Exception {
+        Header header = new HeaderImpl();
+        header.addField(DefaultFieldParser.parse(SUBJECT));
+        header.addField(DefaultFieldParser.parse(TO));
+
+        final StringBuilder added = new StringBuilder();
+        Header copy = new AbstractHeader(header) {
+            @Override
+            public void addField(Field field) {
+                added.append(field.getName()).append(';');
+                super.addField(field);
+            }
+        };
+        Assert.assertEquals("Subject;To;", added.toString());
+        Assert.assertEquals(header.toString(), copy.toString());
+    }
+
     private static final String SWISS_GERMAN_HELLO = "Gr\374ezi_z\344m\344";
 
     @Test
@@ -142,4 +165,59 @@ public class HeaderImplTest {
         Assert.assertEquals("Message-ID", header.getFields().get(3).getName());
     }
 
+    @Test
+    public void testGetFieldIgnoresCase() throws Exception {
+        Header header = new HeaderImpl();
+        header.addField(DefaultFieldParser.parse("X-Custom: first"));
+        header.addField(DefaultFieldParser.parse("SUBJECT: test"));
+        header.addField(DefaultFieldParser.parse("x-CUSTOM: second"));
+
+        Assert.assertEquals("first", header.getField("x-custom").getBody());
+        Assert.assertEquals("test", header.getField("Subject", UnstructuredField.class).getValue());
+        Assert.assertNull(header.getField("X-Custo"));
+
+        List<Field> custom = header.getFields("X-Custom");
+        Assert.assertEquals(2, custom.size());
+        Assert.assertEquals("first", custom.get(0).getBody());
+        Assert.assertEquals("second", custom.get(1).getBody());
+    }
+
+    @Test
+    public void testGetFieldsAsMap() throws Exception {
+        Header header = new HeaderImpl();
+        header.addField(DefaultFieldParser.parse("Received: from foo by bar for james"));
+        header.addField(DefaultFieldParser.parse("Subject: test"));
+        header.addField(DefaultFieldParser.parse("ReCeIvEd: from bar by foo for james"));
+
+        Map<String, List<Field>> map = header.getFieldsAsMap();
+        Assert.assertEquals(2, map.size());
+        Assert.assertEquals(2, map.get("received").size());
+        Assert.assertEquals("ReCeIvEd", map.get("received").get(1).getName());
+        Assert.assertEquals(1, map.get("subject").size());
+    }
+
+    @Test
+    public void testCompact() throws Exception {
+        HeaderImpl header = new HeaderImpl(DefaultFieldParser.getParser(), null);
+        header.addField(RawFieldParser.DEFAULT.parseField(
+                ContentUtil.encode("Subject: =?ISO-8859-1?Q?caf=E9?=\r\n folded")));
+        header.addField(RawFieldParser.DEFAULT.parseField(ContentUtil.encode(TO)));
+        header.addField(DefaultFieldParser.parse("X-Parsed: value"));
+        String before = header.toString();
+
+        Assert.assertEquals(2, header.compact());
+        Assert.assertEquals(before, header.toString());
+        Assert.assertSame("Subject", header.getFields().get(0).getName());
+        Assert.assertEquals("=?ISO-8859-1?Q?caf=E9?= folded", header.getFields().get(0).getBody());
+        Assert.assertEquals(TO, ContentUtil.decode(header.getFields().get(1).getRaw()));
+
+        UnstructuredField subject = (UnstructuredField) header.getField("subject");
+        Assert.assertEquals("caf\u00e9 folded", subject.getValue());
+        Assert.assertEquals("anyuser <any@user>", header.getField("to").getBody());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new DefaultMessageWriter().writeHeader(header, out);
+        Assert.assertEquals(before + "\r\n", new String(out.toByteArray(), "US-ASCII"));
+    }
+
 }
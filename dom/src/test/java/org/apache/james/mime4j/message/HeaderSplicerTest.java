@@ -0,0 +1,109 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+
+package org.apache.james.mime4j.message;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.james.mime4j.dom.address.Mailbox;
+import org.apache.james.mime4j.field.Fields;
+import org.apache.james.mime4j.stream.RawField;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HeaderSplicerTest {
+
+    private static final String BODY =
+            "--b\r\n" +
+            "Content-Transfer-Encoding: base64\r\n" +
+            "\r\n" +
+            "aGVs\r\n" +
+            "bG8=\r\n" +
+            "--b--\r\n";
+
+    private static final String MESSAGE =
+            "Subject: some\r\n" +
+            " subject\r\n" +
+            "Bcc: one@example.com\r\n" +
+            "To: two@example.com\r\n" +
+            "bcc: three@example.com\r\n" +
+            "Content-Type: multipart/mixed; boundary=b\r\n" +
+            "\r\n" +
+            BODY;
+
+    private static final String EXPECTED =
+            "Received: from relay\r\n" +
+            "Subject: some\r\n" +
+            " subject\r\n" +
+            "To: four@example.com\r\n" +
+            "Content-Type: multipart/mixed; boundary=b\r\n" +
+            "Message-ID: <id@example.com>\r\n" +
+            "X-Spam: no\r\n" +
+            "\r\n" +
+            BODY;
+
+    private static HeaderSplicer splicer() {
+        return HeaderSplicer.create()
+            .prependField(new RawField("Received", "from relay"))
+            .setField(Fields.to(new Mailbox("four", "example.com")))
+            .setField(Fields.messageId("<id@example.com>"))
+            .removeFields("BCC")
+            .addField(new RawField("X-Spam", "no"));
+    }
+
+    @Test
+    public void testSpliceStream() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        splicer().splice(new ByteArrayInputStream(MESSAGE.getBytes(StandardCharsets.US_ASCII)), out);
+        Assert.assertEquals(EXPECTED, new String(out.toByteArray(), StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void testSpliceFile() throws Exception {
+        File file = File.createTempFile("m4j", ".eml");
+        try {
+            FileOutputStream fos = new FileOutputStream(file);
+            fos.write(("ignored" + MESSAGE).getBytes(StandardCharsets.US_ASCII));
+            fos.close();
+
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                FileChannel channel = raf.getChannel();
+                channel.position("ignored".length());
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                splicer().splice(channel, Channels.newChannel(out));
+                Assert.assertEquals(EXPECTED, new String(out.toByteArray(), StandardCharsets.US_ASCII));
+                Assert.assertEquals(channel.size(), channel.position());
+            } finally {
+                raf.close();
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+}
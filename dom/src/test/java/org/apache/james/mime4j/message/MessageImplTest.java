@@ -305,6 +305,65 @@ public class MessageImplTest {
                 .getAddress());
     }
 
+    @Test
+    public void testMemoizedValuesCanBeReadConcurrently() throws Exception {
+        final MessageImpl m = new MessageImpl();
+        Header header = new HeaderImpl();
+        header.addField(DefaultFieldParser.parse("From: john.doe@example.net"));
+        header.addField(DefaultFieldParser.parse("Subject: concurrent"));
+        m.setHeader(header);
+
+        final String[] subjects = new String[8];
+        final Mailbox[] senders = new Mailbox[8];
+        Thread[] threads = new Thread[subjects.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int n = i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 1000; j++) {
+                        subjects[n] = m.getSubject();
+                        senders[n] = m.getFrom().get(0);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int i = 0; i < threads.length; i++) {
+            Assert.assertEquals("concurrent", subjects[i]);
+            Assert.assertEquals("john.doe@example.net", senders[i].getAddress());
+        }
+    }
+
+    @Test
+    public void testDecodedValuesAreMemoizedUntilHeaderChanges() throws Exception {
+        MessageImpl m = new MessageImpl();
+        Header header = new HeaderImpl(DefaultFieldParser.getParser(), null);
+        header.addField(DefaultFieldParser.parse("From: john.doe@example.net"));
+        m.setHeader(header);
+
+        Assert.assertNull(m.getSubject());
+        Assert.assertSame(m.getFrom(), m.getFrom());
+
+        header.addField(DefaultFieldParser.parse("Subject: first"));
+        Assert.assertEquals("first", m.getSubject());
+
+        header.setField(DefaultFieldParser.parse("Subject: second"));
+        Assert.assertEquals("second", m.getSubject());
+
+        header.removeFields(FieldName.FROM);
+        Assert.assertNull(m.getFrom());
+        Assert.assertEquals("second", m.getSubject());
+
+        Header other = new HeaderImpl();
+        other.setField(DefaultFieldParser.parse("Subject: third"));
+        m.setHeader(other);
+        Assert.assertEquals("third", m.getSubject());
+    }
+
     @Test
     public void testDisposeGetsPropagatedToBody() throws Exception {
         DummyBody body1 = new DummyBody();
@@ -0,0 +1,177 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+
+package org.apache.james.mime4j.message;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.james.mime4j.stream.Field;
+import org.apache.james.mime4j.stream.MimeConfig;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MimeStreamRewriterTest {
+
+    private static final String MESSAGE =
+            "Subject: rewrite\r\n" +
+            "Content-Type: multipart/mixed; boundary=outer\r\n" +
+            "\r\n" +
+            "preamble\r\n" +
+            "--outer\r\n" +
+            "Content-Type: text/plain\r\n" +
+            "\r\n" +
+            "hello\r\n" +
+            "--outer\r\n" +
+            "Content-Type: multipart/alternative; boundary=inner\r\n" +
+            "\r\n" +
+            "--inner\r\n" +
+            "Content-Type: application/octet-stream\r\n" +
+            "Content-Transfer-Encoding: base64\r\n" +
+            "X-Scanned: yes\r\n" +
+            "\r\n" +
+            "AAAAAAAAAAAAAAAAAAAAAAAAAAAA\r\n" +
+            "--inner\r\n" +
+            "\r\n" +
+            "small\r\n" +
+            "--inner--\r\n" +
+            "--outer\r\n" +
+            "Content-Type: image/png\r\n" +
+            "\r\n" +
+            "not so small\r\n" +
+            "--outer--\r\n" +
+            "epilogue\r\n";
+
+    private static String rewrite(MimeStreamRewriter rewriter) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        rewriter.rewrite(new ByteArrayInputStream(MESSAGE.getBytes(StandardCharsets.US_ASCII)), out);
+        return new String(out.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    public void testCopyUntouched() throws Exception {
+        Assert.assertEquals(MESSAGE, rewrite(MimeStreamRewriter.create()));
+    }
+
+    @Test
+    public void testCopyUntouchedWithFlyweightFields() throws Exception {
+        final List<String> fields = new ArrayList<String>();
+        MimeStreamRewriter rewriter = MimeStreamRewriter.create()
+            .use(MimeConfig.custom().setFlyweightFields(true).build())
+            .addRule(new MimeStreamRewriter.Rule() {
+                public void apply(MimeStreamRewriter.Part part) {
+                    for (Field field : part.getFields()) {
+                        fields.add(field.getName() + ": " + field.getBody());
+                    }
+                }
+            });
+
+        Assert.assertEquals(MESSAGE, rewrite(rewriter));
+        Assert.assertEquals(Arrays.asList(
+                "Subject: rewrite",
+                "Content-Type: multipart/mixed; boundary=outer",
+                "Content-Type: text/plain",
+                "Content-Type: multipart/alternative; boundary=inner",
+                "Content-Type: application/octet-stream",
+                "Content-Transfer-Encoding: base64",
+                "X-Scanned: yes",
+                "Content-Type: image/png"), fields);
+    }
+
+    @Test
+    public void testDropAndReplaceLargeParts() throws Exception {
+        String result = rewrite(MimeStreamRewriter.create()
+            .addRule(new MimeStreamRewriter.Rule() {
+                public void apply(MimeStreamRewriter.Part part) throws IOException {
+                    part.renameFields("X-Scanned", "X-Original-Scanned");
+                    if (!part.isMultipart() && part.isLargerThan(10)) {
+                        if (part.getBodyDescriptor().getMimeType().equals("image/png")) {
+                            part.drop();
+                        } else {
+                            part.replace("removed");
+                        }
+                    }
+                }
+            }));
+
+        Assert.assertEquals(
+            "Subject: rewrite\r\n" +
+            "Content-Type: multipart/mixed; boundary=outer\r\n" +
+            "\r\n" +
+            "preamble\r\n" +
+            "--outer\r\n" +
+            "Content-Type: text/plain\r\n" +
+            "\r\n" +
+            "hello\r\n" +
+            "--outer\r\n" +
+            "Content-Type: multipart/alternative; boundary=inner\r\n" +
+            "\r\n" +
+            "--inner\r\n" +
+            "X-Original-Scanned: yes\r\n" +
+            "Content-Type: text/plain; charset=UTF-8\r\n" +
+            "Content-Transfer-Encoding: quoted-printable\r\n" +
+            "\r\n" +
+            "removed\r\n" +
+            "--inner\r\n" +
+            "\r\n" +
+            "small\r\n" +
+            "--inner--\r\n" +
+            "--outer--\r\n" +
+            "epilogue\r\n", result);
+    }
+
+    @Test
+    public void testDropMultipartAndReencode() throws Exception {
+        String result = rewrite(MimeStreamRewriter.create()
+            .addRule(new MimeStreamRewriter.Rule() {
+                public void apply(MimeStreamRewriter.Part part) {
+                    if (part.getDepth() == 1 && part.isMultipart()) {
+                        part.drop();
+                    } else if (part.getBodyDescriptor().getMimeType().equals("text/plain")) {
+                        part.setTransferEncoding("base64");
+                    }
+                }
+            }));
+
+        Assert.assertEquals(
+            "Subject: rewrite\r\n" +
+            "Content-Type: multipart/mixed; boundary=outer\r\n" +
+            "\r\n" +
+            "preamble\r\n" +
+            "--outer\r\n" +
+            "Content-Type: text/plain\r\n" +
+            "Content-Transfer-Encoding: base64\r\n" +
+            "\r\n" +
+            "aGVsbG8=\r\n" +
+            "\r\n" +
+            "--outer\r\n" +
+            "Content-Type: image/png\r\n" +
+            "\r\n" +
+            "not so small\r\n" +
+            "--outer--\r\n" +
+            "epilogue\r\n", result);
+    }
+
+}
@@ -0,0 +1,102 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+
+package org.apache.james.mime4j.message;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.apache.james.mime4j.dom.BinaryBody;
+import org.apache.james.mime4j.dom.Entity;
+import org.apache.james.mime4j.dom.Message;
+import org.apache.james.mime4j.dom.Multipart;
+import org.apache.james.mime4j.dom.TextBody;
+import org.apache.james.mime4j.field.Fields;
+import org.apache.james.mime4j.util.ContentUtil;
+import org.apache.james.mime4j.util.MimeUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MimeStreamWriterTest {
+
+    private static void writeMessage(MimeStreamWriter writer, byte[] binary) throws Exception {
+        writer.startMessage(Fields.subject("Streamed"));
+        writer.startMultipart("mixed");
+        writer.startPart(Fields.contentType("text/plain; charset=UTF-8"));
+        writer.writeBody(new ByteArrayInputStream("caf\u00e9".getBytes(StandardCharsets.UTF_8)),
+                MimeUtil.ENC_QUOTED_PRINTABLE);
+        writer.startPart();
+        writer.startMultipart("alternative");
+        writer.startPart(Fields.contentType("application/octet-stream"));
+        writer.writeBody(new ByteArrayInputStream(binary), MimeUtil.ENC_BASE64);
+        writer.endMultipart();
+        Assert.assertFalse(writer.isComplete());
+        writer.endMultipart();
+        Assert.assertTrue(writer.isComplete());
+        writer.flush();
+    }
+
+    private static void verify(byte[] bytes, byte[] binary) throws Exception {
+        Message message = new DefaultMessageBuilder().parseMessage(new ByteArrayInputStream(bytes));
+        Assert.assertEquals("Streamed", message.getSubject());
+        Assert.assertEquals("1.0", message.getHeader().getField("MIME-Version").getBody());
+
+        List<Entity> parts = ((Multipart) message.getBody()).getBodyParts();
+        Assert.assertEquals(2, parts.size());
+        Assert.assertEquals("quoted-printable", parts.get(0).getContentTransferEncoding());
+        Assert.assertEquals("caf\u00e9", ContentUtil.buffer(((TextBody) parts.get(0).getBody()).getReader()));
+
+        Multipart alternative = (Multipart) parts.get(1).getBody();
+        Assert.assertEquals("alternative", alternative.getSubType());
+        Entity part = alternative.getBodyParts().get(0);
+        Assert.assertEquals("base64", part.getContentTransferEncoding());
+        Assert.assertArrayEquals(binary, ContentUtil.buffer(((BinaryBody) part.getBody()).getInputStream()));
+    }
+
+    @Test
+    public void testWriteToStream() throws Exception {
+        byte[] binary = new byte[10000];
+        for (int i = 0; i < binary.length; i++) {
+            binary[i] = (byte) i;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeMessage(new MimeStreamWriter(out), binary);
+        verify(out.toByteArray(), binary);
+    }
+
+    @Test
+    public void testWriteToChannel() throws Exception {
+        byte[] binary = new byte[] { 0, 1, 2 };
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeMessage(new MimeStreamWriter(Channels.newChannel(out)), binary);
+        verify(out.toByteArray(), binary);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testPartOutsideMultipart() throws Exception {
+        MimeStreamWriter writer = new MimeStreamWriter(new ByteArrayOutputStream());
+        writer.startMessage();
+        writer.startPart();
+    }
+
+}
@@ -0,0 +1,224 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.mime4j.message;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.james.mime4j.io.PositionInputStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TransferEncodingConverterTest {
+
+    private static final String MESSAGE =
+            "Subject: convert\r\n" +
+            "Content-Type: multipart/mixed; boundary=outer\r\n" +
+            "Content-Transfer-Encoding: 8bit\r\n" +
+            "\r\n" +
+            "--outer\r\n" +
+            "Content-Type: text/plain; charset=ISO-8859-1\r\n" +
+            "Content-Transfer-Encoding: 8bit\r\n" +
+            "\r\n" +
+            "caf\u00e9\r\n" +
+            "--outer\r\n" +
+            "Content-Type: application/octet-stream\r\n" +
+            "Content-Transfer-Encoding: base64\r\n" +
+            "\r\n" +
+            "AAEC/w==\r\n" +
+            "--outer\r\n" +
+            "Content-Type: message/rfc822\r\n" +
+            "Content-Transfer-Encoding: 8bit\r\n" +
+            "\r\n" +
+            "Subject: embedded\r\n" +
+            "Content-Type: multipart/mixed; boundary=inner\r\n" +
+            "\r\n" +
+            "--inner\r\n" +
+            "Content-Type: text/plain; charset=ISO-8859-1\r\n" +
+            "Content-Transfer-Encoding: 8bit\r\n" +
+            "\r\n" +
+            "na\u00efve\r\n" +
+            "--inner\r\n" +
+            "Content-Type: text/plain\r\n" +
+            "Content-Transfer-Encoding: quoted-printable\r\n" +
+            "\r\n" +
+            "soft=\r\n" +
+            "break\r\n" +
+            "--inner--\r\n" +
+            "--outer--\r\n";
+
+    private static String convert(TransferEncodingConverter converter) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        converter.convert(new ByteArrayInputStream(MESSAGE.getBytes(StandardCharsets.ISO_8859_1)), out);
+        return new String(out.toByteArray(), StandardCharsets.ISO_8859_1);
+    }
+
+    @Test
+    public void testDowngrade() throws Exception {
+        Assert.assertEquals(
+            "Subject: convert\r\n" +
+            "Content-Type: multipart/mixed; boundary=outer\r\n" +
+            "Content-Transfer-Encoding: 7bit\r\n" +
+            "\r\n" +
+            "--outer\r\n" +
+            "Content-Type: text/plain; charset=ISO-8859-1\r\n" +
+            "Content-Transfer-Encoding: quoted-printable\r\n" +
+            "\r\n" +
+            "caf=E9\r\n" +
+            "--outer\r\n" +
+            "Content-Type: application/octet-stream\r\n" +
+            "Content-Transfer-Encoding: base64\r\n" +
+            "\r\n" +
+            "AAEC/w==\r\n" +
+            "--outer\r\n" +
+            "Content-Type: message/rfc822\r\n" +
+            "Content-Transfer-Encoding: 7bit\r\n" +
+            "\r\n" +
+            "Subject: embedded\r\n" +
+            "Content-Type: multipart/mixed; boundary=inner\r\n" +
+            "\r\n" +
+            "--inner\r\n" +
+            "Content-Type: text/plain; charset=ISO-8859-1\r\n" +
+            "Content-Transfer-Encoding: quoted-printable\r\n" +
+            "\r\n" +
+            "na=EFve\r\n" +
+            "--inner\r\n" +
+            "Content-Type: text/plain\r\n" +
+            "Content-Transfer-Encoding: quoted-printable\r\n" +
+            "\r\n" +
+            "soft=\r\n" +
+            "break\r\n" +
+            "--inner--\r\n" +
+            "--outer--\r\n", convert(TransferEncodingConverter.downgrade()));
+    }
+
+    @Test
+    public void testDowngradeUndeclaredEncoding() throws Exception {
+        String message =
+            "Subject: undeclared\r\n" +
+            "Content-Type: multipart/mixed; boundary=outer\r\n" +
+            "\r\n" +
+            "--outer\r\n" +
+            "Content-Type: text/plain; charset=ISO-8859-1\r\n" +
+            "\r\n" +
+            "caf\u00e9\r\n" +
+            "--outer\r\n" +
+            "Content-Type: text/plain\r\n" +
+            "\r\n" +
+            "plain ascii\r\n" +
+            "--outer\r\n" +
+            "Content-Type: application/octet-stream\r\n" +
+            "Content-Transfer-Encoding: 7bit\r\n" +
+            "\r\n" +
+            "\u0000\u0001\u0002\u00ff\r\n" +
+            "--outer\r\n" +
+            "Content-Type: message/rfc822\r\n" +
+            "\r\n" +
+            "Subject: embedded\r\n" +
+            "\r\n" +
+            "na\u00efve\r\n" +
+            "--outer--\r\n";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TransferEncodingConverter.downgrade().convert(
+                new ByteArrayInputStream(message.getBytes(StandardCharsets.ISO_8859_1)), out);
+
+        Assert.assertEquals(
+            "Subject: undeclared\r\n" +
+            "Content-Type: multipart/mixed; boundary=outer\r\n" +
+            "\r\n" +
+            "--outer\r\n" +
+            "Content-Type: text/plain; charset=ISO-8859-1\r\n" +
+            "Content-Transfer-Encoding: quoted-printable\r\n" +
+            "\r\n" +
+            "caf=E9\r\n" +
+            "--outer\r\n" +
+            "Content-Type: text/plain\r\n" +
+            "\r\n" +
+            "plain ascii\r\n" +
+            "--outer\r\n" +
+            "Content-Type: application/octet-stream\r\n" +
+            "Content-Transfer-Encoding: base64\r\n" +
+            "\r\n" +
+            "AAEC/w==\r\n" +
+            "\r\n" +
+            "--outer\r\n" +
+            "Content-Type: message/rfc822\r\n" +
+            "\r\n" +
+            "Subject: embedded\r\n" +
+            "Content-Transfer-Encoding: quoted-printable\r\n" +
+            "\r\n" +
+            "na=EFve\r\n" +
+            "--outer--\r\n", new String(out.toByteArray(), StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    public void testDowngradeLarge7bitPartIsNotBuffered() throws Exception {
+        StringBuilder body = new StringBuilder();
+        while (body.length() < 1024 * 1024) {
+            body.append("seven bit line of text, long enough to make a large part quickly\r\n");
+        }
+        String message =
+            "Subject: large\r\n" +
+            "Content-Type: text/plain\r\n" +
+            "\r\n" +
+            body;
+        final PositionInputStream in = new PositionInputStream(
+                new ByteArrayInputStream(message.getBytes(StandardCharsets.US_ASCII)));
+        final long limit = 16 * 1024;
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public synchronized void write(byte[] b, int off, int len) {
+                // the converter never reads far ahead of what it writes
+                Assert.assertTrue(in.getPosition() - size() < 2 * limit);
+                super.write(b, off, len);
+            }
+
+            @Override
+            public synchronized void write(int b) {
+                Assert.assertTrue(in.getPosition() - size() < 2 * limit);
+                super.write(b);
+            }
+        };
+        TransferEncodingConverter.downgrade().limitScan(limit).convert(in, out);
+
+        Assert.assertEquals(
+            "Subject: large\r\n" +
+            "Content-Type: text/plain\r\n" +
+            "Content-Transfer-Encoding: quoted-printable\r\n" +
+            "\r\n" +
+            body, new String(out.toByteArray(), StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void testUpgrade() throws Exception {
+        Assert.assertEquals(MESSAGE.replace(
+            "Content-Type: application/octet-stream\r\n" +
+            "Content-Transfer-Encoding: base64\r\n" +
+            "\r\n" +
+            "AAEC/w==\r\n",
+            "Content-Type: application/octet-stream\r\n" +
+            "Content-Transfer-Encoding: binary\r\n" +
+            "\r\n" +
+            "\u0000\u0001\u0002\u00ff\r\n"), convert(TransferEncodingConverter.upgrade()));
+    }
+
+}
@@ -21,6 +21,7 @@ package org.apache.james.mime4j.storage;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
 
 /**
  * <p>
@@ -102,6 +103,16 @@ public class MultiReferenceStorage implements Storage {
         return storage.getInputStream();
     }
 
+    /**
+     * Writes the data of the inner <code>Storage</code> object to the given
+     * channel if it supports it.
+     *
+     * @see Storage#transferTo(WritableByteChannel)
+     */
+    public boolean transferTo(WritableByteChannel channel) throws IOException {
+        return storage.transferTo(channel);
+    }
+
     /**
      * Synchronized increment of reference count.
      *
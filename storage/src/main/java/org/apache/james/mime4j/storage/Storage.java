@@ -21,6 +21,7 @@ package org.apache.james.mime4j.storage;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
 
 /**
  * Can be used to read data that has been stored by a {@link StorageProvider}.
@@ -50,4 +51,25 @@ public interface Storage {
      */
     void delete();
 
+    /**
+     * Writes the stored data directly to the given channel if this
+     * <code>Storage</code> can do so more efficiently than by copying its
+     * input stream, for instance with <code>FileChannel.transferTo</code>.
+     * <p>
+     * The default implementation does nothing and returns <code>false</code>.
+     *
+     * @param channel
+     *            the blocking channel to write to.
+     * @return <code>true</code> if the data has been written,
+     *         <code>false</code> if nothing has been written and the caller
+     *         has to copy the input stream instead.
+     * @throws IOException
+     *             if an I/O error occurs or the channel accepts no bytes.
+     * @throws IllegalStateException
+     *             if this <code>Storage</code> instance has been deleted.
+     */
+    default boolean transferTo(WritableByteChannel channel) throws IOException {
+        return false;
+    }
+
 }
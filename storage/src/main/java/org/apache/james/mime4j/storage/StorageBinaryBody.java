@@ -24,6 +24,8 @@ import java.io.InputStream;
 import java.io.OutputStream;
 
 import org.apache.james.mime4j.dom.BinaryBody;
+import org.apache.james.mime4j.io.ChannelOutputStream;
+import org.apache.james.mime4j.util.ContentStatistics;
 import org.apache.james.mime4j.util.ContentUtil;
 
 /**
@@ -33,9 +35,19 @@ import org.apache.james.mime4j.util.ContentUtil;
 class StorageBinaryBody extends BinaryBody {
 
     private MultiReferenceStorage storage;
+    private final ContentStatistics statistics;
 
     public StorageBinaryBody(final MultiReferenceStorage storage) {
+        this(storage, null);
+    }
+
+    /**
+     * @param statistics statistics gathered while the content was stored,
+     *  or <code>null</code>.
+     */
+    public StorageBinaryBody(final MultiReferenceStorage storage, final ContentStatistics statistics) {
         this.storage = storage;
+        this.statistics = statistics;
     }
 
     @Override
@@ -48,15 +60,24 @@ class StorageBinaryBody extends BinaryBody {
         if (out == null)
             throw new IllegalArgumentException();
 
+        if (out instanceof ChannelOutputStream
+                && storage.transferTo(((ChannelOutputStream) out).getChannel()))
+            return;
+
         InputStream in = storage.getInputStream();
         ContentUtil.copy(in, out);
         in.close();
     }
 
+    @Override
+    public ContentStatistics getContentStatistics() {
+        return statistics;
+    }
+
     @Override
     public StorageBinaryBody copy() {
         storage.addReference();
-        return new StorageBinaryBody(storage);
+        return new StorageBinaryBody(storage, statistics);
     }
 
     /**
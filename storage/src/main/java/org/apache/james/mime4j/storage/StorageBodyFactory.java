@@ -29,8 +29,10 @@ import org.apache.james.mime4j.dom.BinaryBody;
 import org.apache.james.mime4j.dom.Disposable;
 import org.apache.james.mime4j.dom.SingleBody;
 import org.apache.james.mime4j.dom.TextBody;
+import org.apache.james.mime4j.io.StatisticsInputStream;
 import org.apache.james.mime4j.message.BodyFactory;
 import org.apache.james.mime4j.util.CharsetUtil;
+import org.apache.james.mime4j.util.ContentStatistics;
 
 /**
  * Factory for creating message bodies.
@@ -41,6 +43,7 @@ public class StorageBodyFactory implements BodyFactory {
 
     private final StorageProvider storageProvider;
     private final DecodeMonitor monitor;
+    private final boolean contentStatistics;
 
     /**
      * Creates a new <code>BodyFactory</code> instance that uses the default
@@ -61,10 +64,32 @@ public class StorageBodyFactory implements BodyFactory {
     public StorageBodyFactory(
             final StorageProvider storageProvider,
             final DecodeMonitor monitor) {
+        this(storageProvider, monitor, false);
+    }
+
+    /**
+     * Creates a new <code>BodyFactory</code> instance that uses the given
+     * storage provider for creating message bodies from input streams.
+     *
+     * @param storageProvider
+     *            a storage provider or <code>null</code> to use the default
+     *            one.
+     * @param contentStatistics
+     *            whether {@link SingleBody#getContentStatistics() content
+     *            statistics} are gathered while bodies created from input
+     *            streams are stored. They cost a pass over every byte and are
+     *            only worth it if they are used, for instance to choose a
+     *            transfer encoding when writing.
+     */
+    public StorageBodyFactory(
+            final StorageProvider storageProvider,
+            final DecodeMonitor monitor,
+            final boolean contentStatistics) {
         this.storageProvider =
             storageProvider != null ? storageProvider : DefaultStorageProvider.getInstance();
         this.monitor =
             monitor != null ? monitor : DecodeMonitor.SILENT;
+        this.contentStatistics = contentStatistics;
     }
 
     /**
@@ -91,8 +116,9 @@ public class StorageBodyFactory implements BodyFactory {
         if (is == null)
             throw new IllegalArgumentException();
 
-        Storage storage = storageProvider.store(is);
-        return new StorageBinaryBody(new MultiReferenceStorage(storage));
+        StatisticsInputStream in = contentStatistics ? new StatisticsInputStream(is) : null;
+        Storage storage = storageProvider.store(in != null ? in : is);
+        return new StorageBinaryBody(new MultiReferenceStorage(storage), statistics(in));
     }
 
     /**
@@ -136,8 +162,10 @@ public class StorageBodyFactory implements BodyFactory {
         if (is == null)
             throw new IllegalArgumentException();
 
-        Storage storage = storageProvider.store(is);
-        return new StorageTextBody(new MultiReferenceStorage(storage), Charsets.DEFAULT_CHARSET);
+        StatisticsInputStream in = contentStatistics ? new StatisticsInputStream(is) : null;
+        Storage storage = storageProvider.store(in != null ? in : is);
+        return new StorageTextBody(new MultiReferenceStorage(storage), Charsets.DEFAULT_CHARSET,
+                statistics(in));
     }
 
     /**
@@ -165,9 +193,10 @@ public class StorageBodyFactory implements BodyFactory {
         if (mimeCharset == null)
             throw new IllegalArgumentException();
 
-        Storage storage = storageProvider.store(is);
+        StatisticsInputStream in = contentStatistics ? new StatisticsInputStream(is) : null;
+        Storage storage = storageProvider.store(in != null ? in : is);
         Charset charset = toJavaCharset(mimeCharset, false, monitor);
-        return new StorageTextBody(new MultiReferenceStorage(storage), charset);
+        return new StorageTextBody(new MultiReferenceStorage(storage), charset, statistics(in));
     }
 
     /**
@@ -278,6 +307,10 @@ public class StorageBodyFactory implements BodyFactory {
         return new StringTextBody(text, charset);
     }
 
+    private static ContentStatistics statistics(StatisticsInputStream in) {
+        return in != null ? in.getStatistics() : null;
+    }
+
     private static Charset toJavaCharset(
             final String mimeCharset,
             boolean forEncoding,
@@ -22,10 +22,14 @@ package org.apache.james.mime4j.storage;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.nio.charset.Charset;
 
 import org.apache.james.mime4j.dom.TextBody;
+import org.apache.james.mime4j.io.ChannelOutputStream;
+import org.apache.james.mime4j.util.ContentStatistics;
+import org.apache.james.mime4j.util.ContentUtil;
 
 /**
  * Text body backed by a {@link org.apache.james.mime4j.storage.Storage}.
@@ -34,10 +38,20 @@ class StorageTextBody extends TextBody {
 
     private MultiReferenceStorage storage;
     private final Charset charset;
+    private final ContentStatistics statistics;
 
     public StorageTextBody(MultiReferenceStorage storage, Charset charset) {
+        this(storage, charset, null);
+    }
+
+    /**
+     * @param statistics statistics gathered while the content was stored,
+     *  or <code>null</code>.
+     */
+    public StorageTextBody(MultiReferenceStorage storage, Charset charset, ContentStatistics statistics) {
         this.storage = storage;
         this.charset = charset;
+        this.statistics = statistics;
     }
 
     @Override
@@ -55,10 +69,29 @@ class StorageTextBody extends TextBody {
         return storage.getInputStream();
     }
 
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        if (out == null)
+            throw new IllegalArgumentException();
+
+        if (out instanceof ChannelOutputStream
+                && storage.transferTo(((ChannelOutputStream) out).getChannel()))
+            return;
+
+        InputStream in = storage.getInputStream();
+        ContentUtil.copy(in, out);
+        in.close();
+    }
+
+    @Override
+    public ContentStatistics getContentStatistics() {
+        return statistics;
+    }
+
     @Override
     public StorageTextBody copy() {
         storage.addReference();
-        return new StorageTextBody(storage, charset);
+        return new StorageTextBody(storage, charset, statistics);
     }
 
     /**
@@ -26,11 +26,14 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.james.mime4j.io.ChannelOutputStream;
 
 /**
  * A {@link StorageProvider} that stores the data in temporary files. The files
@@ -185,6 +188,28 @@ public class TempFileStorageProvider extends AbstractStorageProvider {
             return new BufferedInputStream(new FileInputStream(file));
         }
 
+        @Override
+        public boolean transferTo(WritableByteChannel channel) throws IOException {
+            if (file == null)
+                throw new IllegalStateException("storage has been deleted");
+
+            // lets the kernel copy the file without going through user space
+            FileInputStream in = new FileInputStream(file);
+            try {
+                FileChannel source = in.getChannel();
+                long size = source.size();
+                long position = 0;
+                while (position < size) {
+                    long written = source.transferTo(position, size - position, channel);
+                    ChannelOutputStream.checkProgress(written);
+                    position += written;
+                }
+            } finally {
+                in.close();
+            }
+            return true;
+        }
+
     }
 
 }
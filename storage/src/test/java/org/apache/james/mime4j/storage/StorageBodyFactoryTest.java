@@ -0,0 +1,56 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.mime4j.storage;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.james.mime4j.dom.SingleBody;
+import org.apache.james.mime4j.util.ContentStatistics;
+import org.apache.james.mime4j.util.MimeUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StorageBodyFactoryTest {
+
+    private static final byte[] TEXT = "caf\u00e9 au lait".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void testNoStatisticsByDefault() throws Exception {
+        StorageBodyFactory factory = new StorageBodyFactory(new MemoryStorageProvider(), null);
+        SingleBody text = (SingleBody) factory.textBody(new ByteArrayInputStream(TEXT), "UTF-8");
+        SingleBody binary = (SingleBody) factory.binaryBody(new ByteArrayInputStream(TEXT));
+
+        Assert.assertNull(text.getContentStatistics());
+        Assert.assertNull(binary.getContentStatistics());
+    }
+
+    @Test
+    public void testGatherStatisticsWhenEnabled() throws Exception {
+        StorageBodyFactory factory = new StorageBodyFactory(new MemoryStorageProvider(), null, true);
+        SingleBody text = (SingleBody) factory.textBody(new ByteArrayInputStream(TEXT), "UTF-8");
+        SingleBody binary = (SingleBody) factory.binaryBody(new ByteArrayInputStream(TEXT));
+
+        ContentStatistics statistics = text.getContentStatistics();
+        Assert.assertEquals(TEXT.length, statistics.getLength());
+        Assert.assertEquals(MimeUtil.ENC_QUOTED_PRINTABLE, statistics.getTransferEncoding(true));
+        Assert.assertEquals(TEXT.length, binary.getContentStatistics().getLength());
+    }
+
+}
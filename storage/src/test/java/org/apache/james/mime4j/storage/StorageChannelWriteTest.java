@@ -0,0 +1,175 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.mime4j.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.Pipe;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.james.mime4j.dom.Message;
+import org.apache.james.mime4j.message.BodyPartBuilder;
+import org.apache.james.mime4j.message.DefaultMessageWriter;
+import org.apache.james.mime4j.message.MultipartBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StorageChannelWriteTest {
+
+    /**
+     * Blocking channel recording what is written to it.
+     */
+    private static class RecordingChannel implements GatheringByteChannel {
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int gatheringWrites;
+
+        public int write(ByteBuffer src) {
+            int n = src.remaining();
+            while (src.hasRemaining()) {
+                out.write(src.get());
+            }
+            return n;
+        }
+
+        public long write(ByteBuffer[] srcs, int offset, int length) {
+            gatheringWrites++;
+            long n = 0;
+            for (int i = offset; i < offset + length; i++) {
+                n += write(srcs[i]);
+            }
+            return n;
+        }
+
+        public long write(ByteBuffer[] srcs) {
+            return write(srcs, 0, srcs.length);
+        }
+
+        public boolean isOpen() {
+            return true;
+        }
+
+        public void close() {
+        }
+
+    }
+
+    /**
+     * Storage counting the transfers to a channel.
+     */
+    private static class CountingStorage implements Storage {
+
+        private final Storage storage;
+        int transfers;
+
+        CountingStorage(Storage storage) {
+            this.storage = storage;
+        }
+
+        public InputStream getInputStream() throws IOException {
+            return storage.getInputStream();
+        }
+
+        public void delete() {
+            storage.delete();
+        }
+
+        @Override
+        public boolean transferTo(WritableByteChannel channel) throws IOException {
+            transfers++;
+            return storage.transferTo(channel);
+        }
+
+    }
+
+    private static byte[] createData(int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) ('a' + i % 26);
+        }
+        return data;
+    }
+
+    @Test
+    public void testWriteStorageBodiesToChannel() throws Exception {
+        byte[] stored = createData(20000);
+        CountingStorage storage = new CountingStorage(
+                new TempFileStorageProvider().store(new ByteArrayInputStream(stored)));
+        Message message = Message.Builder.of()
+            .setSubject("Channel")
+            .setBody(MultipartBuilder.create("mixed")
+                .setPreamble(new String(createData(10000), StandardCharsets.US_ASCII))
+                .addBodyPart(BodyPartBuilder.create()
+                    .setContentType("application/octet-stream")
+                    .setBody(new StorageBinaryBody(new MultiReferenceStorage(storage))))
+                .build())
+            .build();
+
+        RecordingChannel channel = new RecordingChannel();
+        new DefaultMessageWriter().writeMessage(message, channel);
+
+        Assert.assertArrayEquals(DefaultMessageWriter.asBytes(message), channel.out.toByteArray());
+        // the stored body goes through the file channel, the large preamble
+        // is written together with the buffered header
+        Assert.assertEquals(1, storage.transfers);
+        Assert.assertTrue(channel.gatheringWrites > 0);
+        message.dispose();
+    }
+
+    @Test
+    public void testTransferToStalledChannel() throws Exception {
+        Storage storage = new TempFileStorageProvider().store(new ByteArrayInputStream(createData(1024)));
+        WritableByteChannel stalled = new RecordingChannel() {
+            @Override
+            public int write(ByteBuffer src) {
+                return 0;
+            }
+        };
+        try {
+            storage.transferTo(stalled);
+            Assert.fail("IOException should have been thrown");
+        } catch (IOException expected) {
+        } finally {
+            storage.delete();
+        }
+    }
+
+    @Test(expected = IllegalBlockingModeException.class)
+    public void testWriteToNonBlockingChannel() throws Exception {
+        Pipe pipe = Pipe.open();
+        try {
+            pipe.sink().configureBlocking(false);
+            Message message = Message.Builder.of()
+                .setSubject("Channel")
+                .setBody("body", StandardCharsets.US_ASCII)
+                .build();
+            new DefaultMessageWriter().writeMessage(message, pipe.sink());
+        } finally {
+            pipe.sink().close();
+            pipe.source().close();
+        }
+    }
+
+}
@@ -22,6 +22,7 @@ package org.apache.james.mime4j.storage;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.channels.Channels;
 
 import org.apache.james.mime4j.util.ContentUtil;
 import org.junit.Assert;
@@ -53,6 +54,24 @@ public class StorageProviderTest {
         testDelete(provider);
     }
 
+    @Test
+    public void testTempFileStorageTransferTo() throws Exception {
+        StorageProvider provider = new TempFileStorageProvider();
+        byte[] data = createData(20000);
+        Storage storage = provider.store(new ByteArrayInputStream(data));
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Assert.assertTrue(storage.transferTo(Channels.newChannel(baos)));
+        verifyData(data, baos.toByteArray());
+
+        storage.delete();
+        try {
+            storage.transferTo(Channels.newChannel(baos));
+            Assert.fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
     @Test
     public void testThresholdStorageProvider() throws Exception {
         final int threshold = 5000;